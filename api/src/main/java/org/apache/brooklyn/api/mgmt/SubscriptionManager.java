@@ -48,6 +48,7 @@ public interface SubscriptionManager {
      * The flags parameters can include the following:
      * <ul>
      * <li>subscriber - object to identify the subscriber (e.g. entity, or console session uid) 
+     * <li>conflate - deliver only the latest value of an attribute if the subscriber falls behind (where supported)
      * <li><i>in future</i> - control parameters for the subscription (period, minimum delta for updates, etc)
      * </ul>
      * 
@@ -61,6 +61,18 @@ public class EnricherSpec<T extends Enricher> extends AbstractBrooklynObjectSpec
         return EnricherSpec.create(type).configure(config);
     }
     
+    /**
+     * Copies enricher spec so its configuration can be overridden without modifying the 
+     * original enricher spec.
+     */
+    public static <T extends Enricher> EnricherSpec<T> create(EnricherSpec<T> spec) {
+        // need this to get EnricherSpec<T> rather than EnricherSpec<? extends T>
+        @SuppressWarnings("unchecked")
+        Class<T> exactType = (Class<T>)spec.getType();
+        
+        return create(exactType).copyFrom(spec);
+    }
+    
     protected EnricherSpec(Class<? extends T> type) {
         super(type);
     }
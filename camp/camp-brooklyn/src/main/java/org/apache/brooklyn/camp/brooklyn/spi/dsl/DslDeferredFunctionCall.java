@@ -32,16 +32,35 @@ import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.javalang.Reflections;
+import org.apache.brooklyn.util.javalang.coerce.TypeCoercer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Objects;
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ListMultimap;
 
 public class DslDeferredFunctionCall extends BrooklynDslDeferredSupplier<Object> {
     private static final Logger log = LoggerFactory.getLogger(DslDeferredFunctionCall.class);
     private static final Set<Method> DEPRECATED_ACCESS_WARNINGS = Collections.newSetFromMap(new ConcurrentHashMap<Method, Boolean>());
 
+    /**
+     * The public methods of each class, by name (in {@link Class#getMethods()} order), so that resolving
+     * a DSL function does not need to scan all methods of the target on every call.
+     */
+    private static final ClassValue<ListMultimap<String, Method>> METHODS_BY_NAME = new ClassValue<ListMultimap<String, Method>>() {
+        @Override
+        protected ListMultimap<String, Method> computeValue(Class<?> type) {
+            ImmutableListMultimap.Builder<String, Method> result = ImmutableListMultimap.builder();
+            for (Method m : type.getMethods()) {
+                result.put(m.getName(), m);
+            }
+            return result.build();
+        }
+    };
+
     private static final long serialVersionUID = 3243262633795112155L;
 
     private Object object;
@@ -152,7 +171,7 @@ public class DslDeferredFunctionCall extends BrooklynDslDeferredSupplier<Object>
         }
     
         protected void findMethod() {
-            method = Reflections.getMethodFromArgs(obj, fnName, args);
+            method = getMethodFromArgs(obj, fnName, args);
             if (method.isPresent()) {
                 this.instance = obj;
                 this.instanceArgs = args;
@@ -161,12 +180,16 @@ public class DslDeferredFunctionCall extends BrooklynDslDeferredSupplier<Object>
                 
             instance = BrooklynDslCommon.class;
             instanceArgs = ImmutableList.builder().add(obj).addAll(args).build();
-            method = Reflections.getMethodFromArgs(instance, fnName, instanceArgs);
+            method = getMethodFromArgs(instance, fnName, instanceArgs);
             if (method.isPresent()) return ;
     
             Maybe<?> facade;
             try {
-                facade = Reflections.invokeMethodFromArgs(BrooklynDslCommon.DslFacades.class, "wrap", ImmutableList.of(obj));
+                List<Object> facadeArgs = ImmutableList.of(obj);
+                Maybe<Method> wrap = getMethodFromArgs(BrooklynDslCommon.DslFacades.class, "wrap", facadeArgs);
+                facade = wrap.isPresent()
+                        ? Maybe.of(Reflections.invokeMethodFromArgs(BrooklynDslCommon.DslFacades.class, wrap.get(), facadeArgs))
+                        : Maybe.absent();
             } catch (IllegalArgumentException | IllegalAccessException | InvocationTargetException e) {
                 facade = Maybe.absent();
             }
@@ -174,12 +197,18 @@ public class DslDeferredFunctionCall extends BrooklynDslDeferredSupplier<Object>
             if (facade.isPresent()) {
                 instance = facade.get();
                 instanceArgs = args;
-                method = Reflections.getMethodFromArgs(instance, fnName, instanceArgs);
+                method = getMethodFromArgs(instance, fnName, instanceArgs);
                 if (method.isPresent()) return ;
             }
             
             method = Maybe.absent();
         }
+        
+        /** as {@link Reflections#getMethodFromArgs(Object, String, List)}, but using the cached methods of the class */
+        private static Maybe<Method> getMethodFromArgs(Object clazzOrInstance, String fnName, List<?> args) {
+            Class<?> clazz = (clazzOrInstance instanceof Class) ? (Class<?>)clazzOrInstance : clazzOrInstance.getClass();
+            return Reflections.getMethodFromArgsAmong(METHODS_BY_NAME.get(clazz).get(fnName), fnName, args, Optional.<TypeCoercer>absent());
+        }
     }
     
     protected Maybe<?> resolve(Object object, boolean immediate) {
@@ -26,6 +26,7 @@ import java.util.NoSuchElementException;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 
+import org.apache.brooklyn.api.entity.Application;
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.location.Location;
 import org.apache.brooklyn.api.mgmt.ExecutionContext;
@@ -66,6 +67,7 @@ import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
@@ -247,34 +249,21 @@ public class DslComponent extends BrooklynDslDeferredSupplier<Entity> implements
             }
             EntityInternal entity = (EntityInternal) entityMaybe.get();
             
-            Iterable<Entity> entitiesToSearch = null;
-            Predicate<Entity> notSelfPredicate = Predicates.not(Predicates.<Entity>equalTo(entity));
-
             switch (scope) {
                 case THIS:
                     return Maybe.<Entity>of(entity);
                 case PARENT:
                     return Maybe.<Entity>of(entity.getParent());
-                case GLOBAL:
-                    entitiesToSearch = ((EntityManagerInternal)entity.getManagementContext().getEntityManager())
-                        .getAllEntitiesInApplication( entity().getApplication() );
-                    break;
                 case ROOT:
                     return Maybe.<Entity>of(entity.getApplication());
                 case SCOPE_ROOT:
                     return Maybe.<Entity>of(Entities.catalogItemScopeRoot(entity));
+                case GLOBAL:
                 case DESCENDANT:
-                    entitiesToSearch = Entities.descendantsWithoutSelf(entity);
-                    break;
                 case ANCESTOR:
-                    entitiesToSearch = Entities.ancestorsWithoutSelf(entity);
-                    break;
                 case SIBLING:
-                    entitiesToSearch = entity.getParent().getChildren();
-                    entitiesToSearch = Iterables.filter(entitiesToSearch, notSelfPredicate);
-                    break;
                 case CHILD:
-                    entitiesToSearch = entity.getChildren();
+                    // search below, once we know what for
                     break;
                 default:
                     throw new IllegalStateException("Unexpected scope "+scope);
@@ -301,7 +290,7 @@ public class DslComponent extends BrooklynDslDeferredSupplier<Entity> implements
                 
                 // Support being passed an explicit entity via the DSL
                 if (maybeComponentId.get() instanceof BrooklynObject) {
-                    if (Iterables.contains(entitiesToSearch, maybeComponentId.get())) {
+                    if (Iterables.contains(getEntitiesToSearch(entity), maybeComponentId.get())) {
                         return Maybe.of((Entity)maybeComponentId.get());
                     } else {
                         throw new IllegalStateException("Resolved component " + maybeComponentId.get() + " is not in scope '" + scope + "' wrt " + entity);
@@ -318,6 +307,12 @@ public class DslComponent extends BrooklynDslDeferredSupplier<Entity> implements
                 desiredComponentId = componentId;
             }
             
+            Maybe<Entity> indexed = findIndexed(entity, desiredComponentId);
+            if (indexed.isPresent()) {
+                return indexed;
+            }
+            
+            Iterable<Entity> entitiesToSearch = getEntitiesToSearch(entity);
             Optional<Entity> result = Iterables.tryFind(entitiesToSearch, EntityPredicates.configEqualTo(BrooklynCampConstants.PLAN_ID, desiredComponentId));
             if (result.isPresent()) {
                 return Maybe.of(result.get());
@@ -335,6 +330,73 @@ public class DslComponent extends BrooklynDslDeferredSupplier<Entity> implements
                 (scopeComponent!=null ? " ("+scopeComponent+" from "+entity()+")" : ""))));
         }
         
+        private Iterable<Entity> getEntitiesToSearch(EntityInternal entity) {
+            switch (scope) {
+                case GLOBAL:
+                    return ((EntityManagerInternal)entity.getManagementContext().getEntityManager())
+                        .getAllEntitiesInApplication( entity().getApplication() );
+                case DESCENDANT:
+                    return Entities.descendantsWithoutSelf(entity);
+                case ANCESTOR:
+                    return Entities.ancestorsWithoutSelf(entity);
+                case SIBLING:
+                    return Iterables.filter(entity.getParent().getChildren(), Predicates.not(Predicates.<Entity>equalTo(entity)));
+                case CHILD:
+                    return entity.getChildren();
+                default:
+                    throw new IllegalStateException("Unexpected scope "+scope);
+            }
+        }
+
+        /**
+         * Looks up the component using the entity manager's index of {@link BrooklynCampConstants#PLAN_ID plan ids}
+         * and of entity ids, avoiding walking the entities in scope. Returns absent if there is not a single match,
+         * e.g. because the entity is not yet fully managed, in which case the caller should search as normal.
+         */
+        private Maybe<Entity> findIndexed(final EntityInternal entity, String desiredComponentId) {
+            Application app = (scope==Scope.GLOBAL) ? entity().getApplication() : entity.getApplication();
+            if (app == null) {
+                return Maybe.absent();
+            }
+            EntityManagerInternal entityManager = (EntityManagerInternal) entity.getManagementContext().getEntityManager();
+            Predicate<Entity> inScope = new Predicate<Entity>() {
+                @Override public boolean apply(Entity input) {
+                    return isInScope(input, entity);
+                }
+            };
+            
+            Collection<Entity> candidates = Collections2.filter(entityManager.getEntitiesInApplicationWithPlanId(app, desiredComponentId), inScope);
+            if (candidates.size() == 1) {
+                return Maybe.of(Iterables.getOnlyElement(candidates));
+            } else if (candidates.size() > 1) {
+                // ambiguous; leave it to the search, which prefers the first found
+                return Maybe.absent();
+            }
+            
+            Entity result = entityManager.getEntity(desiredComponentId);
+            if (result != null && app.getId().equals(result.getApplicationId()) && inScope.apply(result)) {
+                return Maybe.of(result);
+            }
+            return Maybe.absent();
+        }
+        
+        private boolean isInScope(Entity candidate, Entity entity) {
+            switch (scope) {
+                case GLOBAL:
+                    return true;
+                case DESCENDANT:
+                    return Entities.isAncestor(candidate, entity);
+                case ANCESTOR:
+                    return Entities.isAncestor(entity, candidate);
+                case SIBLING:
+                    return !candidate.equals(entity) && candidate.getParent() != null && candidate.getParent().equals(entity.getParent());
+                case CHILD:
+                    return entity.equals(candidate.getParent());
+                default:
+                    return false;
+            }
+        }
+
         private ExecutionContext getExecutionContext() {
             return findExecutionContext(this);
         }
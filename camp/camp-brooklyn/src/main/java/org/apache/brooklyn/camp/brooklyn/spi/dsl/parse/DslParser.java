@@ -23,7 +23,17 @@ import java.util.List;
 
 import org.apache.brooklyn.util.collections.MutableList;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+
 public class DslParser {
+
+    /** Parsed expressions; these are immutable so can be shared. Large catalogs repeat the same expressions many times. */
+    private static final Cache<String, Object> PARSED_EXPRESSIONS = CacheBuilder.newBuilder()
+            .maximumSize(10000)
+            .build();
+
     private final String expression;
     int index = -1;
     
@@ -31,6 +41,19 @@ public class DslParser {
         this.expression = expression;
     }
     
+    /**
+     * As {@link #parse()} on a new parser, but returning the same (immutable) parse tree
+     * if the same expression has been parsed recently. Expressions which fail to parse are not cached.
+     */
+    public static Object parseCached(String expression) {
+        Object result = PARSED_EXPRESSIONS.getIfPresent(expression);
+        if (result == null) {
+            result = new DslParser(expression).parse();
+            PARSED_EXPRESSIONS.put(expression, result);
+        }
+        return result;
+    }
+    
     public synchronized Object parse() {
         if (index>=0)
             throw new IllegalStateException("Parser can only be used once");
@@ -113,7 +136,7 @@ public class DslParser {
             index++;
             skipWhitespace();
             if (index >= expression.length())
-                return result;
+                return ImmutableList.copyOf(result);
             char c = expression.charAt(index);
             if (c=='.') {
                 // chained expression
@@ -122,13 +145,13 @@ public class DslParser {
                 Object next = next();
                 if (next instanceof List) {
                     result.addAll((Collection<? extends FunctionWithArgs>) next);
-                    return result;
+                    return ImmutableList.copyOf(result);
                 } else {
                     throw new IllegalStateException("Expected functions following position"+chainStart);
                 }
             } else {
                 // following word not something handled at this level; assume parent will handle (or throw) - e.g. a , or extra )
-                return result;
+                return ImmutableList.copyOf(result);
             }
         } else {
             // it is just a word; return it with args as null
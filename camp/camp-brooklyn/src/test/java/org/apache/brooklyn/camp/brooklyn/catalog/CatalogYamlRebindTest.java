@@ -35,9 +35,12 @@ import org.apache.brooklyn.api.mgmt.rebind.RebindManager.RebindFailureMode;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoPersister;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoRawData;
 import org.apache.brooklyn.api.objs.BrooklynObjectType;
+import org.apache.brooklyn.api.typereg.BrooklynTypeRegistry.RegisteredTypeKind;
 import org.apache.brooklyn.api.typereg.RegisteredType;
 import org.apache.brooklyn.camp.brooklyn.AbstractYamlRebindTest;
 import org.apache.brooklyn.core.BrooklynFeatureEnablement;
+import org.apache.brooklyn.core.catalog.internal.BasicBrooklynCatalog;
+import org.apache.brooklyn.core.catalog.internal.CatalogInitialization;
 import org.apache.brooklyn.core.catalog.internal.CatalogUtils;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.StartableApplication;
@@ -66,6 +69,7 @@ import org.testng.annotations.Test;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 
 public class CatalogYamlRebindTest extends AbstractYamlRebindTest {
@@ -423,7 +427,38 @@ public class CatalogYamlRebindTest extends AbstractYamlRebindTest {
         doTestLongReferenceSequence();
     }
     
+    @Test
+    public void testLongReferenceSequenceWithOsgiAndParallelValidation() throws Exception {
+        recreateOrigManagementContextWithOsgi();
+        doTestLongReferenceSequence(RebindOptions.create().additionalProperties(ImmutableMap.of(
+                BasicBrooklynCatalog.VALIDATION_PARALLELISM.getName(), "4")));
+        for (int i = 0; i<10; i++) {
+            assertEquals(mgmt().getTypeRegistry().get("a" + i, "1").getKind(), RegisteredTypeKind.SPEC);
+        }
+    }
+    
+    @Test
+    public void testLongReferenceSequenceWithOsgiAndDeferredValidation() throws Exception {
+        recreateOrigManagementContextWithOsgi();
+        doTestLongReferenceSequence(RebindOptions.create().additionalProperties(ImmutableMap.of(
+                CatalogInitialization.DEFER_VALIDATION_ON_REBIND.getName(), "true")));
+        Asserts.succeedsEventually(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i<10; i++) {
+                    assertEquals(mgmt().getTypeRegistry().get("a" + i, "1").getKind(), RegisteredTypeKind.SPEC);
+                }
+            }});
+        
+        Entity app = createAndStartApplication("services: [ { type: a5 } ]");
+        assertTrue(Iterables.getOnlyElement(app.getChildren()) instanceof BasicEntity);
+    }
+    
     private void doTestLongReferenceSequence() throws Exception {
+        doTestLongReferenceSequence(RebindOptions.create());
+    }
+    
+    private void doTestLongReferenceSequence(RebindOptions rebindOptions) throws Exception {
         // adds a0, a1 extending a0, a2 extending a1, ... a9 extending a8
         // osgi rebind of types can fail because bundles are restored in any order
         // and dependencies might not yet be installed;
@@ -438,7 +473,7 @@ public class CatalogYamlRebindTest extends AbstractYamlRebindTest {
                 "    type: " + (i==0 ? BasicEntity.class.getName() : "a" + (i-1)));
         }
         origApp = (StartableApplication) createAndStartApplication("services: [ { type: a9 } ]");
-        rebind();
+        rebind(rebindOptions);
         Entity child = Iterables.getOnlyElement( newApp.getChildren() );
         Asserts.assertTrue(child instanceof BasicEntity);
         Asserts.assertEquals(child.getCatalogItemId(), "a9:1");
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.camp.brooklyn.catalog;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
+
+import org.apache.brooklyn.api.entity.Application;
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.camp.brooklyn.AbstractYamlTest;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.internal.LocalManagementContext;
+import org.apache.brooklyn.core.test.entity.LocalManagementContextForTests;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.core.typereg.BasicBrooklynTypeRegistry;
+import org.testng.annotations.Test;
+
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Iterables;
+
+public class CatalogYamlSpecCacheTest extends AbstractYamlTest {
+
+    private static final String[] APP_YAML = {
+            "services:",
+            "- type: my.item" };
+
+    @Override
+    protected LocalManagementContext newTestManagementContext() {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(BasicBrooklynTypeRegistry.SPEC_CACHE_MAX_SIZE, 100);
+        return LocalManagementContextForTests.builder(true)
+                .useProperties(props)
+                .disableOsgi()
+                .build();
+    }
+
+    @Test
+    public void testRepeatedDeploymentsUseCachedSpec() throws Exception {
+        addItem("1", "a");
+
+        Application app = createAndStartApplication(APP_YAML);
+        CacheStats stats1 = getStats();
+        Application app2 = createAndStartApplication(APP_YAML);
+        CacheStats stats2 = getStats().minus(stats1);
+
+        assertTrue(stats2.hitCount() > 0, "stats="+stats2);
+        assertEquals(stats2.missCount(), 0, "stats="+stats2);
+        assertEquals(getOnlyChild(app).config().get(TestEntity.CONF_NAME), "a");
+        assertEquals(getOnlyChild(app2).config().get(TestEntity.CONF_NAME), "a");
+    }
+
+    @Test
+    public void testCachedSpecsAreCopies() throws Exception {
+        addItem("1", "a");
+
+        EntitySpec<?> spec = createAppEntitySpec(APP_YAML);
+        spec.configure(TestEntity.CONF_NAME, "changed");
+        Iterables.getOnlyElement(spec.getChildren()).configure(TestEntity.CONF_NAME, "changed");
+
+        EntitySpec<?> spec2 = createAppEntitySpec(APP_YAML);
+        assertTrue(getStats().hitCount() > 0, "stats="+getStats());
+        assertNotSame(spec2, spec);
+        assertEquals(spec2.getConfig().get(TestEntity.CONF_NAME), null);
+        assertEquals(Iterables.getOnlyElement(spec2.getChildren()).getConfig().get(TestEntity.CONF_NAME), "a");
+    }
+
+    @Test
+    public void testCacheInvalidatedWhenTypesChange() throws Exception {
+        addItem("1", "a");
+        Application app = createAndStartApplication(APP_YAML);
+        assertEquals(getOnlyChild(app).config().get(TestEntity.CONF_NAME), "a");
+
+        addItem("2", "b");
+        Application app2 = createAndStartApplication(APP_YAML);
+        assertEquals(getOnlyChild(app2).config().get(TestEntity.CONF_NAME), "b");
+
+        deleteCatalogRegisteredType("my.item", "2");
+        Application app3 = createAndStartApplication(APP_YAML);
+        assertEquals(getOnlyChild(app3).config().get(TestEntity.CONF_NAME), "a");
+    }
+
+    private void addItem(String version, String name) {
+        addCatalogItems(
+                "brooklyn.catalog:",
+                "  id: my.item",
+                "  version: " + version,
+                "  itemType: entity",
+                "  item:",
+                "    type: " + TestEntity.class.getName(),
+                "    brooklyn.config:",
+                "      " + TestEntity.CONF_NAME.getName() + ": " + name);
+    }
+
+    private TestEntity getOnlyChild(Application app) {
+        return (TestEntity) Iterables.getOnlyElement(app.getChildren());
+    }
+
+    private CacheStats getStats() {
+        return ((BasicBrooklynTypeRegistry) mgmt().getTypeRegistry()).getSpecCacheStats().get();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.camp.brooklyn.qa.performance;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Map;
+
+import org.apache.brooklyn.camp.BasicCampPlatform;
+import org.apache.brooklyn.camp.brooklyn.spi.dsl.BrooklynDslDeferredSupplier;
+import org.apache.brooklyn.camp.brooklyn.spi.dsl.BrooklynDslInterpreter;
+import org.apache.brooklyn.core.test.qa.performance.AbstractPerformanceTest;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Measures interpretation of a plan containing many {@code $brooklyn:} expressions, as is typical
+ * of large catalogs where the same expressions are repeated across many items.
+ */
+public class DslInterpretationPerformanceTest extends AbstractPerformanceTest {
+
+    private static final String[] EXPRESSIONS = {
+            "$brooklyn:config(\"my.config\")",
+            "$brooklyn:attributeWhenReady(\"host.name\")",
+            "$brooklyn:entity(\"db\").attributeWhenReady(\"datastore.url\")",
+            "$brooklyn:component(\"parent\", \"\").config(\"my.config\")",
+            "$brooklyn:formatString(\"%s:%s\", $brooklyn:entity(\"web\").attributeWhenReady(\"host.address\"), \"8080\")",
+            "$brooklyn:sibling(\"lb\").attributeWhenReady(\"main.uri\")",
+            "$brooklyn:literal(\"some text\")",
+            "$brooklyn:urlEncode(\"a b\")",
+    };
+
+    private BasicCampPlatform platform;
+    private Map<String, Object> plan;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        platform = new BasicCampPlatform();
+        platform.pdp().addInterpreter(new BrooklynDslInterpreter());
+        plan = MutableMap.of();
+        for (int i = 0; i < 100; i++) {
+            plan.put("key"+i, EXPRESSIONS[i % EXPRESSIONS.length]);
+        }
+    }
+
+    protected int numIterations() {
+        return 1000;
+    }
+
+    @Test(groups = { "Integration", "Acceptance" })
+    public void testInterpretPlan() throws Exception {
+        Map<String, Object> result = platform.pdp().applyInterpreters(plan);
+        Asserts.assertInstanceOf(result.get("key0"), BrooklynDslDeferredSupplier.class);
+        assertEquals(result.get("key6"), "some text");
+
+        measure(PerformanceTestDescriptor.create()
+                .summary("DslInterpretationPerformanceTest.testInterpretPlan")
+                .iterations(numIterations())
+                .minAcceptablePerSecond(10 * PERFORMANCE_EXPECTATION)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        platform.pdp().applyInterpreters(plan);
+                    }}));
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.brooklyn.camp.brooklyn.spi.dsl;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import java.util.Arrays;
@@ -27,6 +28,7 @@ import java.util.List;
 import org.apache.brooklyn.camp.brooklyn.spi.dsl.parse.DslParser;
 import org.apache.brooklyn.camp.brooklyn.spi.dsl.parse.FunctionWithArgs;
 import org.apache.brooklyn.camp.brooklyn.spi.dsl.parse.QuotedString;
+import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.util.text.StringEscapes.JavaStringEscapes;
 import org.testng.annotations.Test;
 
@@ -74,5 +76,26 @@ public class DslParseTest {
         assertTrue( ((FunctionWithArgs)fx2).getArgs().isEmpty() );
     }
     
+    public void testParseCachedReturnsSameImmutableTree() {
+        String expression = "f(\"x\", g(\"y\").h()).i()";
+        Object fx = DslParser.parseCached(expression);
+        assertSame(DslParser.parseCached(expression), fx);
+        assertEquals(fx.toString(), new DslParser(expression).parse().toString());
+        
+        assertTrue(fx instanceof ImmutableList, "fx="+fx.getClass());
+        Object nested = ((FunctionWithArgs)((List<?>)fx).get(0)).arg(1);
+        assertTrue(nested instanceof ImmutableList, "nested="+nested.getClass());
+    }
+
+    public void testParseCachedDoesNotCacheFailures() {
+        for (int i = 0; i < 2; i++) {
+            try {
+                DslParser.parseCached("f(\"x\"");
+                Asserts.shouldHaveFailedPreviously();
+            } catch (IllegalStateException e) {
+                Asserts.expectedFailureContains(e, "no close parenthesis");
+            }
+        }
+    }
 
 }
@@ -104,6 +104,27 @@ public class BrooklynFeatureEnablement {
      */
     public static final String FEATURE_JITTER_THREADS = "brooklyn.executionManager.jitterThreads";
 
+    /**
+     * Whether sensor events are delivered to each subscriber through a per-subscriber queue drained by one task,
+     * rather than by submitting a separately named task for every event to every subscriber.
+     * Delivery order per subscriber is unchanged. Reduces allocation and task churn when there are many events,
+     * at the cost of individual deliveries no longer being visible as tasks.
+     * <p>
+     * Defaults to false.
+     */
+    public static final String FEATURE_BATCHED_SUBSCRIPTION_DELIVERY = FEATURE_PROPERTY_PREFIX+".subscriptions.batchedDelivery";
+
+    /**
+     * Whether resolved values of entity config are cached at each entity, for keys whose raw value (at the entity
+     * or whichever ancestor supplies it) and default contain no deferred values such as tasks or DSL suppliers.
+     * The cache at an entity is checked against changes to the local config of it and its ancestors, and against its ancestry,
+     * so changes made through the config API are always seen. Only values which cannot be mutated (scalars, and immutable
+     * collections of them) are cached; others are resolved each time, as callers may change what they are given.
+     * <p>
+     * Defaults to false.
+     */
+    public static final String FEATURE_RESOLVED_CONFIG_CACHE = FEATURE_PROPERTY_PREFIX+".config.resolvedCache";
+
     /**
      * When rebinding to state created from very old versions, the catalogItemId properties will be missing which
      * results in errors when OSGi bundles are used. When enabled the code tries to infer the catalogItemId from
@@ -166,6 +187,8 @@ public class BrooklynFeatureEnablement {
         setDefault(FEATURE_PERSIST_ENTITY_SPEC_AS_SUPPLIER, true);
         setDefault(FEATURE_RENAME_THREADS, false);
         setDefault(FEATURE_JITTER_THREADS, false);
+        setDefault(FEATURE_BATCHED_SUBSCRIPTION_DELIVERY, false);
+        setDefault(FEATURE_RESOLVED_CONFIG_CACHE, false);
         setDefault(FEATURE_BACKWARDS_COMPATIBILITY_INFER_CATALOG_ITEM_ON_REBIND, false);
         setDefault(FEATURE_AUTO_FIX_CATALOG_REF_ON_REBIND, false);
         setDefault(FEATURE_SSH_ASYNC_EXEC, false);
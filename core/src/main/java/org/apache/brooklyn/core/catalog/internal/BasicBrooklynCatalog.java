@@ -36,19 +36,25 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.apache.brooklyn.api.catalog.BrooklynCatalog;
+import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.api.catalog.CatalogItem;
 import org.apache.brooklyn.api.catalog.CatalogItem.CatalogBundle;
 import org.apache.brooklyn.api.catalog.CatalogItem.CatalogItemType;
 import org.apache.brooklyn.api.entity.Application;
 import org.apache.brooklyn.api.internal.AbstractBrooklynObjectSpec;
 import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.api.mgmt.classloading.BrooklynClassLoadingContext;
+import org.apache.brooklyn.api.mgmt.entitlement.EntitlementContext;
 import org.apache.brooklyn.api.objs.BrooklynObject;
 import org.apache.brooklyn.api.objs.BrooklynObjectType;
 import org.apache.brooklyn.api.typereg.BrooklynTypeRegistry.RegisteredTypeKind;
@@ -58,8 +64,11 @@ import org.apache.brooklyn.api.typereg.RegisteredType;
 import org.apache.brooklyn.api.typereg.RegisteredTypeLoadingContext;
 import org.apache.brooklyn.core.catalog.CatalogPredicates;
 import org.apache.brooklyn.core.catalog.internal.CatalogClasspathDo.CatalogScanningModes;
+import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.mgmt.BrooklynTags;
+import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
 import org.apache.brooklyn.core.mgmt.classloading.OsgiBrooklynClassLoadingContext;
+import org.apache.brooklyn.core.mgmt.entitlement.Entitlements;
 import org.apache.brooklyn.core.mgmt.ha.OsgiBundleInstallationResult;
 import org.apache.brooklyn.core.mgmt.ha.OsgiManager;
 import org.apache.brooklyn.core.mgmt.internal.CampYamlParser;
@@ -72,6 +81,7 @@ import org.apache.brooklyn.util.core.ResourceUtils;
 import org.apache.brooklyn.util.core.flags.BrooklynTypeNameResolution.BrooklynTypeNameResolver;
 import org.apache.brooklyn.util.core.flags.TypeCoercions;
 import org.apache.brooklyn.util.core.osgi.BundleMaker;
+import org.apache.brooklyn.util.core.task.TaskBuilder;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.CompoundRuntimeException;
 import org.apache.brooklyn.util.exceptions.Exceptions;
@@ -131,6 +141,18 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
     
     private static final Logger log = LoggerFactory.getLogger(BasicBrooklynCatalog.class);
 
+    /**
+     * Number of threads used to validate types when loading a catalog, e.g. when bundles are installed at startup.
+     * Types are validated concurrently across bundles, but sequentially within each bundle.
+     * Types which fail because they reference a type not yet validated are retried in subsequent cycles,
+     * as they are when validating sequentially.
+     */
+    @Beta
+    public static final ConfigKey<Integer> VALIDATION_PARALLELISM = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.catalog.validation.parallelism",
+            "Number of bundles whose catalog items can be validated concurrently (each in its own task) when loading; default 1 (sequential)",
+            1);
+
     public static class BrooklynLoaderTracker {
         public static final ThreadLocal<BrooklynClassLoadingContext> loader = new ThreadLocal<BrooklynClassLoadingContext>();
         
@@ -1747,13 +1769,7 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
         List<RegisteredType> typesRemainingToValidate = MutableList.copyOf(typesToValidate);
         while (true) {
             log.debug("Catalog load, starting validation cycle, "+typesRemainingToValidate.size()+" to validate");
-            Map<RegisteredType,Collection<Throwable>> result = MutableMap.of();
-            for (RegisteredType t: typesRemainingToValidate) {
-                Collection<Throwable> tr = validateType(t, null);
-                if (!tr.isEmpty()) {
-                    result.put(t, tr);
-                }
-            }
+            Map<RegisteredType,Collection<Throwable>> result = validateTypesCycle(typesRemainingToValidate);
             log.debug("Catalog load, finished validation cycle, "+typesRemainingToValidate.size()+" unvalidated");
             if (result.isEmpty() || result.size()==typesRemainingToValidate.size()) {
                 return result;
@@ -1765,6 +1781,90 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
         }
     }
     
+    /** Validates each type once, concurrently across bundles if {@link #VALIDATION_PARALLELISM} allows, returning errors in input order. */
+    private Map<RegisteredType,Collection<Throwable>> validateTypesCycle(List<RegisteredType> types) {
+        Map<String,List<RegisteredType>> typesByBundle = MutableMap.of();
+        for (RegisteredType t: types) {
+            // types in the same bundle are validated together, in order, as they most often reference each other
+            String group = t.getContainingBundle()!=null ? t.getContainingBundle() : "type:"+t.getId();
+            List<RegisteredType> typesInGroup = typesByBundle.get(group);
+            if (typesInGroup==null) {
+                typesInGroup = MutableList.of();
+                typesByBundle.put(group, typesInGroup);
+            }
+            typesInGroup.add(t);
+        }
+        
+        Integer parallelism = mgmt.getConfig().getConfig(VALIDATION_PARALLELISM);
+        int numThreads = Math.min(parallelism==null ? 1 : parallelism, typesByBundle.size());
+        Map<RegisteredType,Collection<Throwable>> errors;
+        if (numThreads <= 1) {
+            errors = validateTypesSequentially(types);
+        } else {
+            errors = MutableMap.of();
+            final BrooklynClassLoadingContext loader = BrooklynLoaderTracker.getLoader();
+            final Queue<List<RegisteredType>> groupsRemaining = new ConcurrentLinkedQueue<List<RegisteredType>>(typesByBundle.values());
+            EntitlementContext entitlementContext = Entitlements.getEntitlementContext();
+            List<Task<Map<RegisteredType,Collection<Throwable>>>> tasks = MutableList.of();
+            for (int i=0; i<numThreads; i++) {
+                // each task takes bundles from the shared queue until none remain, so at most numThreads run at once
+                TaskBuilder<Map<RegisteredType,Collection<Throwable>>> tb = Tasks.<Map<RegisteredType,Collection<Throwable>>>builder()
+                    .displayName("Validating catalog types")
+                    .dynamic(false)
+                    .tag(BrooklynTaskTags.BROOKLYN_SERVER_TASK_TAG)
+                    .tag(BrooklynTaskTags.TRANSIENT_TASK_TAG)
+                    .body(new Callable<Map<RegisteredType,Collection<Throwable>>>() {
+                        @Override
+                        public Map<RegisteredType,Collection<Throwable>> call() {
+                            BrooklynLoaderTracker.setLoader(loader);
+                            try {
+                                Map<RegisteredType,Collection<Throwable>> result = MutableMap.of();
+                                List<RegisteredType> typesInGroup;
+                                while ((typesInGroup = groupsRemaining.poll()) != null) {
+                                    result.putAll(validateTypesSequentially(typesInGroup));
+                                }
+                                return result;
+                            } finally {
+                                BrooklynLoaderTracker.unsetLoader(loader);
+                            }
+                        }
+                    });
+                if (entitlementContext!=null) tb.tag(BrooklynTaskTags.tagForEntitlement(entitlementContext));
+                tasks.add(mgmt.getExecutionManager().submit(tb.build()));
+            }
+            try {
+                for (Task<Map<RegisteredType,Collection<Throwable>>> task: tasks) {
+                    errors.putAll(task.get());
+                }
+            } catch (ExecutionException e) {
+                throw Exceptions.propagate(e.getCause());
+            } catch (InterruptedException e) {
+                for (Task<?> task: tasks) {
+                    task.cancel(true);
+                }
+                throw Exceptions.propagate(e);
+            }
+        }
+        
+        Map<RegisteredType,Collection<Throwable>> result = MutableMap.of();
+        for (RegisteredType t: types) {
+            Collection<Throwable> tr = errors.get(t);
+            if (tr!=null) result.put(t, tr);
+        }
+        return result;
+    }
+
+    private Map<RegisteredType,Collection<Throwable>> validateTypesSequentially(Iterable<RegisteredType> types) {
+        Map<RegisteredType,Collection<Throwable>> result = MutableMap.of();
+        for (RegisteredType t: types) {
+            Collection<Throwable> tr = validateType(t, null);
+            if (!tr.isEmpty()) {
+                result.put(t, tr);
+            }
+        }
+        return result;
+    }
+    
     @Override @Beta
     public Collection<Throwable> validateType(RegisteredType typeToValidate, RegisteredTypeLoadingContext constraint) {
         ReferenceWithError<RegisteredType> result = validateResolve(typeToValidate, constraint);
@@ -2232,7 +2332,7 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
         };
     }
 
-    private static class SpecCache {
+    private class SpecCache {
         private final Map<String, AbstractBrooklynObjectSpec<?,?>> cache = Collections.synchronizedMap(
                 Maps.<String, AbstractBrooklynObjectSpec<?,?>>newLinkedHashMap());
 
@@ -2240,9 +2340,14 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
          * Whenever anything in the catalog is modified, the entire cache should be invalidated. 
          * This is because items in the cache can refer to each other, which can impact the Spec
          * created for a given catalog item.
+         * <p>
+         * The same applies to specs cached by the type registry, as those can refer to legacy items.
          */
         public void invalidate() {
             cache.clear();
+            if (mgmt.getTypeRegistry() instanceof BasicBrooklynTypeRegistry) {
+                ((BasicBrooklynTypeRegistry) mgmt.getTypeRegistry()).invalidateSpecCache();
+            }
         }
         
         public Optional<AbstractBrooklynObjectSpec<?,?>> getSpec(String itemId) {
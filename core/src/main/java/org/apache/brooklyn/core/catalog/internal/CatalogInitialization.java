@@ -25,6 +25,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -42,6 +44,8 @@ import org.apache.brooklyn.api.objs.BrooklynObjectType;
 import org.apache.brooklyn.api.typereg.BrooklynTypeRegistry.RegisteredTypeKind;
 import org.apache.brooklyn.api.typereg.ManagedBundle;
 import org.apache.brooklyn.api.typereg.RegisteredType;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.mgmt.ManagementContextInjectable;
 import org.apache.brooklyn.core.mgmt.ha.OsgiBundleInstallationResult;
 import org.apache.brooklyn.core.mgmt.ha.OsgiManager;
@@ -100,6 +104,23 @@ public class CatalogInitialization implements ManagementContextInjectable {
 
     private static final Logger log = LoggerFactory.getLogger(CatalogInitialization.class);
 
+    /**
+     * Whether to validate the types in persisted bundles in the background when rebinding, rather than before
+     * rebinding the rest of the persisted state. This can speed up startup with large catalogs, but errors in types
+     * are then logged rather than reported to the rebind exception handler. Types used before they have been
+     * validated in the background are validated just-in-time, which may fail for types that refer to other
+     * not-yet-validated types. Validation across bundles can alternatively be parallelised with
+     * {@link BasicBrooklynCatalog#VALIDATION_PARALLELISM}.
+     */
+    @Beta
+    public static final ConfigKey<Boolean> DEFER_VALIDATION_ON_REBIND = ConfigKeys.newBooleanConfigKey(
+            "brooklyn.catalog.rebind.deferValidation",
+            "Whether to validate persisted catalog types in the background on rebind, rather than before rebinding other items",
+            false);
+
+    /** Number of the slowest bundles to report when summarising the time taken to install persisted bundles */
+    private static final int NUM_SLOWEST_BUNDLES_TO_LOG = 5;
+
     private String initialUri;
 
     /** has run the initial catalog initialization */
@@ -501,22 +522,28 @@ public class CatalogInitialization implements ManagementContextInjectable {
 
     private void installPersistedBundles(Map<VersionedName, InstallableManagedBundle> bundles, RebindExceptionHandler exceptionHandler, RebindLogger rebindLogger) {
         Map<InstallableManagedBundle, OsgiBundleInstallationResult> installs = MutableMap.of();
+        Map<String, Duration> bundleTimes = MutableMap.of();
+        Stopwatch totalTime = Stopwatch.createStarted();
 
         // Install the bundles
         for (Map.Entry<VersionedName, InstallableManagedBundle> entry : bundles.entrySet()) {
             VersionedName bundleId = entry.getKey();
             InstallableManagedBundle installableBundle = entry.getValue();
             rebindLogger.debug("RebindManager installing bundle {}", bundleId);
+            Stopwatch sw = Stopwatch.createStarted();
             try (InputStream in = installableBundle.getInputStream()) {
                 installs.put(installableBundle, installBundle(installableBundle.getManagedBundle(), in));
             } catch (Exception e) {
                 exceptionHandler.onCreateFailed(BrooklynObjectType.MANAGED_BUNDLE, bundleId.toString(), installableBundle.getManagedBundle().getSymbolicName(), e);
             }
+            bundleTimes.put(bundleId.toString(), Duration.of(sw));
         }
+        Duration installTime = Duration.of(totalTime);
         
         // Start the bundles (now that we've installed them all)
         Set<RegisteredType> installedTypes = MutableSet.of();
         for (OsgiBundleInstallationResult br : installs.values()) {
+            Stopwatch sw = Stopwatch.createStarted();
             try {
                 startBundle(br);
                 Iterables.addAll(installedTypes, managementContext.getTypeRegistry().getMatching(
@@ -524,11 +551,31 @@ public class CatalogInitialization implements ManagementContextInjectable {
             } catch (Exception e) {
                 exceptionHandler.onCreateFailed(BrooklynObjectType.MANAGED_BUNDLE, br.getMetadata().getId(), br.getMetadata().getSymbolicName(), e);
             }
+            Duration startTime = Duration.of(sw);
+            rebindLogger.debug("RebindManager started bundle {} in {}", br.getVersionedName(), startTime);
+            String bundleId = br.getVersionedName().toString();
+            Duration previousTime = bundleTimes.get(bundleId);
+            bundleTimes.put(bundleId, previousTime==null ? startTime : previousTime.add(startTime));
         }
+        Duration startTime = Duration.of(totalTime).subtract(installTime);
         
         // Validate that they all started successfully
+        Duration validationTime = Duration.ZERO;
         if (!installedTypes.isEmpty()) {
-            validateAllTypes(installedTypes, exceptionHandler);
+            if (Boolean.TRUE.equals(managementContext.getConfig().getConfig(DEFER_VALIDATION_ON_REBIND))) {
+                rebindLogger.debug("RebindManager deferring validation of {} types to background", installedTypes.size());
+                validateAllTypesInBackground(installedTypes);
+            } else {
+                Stopwatch sw = Stopwatch.createStarted();
+                validateAllTypes(installedTypes, exceptionHandler);
+                validationTime = Duration.of(sw);
+            }
+        }
+        
+        if (!bundles.isEmpty()) {
+            rebindLogger.debug("RebindManager installed {} bundles with {} types in {} (install {}, start {}, validate {}); slowest bundles (install and start): {}",
+                bundles.size(), installedTypes.size(), Duration.of(totalTime), installTime, startTime, validationTime, 
+                getSlowest(bundleTimes, NUM_SLOWEST_BUNDLES_TO_LOG));
         }
         
         for (Map.Entry<InstallableManagedBundle, OsgiBundleInstallationResult> entry : installs.entrySet()) {
@@ -545,6 +592,44 @@ public class CatalogInitialization implements ManagementContextInjectable {
         }
     }
     
+    private static Map<String, Duration> getSlowest(Map<String, Duration> times, int max) {
+        List<Map.Entry<String, Duration>> entries = MutableList.copyOf(times.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Duration>>() {
+            @Override
+            public int compare(Map.Entry<String, Duration> o1, Map.Entry<String, Duration> o2) {
+                return o2.getValue().compareTo(o1.getValue());
+            }
+        });
+        Map<String, Duration> result = MutableMap.of();
+        for (Map.Entry<String, Duration> entry : entries.subList(0, Math.min(max, entries.size()))) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+    
+    private void validateAllTypesInBackground(final Set<RegisteredType> installedTypes) {
+        managementContext.getExecutionManager().submit("Validating persisted catalog types", new Runnable() {
+            @Override
+            public void run() {
+                // skip any which have been used, and so validated just-in-time, since they were installed
+                Set<RegisteredType> typesToValidate = MutableSet.of();
+                for (RegisteredType t: installedTypes) {
+                    RegisteredType current = managementContext.getTypeRegistry().get(t.getSymbolicName(), t.getVersion());
+                    if (current!=null && current.getKind()==RegisteredTypeKind.UNRESOLVED) {
+                        typesToValidate.add(current);
+                    }
+                }
+                Stopwatch sw = Stopwatch.createStarted();
+                Map<RegisteredType, Collection<Throwable>> validationErrors = managementContext.getCatalog().validateTypes(typesToValidate);
+                log.debug("Background validation of {} persisted catalog types done in {}", typesToValidate.size(), sw);
+                for (Map.Entry<RegisteredType, Collection<Throwable>> entry : validationErrors.entrySet()) {
+                    log.warn("Persisted catalog type "+entry.getKey().getId()+" in bundle "+entry.getKey().getContainingBundle()+" is not valid: "
+                        + Exceptions.create(entry.getValue()));
+                }
+            }
+        });
+    }
+    
     private void validateAllTypes(Set<RegisteredType> installedTypes, RebindExceptionHandler exceptionHandler) {
         Stopwatch sw = Stopwatch.createStarted();
         log.debug("Getting catalog to validate all types");
@@ -18,11 +18,17 @@
  */
 package org.apache.brooklyn.core.config.internal;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.MapMaker;
+import com.google.common.primitives.Longs;
 import com.google.common.reflect.TypeToken;
 import org.apache.brooklyn.api.mgmt.ExecutionContext;
+import org.apache.brooklyn.api.mgmt.TaskAdaptable;
 import org.apache.brooklyn.api.mgmt.TaskFactory;
 import org.apache.brooklyn.api.objs.BrooklynObject;
 import org.apache.brooklyn.config.ConfigInheritance;
@@ -37,6 +43,7 @@ import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.config.ConfigKeys.InheritanceContext;
 import org.apache.brooklyn.core.config.Sanitizer;
 import org.apache.brooklyn.core.config.StructuredConfigKey;
+import org.apache.brooklyn.core.config.SubElementConfigKey;
 import org.apache.brooklyn.core.objs.BrooklynObjectInternal;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
@@ -50,13 +57,18 @@ import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.exceptions.ReferenceWithError;
 import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.guava.Maybe.MaybeSupplier;
+import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.*;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> implements ConfigMapWithInheritance<TContainer> {
 
@@ -83,6 +95,32 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
      */
     protected final Map<ConfigKey<?>,Object> ownConfig;
 
+    /** source of {@link #ownConfigVersion} values; unique, so a version seen cannot recur after a later change */
+    private static final AtomicLong CONFIG_VERSIONS = new AtomicLong();
+
+    /** set from {@link #CONFIG_VERSIONS} after each change to {@link #ownConfig}, to check cached resolved values here and at descendants */
+    private transient volatile long ownConfigVersion;
+
+    /** resolved values of plain config, by query key (compared by identity, as keys with the same name can differ in default) */
+    private transient volatile Map<ConfigKey<?>, ResolvedConfigValue> resolvedConfigCache;
+
+    /** a resolved config value, and the versions of config at this container and its ancestors when it was resolved */
+    private static class ResolvedConfigValue {
+        final Object[] containers;
+        final long[] versions;
+        final Object value;
+
+        ResolvedConfigValue(Object[] containers, long[] versions, Object value) {
+            this.containers = containers;
+            this.versions = versions;
+            this.value = value;
+        }
+
+        ResolvedConfigValue withValue(Object value) {
+            return new ResolvedConfigValue(containers, versions, value);
+        }
+    }
+
     protected AbstractConfigMapImpl(TContainer bo) {
         // Not using ConcurrentMap, because want to (continue to) allow null values.
         // Could use ConcurrentMapAcceptingNullVals (with the associated performance hit on entrySet() etc).
@@ -103,12 +141,129 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
 
     @Override
     public <T> T getConfig(ConfigKey<T> key) {
-        return getConfigImpl(key, false).getWithoutError().get();
+        ResolvedConfigCacheMetrics metrics = isCacheable(key) ? getResolvedConfigCacheMetrics() : null;
+        if (metrics==null) {
+            return getConfigImpl(key, false).getWithoutError().get();
+        }
+
+        Map<ConfigKey<?>, ResolvedConfigValue> cache = resolvedConfigCache;
+        if (cache==null) {
+            synchronized (this) {
+                cache = resolvedConfigCache;
+                if (cache==null) resolvedConfigCache = cache = new MapMaker().weakKeys().makeMap();
+            }
+        }
+        ResolvedConfigValue cached = cache.get(key);
+        if (cached!=null && isCurrent(cached)) {
+            metrics.noteHit();
+            @SuppressWarnings("unchecked")
+            T result = (T) cached.value;
+            return result;
+        }
+        metrics.noteMiss();
+
+        // note the versions before resolving, so a change made while resolving makes the cached value stale
+        ResolvedConfigValue versions = getVersions();
+        AtomicBoolean allValuesPlain = new AtomicBoolean(true);
+        T result = getConfigImpl(key, false, allValuesPlain).getWithoutError().get();
+        // callers may mutate what they are given, so only values which cannot be changed are shared
+        if (allValuesPlain.get() && isImmutableValue(result)) {
+            cache.put(key, versions.withValue(result));
+        }
+        return result;
     }
     
     @Override
     public <T> T getConfig(HasConfigKey<T> key) {
-        return getConfigImpl(key.getConfigKey(), false).getWithoutError().get();
+        return getConfig(key.getConfigKey());
+    }
+
+    /**
+     * The metrics for the cache of resolved config, if config at this container should be cached; otherwise null.
+     * By default null; see {@link ResolvedConfigCacheMetrics}.
+     */
+    @Nullable
+    protected ResolvedConfigCacheMetrics getResolvedConfigCacheMetrics() {
+        return null;
+    }
+
+    private boolean isCacheable(ConfigKey<?> key) {
+        // structured keys extract (and resolve) values from several entries, so are always looked up
+        return key!=null && !(key instanceof StructuredConfigKey) && !(key instanceof SubElementConfigKey);
+    }
+
+    /** whether the raw value contains no deferred values (which must be resolved each time) */
+    private static boolean isPlainValue(Object v) {
+        if (v==null) return true;
+        if (v instanceof DeferredSupplier || v instanceof Future || v instanceof TaskFactory || v instanceof TaskAdaptable) return false;
+        if (v instanceof Map) {
+            for (Map.Entry<?,?> entry : ((Map<?,?>)v).entrySet()) {
+                if (!isPlainValue(entry.getKey()) || !isPlainValue(entry.getValue())) return false;
+            }
+        } else if (v instanceof Iterable) {
+            for (Object item : (Iterable<?>)v) {
+                if (!isPlainValue(item)) return false;
+            }
+        } else if (v.getClass().isArray()) {
+            return false;
+        }
+        return true;
+    }
+
+    /** whether the resolved value is a scalar or an immutable collection of such, so can be shared between callers */
+    private static boolean isImmutableValue(Object v) {
+        if (v==null || v instanceof String || v instanceof Boolean || v instanceof Character || v instanceof Enum
+                || v instanceof Integer || v instanceof Long || v instanceof Double || v instanceof Float
+                || v instanceof Short || v instanceof Byte || v instanceof BigInteger || v instanceof BigDecimal
+                || v instanceof Class || v instanceof Duration) {
+            return true;
+        }
+        if (v instanceof ImmutableMap) {
+            for (Map.Entry<?,?> entry : ((Map<?,?>)v).entrySet()) {
+                if (!isImmutableValue(entry.getKey()) || !isImmutableValue(entry.getValue())) return false;
+            }
+            return true;
+        }
+        if (v instanceof ImmutableCollection) {
+            for (Object item : (Iterable<?>)v) {
+                if (!isImmutableValue(item)) return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /** the containers from this one up through its ancestors, and the versions of their config (with no value) */
+    private ResolvedConfigValue getVersions() {
+        List<Object> containers = MutableList.of();
+        List<Long> versions = MutableList.of();
+        for (TContainer c = getContainer(); c!=null; c = getParentOfContainer(c)) {
+            containers.add(c);
+            versions.add(getConfigMapOfContainer(c).ownConfigVersion);
+        }
+        return new ResolvedConfigValue(containers.toArray(), Longs.toArray(versions), null);
+    }
+
+    private boolean isCurrent(ResolvedConfigValue cached) {
+        int i = 0;
+        for (TContainer c = getContainer(); c!=null; c = getParentOfContainer(c)) {
+            if (i>=cached.containers.length || cached.containers[i]!=c || cached.versions[i]!=getConfigMapOfContainer(c).ownConfigVersion) {
+                return false;
+            }
+            i++;
+        }
+        return i==cached.containers.length;
+    }
+
+    private static AbstractConfigMapImpl<?> getConfigMapOfContainer(Object container) {
+        return (AbstractConfigMapImpl<?>) ((BrooklynObjectInternal)container).config().getInternalConfigMap();
+    }
+
+    /** to be called after every change to {@link #ownConfig}, or to the config keys declared by the container,
+     * so that cached resolved values here and in descendants are discarded */
+    @Beta
+    public void onOwnConfigChanged() {
+        ownConfigVersion = CONFIG_VERSIONS.incrementAndGet();
     }
 
     @Override
@@ -176,6 +331,7 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
         } else {
             oldVal = ownConfig.put(ownKey, val);
         }
+        onOwnConfigChanged();
         postSetConfig();
         return oldVal;
     }
@@ -187,6 +343,7 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
             ownConfig.clear();
             ownConfig.putAll(vals);
         }
+        onOwnConfigChanged();
     }
 
     @SuppressWarnings("unchecked")
@@ -206,10 +363,12 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
 
     public void removeKey(String key) {
         ownConfig.remove(ConfigKeys.newConfigKey(Object.class, key));
+        onOwnConfigChanged();
     }
 
     public void removeKey(ConfigKey<?> key) {
         ownConfig.remove(key);
+        onOwnConfigChanged();
     }
 
     protected final TContainer getParent() {
@@ -375,6 +534,12 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
     }
 
     protected <T> ReferenceWithError<ConfigValueAtContainer<TContainer,T>> getConfigImpl(final ConfigKey<T> queryKey, final boolean raw) {
+        return getConfigImpl(queryKey, raw, null);
+    }
+
+    /** as {@link #getConfigImpl(ConfigKey, boolean)}, clearing the flag if given and any raw value or default considered is not {@link #isPlainValue(Object) plain} */
+    private <T> ReferenceWithError<ConfigValueAtContainer<TContainer,T>> getConfigImpl(final ConfigKey<T> queryKey, final boolean raw,
+            @Nullable final AtomicBoolean allValuesPlain) {
         if (queryKey==null) {
             return ReferenceWithError.newInstanceThrowingError(new BasicConfigValueAtContainer<TContainer,T>(getContainer(), null, null, false,
                     null),
@@ -401,6 +566,8 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
         Function<Maybe<Object>, Maybe<T>> coerceFn = new Function<Maybe<Object>, Maybe<T>>() {
             @SuppressWarnings("unchecked") @Override public Maybe<T> apply(Maybe<Object> input) {
                 if (raw || input==null || input.isAbsent()) return (Maybe<T>)input;
+                // for defaults; values at containers are checked by the lookup
+                if (allValuesPlain!=null && !isPlainValue(input.get())) allValuesPlain.set(false);
                 // use lambda to defer execution if default value not needed.
                 // this coercion should never be persisted so this is safe.
                 return new MaybeSupplier<T>(() -> (coerceConfigValue(getContainer(), ownKey.getName(), input.get(), type)));
@@ -418,6 +585,8 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
                 @Override public Maybe<Object> apply(TContainer input) {
                     // lookup against ownKey as it may do extra resolution (eg grab *.* subkeys if a map)
                     Maybe<Object> result = getRawValueAtContainer(input, ownKey);
+                    // check before resolving, as that can evaluate deferred values
+                    if (allValuesPlain!=null && result.isPresent() && !isPlainValue(result.get())) allValuesPlain.set(false);
                     if (!raw) result = resolveRawValueFromContainer(input, ownKey, result);
                     return result;
                 }
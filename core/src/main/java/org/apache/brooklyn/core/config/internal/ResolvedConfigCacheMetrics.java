@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.config.internal;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.api.mgmt.Scratchpad;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.BrooklynFeatureEnablement;
+import org.apache.brooklyn.core.config.ConfigKeys;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Counts lookups of resolved config values made against the per-entity cache in {@link AbstractConfigMapImpl},
+ * for a management context. Obtained with {@link #get(ManagementContext)}.
+ * <p>
+ * The cache is used if {@link BrooklynFeatureEnablement#FEATURE_RESOLVED_CONFIG_CACHE} is enabled
+ * when the management context first looks up config.
+ */
+@Beta
+public class ResolvedConfigCacheMetrics {
+
+    private static final ConfigKey<ResolvedConfigCacheMetrics> SCRATCHPAD_KEY = ConfigKeys.newConfigKey(ResolvedConfigCacheMetrics.class,
+        "brooklyn.internal.config.resolvedCacheMetrics");
+
+    /** the metrics for the given management context, created if necessary */
+    public static ResolvedConfigCacheMetrics get(ManagementContext mgmt) {
+        Scratchpad scratchpad = mgmt.getScratchpad();
+        synchronized (scratchpad) {
+            ResolvedConfigCacheMetrics result = scratchpad.get(SCRATCHPAD_KEY);
+            if (result==null) {
+                result = new ResolvedConfigCacheMetrics(BrooklynFeatureEnablement.isEnabled(BrooklynFeatureEnablement.FEATURE_RESOLVED_CONFIG_CACHE));
+                scratchpad.put(SCRATCHPAD_KEY, result);
+            }
+            return result;
+        }
+    }
+
+    private final boolean enabled;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    protected ResolvedConfigCacheMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    void noteHit() {
+        hits.incrementAndGet();
+    }
+
+    void noteMiss() {
+        misses.incrementAndGet();
+    }
+
+    /** lookups answered from the cache */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** lookups of cacheable keys which had to be resolved, because there was no current cached value */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public Map<String, Object> asMap() {
+        return ImmutableMap.<String, Object>of("enabled", enabled, "hits", getHits(), "misses", getMisses());
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()+asMap();
+    }
+}
@@ -306,6 +306,16 @@ public class BrooklynConfigKeys {
 
     public static final ConfigKey<String> ICON_URL = newStringConfigKey("iconUrl");
 
+    /** Identifier supplied in the deployment plan for the component to which an entity corresponds;
+     * entities are indexed by this, for lookups within an application.
+     * Also available (and more commonly referred to) as {@code BrooklynCampConstants.PLAN_ID}. */
+    @Beta
+    public static final ConfigKey<String> PLAN_ID = ConfigKeys.builder(String.class, "camp.plan.id")
+            .description("Identifier supplied in the deployment plan for component to which this entity corresponds "
+                        + "(human-readable, for correlating across plan, template, and instance)")
+            .runtimeInheritance(BasicConfigInheritance.NEVER_INHERITED)
+            .build();
+
     private BrooklynConfigKeys() {}
 
 }
@@ -32,6 +32,8 @@ import org.apache.brooklyn.api.entity.EntityType;
 import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.config.ConfigKey.HasConfigKey;
+import org.apache.brooklyn.config.ConfigMap.ConfigMapWithInheritance;
+import org.apache.brooklyn.core.config.internal.AbstractConfigMapImpl;
 import org.apache.brooklyn.core.effector.EffectorAndBody;
 import org.apache.brooklyn.core.effector.EffectorBody;
 import org.apache.brooklyn.core.effector.EffectorTasks.EffectorBodyTaskFactory;
@@ -233,7 +235,7 @@ public class EntityDynamicType extends BrooklynDynamicType<Entity, AbstractEntit
      */
     public void addConfigKey(ConfigKey<?> newKey) {
         configKeys.put(newKey.getName(), new FieldAndValue<ConfigKey<?>>(null, newKey));
-        invalidateSnapshot();
+        invalidateConfigKeys();
         instance.sensors().emit(AbstractEntity.CONFIG_KEY_ADDED, newKey);
     }
     
@@ -252,7 +254,7 @@ public class EntityDynamicType extends BrooklynDynamicType<Entity, AbstractEntit
     public boolean removeConfigKey(ConfigKey<?> key) {
         FieldAndValue<ConfigKey<?>> result = configKeys.remove(key.getName());
         if (result != null) {
-            invalidateSnapshot();
+            invalidateConfigKeys();
             ConfigKey<?> removedKey = result.value;
             instance.sensors().emit(AbstractEntity.CONFIG_KEY_REMOVED, removedKey);
             return true;
@@ -264,12 +266,21 @@ public class EntityDynamicType extends BrooklynDynamicType<Entity, AbstractEntit
     public void clearConfigKeys() {
         Map<String, FieldAndValue<ConfigKey<?>>> oldKeys = MutableMap.copyOf(configKeys);
         configKeys.clear();
-        invalidateSnapshot();
+        invalidateConfigKeys();
         for (FieldAndValue<ConfigKey<?>> k: oldKeys.values()) {
             instance.sensors().emit(AbstractEntity.CONFIG_KEY_REMOVED, k.value);
         }
     }
 
+    /** declared keys affect how config is inherited, so values resolved against the old keys are discarded too */
+    private void invalidateConfigKeys() {
+        invalidateSnapshot();
+        ConfigMapWithInheritance<?> configMap = instance.config().getInternalConfigMap();
+        if (configMap instanceof AbstractConfigMapImpl) {
+            ((AbstractConfigMapImpl<?>)configMap).onOwnConfigChanged();
+        }
+    }
+
     // --------------------------------------------------
     
     @Override
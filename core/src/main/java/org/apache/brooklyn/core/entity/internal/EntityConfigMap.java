@@ -29,6 +29,7 @@ import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.api.objs.BrooklynObject;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.config.internal.AbstractConfigMapImpl;
+import org.apache.brooklyn.core.config.internal.ResolvedConfigCacheMetrics;
 import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.objs.BrooklynObjectInternal.ConfigurationSupportInternal;
 import org.apache.brooklyn.util.guava.Maybe;
@@ -51,6 +52,8 @@ public class EntityConfigMap extends AbstractConfigMapImpl<Entity> {
         super(checkNotNull(entity, "entity must be specified"), checkNotNull(storage, "storage map must be specified"));
     }
 
+    private transient volatile ResolvedConfigCacheMetrics resolvedConfigCacheMetrics;
+
     /** entity against which config resolution / task execution will occur
      * @deprecated since 0.10.0 kept for serialization */ @Deprecated
     private EntityInternal entity;
@@ -77,6 +80,17 @@ public class EntityConfigMap extends AbstractConfigMapImpl<Entity> {
         return ((EntityInternal)bo).getExecutionContext();
     }
     
+    @Override
+    protected ResolvedConfigCacheMetrics getResolvedConfigCacheMetrics() {
+        // only once managed; before then config is being set up, and the management context is a placeholder
+        if (!getEntity().getManagementSupport().isDeployed()) return null;
+        ResolvedConfigCacheMetrics result = resolvedConfigCacheMetrics;
+        if (result==null) {
+            resolvedConfigCacheMetrics = result = ResolvedConfigCacheMetrics.get(getEntity().getManagementContext());
+        }
+        return result.isEnabled() ? result : null;
+    }
+
     @Override
     protected void postSetConfig() {
         getEntity().config().refreshInheritedConfigOfChildren();
@@ -23,6 +23,8 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nullable;
@@ -31,6 +33,8 @@ import org.apache.brooklyn.api.effector.Effector;
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntityLocal;
 import org.apache.brooklyn.api.entity.Group;
+import org.apache.brooklyn.api.mgmt.ExecutionContext;
+import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.api.sensor.Enricher;
 import org.apache.brooklyn.api.sensor.EnricherSpec;
@@ -60,6 +64,8 @@ import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.collections.QuorumCheck;
 import org.apache.brooklyn.util.collections.QuorumCheck.QuorumChecks;
+import org.apache.brooklyn.util.core.task.ScheduledTask;
+import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.core.task.ValueResolver;
 import org.apache.brooklyn.util.guava.Functionals;
 import org.apache.brooklyn.util.guava.Maybe;
@@ -69,6 +75,7 @@ import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.base.Preconditions;
@@ -92,9 +99,75 @@ public class ServiceStateLogic {
     public static final AttributeSensor<Lifecycle.Transition> SERVICE_STATE_EXPECTED = Attributes.SERVICE_STATE_EXPECTED;
     public static final AttributeSensor<Map<String,Object>> SERVICE_PROBLEMS = Attributes.SERVICE_PROBLEMS;
 
+    /**
+     * If positive, the {@link ComputeServiceState} and {@link ComputeServiceIndicatorsFromChildrenAndMembers} enrichers
+     * collapse changes arriving within this period (such as children and members starting or stopping en masse)
+     * into a single recompute at the end of it, rather than recomputing and republishing on every event.
+     * Changes to {@link #SERVICE_STATE_EXPECTED} are always applied immediately, so no lifecycle transition is skipped.
+     * <p>
+     * Can be set on the enricher, or on the entity (and so inherited by descendants); off by default.
+     */
+    @Beta
+    public static final ConfigKey<Duration> SERVICE_STATE_COALESCE_PERIOD = ConfigKeys.newDurationConfigKey(
+        "service.state.coalescePeriod",
+        "Period within which changes are coalesced into a single recomputation of service state and indicators; off if not positive");
+
     /** static only; not for instantiation */
     private ServiceStateLogic() {}
 
+    /** the {@link #SERVICE_STATE_COALESCE_PERIOD} from the enricher if set there, otherwise from the entity */
+    static Duration getCoalescePeriod(Enricher enricher, Entity entity) {
+        Duration result = enricher.config().get(SERVICE_STATE_COALESCE_PERIOD);
+        if (result==null && entity!=null) result = entity.config().get(SERVICE_STATE_COALESCE_PERIOD);
+        return result;
+    }
+
+    /**
+     * Runs a recompute for an enricher, either immediately on each request or, given a positive period,
+     * once at the end of the period for all requests made within it. Recomputes never run concurrently.
+     */
+    @Beta
+    public static class CoalescingRecompute {
+        private final String name;
+        private final Runnable job;
+        private final AtomicBoolean queued = new AtomicBoolean();
+
+        public CoalescingRecompute(String name, Runnable job) {
+            this.name = name;
+            this.job = job;
+        }
+
+        public void request(ExecutionContext executionContext, @Nullable Duration period) {
+            if (period==null || !period.isPositive()) {
+                runNow();
+                return;
+            }
+            if (!queued.compareAndSet(false, true)) {
+                // already scheduled; it will see this change
+                return;
+            }
+            final Runnable body = new Runnable() {
+                @Override
+                public void run() {
+                    // clear first, so changes made while recomputing schedule another
+                    queued.set(false);
+                    runNow();
+                }
+            };
+            executionContext.submit(ScheduledTask.builder(new Callable<Task<?>>() {
+                    @Override
+                    public Task<?> call() {
+                        return Tasks.builder().body(body).dynamic(false).displayName(name).build();
+                    }
+                })
+                .delay(period).displayName(name+" (coalesced)").tagTransient().build());
+        }
+
+        public synchronized void runNow() {
+            job.run();
+        }
+    }
+
     public static <TKey,TVal> TVal getMapSensorEntry(Entity entity, AttributeSensor<Map<TKey,TVal>> sensor, TKey key) {
         Map<TKey, TVal> map = entity.getAttribute(sensor);
         if (map==null) return null;
@@ -277,6 +350,13 @@ public class ServiceStateLogic {
 
         private final AtomicInteger warnCounter = new AtomicInteger();
 
+        private final CoalescingRecompute recompute = new CoalescingRecompute("Compute service state", new Runnable() {
+            @Override
+            public void run() {
+                if (isRunning()) computeAndSetActualState();
+            }
+        });
+
         public ComputeServiceState() {}
 
         @Override
@@ -306,6 +386,15 @@ public class ServiceStateLogic {
         public void onEvent(@Nullable SensorEvent<Object> event) {
             Preconditions.checkNotNull(entity, "Cannot handle subscriptions or compute state until associated with an entity");
 
+            if (event!=null && !SERVICE_STATE_EXPECTED.equals(event.getSensor())) {
+                recompute.request(getExecutionContext(), getCoalescePeriod(this, entity));
+            } else {
+                // expected state is applied immediately (and with any coalesced changes), so every transition is seen
+                recompute.runNow();
+            }
+        }
+
+        protected void computeAndSetActualState() {
             Map<String, Object> serviceProblems = entity.getAttribute(SERVICE_PROBLEMS);
             Boolean serviceUp = entity.getAttribute(SERVICE_UP);
             Lifecycle.Transition serviceExpected = entity.getAttribute(SERVICE_STATE_EXPECTED);
@@ -518,11 +607,18 @@ public class ServiceStateLogic {
             }
         }
 
+        private final CoalescingRecompute recompute = new CoalescingRecompute("Compute service indicators from children and members", new Runnable() {
+            @Override
+            public void run() {
+                recomputeIndicators();
+            }
+        });
+
         @Override
         protected void onChanged() {
             super.onChanged();
             if (entity != null && isRunning())
-                onUpdated();
+                recompute.runNow();
         }
 
         private final List<Sensor<?>> SOURCE_SENSORS = ImmutableList.<Sensor<?>>of(SERVICE_UP, SERVICE_STATE_ACTUAL);
@@ -533,6 +629,14 @@ public class ServiceStateLogic {
 
         @Override
         protected void onUpdated() {
+            if (entity==null) {
+                recomputeIndicators();
+            } else {
+                recompute.request(getExecutionContext(), getCoalescePeriod(this, entity));
+            }
+        }
+
+        protected void recomputeIndicators() {
             if (entity==null || !Entities.isManaged(entity)) {
                 // either invoked during setup or entity has become unmanaged; just ignore
                 BrooklynLogging.log(log, BrooklynLogging.levelDebugOrTraceIfReadOnly(entity),
@@ -551,9 +655,19 @@ public class ServiceStateLogic {
         }
 
         protected Object computeServiceNotUp() {
+            boolean ignoreNull = getConfig(IGNORE_ENTITIES_WITH_SERVICE_UP_NULL);
+            QuorumCheck qc = getConfig(UP_QUORUM_CHECK);
+            
+            // if every entity counted is up there can be no violators, so use the counts rather than looking at each entity
+            Map<Boolean, Integer> counts = getValueCounts(SERVICE_UP);
+            int numUpCount = count(counts, Boolean.TRUE);
+            int entriesCount = sum(counts.values()) - (ignoreNull ? count(counts, null) : 0);
+            if (numUpCount==entriesCount && (qc==null || qc.isQuorate(numUpCount, numUpCount))) {
+                return null;
+            }
+            
             Map<Entity, Boolean> values = getValues(SERVICE_UP);
             List<Entity> violators = MutableList.of();
-            boolean ignoreNull = getConfig(IGNORE_ENTITIES_WITH_SERVICE_UP_NULL);
             Set<Lifecycle> ignoreStates = getConfig(IGNORE_ENTITIES_WITH_THESE_SERVICE_STATES);
             int entries=0;
             int numUp=0;
@@ -569,7 +683,6 @@ public class ServiceStateLogic {
                 }
             }
 
-            QuorumCheck qc = getConfig(UP_QUORUM_CHECK);
             if (qc!=null) {
                 if (qc.isQuorate(numUp, violators.size()+numUp))
                     // quorate
@@ -589,17 +702,36 @@ public class ServiceStateLogic {
         }
 
         protected Object computeServiceProblems() {
+            Set<Lifecycle> ignoreStates = getConfig(IGNORE_ENTITIES_WITH_THESE_SERVICE_STATES);
+            QuorumCheck qc = getConfig(RUNNING_QUORUM_CHECK);
+            
+            // the counts are enough to tell if quorate; only look at each entity if we need to report which are not healthy
+            Map<Lifecycle, Integer> counts = getValueCounts(SERVICE_STATE_ACTUAL);
+            int numRunningCount = count(counts, Lifecycle.RUNNING);
+            int numNotHealthyCount = 0;
+            for (Map.Entry<Lifecycle, Integer> count : counts.entrySet()) {
+                if (count.getKey()!=Lifecycle.RUNNING && !ignoreStates.contains(count.getKey())) numNotHealthyCount += count.getValue();
+            }
+            if (qc!=null) {
+                if (qc.isQuorate(numRunningCount, numNotHealthyCount+numRunningCount))
+                    // quorate
+                    return null;
+                if (numNotHealthyCount==0)
+                    return "Not enough entities running to be quorate";
+            } else {
+                if (numNotHealthyCount==0)
+                    return null;
+            }
+            
             Map<Entity, Lifecycle> values = getValues(SERVICE_STATE_ACTUAL);
             int numRunning=0;
             List<Entity> onesNotHealthy=MutableList.of();
-            Set<Lifecycle> ignoreStates = getConfig(IGNORE_ENTITIES_WITH_THESE_SERVICE_STATES);
             for (Map.Entry<Entity,Lifecycle> state: values.entrySet()) {
                 if (state.getValue()==Lifecycle.RUNNING) numRunning++;
                 else if (!ignoreStates.contains(state.getValue()))
                     onesNotHealthy.add(state.getKey());
             }
 
-            QuorumCheck qc = getConfig(RUNNING_QUORUM_CHECK);
             if (qc!=null) {
                 if (qc.isQuorate(numRunning, onesNotHealthy.size()+numRunning))
                     // quorate
@@ -617,6 +749,17 @@ public class ServiceStateLogic {
                     : Strings.join(nameOfEntity(onesNotHealthy), ", "));
         }
 
+        private static int count(Map<?, Integer> counts, Object value) {
+            Integer result = counts.get(value);
+            return result==null ? 0 : result;
+        }
+
+        private static int sum(Iterable<Integer> counts) {
+            int result = 0;
+            for (Integer count : counts) result += count;
+            return result;
+        }
+
         private List<String> nameOfEntity(List<Entity> entities) {
             List<String> result = MutableList.of();
             for (Entity e: entities) result.add(nameOfEntity(e));
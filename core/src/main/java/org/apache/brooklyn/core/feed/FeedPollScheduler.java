@@ -0,0 +1,312 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.feed;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.api.mgmt.Scratchpad;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.config.StringConfigMap;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs the periodic polls of all {@link Poller}s in a management context, if {@link #MAX_THREADS} is set.
+ * <p>
+ * Rather than each poll job being a {@link org.apache.brooklyn.util.core.task.ScheduledTask} which creates
+ * a task for every poll, a single timer thread dispatches polls to a bounded pool of threads,
+ * without creating tasks. A poll is skipped if the previous poll of that job is still running,
+ * and the first poll of each job is delayed by a random amount (up to {@link #MAX_JITTER})
+ * so that jobs started together do not poll together.
+ * <p>
+ * The lag (how late polls start) and overruns (polls taking longer than their period) are recorded
+ * per feed; see {@link #getStats()}.
+ */
+@Beta
+public class FeedPollScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedPollScheduler.class);
+
+    public static final ConfigKey<Integer> MAX_THREADS = ConfigKeys.newIntegerConfigKey(
+        "brooklyn.feed.pollScheduler.maxThreads",
+        "if set, periodic feed polls are run by a shared scheduler with this many threads, rather than as scheduled tasks");
+
+    public static final ConfigKey<Duration> MAX_JITTER = ConfigKeys.newDurationConfigKey(
+        "brooklyn.feed.pollScheduler.maxJitter",
+        "maximum random delay before the first poll of each job run by the shared scheduler (and never more than the job's period)",
+        Duration.FIVE_SECONDS);
+
+    private static final ConfigKey<FeedPollScheduler> SCRATCHPAD_KEY = ConfigKeys.newConfigKey(FeedPollScheduler.class,
+        "brooklyn.internal.feed.pollScheduler");
+
+    /** whether polls in the given management context should use the shared scheduler */
+    public static boolean isEnabled(ManagementContext mgmt) {
+        return mgmt.getConfig().getConfig(MAX_THREADS) != null;
+    }
+
+    /** the scheduler for the given management context, created if necessary; see {@link #isEnabled(ManagementContext)} */
+    public static FeedPollScheduler get(ManagementContext mgmt) {
+        Scratchpad scratchpad = mgmt.getScratchpad();
+        synchronized (scratchpad) {
+            FeedPollScheduler result = scratchpad.get(SCRATCHPAD_KEY);
+            if (result == null) {
+                result = new FeedPollScheduler(mgmt.getManagementNodeId(), mgmt.getConfig());
+                scratchpad.put(SCRATCHPAD_KEY, result);
+            }
+            return result;
+        }
+    }
+
+    /** stops the scheduler for the given management context, if there is one */
+    public static void shutdown(ManagementContext mgmt) {
+        Scratchpad scratchpad = mgmt.getScratchpad();
+        FeedPollScheduler scheduler;
+        synchronized (scratchpad) {
+            scheduler = scratchpad.get(SCRATCHPAD_KEY);
+            scratchpad.put(SCRATCHPAD_KEY, null);
+        }
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    /** Counters for the polls of a feed, accumulated over all its poll jobs. */
+    public static class PollStats {
+        private final AtomicInteger activeJobs = new AtomicInteger();
+        private final AtomicLong polls = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong overruns = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong totalLagNanos = new AtomicLong();
+        private final AtomicLong maxLagNanos = new AtomicLong();
+
+        void recordPoll(long lagNanos, boolean overrun, boolean failed) {
+            polls.incrementAndGet();
+            totalLagNanos.addAndGet(lagNanos);
+            maxLagNanos.accumulateAndGet(lagNanos, Math::max);
+            if (overrun) overruns.incrementAndGet();
+            if (failed) failures.incrementAndGet();
+        }
+
+        /** polls run */
+        public long getPolls() {
+            return polls.get();
+        }
+
+        /** polls not run, because the previous poll of the job was still running */
+        public long getSkipped() {
+            return skipped.get();
+        }
+
+        /** polls which took longer than their period */
+        public long getOverruns() {
+            return overruns.get();
+        }
+
+        /** polls which threw an exception not handled by their {@link PollHandler} */
+        public long getFailures() {
+            return failures.get();
+        }
+
+        /** the mean time from when polls were due to when they started */
+        public Duration getMeanLag() {
+            long count = polls.get();
+            return Duration.nanos(count == 0 ? 0 : totalLagNanos.get() / count);
+        }
+
+        public Duration getMaxLag() {
+            return Duration.nanos(maxLagNanos.get());
+        }
+
+        public Map<String, Object> asMap() {
+            return ImmutableMap.<String, Object>builder()
+                .put("polls", getPolls())
+                .put("skipped", getSkipped())
+                .put("overruns", getOverruns())
+                .put("failures", getFailures())
+                .put("meanLag", getMeanLag())
+                .put("maxLag", getMaxLag())
+                .build();
+        }
+
+        @Override
+        public String toString() {
+            return "PollStats"+asMap();
+        }
+    }
+
+    /** A poll job added to the scheduler; {@link #cancel()} to stop polling. */
+    public class Registration {
+        private final String feedKey;
+        private final String name;
+        private final long periodNanos;
+        private final Runnable job;
+        private final PollStats stats;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private final long firstDueNanos;
+        private final AtomicLong ticks = new AtomicLong();
+        private volatile ScheduledFuture<?> future;
+        private volatile boolean cancelled = false;
+
+        Registration(String feedKey, String name, Duration period, Runnable job, PollStats stats, long initialDelayNanos) {
+            this.feedKey = feedKey;
+            this.name = name;
+            this.periodNanos = period.nanos();
+            this.job = job;
+            this.stats = stats;
+            this.firstDueNanos = System.nanoTime() + initialDelayNanos;
+        }
+
+        /** on the timer thread: hand the poll to the pool, unless the previous one is still running */
+        void tick() {
+            final long dueNanos = firstDueNanos + ticks.getAndIncrement() * periodNanos;
+            if (cancelled) return;
+            if (!running.compareAndSet(false, true)) {
+                stats.skipped.incrementAndGet();
+                return;
+            }
+            try {
+                pool.execute(() -> poll(dueNanos));
+            } catch (Exception e) {
+                running.set(false);
+                if (!pool.isShutdown()) log.warn("Unable to run poll "+name+" of "+feedKey+": "+e);
+            }
+        }
+
+        void poll(long dueNanos) {
+            long startNanos = System.nanoTime();
+            boolean failed = false;
+            try {
+                if (!cancelled) job.run();
+            } catch (Throwable e) {
+                failed = true;
+                Exceptions.propagateIfFatal(e);
+                log.debug("Poll "+name+" of "+feedKey+" failed: "+e);
+            } finally {
+                long elapsedNanos = System.nanoTime() - startNanos;
+                boolean overrun = elapsedNanos > periodNanos;
+                if (overrun && log.isDebugEnabled()) {
+                    log.debug("Poll "+name+" of "+feedKey+" took "+Duration.nanos(elapsedNanos)+", longer than its period "+Duration.nanos(periodNanos));
+                }
+                stats.recordPoll(Math.max(0, startNanos - dueNanos), overrun, failed);
+                running.set(false);
+            }
+        }
+
+        public void cancel() {
+            if (cancelled) return;
+            cancelled = true;
+            if (future != null) future.cancel(false);
+            statsByFeed.computeIfPresent(feedKey, (k, existing) -> existing.activeJobs.decrementAndGet() > 0 ? existing : null);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public PollStats getStats() {
+            return stats;
+        }
+
+        @Override
+        public String toString() {
+            return "FeedPollScheduler.Registration["+feedKey+":"+name+"]";
+        }
+    }
+
+    private final ScheduledThreadPoolExecutor timer;
+    private final ThreadPoolExecutor pool;
+    private final Duration maxJitter;
+    private final ConcurrentMap<String, PollStats> statsByFeed = new ConcurrentHashMap<String, PollStats>();
+
+    protected FeedPollScheduler(String contextId, StringConfigMap config) {
+        Integer maxThreads = config.getConfig(MAX_THREADS);
+        int threads = (maxThreads != null) ? maxThreads : Runtime.getRuntime().availableProcessors();
+        Preconditions.checkArgument(threads > 0, "%s must be positive, but was %s", MAX_THREADS.getName(), threads);
+        maxJitter = config.getConfig(MAX_JITTER);
+
+        timer = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+            .setNameFormat("brooklyn-feed-poll-timer-"+contextId+"-%d").setDaemon(true).build());
+        timer.setRemoveOnCancelPolicy(true);
+        pool = new ThreadPoolExecutor(threads, threads, 10L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactoryBuilder().setNameFormat("brooklyn-feed-poll-"+contextId+"-%d").setDaemon(true).build());
+        pool.allowCoreThreadTimeOut(true);
+        log.debug("Created feed poll scheduler for "+contextId+" with "+threads+" threads");
+    }
+
+    /**
+     * Polls the given job every period, until the returned registration is cancelled.
+     * The job should handle its own exceptions; any it throws are counted as failures.
+     *
+     * @param feedKey identifies the feed, for {@link #getStats()}
+     */
+    public Registration schedule(String feedKey, String name, Duration period, Runnable job) {
+        Preconditions.checkArgument(period.isPositive(), "period must be positive, but was %s", period);
+        long jitterBoundNanos = Math.min(period.nanos(), maxJitter == null ? 0 : maxJitter.nanos());
+        long initialDelayNanos = jitterBoundNanos > 0 ? ThreadLocalRandom.current().nextLong(jitterBoundNanos) : 0;
+
+        PollStats stats = statsByFeed.compute(feedKey, (k, existing) -> {
+            PollStats result = (existing != null) ? existing : new PollStats();
+            result.activeJobs.incrementAndGet();
+            return result;
+        });
+
+        final Registration result = new Registration(feedKey, name, period, job, stats, initialDelayNanos);
+        result.future = timer.scheduleAtFixedRate(result::tick, initialDelayNanos, result.periodNanos, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    /** stats of polls for each feed with polls currently scheduled */
+    public Map<String, PollStats> getStats() {
+        return MutableMap.copyOf(statsByFeed).asUnmodifiable();
+    }
+
+    public boolean isShutdown() {
+        return timer.isShutdown();
+    }
+
+    protected void shutdownNow() {
+        timer.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return "FeedPollScheduler[threads="+pool.getMaximumPoolSize()+"; feeds="+statsByFeed.size()+"]";
+    }
+}
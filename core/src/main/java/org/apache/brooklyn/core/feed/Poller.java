@@ -22,14 +22,20 @@ import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.mgmt.ExecutionContext;
+import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.core.entity.Attributes;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
 import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.task.BasicExecutionContext;
 import org.apache.brooklyn.util.core.task.DynamicSequentialTask;
 import org.apache.brooklyn.util.core.task.ScheduledTask;
 import org.apache.brooklyn.util.core.task.Tasks;
@@ -37,7 +43,11 @@ import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.MoreObjects;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 
 /** 
@@ -57,13 +67,14 @@ public class Poller<V> {
     private final Set<PollJob<V>> pollJobs = new LinkedHashSet<PollJob<V>>();
     private final Set<Task<?>> oneOffTasks = new LinkedHashSet<Task<?>>();
     private final Set<ScheduledTask> tasks = new LinkedHashSet<ScheduledTask>();
+    private final Set<FeedPollScheduler.Registration> registrations = new LinkedHashSet<FeedPollScheduler.Registration>();
     private volatile boolean started = false;
     
     private static class PollJob<V> {
         final PollHandler<? super V> handler;
         final Duration pollPeriod;
         final Runnable wrappedJob;
-        private boolean loggedPreviousException = false;
+        private volatile boolean loggedPreviousException = false;
         
         PollJob(final Callable<V> job, final PollHandler<? super V> handler, Duration period) {
             this.handler = handler;
@@ -74,24 +85,83 @@ public class Poller<V> {
                 public void run() {
                     try {
                         V val = job.call();
-                        loggedPreviousException = false;
-                        if (handler.checkSuccess(val)) {
-                            handler.onSuccess(val);
-                        } else {
-                            handler.onFailure(val);
-                        }
+                        onResult(val);
                     } catch (Exception e) {
-                        if (loggedPreviousException) {
-                            if (log.isTraceEnabled()) log.trace("PollJob for {}, repeated consecutive failures, handling {} using {}", new Object[] {job, e, handler});
-                        } else {
-                            if (log.isDebugEnabled()) log.debug("PollJob for {} handling {} using {}", new Object[] {job, e, handler});
-                            loggedPreviousException = true;
-                        }
-                        handler.onException(e);
+                        onException(job, e);
                     }
                 }
             };
         }
+        
+        /**
+         * For a job which only starts the poll, returning a future for its result. No thread waits for the result;
+         * the handler is called when the future completes, in a task in the poll's execution context (so not in
+         * the thread that completes the future, which may be an i/o thread shared by all polls).
+         * A poll is skipped if the previous one has not yet completed.
+         */
+        PollJob(final Callable<? extends ListenableFuture<? extends V>> job, final PollHandler<? super V> handler, Duration period, final Entity entity, final AtomicBoolean inProgress) {
+            this.handler = handler;
+            this.pollPeriod = period;
+            
+            wrappedJob = new Runnable() {
+                @Override
+                public void run() {
+                    if (!inProgress.compareAndSet(false, true)) {
+                        if (log.isTraceEnabled()) log.trace("PollJob for {} skipping poll, as previous still in progress", job);
+                        return;
+                    }
+                    ExecutionContext executionContext = BasicExecutionContext.getCurrentExecutionContext();
+                    if (executionContext == null) executionContext = ((EntityInternal)entity).getExecutionContext();
+                    ListenableFuture<? extends V> future;
+                    try {
+                        future = job.call();
+                    } catch (Exception e) {
+                        inProgress.set(false);
+                        onException(job, e);
+                        return;
+                    }
+                    Futures.addCallback(future, new FutureCallback<V>() {
+                        @Override
+                        public void onSuccess(V val) {
+                            try {
+                                onResult(val);
+                            } catch (Exception e) {
+                                onException(job, e);
+                            } finally {
+                                inProgress.set(false);
+                            }
+                        }
+                        @Override
+                        public void onFailure(Throwable t) {
+                            try {
+                                onException(job, (t instanceof Exception) ? (Exception) t : new ExecutionException(t));
+                            } finally {
+                                inProgress.set(false);
+                            }
+                        }
+                    }, newPollTaskExecutor(executionContext, handler.getDescription()));
+                }
+            };
+        }
+        
+        private void onResult(V val) {
+            loggedPreviousException = false;
+            if (handler.checkSuccess(val)) {
+                handler.onSuccess(val);
+            } else {
+                handler.onFailure(val);
+            }
+        }
+        
+        private void onException(Object job, Exception e) {
+            if (loggedPreviousException) {
+                if (log.isTraceEnabled()) log.trace("PollJob for {}, repeated consecutive failures, handling {} using {}", new Object[] {job, e, handler});
+            } else {
+                if (log.isDebugEnabled()) log.debug("PollJob for {} handling {} using {}", new Object[] {job, e, handler});
+                loggedPreviousException = true;
+            }
+            handler.onException(e);
+        }
     }
 
     /** @deprecated since 0.12.0 pass in feed */
@@ -124,6 +194,41 @@ public class Poller<V> {
         pollJobs.add(foo);
     }
 
+    /**
+     * As {@link #scheduleAtFixedRate(Callable, PollHandler, Duration)}, but for a job which starts a poll
+     * without blocking, e.g. a non-blocking http request. The handler is called once the returned future
+     * completes; until then, subsequent polls are skipped.
+     */
+    @Beta
+    public void scheduleAsyncAtFixedRate(Callable<? extends ListenableFuture<? extends V>> job, PollHandler<? super V> handler, Duration period) {
+        if (started) {
+            throw new IllegalStateException("Cannot schedule additional tasks after poller has started");
+        }
+        pollJobs.add(new PollJob<V>(job, handler, period, entity, new AtomicBoolean()));
+    }
+
+    /**
+     * Returns an executor for work following on from an asynchronous poll, such as handling its result.
+     * Each command is run in a transient {@link BrooklynTaskTags#FEED_POLL_TAG feed poll} task in the given
+     * context; or directly, if the caller is already in a task (e.g. one run by this executor for a previous stage).
+     */
+    @Beta
+    public static Executor newPollTaskExecutor(final ExecutionContext executionContext, final String displayName) {
+        return new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                if (Tasks.current() != null) {
+                    command.run();
+                } else {
+                    Task<?> task = Tasks.builder().dynamic(false).displayName(displayName).description("Poll result")
+                            .tag(BrooklynTaskTags.FEED_POLL_TAG).body(command).build();
+                    BrooklynTaskTags.setTransient(task);
+                    executionContext.submit(task);
+                }
+            }
+        };
+    }
+
     @SuppressWarnings({ "unchecked" })
     public void start() {
         // TODO Previous incarnation of this logged this logged polledSensors.keySet(), but we don't know that anymore
@@ -138,34 +243,36 @@ public class Poller<V> {
         started = true;
         
         for (final Callable<?> oneOffJob : oneOffJobs) {
-            Task<?> task = Tasks.builder().dynamic(false).body((Callable<Object>) oneOffJob).displayName("Poll").description("One-time poll job "+oneOffJob).build();
+            Task<?> task = Tasks.builder().dynamic(false).body((Callable<Object>) oneOffJob).displayName("Poll").description("One-time poll job "+oneOffJob).tag(BrooklynTaskTags.FEED_POLL_TAG).build();
             oneOffTasks.add(feed.getExecutionContext().submit(task));
         }
         
+        ManagementContext mgmt = ((EntityInternal)entity).getManagementContext();
+        FeedPollScheduler sharedScheduler = FeedPollScheduler.isEnabled(mgmt) ? FeedPollScheduler.get(mgmt) : null;
+        
         Duration minPeriod = null;
         for (final PollJob<V> pollJob : pollJobs) {
             final String scheduleName = pollJob.handler.getDescription();
             if (pollJob.pollPeriod.compareTo(Duration.ZERO) > 0) {
-                ScheduledTask t = ScheduledTask.builder(() -> {
-                            DynamicSequentialTask<Void> task = new DynamicSequentialTask<Void>(MutableMap.of("displayName", scheduleName, "entity", entity), 
-                                new Callable<Void>() { @Override public Void call() {
-                                    if (!Entities.isManaged(entity)) {
-                                        return null;
-                                    }
-                                    if (onlyIfServiceUp && !Boolean.TRUE.equals(entity.getAttribute(Attributes.SERVICE_UP))) {
-                                        return null;
-                                    }
-                                    pollJob.wrappedJob.run();
-                                    return null; 
-                                } } );
-                            BrooklynTaskTags.setTransient(task);
-                            return task;
-                        })
-                        .displayName("scheduled:" + scheduleName)
-                        .period(pollJob.pollPeriod)
-                        .cancelOnException(false)
-                        .build();
-                tasks.add(Entities.submit(entity, t));
+                if (sharedScheduler != null) {
+                    registrations.add(sharedScheduler.schedule(feed != null ? feed.getId() : entity.getId(), scheduleName, pollJob.pollPeriod,
+                        newSharedSchedulerJob(pollJob, scheduleName)));
+                } else {
+                    ScheduledTask t = ScheduledTask.builder(() -> {
+                                DynamicSequentialTask<Void> task = new DynamicSequentialTask<Void>(MutableMap.of("displayName", scheduleName, "entity", entity, "tag", BrooklynTaskTags.FEED_POLL_TAG), 
+                                    new Callable<Void>() { @Override public Void call() {
+                                        pollIfActive(pollJob);
+                                        return null; 
+                                    } } );
+                                BrooklynTaskTags.setTransient(task);
+                                return task;
+                            })
+                            .displayName("scheduled:" + scheduleName)
+                            .period(pollJob.pollPeriod)
+                            .cancelOnException(false)
+                            .build();
+                    tasks.add(Entities.submit(entity, t));
+                }
                 if (minPeriod==null || (pollJob.pollPeriod.isShorterThan(minPeriod))) {
                     minPeriod = pollJob.pollPeriod;
                 }
@@ -179,6 +286,39 @@ public class Poller<V> {
         }
     }
     
+    private void pollIfActive(PollJob<V> pollJob) {
+        if (!Entities.isManaged(entity)) {
+            return;
+        }
+        if (onlyIfServiceUp && !Boolean.TRUE.equals(entity.getAttribute(Attributes.SERVICE_UP))) {
+            return;
+        }
+        pollJob.wrappedJob.run();
+    }
+    
+    /** 
+     * A poll for the {@link FeedPollScheduler}, which runs without a task; but in the feed's execution context,
+     * so that the poll can submit tasks. Failures the poll handler does not handle are recorded as a failed task.
+     */
+    private Runnable newSharedSchedulerJob(final PollJob<V> pollJob, final String scheduleName) {
+        final ExecutionContext executionContext = (feed != null) ? feed.getExecutionContext() : ((EntityInternal)entity).getExecutionContext();
+        return () -> {
+            BasicExecutionContext oldContext = BasicExecutionContext.setPerThreadExecutionContext(
+                (executionContext instanceof BasicExecutionContext) ? (BasicExecutionContext) executionContext : null);
+            try {
+                pollIfActive(pollJob);
+            } catch (RuntimeException e) {
+                if (started) {
+                    executionContext.submit(Tasks.builder().dynamic(false).displayName(scheduleName).description("Failed poll")
+                        .tag(BrooklynTaskTags.FEED_POLL_TAG).body((Runnable) () -> { throw e; }).build());
+                }
+                throw e;
+            } finally {
+                BasicExecutionContext.setPerThreadExecutionContext(oldContext);
+            }
+        };
+    }
+    
     public void stop() {
         if (log.isDebugEnabled()) log.debug("Stopping poll for {} (using {})", new Object[] {entity, this});
         if (!started) { 
@@ -193,8 +333,12 @@ public class Poller<V> {
         for (ScheduledTask task : tasks) {
             if (task != null) task.cancel();
         }
+        for (FeedPollScheduler.Registration registration : registrations) {
+            registration.cancel();
+        }
         oneOffTasks.clear();
         tasks.clear();
+        registrations.clear();
     }
 
     public boolean isRunning() {
@@ -205,6 +349,12 @@ public class Poller<V> {
                 break;
             }
         }
+        for (FeedPollScheduler.Registration registration : registrations) {
+            if (!registration.isCancelled()) {
+                hasActiveTasks = true;
+                break;
+            }
+        }
         if (!started && hasActiveTasks) {
             log.warn("Poller should not be running, but has active tasks, tasks: "+tasks);
         }
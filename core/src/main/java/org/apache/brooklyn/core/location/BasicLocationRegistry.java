@@ -48,6 +48,7 @@ import org.apache.brooklyn.core.internal.BrooklynProperties;
 import org.apache.brooklyn.core.location.internal.LocationInternal;
 import org.apache.brooklyn.core.mgmt.internal.LocalLocationManager;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
+import org.apache.brooklyn.core.typereg.BasicBrooklynTypeRegistry;
 import org.apache.brooklyn.core.typereg.RegisteredTypeLoadingContexts;
 import org.apache.brooklyn.core.typereg.RegisteredTypePredicates;
 import org.apache.brooklyn.location.localhost.LocalhostLocationResolver;
@@ -236,6 +237,7 @@ public class BasicLocationRegistry implements LocationRegistry {
         synchronized (definedLocations) { 
             definedLocations.put(l.getId(), l); 
         }
+        invalidateSpecCache();
     }
 
     /**
@@ -285,6 +287,7 @@ public class BasicLocationRegistry implements LocationRegistry {
         synchronized (definedLocations) { 
             removed = definedLocations.remove(id);
         }
+        invalidateSpecCache();
         if (removed == null && log.isDebugEnabled()) {
             log.debug("{} was asked to remove location with id {} but no such location was registered", this, id);
         }
@@ -315,6 +318,13 @@ public class BasicLocationRegistry implements LocationRegistry {
                 log.debug("Found "+count+" defined locations from properties (*.named.* syntax): "+definedLocations.values());
         }
     }
+
+    /** specs cached by the type registry can include location specs resolved from the definitions here */
+    private void invalidateSpecCache() {
+        if (mgmt.getTypeRegistry() instanceof BasicBrooklynTypeRegistry) {
+            ((BasicBrooklynTypeRegistry) mgmt.getTypeRegistry()).invalidateSpecCache();
+        }
+    }
     
     private static BasicLocationDefinition localhost(String id) {
         return new BasicLocationDefinition(id, "localhost", "localhost", null);
@@ -79,6 +79,8 @@ public class BrooklynTaskTags extends TaskTags {
     public static final String EFFECTOR_TAG = "EFFECTOR";
     /** Tag for a task which represents a sensor being published */
     public static final String SENSOR_TAG = "SENSOR";
+    /** Tag for a task which polls for a feed */
+    public static final String FEED_POLL_TAG = "FEED-POLL";
     /** Tag for a task which *is* interesting, in contrast to {@link #TRANSIENT_TASK_TAG} */
     public static final String NON_TRANSIENT_TASK_TAG = "NON-TRANSIENT";
     /** indicates a task is transient, roughly that is to say it is uninteresting -- 
@@ -97,6 +97,9 @@ public abstract class AbstractSubscriptionManager implements SubscriptionManager
      * <li>subscriberExecutionManagerTag - a tag to pass to execution manager (without setting any execution semantics / TaskPreprocessor);
      *      if not supplied and there is a subscriber, this will be inferred from the subscriber and set up with SingleThreadedScheduler
      * <li>eventFilter - a Predicate&lt;SensorEvent&gt; instance to filter what events are delivered
+     * <li>conflate - if true, when the subscriber falls behind, an undelivered attribute change is replaced by 
+     *      any newer value from the same producer and sensor, so only the latest value is delivered;
+     *      this can reorder deliveries across different sensors, and does not apply to non-attribute sensors
      * </ul>
      * 
      * @see SubscriptionManager#subscribe(Map, Entity, Sensor, SensorEventListener)
@@ -18,10 +18,13 @@
  */
 package org.apache.brooklyn.core.mgmt.internal;
 
+import java.util.Collection;
+
 import org.apache.brooklyn.api.entity.Application;
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.mgmt.EntityManager;
+import org.apache.brooklyn.core.entity.BrooklynConfigKeys;
 
 import com.google.common.annotations.Beta;
 import com.google.common.base.Optional;
@@ -31,6 +34,14 @@ public interface EntityManagerInternal extends EntityManager, BrooklynObjectMana
     /** gets all entities currently known to the application, including entities that are not yet managed */
     Iterable<Entity> getAllEntitiesInApplication(Application application);
 
+    /**
+     * Returns the managed entities in the given application which have the given {@link BrooklynConfigKeys#PLAN_ID},
+     * using an index rather than inspecting every entity. Entities which are not yet fully managed are not included
+     * (callers needing those should fall back to {@link #getAllEntitiesInApplication(Application)}).
+     */
+    @Beta
+    Collection<Entity> getEntitiesInApplicationWithPlanId(Application application, String planId);
+
     public Iterable<String> getEntityIds();
     
     /**
@@ -48,6 +48,7 @@ import org.apache.brooklyn.api.sensor.Enricher;
 import org.apache.brooklyn.api.sensor.EnricherSpec;
 import org.apache.brooklyn.core.BrooklynLogging;
 import org.apache.brooklyn.core.entity.AbstractEntity;
+import org.apache.brooklyn.core.entity.BrooklynConfigKeys;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.entity.EntityPredicates;
@@ -125,6 +126,9 @@ public class LocalEntityManager implements EntityManagerInternal {
     /** Proxies of the managed entities that are applications */
     private final Set<Application> applications = Sets.newConcurrentHashSet();
 
+    /** Managed entities by application and {@link BrooklynConfigKeys#PLAN_ID}, for fast lookup of components. */
+    private final PlanIdIndex planIdIndex = new PlanIdIndex();
+
     private final BrooklynStorage storage;
     private final Map<String,String> entityTypes;
     private final Set<String> applicationIds;
@@ -276,6 +280,21 @@ public class LocalEntityManager implements EntityManagerInternal {
                 .toSet();
     }
 
+    @Override
+    public Collection<Entity> getEntitiesInApplicationWithPlanId(Application application, String planId) {
+        Predicate<Entity> predicate = Predicates.and(EntityPredicates.applicationIdEqualTo(application.getId()),
+                EntityPredicates.configEqualTo(BrooklynConfigKeys.PLAN_ID, planId));
+        List<Entity> result = Lists.newArrayList();
+        for (String id : planIdIndex.get(application.getId(), planId)) {
+            Entity entity = entityProxiesById.get(id);
+            // index is as at when the entity was managed, so check it (still) matches
+            if (entity!=null && predicate.apply(entity)) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
     @Override
     public Entity getEntity(String id) {
         return entityProxiesById.get(id);
@@ -768,6 +787,7 @@ public class LocalEntityManager implements EntityManagerInternal {
         entityProxiesById.put(e.getId(), proxyE);
         entityTypes.put(e.getId(), realE.getClass().getName());
         entitiesById.put(e.getId(), realE);
+        planIdIndex.put(realE);
         
         preManagedEntitiesById.remove(e.getId());
         if ((e instanceof Application) && (e.getParent()==null)) {
@@ -834,6 +854,7 @@ public class LocalEntityManager implements EntityManagerInternal {
             entities.remove(proxyE);
             entityProxiesById.remove(e.getId());
             entityModesById.remove(e.getId());
+            planIdIndex.remove(e.getId());
             
             Object old = entitiesById.remove(e.getId());
 
@@ -948,4 +969,55 @@ public class LocalEntityManager implements EntityManagerInternal {
         return managementContext.isRunning();
     }
 
+    /**
+     * Ids of entities by application id and {@link BrooklynConfigKeys#PLAN_ID}, as at the time they were managed.
+     * Entities can subsequently be reparented or reconfigured, so callers must check candidates still match.
+     */
+    private static class PlanIdIndex {
+        private final Map<String, Map<String, Set<String>>> entityIdsByApplicationIdAndPlanId = Maps.newHashMap();
+        private final Map<String, Map.Entry<String, String>> applicationIdAndPlanIdByEntityId = Maps.newHashMap();
+
+        void put(Entity e) {
+            // read outside of our lock
+            String applicationId = e.getApplicationId();
+            Object planId = ((EntityInternal)e).config().getLocalRaw(BrooklynConfigKeys.PLAN_ID).orNull();
+            put(e.getId(), applicationId, planId instanceof String ? (String)planId : null);
+        }
+
+        private synchronized void put(String entityId, String applicationId, String planId) {
+            remove(entityId);
+            if (applicationId==null || planId==null) return;
+
+            Map<String, Set<String>> entityIdsByPlanId = entityIdsByApplicationIdAndPlanId.get(applicationId);
+            if (entityIdsByPlanId==null) {
+                entityIdsByPlanId = Maps.newHashMap();
+                entityIdsByApplicationIdAndPlanId.put(applicationId, entityIdsByPlanId);
+            }
+            Set<String> entityIds = entityIdsByPlanId.get(planId);
+            if (entityIds==null) {
+                entityIds = MutableSet.of();
+                entityIdsByPlanId.put(planId, entityIds);
+            }
+            entityIds.add(entityId);
+            applicationIdAndPlanIdByEntityId.put(entityId, Maps.immutableEntry(applicationId, planId));
+        }
+
+        synchronized void remove(String entityId) {
+            Map.Entry<String, String> old = applicationIdAndPlanIdByEntityId.remove(entityId);
+            if (old==null) return;
+            Map<String, Set<String>> entityIdsByPlanId = entityIdsByApplicationIdAndPlanId.get(old.getKey());
+            Set<String> entityIds = entityIdsByPlanId.get(old.getValue());
+            entityIds.remove(entityId);
+            if (entityIds.isEmpty()) {
+                entityIdsByPlanId.remove(old.getValue());
+                if (entityIdsByPlanId.isEmpty()) entityIdsByApplicationIdAndPlanId.remove(old.getKey());
+            }
+        }
+
+        synchronized List<String> get(String applicationId, String planId) {
+            Map<String, Set<String>> entityIdsByPlanId = entityIdsByApplicationIdAndPlanId.get(applicationId);
+            Set<String> entityIds = entityIdsByPlanId==null ? null : entityIdsByPlanId.get(planId);
+            return entityIds==null ? ImmutableList.<String>of() : ImmutableList.copyOf(entityIds);
+        }
+    }
 }
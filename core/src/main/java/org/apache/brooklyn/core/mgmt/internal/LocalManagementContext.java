@@ -47,6 +47,7 @@ import org.apache.brooklyn.api.mgmt.ha.ManagementNodeState;
 import org.apache.brooklyn.core.BrooklynFeatureEnablement;
 import org.apache.brooklyn.core.effector.Effectors;
 import org.apache.brooklyn.core.entity.drivers.downloads.BasicDownloadsManager;
+import org.apache.brooklyn.core.feed.FeedPollScheduler;
 import org.apache.brooklyn.core.internal.BrooklynInitialization;
 import org.apache.brooklyn.core.internal.BrooklynProperties;
 import org.apache.brooklyn.core.internal.BrooklynProperties.Factory.Builder;
@@ -55,6 +56,7 @@ import org.apache.brooklyn.core.mgmt.ha.OsgiManager;
 import org.apache.brooklyn.core.objs.proxy.InternalEntityFactory;
 import org.apache.brooklyn.core.objs.proxy.InternalLocationFactory;
 import org.apache.brooklyn.core.objs.proxy.InternalPolicyFactory;
+import org.apache.brooklyn.core.typereg.BasicBrooklynTypeRegistry;
 import org.apache.brooklyn.util.core.task.BasicExecutionContext;
 import org.apache.brooklyn.util.core.task.BasicExecutionManager;
 import org.apache.brooklyn.util.core.task.DynamicTasks;
@@ -314,7 +316,7 @@ public class LocalManagementContext extends AbstractManagementContext {
         if (!isRunning()) throw new IllegalStateException("Management context no longer running");
 
         if (execution == null) {
-            execution = new BasicExecutionManager(getManagementNodeId());
+            execution = new BasicExecutionManager(getManagementNodeId(), configMap);
             gc = new BrooklynGarbageCollector(configMap, execution, getStorage());
         }
         return execution;
@@ -332,6 +334,7 @@ public class LocalManagementContext extends AbstractManagementContext {
         INSTANCES.remove(this);
         super.terminate();
         if (usageManager != null) usageManager.terminate();
+        FeedPollScheduler.shutdown(this);
         if (execution != null) execution.shutdownNow();
         if (gc != null) gc.shutdownNow();
         if (osgiManager!=null) {
@@ -418,6 +421,10 @@ public class LocalManagementContext extends AbstractManagementContext {
     public void clearLocationRegistry() {
         // Force reload of location registry
         this.locationRegistry = null;
+        // and of any specs which used it
+        if (typeRegistry instanceof BasicBrooklynTypeRegistry) {
+            ((BasicBrooklynTypeRegistry) typeRegistry).invalidateSpecCache();
+        }
     }
 
     @Override
@@ -18,19 +18,25 @@
  */
 package org.apache.brooklyn.core.mgmt.internal;
 
+import static com.google.common.base.Preconditions.checkNotNull;
 import static org.apache.brooklyn.util.JavaGroovyEquivalents.elvis;
 import static org.apache.brooklyn.util.JavaGroovyEquivalents.groovyTruth;
 import static org.apache.brooklyn.util.JavaGroovyEquivalents.join;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.brooklyn.api.entity.Entity;
@@ -42,6 +48,7 @@ import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.api.sensor.SensorEventListener;
+import org.apache.brooklyn.core.BrooklynFeatureEnablement;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
@@ -51,6 +58,7 @@ import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.task.BasicExecutionContext;
 import org.apache.brooklyn.util.core.task.BasicExecutionManager;
+import org.apache.brooklyn.util.core.task.BasicTask;
 import org.apache.brooklyn.util.core.task.SingleThreadedScheduler;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.text.Identifiers;
@@ -58,18 +66,24 @@ import org.apache.brooklyn.util.text.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimaps;
+import com.google.common.collect.Sets;
 
 /**
  * A {@link SubscriptionManager} that stores subscription details locally.
  * 
- * Synchronization model:  methods in this class synch on this object to ensure
- * subscription order and delivery order on publish.
+ * Synchronization model:  methods which change subscriptions synch on this object to ensure
+ * subscription order. The index used on publish is copy-on-write, so lookups on publish
+ * take no lock; delivery order is preserved by the caller (eg {@link AttributeMap}) and 
+ * by the per-subscriber {@link SingleThreadedScheduler}.
  * <p>
  * Frequently it will be called by a thread holding a lock on a value
  * (eg {@link AttributeMap}, this synchronized methods here should not
@@ -86,13 +100,33 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
 
     private final AtomicLong totalEventsPublishedCount = new AtomicLong();
     private final AtomicLong totalEventsDeliveredCount = new AtomicLong();
+    private final AtomicLong deliveryQueueDepth = new AtomicLong();
+    private final AtomicLong totalEventsConflatedCount = new AtomicLong();
+    private final AtomicLong numSubscriptionsConflatedCount = new AtomicLong();
+    
+    /** whether non-initial deliveries are batched per subscriber, see {@link BrooklynFeatureEnablement#FEATURE_BATCHED_SUBSCRIPTION_DELIVERY} */
+    private volatile boolean batchedDelivery = BrooklynFeatureEnablement.isEnabled(BrooklynFeatureEnablement.FEATURE_BATCHED_SUBSCRIPTION_DELIVERY);
+    /** queues for batched delivery, keyed by {@link #getDeliveryQueueKey(Subscription)} */
+    private final ConcurrentMap<Object, SubscriberDeliveryQueue> deliveryQueuesByTag = new ConcurrentHashMap<Object, SubscriberDeliveryQueue>();
     
     @SuppressWarnings("rawtypes")
     protected final ConcurrentMap<String, Subscription> allSubscriptions = new ConcurrentHashMap<String, Subscription>();
     @SuppressWarnings("rawtypes")
     protected final ConcurrentMap<Object, Set<Subscription>> subscriptionsBySubscriber = new ConcurrentHashMap<Object, Set<Subscription>>();
+    /**
+     * Index of subscriptions by producer then by sensor name, using {@link #WILDCARD} for null producer or sensor.
+     * The sets are immutable and replaced (while synchronized on this) whenever subscriptions change,
+     * so they can be read and iterated on publish without locking or copying.
+     */
     @SuppressWarnings("rawtypes")
-    protected final ConcurrentMap<Object, Set<Subscription>> subscriptionsByToken = new ConcurrentHashMap<Object, Set<Subscription>>();
+    protected final ConcurrentMap<Object, ConcurrentMap<Object, Set<Subscription>>> subscriptionsByProducerAndSensor = new ConcurrentHashMap<Object, ConcurrentMap<Object, Set<Subscription>>>();
+    /** number of subscriptions where producer or sensor is a wildcard; if zero, publish needs only one lookup */
+    private volatile int wildcardSubscriptionCount = 0;
+    
+    /** key used in {@link #subscriptionsByProducerAndSensor} for a null producer or sensor, as concurrent maps do not accept null */
+    private static final Object WILDCARD = new Object() {
+        @Override public String toString() { return "*"; }
+    };
     
     public LocalSubscriptionManager(ExecutionManager m) {
         this.em = m;
@@ -113,6 +147,31 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         return totalEventsDeliveredCount.get();
     }
     
+    /** The total number of events not delivered to conflating subscriptions because a newer value was published before delivery */
+    public long getTotalEventsConflated() {
+        return totalEventsConflatedCount.get();
+    }
+    
+    /** The number of conflating subscriptions which have, at some point, fallen behind and had events replaced by newer ones */
+    public long getNumSubscriptionsConflated() {
+        return numSubscriptionsConflatedCount.get();
+    }
+    
+    /** The number of events waiting in per-subscriber queues when using batched delivery (always zero otherwise) */
+    public long getDeliveryQueueDepth() {
+        return deliveryQueueDepth.get();
+    }
+    
+    public boolean isBatchedDelivery() {
+        return batchedDelivery;
+    }
+    
+    /** Sets whether subsequent deliveries are batched, overriding {@link BrooklynFeatureEnablement#FEATURE_BATCHED_SUBSCRIPTION_DELIVERY} */
+    @Beta
+    public void setBatchedDelivery(boolean batchedDelivery) {
+        this.batchedDelivery = batchedDelivery;
+    }
+    
     @Override
     @SuppressWarnings("unchecked")
     protected synchronized <T> SubscriptionHandle subscribe(Map<String, Object> flags, final Subscription<T> s) {
@@ -138,6 +197,9 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         }
         s.eventFilter = (Predicate<SensorEvent<T>>) flags.remove("eventFilter");
         boolean notifyOfInitialValue = Boolean.TRUE.equals(flags.remove("notifyOfInitialValue"));
+        if (Boolean.TRUE.equals(flags.remove("conflate"))) {
+            s.conflatedEvents = new ConcurrentHashMap<Object, SensorEvent<T>>();
+        }
         s.flags = flags;
         
         if (LOG.isDebugEnabled()) LOG.debug("Creating subscription {} for {} on {} {} in {}", new Object[] {s.id, s.subscriber, producer, sensor, this});
@@ -160,7 +222,7 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         } else {
             lastVal = null;  // won't be used
         }
-        addToMapOfSets(subscriptionsByToken, makeEntitySensorToken(s.producer, s.sensor), s);
+        addToIndex(s);
         if (s.subscriber!=null) {
             addToMapOfSets(subscriptionsBySubscriber, s.subscriber, s);
         }
@@ -214,14 +276,76 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         return (Set<SubscriptionHandle>) ((Set<?>) elvis(subscriptionsBySubscriber.get(subscriber), Collections.emptySet()));
     }
 
+    /**
+     * Returns the subscriptions which match the given source and sensor, including wildcard subscriptions.
+     * Does not lock; the result is an immutable snapshot and when there are no wildcard subscriptions
+     * it is the set held in the index, ie no copy is made.
+     */
     @Override
-    public synchronized Set<SubscriptionHandle> getSubscriptionsForEntitySensor(Entity source, Sensor<?> sensor) {
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public Set<SubscriptionHandle> getSubscriptionsForEntitySensor(Entity source, Sensor<?> sensor) {
+        Object producerKey = indexKey(source);
+        Object sensorKey = indexKey(sensor);
+        Set<Subscription> exact = lookupInIndex(producerKey, sensorKey);
+        if (wildcardSubscriptionCount==0) {
+            return (Set<SubscriptionHandle>) (Set<?>) exact;
+        }
         Set<SubscriptionHandle> subscriptions = new LinkedHashSet<SubscriptionHandle>();
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(source, sensor)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(null, sensor)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(source, null)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(null, null)), Collections.emptySet()));
-        return subscriptions;
+        subscriptions.addAll(exact);
+        subscriptions.addAll(lookupInIndex(WILDCARD, sensorKey));
+        subscriptions.addAll(lookupInIndex(producerKey, WILDCARD));
+        subscriptions.addAll(lookupInIndex(WILDCARD, WILDCARD));
+        return Collections.unmodifiableSet(subscriptions);
+    }
+    
+    private static Object indexKey(Entity producer) {
+        return producer==null ? WILDCARD : producer;
+    }
+    
+    private static Object indexKey(Sensor<?> sensor) {
+        return sensor==null ? WILDCARD : checkNotNull(sensor.getName(), "sensor must have non-null name: %s", sensor);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private Set<Subscription> lookupInIndex(Object producerKey, Object sensorKey) {
+        Map<Object, Set<Subscription>> bySensor = subscriptionsByProducerAndSensor.get(producerKey);
+        if (bySensor==null) return Collections.emptySet();
+        Set<Subscription> result = bySensor.get(sensorKey);
+        return result==null ? Collections.<Subscription>emptySet() : result;
+    }
+    
+    /** callers must be synchronized on this */
+    @SuppressWarnings("rawtypes")
+    private void addToIndex(Subscription s) {
+        Object producerKey = indexKey(s.producer);
+        Object sensorKey = indexKey(s.sensor);
+        ConcurrentMap<Object, Set<Subscription>> bySensor = subscriptionsByProducerAndSensor.get(producerKey);
+        if (bySensor==null) {
+            bySensor = new ConcurrentHashMap<Object, Set<Subscription>>();
+            subscriptionsByProducerAndSensor.put(producerKey, bySensor);
+        }
+        Set<Subscription> old = bySensor.get(sensorKey);
+        bySensor.put(sensorKey, old==null ? ImmutableSet.<Subscription>of(s) : ImmutableSet.<Subscription>builder().addAll(old).add(s).build());
+        if (producerKey==WILDCARD || sensorKey==WILDCARD) wildcardSubscriptionCount++;
+    }
+
+    /** callers must be synchronized on this */
+    @SuppressWarnings("rawtypes")
+    private boolean removeFromIndex(Subscription s) {
+        Object producerKey = indexKey(s.producer);
+        Object sensorKey = indexKey(s.sensor);
+        ConcurrentMap<Object, Set<Subscription>> bySensor = subscriptionsByProducerAndSensor.get(producerKey);
+        if (bySensor==null) return false;
+        Set<Subscription> old = bySensor.get(sensorKey);
+        if (old==null || !old.contains(s)) return false;
+        if (old.size()==1) {
+            bySensor.remove(sensorKey);
+            if (bySensor.isEmpty()) subscriptionsByProducerAndSensor.remove(producerKey);
+        } else {
+            bySensor.put(sensorKey, ImmutableSet.copyOf(Sets.filter(old, Predicates.not(Predicates.equalTo(s)))));
+        }
+        if (producerKey==WILDCARD || sensorKey==WILDCARD) wildcardSubscriptionCount--;
+        return true;
     }
 
     /**
@@ -235,11 +359,19 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         if (!(sh instanceof Subscription)) throw new IllegalArgumentException("Only subscription handles of type Subscription supported: sh="+sh+"; type="+(sh != null ? sh.getClass().getCanonicalName() : null));
         Subscription s = (Subscription) sh;
         boolean result = allSubscriptions.remove(s.id) != null;
-        boolean b2 = removeFromMapOfCollections(subscriptionsByToken, makeEntitySensorToken(s.producer, s.sensor), s);
+        boolean b2 = removeFromIndex(s);
         assert result==b2;
         if (s.subscriber!=null) {
             boolean b3 = removeFromMapOfCollections(subscriptionsBySubscriber, s.subscriber, s);
             assert b3 == b2;
+            if (!subscriptionsBySubscriber.containsKey(s.subscriber)) {
+                // any queued events will still be delivered by the queue's task
+                for (SubscriberDeliveryQueue queue : deliveryQueuesByTag.values()) {
+                    if (Objects.equal(queue.executionManagerTag, s.subscriberExecutionManagerTag)) {
+                        deliveryQueuesByTag.remove(queue.key, queue);
+                    }
+                }
+            }
         }
 
         // FIXME ALEX - this seems wrong
@@ -264,6 +396,7 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         if (LOG.isTraceEnabled()) LOG.trace("{} got event {}", this, event);
         totalEventsPublishedCount.incrementAndGet();
         
+        // no lock taken here; the index is copy-on-write
         Set<Subscription> subs = (Set<Subscription>) ((Set<?>) getSubscriptionsForEntitySensor(event.getSource(), event.getSensor()));
         if (groovyTruth(subs)) {
             if (LOG.isTraceEnabled()) LOG.trace("sending {}, {} to {}", new Object[] {event.getSensor().getName(), event, join(subs, ",")});
@@ -280,6 +413,17 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         if (s.eventFilter!=null && !s.eventFilter.apply(event))
             return;
         
+        if (!isInitialPublicationOfOldValueInCorrectScheduledThread && isConflated(s, event)) {
+            // a delivery is already pending for this producer and sensor, and will take the new value
+            return;
+        }
+        
+        if (batchedDelivery && !isInitialPublicationOfOldValueInCorrectScheduledThread && s.subscriberExecutionManagerTag!=null) {
+            // (without a tag there is no ordering to preserve, so such subscriptions are delivered directly)
+            queueForBatchedDelivery(s, event);
+            return;
+        }
+        
         List<Object> tags = getPublishTags(s, event.getSource()).asUnmodifiable();
         
         StringBuilder name = new StringBuilder("sensor ");
@@ -326,39 +470,7 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
             }
             @Override
             public void run() {
-                BasicExecutionContext oldEC = ec instanceof BasicExecutionContext ? BasicExecutionContext.setPerThreadExecutionContext((BasicExecutionContext)ec) : null;
-                try {
-                    
-                    if (isEntityStarting) {
-                        /* don't let sub deliveries start until this is completed;
-                         * this is a pragmatic way to ensure the publish events 
-                         * if submitted during management starting, aren't executed
-                         * until after management is starting.
-                         *   without this we can get deadlocks as this goes to publish,
-                         * has the attribute sensors lock, and waits on the publish lock
-                         * (any of management support, local subs, queueing subs).
-                         * meanwhile the management startup has those three locks,
-                         * then goes to publish and in the process looks up a sensor value.
-                         *   usually this is not an issue because some other task
-                         * does something (eg entity.getExecutionContext()) which
-                         * also has a wait-on-management-support semantics.
-                         */
-                        synchronized (((EntityInternal)s.subscriber).getManagementSupport()) {}
-                    }
-                    int count = s.eventCount.incrementAndGet();
-                    if (count > 0 && count % 1000 == 0) LOG.debug("{} events for subscriber {}", count, s);
-                    
-                    s.listener.onEvent(event);
-                } catch (Throwable t) {
-                    Exceptions.propagateIfFatal(t);
-                    if (event!=null && event.getSource()!=null && Entities.isNoLongerManaged(event.getSource())) {
-                        LOG.debug("Error processing subscriptions to "+this+", after entity unmanaged: "+t, t);
-                    } else {
-                        LOG.warn("Error processing subscriptions to "+this+": "+t, t);
-                    }
-                } finally {
-                    BasicExecutionContext.setPerThreadExecutionContext(oldEC);
-                }
+                deliver(s, isInitialPublicationOfOldValueInCorrectScheduledThread ? event : takeLatestIfConflating(s, event), ec, isEntityStarting, this);
             }};
         if (!isInitialPublicationOfOldValueInCorrectScheduledThread) {
             em.submit(execFlags, deliverer);
@@ -371,10 +483,212 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         }
     }
 
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void deliver(Subscription s, SensorEvent<?> event, ExecutionContext ec, boolean isEntityStarting, Object deliveryDescription) {
+        BasicExecutionContext oldEC = ec instanceof BasicExecutionContext ? BasicExecutionContext.setPerThreadExecutionContext((BasicExecutionContext)ec) : null;
+        try {
+            
+            if (isEntityStarting) {
+                /* don't let sub deliveries start until this is completed;
+                 * this is a pragmatic way to ensure the publish events 
+                 * if submitted during management starting, aren't executed
+                 * until after management is starting.
+                 *   without this we can get deadlocks as this goes to publish,
+                 * has the attribute sensors lock, and waits on the publish lock
+                 * (any of management support, local subs, queueing subs).
+                 * meanwhile the management startup has those three locks,
+                 * then goes to publish and in the process looks up a sensor value.
+                 *   usually this is not an issue because some other task
+                 * does something (eg entity.getExecutionContext()) which
+                 * also has a wait-on-management-support semantics.
+                 */
+                synchronized (((EntityInternal)s.subscriber).getManagementSupport()) {}
+            }
+            int count = s.eventCount.incrementAndGet();
+            if (count > 0 && count % 1000 == 0) LOG.debug("{} events for subscriber {}", count, s);
+            
+            s.listener.onEvent(event);
+        } catch (Throwable t) {
+            Exceptions.propagateIfFatal(t);
+            if (event!=null && event.getSource()!=null && Entities.isNoLongerManaged(event.getSource())) {
+                LOG.debug("Error processing subscriptions to "+deliveryDescription+", after entity unmanaged: "+t, t);
+            } else {
+                LOG.warn("Error processing subscriptions to "+deliveryDescription+": "+t, t);
+            }
+        } finally {
+            BasicExecutionContext.setPerThreadExecutionContext(oldEC);
+        }
+    }
+
+    /**
+     * For subscriptions with the "conflate" flag, records the event as the latest for its producer and attribute,
+     * returning true if a delivery is already pending (which will then deliver this event instead of the older one).
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private boolean isConflated(Subscription s, SensorEvent<?> event) {
+        if (s.conflatedEvents==null || !(event.getSensor() instanceof AttributeSensor)) return false;
+        if (s.conflatedEvents.put(makeEntitySensorToken(event), event)==null) return false;
+        totalEventsConflatedCount.incrementAndGet();
+        if (s.conflatedCount.getAndIncrement()==0) {
+            numSubscriptionsConflatedCount.incrementAndGet();
+            if (LOG.isDebugEnabled()) LOG.debug("Subscription {} fell behind, conflating events from {}", s, event.getSource());
+        }
+        return true;
+    }
+    
+    /** Returns the most recent event recorded by {@link #isConflated(Subscription, SensorEvent)}, or the given event if not conflating. */
+    @SuppressWarnings("rawtypes")
+    private SensorEvent<?> takeLatestIfConflating(Subscription s, SensorEvent<?> event) {
+        if (s.conflatedEvents==null || !(event.getSensor() instanceof AttributeSensor)) return event;
+        SensorEvent<?> latest = (SensorEvent<?>) s.conflatedEvents.remove(makeEntitySensorToken(event));
+        return latest!=null ? latest : event;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private void queueForBatchedDelivery(Subscription s, SensorEvent<?> event) {
+        Object key = getDeliveryQueueKey(s);
+        SubscriberDeliveryQueue queue = deliveryQueuesByTag.get(key);
+        if (queue==null) {
+            SubscriberDeliveryQueue newQueue = new SubscriberDeliveryQueue(key, s);
+            queue = deliveryQueuesByTag.putIfAbsent(key, newQueue);
+            if (queue==null) queue = newQueue;
+        }
+        queue.add(s, event);
+    }
+    
+    /** 
+     * Subscriptions share a delivery queue only if they have the same execution manager tag and extra tags,
+     * so that the delivery task is tagged correctly for all of them.
+     */
+    private static Object getDeliveryQueueKey(Subscription<?> s) {
+        Object key = s.deliveryQueueKey;
+        if (key==null) {
+            key = Arrays.asList(s.subscriberExecutionManagerTag, 
+                s.subscriberExtraExecTags==null ? null : MutableList.copyOf(s.subscriberExtraExecTags));
+            s.deliveryQueueKey = key;
+        }
+        return key;
+    }
+    
+    /**
+     * Events awaiting delivery to subscriptions sharing a subscriber execution manager tag (and extra tags), when using batched delivery.
+     * A single task, with that tag (so respecting the {@link SingleThreadedScheduler} ordering), 
+     * is submitted when the queue becomes non-empty and drains it; this runnable is reused as the job for all such tasks.
+     */
+    private class SubscriberDeliveryQueue implements Runnable {
+        private final Object key;
+        private final Object subscriber;
+        private final Object executionManagerTag;
+        private final List<Object> execTags;
+        private final Queue<QueuedEvent> events = new ConcurrentLinkedQueue<QueuedEvent>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile QueuedEvent current;
+        
+        SubscriberDeliveryQueue(Object key, Subscription<?> s) {
+            this.key = key;
+            this.subscriber = s.subscriber;
+            this.executionManagerTag = s.subscriberExecutionManagerTag;
+            this.execTags = MutableList.builder()
+                .addAll(s.subscriberExtraExecTags == null ? ImmutableList.of() : s.subscriberExtraExecTags)
+                .add(s.subscriberExecutionManagerTag)
+                .add(BrooklynTaskTags.SENSOR_TAG)
+                .build().asUnmodifiable();
+        }
+        
+        void add(Subscription<?> s, SensorEvent<?> event) {
+            events.add(new QueuedEvent(s, event));
+            size.incrementAndGet();
+            deliveryQueueDepth.incrementAndGet();
+            if (scheduled.compareAndSet(false, true)) {
+                em.submit(new SubscriberDeliveryTask(this));
+            }
+        }
+        
+        @Override
+        @SuppressWarnings("rawtypes")
+        public void run() {
+            while (true) {
+                QueuedEvent next = events.poll();
+                if (next==null) {
+                    scheduled.set(false);
+                    // check for an event added after the poll but before it would have seen scheduled was cleared
+                    if (!events.isEmpty() && scheduled.compareAndSet(false, true)) continue;
+                    return;
+                }
+                size.decrementAndGet();
+                deliveryQueueDepth.decrementAndGet();
+                current = next;
+                try {
+                    Subscription s = next.subscription;
+                    SensorEvent<?> event = takeLatestIfConflating(s, next.event);
+                    deliver(s, event, getDeliveryExecutionContext(s, event), false, next);
+                } finally {
+                    current = null;
+                }
+            }
+        }
+        
+        private ExecutionContext getDeliveryExecutionContext(Subscription<?> s, SensorEvent<?> event) {
+            ExecutionContext ec = s.deliveryExecutionContext;
+            if (ec==null && s.subscriberExtraExecTags!=null) {
+                ec = BrooklynTaskTags.getExecutionContext(MutableList.copyOf(s.subscriberExtraExecTags));
+                s.deliveryExecutionContext = ec;
+            }
+            if (ec==null && event.getSource() instanceof EntityInternal) {
+                // as for non-batched delivery, fall back to the producer's context
+                ec = ((EntityInternal)event.getSource()).getExecutionContext();
+            }
+            return ec;
+        }
+        
+        @Override
+        public String toString() {
+            return "LSM.deliverQueued("+subscriber+")";
+        }
+    }
+    
+    private static class QueuedEvent {
+        final Subscription<?> subscription;
+        final SensorEvent<?> event;
+        QueuedEvent(Subscription<?> subscription, SensorEvent<?> event) {
+            this.subscription = subscription;
+            this.event = event;
+        }
+        @Override
+        public String toString() {
+            return "LSM.publish("+event+")";
+        }
+    }
+    
+    /** Task which drains a {@link SubscriberDeliveryQueue}; the display name and description are computed only when requested. */
+    private static class SubscriberDeliveryTask extends BasicTask<Void> {
+        private final SubscriberDeliveryQueue queue;
+        
+        SubscriberDeliveryTask(SubscriberDeliveryQueue queue) {
+            super(MutableMap.of("tags", queue.execTags), queue);
+            this.queue = queue;
+        }
+        
+        @Override
+        public String getDisplayName() {
+            return "sensor delivery to "+(queue.subscriber instanceof Entity ? ((Entity)queue.subscriber).getId() : queue.subscriber);
+        }
+        
+        @Override
+        public String getDescription() {
+            QueuedEvent current = queue.current;
+            return "Sensor events publishing to "+(queue.subscriber instanceof Entity ? ((Entity)queue.subscriber).getId() : queue.subscriber)+
+                (current==null ? "" : ", current: "+current.event.getSensor().getName()+" on "+
+                    (current.event.getSource()==null ? "<null-source>" : current.event.getSource().getId()))+
+                ", queued: "+queue.size.get();
+        }
+    }
+
     private MutableList<Object> getPublishTags(final Subscription<?> s, final Entity source) {
         return MutableList.builder()
             .addAll(s.subscriberExtraExecTags == null ? ImmutableList.of() : s.subscriberExtraExecTags)
-            .add(s.subscriberExecutionManagerTag)
+            .addIfNotNull(s.subscriberExecutionManagerTag)
             .add(BrooklynTaskTags.SENSOR_TAG)
             // associate the publish event with the publisher (though on init it might be triggered by subscriber)
             .addIfNotNull(source!=null ? BrooklynTaskTags.tagForTargetEntity(source) : null)
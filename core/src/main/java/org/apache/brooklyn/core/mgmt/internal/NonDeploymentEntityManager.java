@@ -207,4 +207,13 @@ public class NonDeploymentEntityManager implements EntityManagerInternal {
             throw new IllegalStateException("Non-deployment context "+this+" (with no initial management context supplied) is not valid for this operation.");
         }
     }
+
+    @Override
+    public Collection<Entity> getEntitiesInApplicationWithPlanId(Application application, String planId) {
+        if (isInitialManagementContextReal()) {
+            return ((EntityManagerInternal)initialManagementContext.getEntityManager()).getEntitiesInApplicationWithPlanId(application, planId);
+        } else {
+            return Collections.emptyList();
+        }
+    }
 }
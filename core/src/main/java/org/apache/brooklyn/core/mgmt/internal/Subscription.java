@@ -20,8 +20,10 @@ package org.apache.brooklyn.core.mgmt.internal;
 
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.mgmt.ExecutionContext;
 import org.apache.brooklyn.api.mgmt.SubscriptionHandle;
 import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.api.sensor.SensorEvent;
@@ -45,6 +47,13 @@ class Subscription<T> implements SubscriptionHandle {
     public final AtomicInteger eventCount = new AtomicInteger();
     public Map<String,Object> flags;
     public Predicate<SensorEvent<T>> eventFilter;
+    /** if conflating, the latest undelivered attribute event for each producer and sensor; otherwise null */
+    public Map<Object,SensorEvent<T>> conflatedEvents;
+    public final AtomicLong conflatedCount = new AtomicLong();
+    /** cached from {@link #subscriberExtraExecTags} on first batched delivery */
+    public ExecutionContext deliveryExecutionContext;
+    /** cached key of the queue used for batched delivery, combining the execution manager tag and extra tags */
+    public Object deliveryQueueKey;
 
     public Subscription(Entity producer, Sensor<T> sensor, SensorEventListener<? super T> listener) {
         this.producer = producer;
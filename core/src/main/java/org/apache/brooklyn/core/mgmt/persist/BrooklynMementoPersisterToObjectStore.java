@@ -87,6 +87,7 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
 
 /** Implementation of the {@link BrooklynMementoPersister} backed by a pluggable
  * {@link PersistenceObjectStore} such as a file system or a jclouds object store */
@@ -111,7 +112,23 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             "Maximum number of attempts to serialize a memento (e.g. if first attempts fail because of concurrent modifications of an entity)", 
             5);
 
+    public static final ConfigKey<MementoFormat> PERSISTER_FORMAT = ConfigKeys.newConfigKey(
+            MementoFormat.class,
+            "persister.format",
+            "Format for writing mementos: XML (the default) or COMPACT (smaller and quicker to load); "
+            + "either format can be read, so this can be changed on an existing store",
+            MementoFormat.XML);
+
+    public static final ConfigKey<Boolean> PERSISTER_MANIFEST_INDEX_ENABLED = ConfigKeys.newBooleanConfigKey(
+            "persister.manifestIndex.enabled",
+            "Whether to maintain a sidecar index of memento manifests in the store (see MementoManifestIndex), "
+            + "so that loading the manifest on rebind need not parse every memento",
+            true);
+
     private final PersistenceObjectStore objectStore;
+    private final MementoManifestIndex manifestIndex;
+    /** the raw data most recently loaded along with the {@link #manifestIndex}, so loading its manifest need not reload the index */
+    private volatile BrooklynMementoRawData manifestIndexLoadedWith;
     private final MementoSerializer<Object> serializerWithStandardClassLoader;
 
     private final Map<String, StoreObjectAccessorWithLock> writers = new LinkedHashMap<String, PersistenceObjectStore.StoreObjectAccessorWithLock>();
@@ -147,7 +164,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         this.brooklynProperties = brooklynProperties;
         
         int maxSerializationAttempts = brooklynProperties.getConfig(PERSISTER_MAX_SERIALIZATION_ATTEMPTS);
-        MementoSerializer<Object> rawSerializer = new XmlMementoSerializer<Object>(classLoader);
+        MementoSerializer<Object> rawSerializer = newRawSerializer(classLoader);
         this.serializerWithStandardClassLoader = new RetryingMementoSerializer<Object>(rawSerializer, maxSerializationAttempts);
 
         int maxThreadPoolSize = brooklynProperties.getConfig(PERSISTER_MAX_THREAD_POOL_SIZE);
@@ -161,6 +178,13 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
 
         // FIXME does it belong here or to ManagementPlaneSyncRecordPersisterToObjectStore ?
         objectStore.createSubPath("plane");
+
+        if (Boolean.TRUE.equals(brooklynProperties.getConfig(PERSISTER_MANIFEST_INDEX_ENABLED))) {
+            objectStore.createSubPath(MementoManifestIndex.SUB_PATH);
+            manifestIndex = new MementoManifestIndex();
+        } else {
+            manifestIndex = null;
+        }
         
         executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(maxThreadPoolSize, new ThreadFactory() {
             @Override public Thread newThread(Runnable r) {
@@ -185,12 +209,20 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     
     protected MementoSerializer<Object> getSerializerWithCustomClassLoader(LookupContext lookupContext, ClassLoader classLoader) {
         int maxSerializationAttempts = brooklynProperties.getConfig(PERSISTER_MAX_SERIALIZATION_ATTEMPTS);
-        MementoSerializer<Object> rawSerializer = new XmlMementoSerializer<Object>(classLoader);
+        MementoSerializer<Object> rawSerializer = newRawSerializer(classLoader);
         MementoSerializer<Object> result = new RetryingMementoSerializer<Object>(rawSerializer, maxSerializationAttempts);
         result.setLookupContext(lookupContext);
         return result;
     }
     
+    /** serializer writing the configured {@link #PERSISTER_FORMAT}; all serializers read both formats */
+    protected MementoSerializer<Object> newRawSerializer(ClassLoader classLoader) {
+        if (brooklynProperties.getConfig(PERSISTER_FORMAT)==MementoFormat.COMPACT) {
+            return new CompactMementoSerializer<Object>(classLoader);
+        }
+        return new XmlMementoSerializer<Object>(classLoader);
+    }
+    
     @Nullable protected ClassLoader getCustomClassLoaderForBrooklynObject(LookupContext lookupContext,
                                                                           BrooklynObjectType type, String objectId) {
         BrooklynObject item = lookupContext.peek(type, objectId);
@@ -228,6 +260,10 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             // a very long timeout to ensure we don't lose state. 
             // If persisting thousands of entities over slow network to Object Store, could take minutes.
             waitForWritesCompleted(Duration.ONE_HOUR);
+            if (objectStore instanceof FileBasedObjectStore) {
+                // so the per-object files are complete for whoever reads them next
+                ((FileBasedObjectStore)objectStore).flushGroupCommitLog();
+            }
             
         } catch (Exception e) {
             throw Exceptions.propagate(e);
@@ -331,7 +367,11 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
                     exceptionHandler.onLoadMementoFailed(type, "memento "+id+" read error", e);
                 }
                 
-                String xmlId = (String) XmlUtil.xpathHandlingIllegalChars(contents, "/"+type.toCamelCase()+"/id");
+                MementoManifestIndex.Entry indexed = manifestIndex==null ? null : manifestIndex.getIfMatches(type, id, contents);
+                String xmlId = indexed!=null ? indexed.getId()
+                    : MementoFormat.of(contents)==MementoFormat.COMPACT
+                    ? new CompactManifestHelper(contents).get("id")
+                    : (String) XmlUtil.xpathHandlingIllegalChars(contents, "/"+type.toCamelCase()+"/id");
                 String safeXmlId = Strings.makeValidFilename(xmlId);
                 if (!Objects.equal(id, safeXmlId))
                     LOG.warn("ID mismatch on "+type.toCamelCase()+", "+id+" from path, "+safeXmlId+" from xml");
@@ -351,9 +391,11 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         Stopwatch stopwatch = Stopwatch.createStarted();
 
         builder.planeId(Strings.emptyToNull(read(PLANE_ID_FILE_NAME)));
+        loadManifestIndex();
         visitMemento("loading raw", subPathData, loaderVisitor, exceptionHandler);
         
         BrooklynMementoRawData result = builder.build();
+        manifestIndexLoadedWith = result;
 
         if (LOG.isDebugEnabled()) {
             LOG.debug("Loaded rebind raw data; took {}; {} entities, {} locations, {} policies, {} enrichers, {} feeds, {} catalog items, {} bundles, from {}", new Object[]{
@@ -366,7 +408,12 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         return result;
     }
 
-    private static class XPathHelper {
+    private interface ManifestHelper {
+        String get(String field);
+        List<String> getStringList(String field);
+    }
+    
+    private static class XPathHelper implements ManifestHelper {
         private String contents;
         private String prefix;
 
@@ -375,10 +422,12 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             this.prefix = prefix;
         }
 
-        private String get(String innerPath) {
+        @Override
+        public String get(String innerPath) {
             return (String) XmlUtil.xpathHandlingIllegalChars(contents, prefix+innerPath);
         }
-        private List<String> getStringList(String innerPath) {
+        @Override
+        public List<String> getStringList(String innerPath) {
             List<String> result = MutableList.of();
             final NodeList nodeList =
                 (NodeList) XmlUtil.xpathHandlingIllegalChars(contents, prefix + innerPath + "//string", XPathConstants.NODESET);
@@ -388,6 +437,56 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             return result;
         }
     }
+    
+    /** reads the top-level fields of a {@link MementoFormat#COMPACT} memento in one streaming pass, without loading any classes */
+    private static class CompactManifestHelper implements ManifestHelper {
+        private final Map<String,String> values = MutableMap.of();
+        private final Map<String,List<String>> lists = MutableMap.of();
+
+        public CompactManifestHelper(String contents) {
+            HierarchicalStreamReader reader = MementoFormat.newReader(contents);
+            try {
+                while (reader.hasMoreChildren()) {
+                    reader.moveDown();
+                    String field = reader.getNodeName();
+                    if (reader.hasMoreChildren()) {
+                        List<String> strings = MutableList.of();
+                        collectStrings(reader, strings);
+                        lists.put(field, strings);
+                    } else {
+                        values.put(field, reader.getValue());
+                    }
+                    reader.moveUp();
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        private static void collectStrings(HierarchicalStreamReader reader, List<String> result) {
+            while (reader.hasMoreChildren()) {
+                reader.moveDown();
+                if (reader.hasMoreChildren()) {
+                    collectStrings(reader, result);
+                } else if ("string".equals(reader.getNodeName())) {
+                    result.add(reader.getValue());
+                }
+                reader.moveUp();
+            }
+        }
+
+        @Override
+        public String get(String field) {
+            // as for xpath, a missing field is the empty string
+            String result = values.get(field);
+            return result!=null ? result : "";
+        }
+        @Override
+        public List<String> getStringList(String field) {
+            List<String> result = lists.get(field);
+            return result!=null ? result : MutableList.<String>of();
+        }
+    }
 
 
     @Override
@@ -402,18 +501,17 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         Visitor visitor = new Visitor() {
             @Override
             public void visit(BrooklynObjectType type, String objectId, final String contents) throws Exception {
-                XPathHelper x = new XPathHelper(contents, "/"+type.toCamelCase()+"/");
                 switch (type) {
                     case ENTITY:
-                        builder.entity(x.get("id"), x.get("type"), Strings.emptyToNull(x.get("parent")),
-                            Strings.emptyToNull(x.get("catalogItemId")),
-                            x.getStringList("searchPath"));
+                        MementoManifestIndex.Entry m = getManifestEntry(type, objectId, contents);
+                        builder.entity(m.getId(), m.getJavaType(), m.getParent(), m.getCatalogItemId(), m.getSearchPath());
                         break;
                     case LOCATION:
                     case POLICY:
                     case ENRICHER:
                     case FEED:
-                        builder.putType(type, x.get("id"), x.get("type"));
+                        MementoManifestIndex.Entry t = getManifestEntry(type, objectId, contents);
+                        builder.putType(type, t.getId(), t.getJavaType());
                         break;
                     case CATALOG_ITEM:
                         try {
@@ -445,7 +543,17 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
 
         Stopwatch stopwatch = Stopwatch.createStarted();
 
+        if (mementoData!=manifestIndexLoadedWith) {
+            // otherwise just loaded along with the raw data
+            loadManifestIndex();
+        }
+        manifestIndexLoadedWith = null;
         visitMemento("manifests", mementoData, visitor, exceptionHandler);
+        if (manifestIndex!=null) {
+            for (BrooklynObjectType type : MementoManifestIndex.INDEXED_TYPES) {
+                manifestIndex.retainAll(type, mementoData.getObjectsOfType(type).keySet());
+            }
+        }
         
         BrooklynMementoManifest result = builder.build();
 
@@ -461,6 +569,51 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         return result;
     }
     
+    private void loadManifestIndex() {
+        if (manifestIndex==null) return;
+        try {
+            manifestIndex.load(objectStore);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.warn("Unable to load memento manifest index from "+objectStore.getSummaryName()+"; mementos will be parsed: "+e);
+        }
+    }
+
+    /** the manifest fields for the given contents, from the index if it has them, otherwise parsed (and then indexed) */
+    private MementoManifestIndex.Entry getManifestEntry(BrooklynObjectType type, String objectId, String contents) {
+        MementoManifestIndex.Entry result = manifestIndex==null ? null : manifestIndex.getIfMatches(type, objectId, contents);
+        if (result!=null) return result;
+
+        ManifestHelper x = MementoFormat.of(contents)==MementoFormat.COMPACT
+            ? new CompactManifestHelper(contents)
+            : new XPathHelper(contents, "/"+type.toCamelCase()+"/");
+        if (type==BrooklynObjectType.ENTITY) {
+            result = MementoManifestIndex.Entry.of(type, x.get("id"), contents, x.get("type"),
+                x.get("parent"), x.get("catalogItemId"), x.getStringList("searchPath"));
+        } else {
+            result = MementoManifestIndex.Entry.of(type, x.get("id"), contents, x.get("type"), null, null, null);
+        }
+        if (manifestIndex!=null) manifestIndex.put(result);
+        return result;
+    }
+
+    /** writes any changed shards of the manifest index; failures are logged, as the index is only an optimisation */
+    private void writeManifestIndex() {
+        if (manifestIndex==null) return;
+        for (Map.Entry<String, String> shard : manifestIndex.takeDirtyShards().entrySet()) {
+            try {
+                if (shard.getValue()==null) {
+                    getWriter(shard.getKey()).delete();
+                } else {
+                    getWriter(shard.getKey()).put(shard.getValue());
+                }
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                LOG.warn("Unable to write memento manifest index "+shard.getKey()+"; it will be rebuilt on rebind: "+e);
+            }
+        }
+    }
+
     @Override
     public BrooklynMemento loadMemento(BrooklynMementoRawData mementoData, final LookupContext lookupContext, final RebindExceptionHandler exceptionHandler) throws IOException {
         if (mementoData==null)
@@ -605,6 +758,9 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
                 for (Map.Entry<String, String> entry : newMemento.getObjectsOfType(type).entrySet()) {
                     addPersistContentIfManagedBundle(type, entry.getKey(), futures, exceptionHandler);
                     futures.add(asyncPersist(type.getSubPathName(), type, entry.getKey(), entry.getValue(), exceptionHandler));
+                    if (manifestIndex!=null && manifestIndex.getIfMatches(type, entry.getKey(), entry.getValue())==null) {
+                        manifestIndex.remove(type, entry.getKey());
+                    }
                 }
             }
             
@@ -616,6 +772,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             } catch (Exception e) {
                 throw Exceptions.propagate(e);
             }
+            writeManifestIndex();
             if (LOG.isDebugEnabled()) LOG.debug("Checkpointed entire memento in {}", Time.makeTimeStringRounded(stopwatch));
         } finally {
             lock.writeLock().unlock();
@@ -681,13 +838,14 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
                 for (Memento item : delta.getObjectsOfType(type)) {
                     if (!deletedIds.contains(item.getId())) {
                         addPersistContentIfManagedBundle(type, item.getId(), futures, exceptionHandler);
-                        futures.add(asyncPersist(type.getSubPathName(), item, exceptionHandler));
+                        futures.add(asyncPersist(type, item, exceptionHandler));
                     }
                 }
             }
             for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
                 for (String id : delta.getRemovedIdsOfType(type)) {
                     futures.add(asyncDelete(type.getSubPathName(), id, exceptionHandler));
+                    if (manifestIndex!=null) manifestIndex.remove(type, id);
                     if (type==BrooklynObjectType.MANAGED_BUNDLE) {
                         futures.add(asyncDelete(type.getSubPathName(), id+".jar", exceptionHandler));
                     }
@@ -702,6 +860,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             } catch (Exception e) {
                 throw Exceptions.propagate(e);
             }
+            writeManifestIndex();
             
             return stopwatch;
         } finally {
@@ -795,9 +954,13 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         return objectAccessor.getBytes();
     }
 
-    private void persist(String subPath, Memento memento, PersistenceExceptionHandler exceptionHandler) {
+    private void persist(BrooklynObjectType type, Memento memento, PersistenceExceptionHandler exceptionHandler) {
         try {
-            getWriter(getPath(subPath, memento.getId())).put(getSerializerWithStandardClassLoader().toString(memento));
+            String contents = getSerializerWithStandardClassLoader().toString(memento);
+            getWriter(getPath(type.getSubPathName(), memento.getId())).put(contents);
+            if (manifestIndex!=null && MementoManifestIndex.INDEXED_TYPES.contains(type)) {
+                manifestIndex.put(MementoManifestIndex.Entry.of(type, memento, contents));
+            }
         } catch (Exception e) {
             exceptionHandler.onPersistMementoFailed(memento, e);
         }
@@ -853,11 +1016,11 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         }
     }
 
-    private ListenableFuture<?> asyncPersist(final String subPath, final Memento memento, final PersistenceExceptionHandler exceptionHandler) {
+    private ListenableFuture<?> asyncPersist(final BrooklynObjectType type, final Memento memento, final PersistenceExceptionHandler exceptionHandler) {
         return executor.submit(new Runnable() {
             @Override
             public void run() {
-                persist(subPath, memento, exceptionHandler);
+                persist(type, memento, exceptionHandler);
             }});
     }
 
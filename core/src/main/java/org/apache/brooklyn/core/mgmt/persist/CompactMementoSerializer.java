@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import java.util.Map;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Writes mementos in the {@link MementoFormat#COMPACT} format, using the same XStream configuration
+ * as {@link XmlMementoSerializer}; reads either format.
+ */
+@Beta
+public class CompactMementoSerializer<T> extends XmlMementoSerializer<T> {
+
+    public CompactMementoSerializer(ClassLoader classLoader) {
+        super(classLoader);
+    }
+
+    public CompactMementoSerializer(ClassLoader classLoader, Map<String, String> deserializingClassRenames) {
+        super(classLoader, deserializingClassRenames);
+    }
+
+    @Override
+    public String toString(final T memento) {
+        return MementoFormat.writeCompact(writer -> xstream.marshal(memento, writer));
+    }
+}
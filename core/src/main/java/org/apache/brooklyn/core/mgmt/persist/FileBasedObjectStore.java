@@ -31,6 +31,8 @@ import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
@@ -39,27 +41,69 @@ import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 
 import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
+import org.apache.brooklyn.api.objs.BrooklynObjectType;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.server.BrooklynServerConfig;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.exceptions.FatalConfigurationRuntimeException;
 import org.apache.brooklyn.util.io.FileUtil;
 import org.apache.brooklyn.util.os.Os;
 import org.apache.brooklyn.util.os.Os.DeletionResult;
+import org.apache.brooklyn.util.time.Duration;
 
 public class FileBasedObjectStore implements PersistenceObjectStore {
 
     private static final Logger log = LoggerFactory.getLogger(FileBasedObjectStore.class);
 
+    public static final ConfigKey<Boolean> GROUP_COMMIT_ENABLED = ConfigKeys.newBooleanConfigKey(
+            "brooklyn.persistence.file.groupCommit.enabled",
+            "Whether memento writes are appended to a log with shared syncs (see GroupCommitLog), "
+            + "and periodically compacted into the per-object files, rather than each written to its file immediately",
+            false);
+
+    public static final ConfigKey<Duration> GROUP_COMMIT_COMPACTION_PERIOD = ConfigKeys.newConfigKey(
+            Duration.class,
+            "brooklyn.persistence.file.groupCommit.compactionPeriod",
+            "With group commit, how often to write changes to the per-object files; "
+            + "this should be several persist periods, so that objects changed in successive deltas are written once, "
+            + "but other readers of the store (e.g. hot-standby nodes) see changes only after this",
+            Duration.TEN_SECONDS);
+
+    public static final ConfigKey<Long> GROUP_COMMIT_COMPACTION_SIZE = ConfigKeys.newLongConfigKey(
+            "brooklyn.persistence.file.groupCommit.compactionSize",
+            "With group commit, the size in bytes of log at which to compact, regardless of the period",
+            16L*1024*1024);
+
+    /** directory (in the base dir) for the {@link GroupCommitLog} */
+    public static final String GROUP_COMMIT_LOG_SUB_PATH = "journal";
+
+    /** the top-level directories whose contents are written through the {@link GroupCommitLog}, when enabled;
+     * others (such as the HA records) are always written directly, as other nodes read them */
+    private static final Set<String> GROUP_COMMIT_SUB_PATHS;
+    static {
+        Set<String> subPaths = MutableSet.of(MementoManifestIndex.SUB_PATH);
+        for (BrooklynObjectType type : BrooklynObjectType.values()) {
+            if (type.getSubPathName()!=null) subPaths.add(type.getSubPathName());
+        }
+        GROUP_COMMIT_SUB_PATHS = ImmutableSet.copyOf(subPaths);
+    }
+
     private static final int SHUTDOWN_TIMEOUT_MS = 10*1000;
 
     private static boolean WARNED_ON_NON_ATOMIC_FILE_UPDATES = false; 
@@ -70,6 +114,13 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
     private boolean prepared = false;
     private boolean deferredBackupNeeded = false;
     private boolean doneFirstContentiousWrite = false;
+    private boolean groupCommitEnabled = false;
+    private volatile GroupCommitLog groupCommitLog;
+    private final Supplier<GroupCommitLog> groupCommitLogSupplier = new Supplier<GroupCommitLog>() {
+        @Override public GroupCommitLog get() {
+            return groupCommitLog;
+        }
+    };
 
     /**
      * @param basedir
@@ -92,6 +143,7 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
 
     @Override
     public synchronized void prepareForMasterUse() {
+        recoverGroupCommitLog();
         if (doneFirstContentiousWrite) return;
         try {
             if (deferredBackupNeeded) {
@@ -131,11 +183,78 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
     public StoreObjectAccessor newAccessor(String path) {
         if (!prepared) throw new IllegalStateException("Not yet prepared: "+this);
         
+        FileBasedStoreObjectAccessor result = newFileAccessor(path);
+        if (groupCommitEnabled && isGroupCommitPath(path)) {
+            return new GroupCommitStoreObjectAccessor(normalizePath(path), result, groupCommitLogSupplier);
+        }
+        return result;
+    }
+
+    private FileBasedStoreObjectAccessor newFileAccessor(String path) {
         String tmpExt = ".tmp";
         if (mgmt!=null && mgmt.getManagementNodeId()!=null) tmpExt = "."+mgmt.getManagementNodeId()+tmpExt;
         return new FileBasedStoreObjectAccessor(new File(Os.mergePaths(getBaseDir().getAbsolutePath(), path)), tmpExt);
     }
 
+    private static String normalizePath(String path) {
+        while (path.startsWith("/")) path = path.substring(1);
+        return path;
+    }
+
+    private static boolean isGroupCommitPath(String path) {
+        path = normalizePath(path);
+        int slash = path.indexOf('/');
+        return slash>0 && GROUP_COMMIT_SUB_PATHS.contains(path.substring(0, slash));
+    }
+
+    private GroupCommitLog newGroupCommitLog() {
+        return new GroupCommitLog(new File(getBaseDir(), GROUP_COMMIT_LOG_SUB_PATH),
+            new Function<String, FileBasedStoreObjectAccessor>() {
+                @Override public FileBasedStoreObjectAccessor apply(String path) {
+                    return newFileAccessor(path);
+                }
+            },
+            mgmt.getConfig().getConfig(GROUP_COMMIT_COMPACTION_PERIOD),
+            mgmt.getConfig().getConfig(GROUP_COMMIT_COMPACTION_SIZE));
+    }
+
+    /**
+     * If {@link #GROUP_COMMIT_ENABLED group commit} is enabled, opens the log (if not already open),
+     * first replaying into the per-object files anything left in it by a previous master.
+     * <p>
+     * Must be called by a node becoming master before it reads any mementos, as the files do not include
+     * writes which were acknowledged but not yet compacted; and must not be called by any other node,
+     * as it would then take over the log while the master is still writing to it.
+     * Done by {@link #prepareForSharedUse(PersistMode, HighAvailabilityMode)} when the node is to be master,
+     * and by rebind when a node is promoted to master.
+     */
+    @Beta
+    public synchronized void recoverGroupCommitLog() {
+        if (groupCommitEnabled && groupCommitLog==null) {
+            GroupCommitLog newLog = newGroupCommitLog();
+            newLog.open();
+            groupCommitLog = newLog;
+        }
+    }
+
+    /** the group commit log, if {@link #GROUP_COMMIT_ENABLED enabled} and in use (i.e. this is the master) */
+    @Nullable
+    public GroupCommitLog getGroupCommitLog() {
+        return groupCommitLog;
+    }
+
+    /**
+     * Writes everything in the group commit log (if in use) to the per-object files and closes it,
+     * e.g. when no longer master; it is re-opened on the next {@link #prepareForMasterUse()}.
+     */
+    public synchronized void flushGroupCommitLog() {
+        GroupCommitLog l = groupCommitLog;
+        if (l!=null) {
+            l.close();
+            groupCommitLog = null;
+        }
+    }
+
     @Override
     public List<String> listContentsWithSubPath(final String parentSubPath) {
         if (!prepared) throw new IllegalStateException("Not yet prepared: "+this);
@@ -150,6 +269,24 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
             }
         };
         File[] subPathDirFiles = subPathDir.listFiles(fileFilter);
+        GroupCommitLog l = groupCommitLog;
+        if (l!=null && isGroupCommitPath(parentSubPath+"/")) {
+            // overlay the writes not yet compacted into files
+            Map<String, GroupCommitLog.Pending> pending = l.getPendingInSubPath(normalizePath(parentSubPath));
+            if (!pending.isEmpty()) {
+                List<String> result = MutableList.of();
+                if (subPathDirFiles!=null) {
+                    for (File file : subPathDirFiles) {
+                        GroupCommitLog.Pending p = pending.remove(file.getName());
+                        if (p==null || !p.isDeleted()) result.add(format("%s/%s", parentSubPath, file.getName()));
+                    }
+                }
+                for (Map.Entry<String, GroupCommitLog.Pending> p : pending.entrySet()) {
+                    if (!p.getValue().isDeleted()) result.add(format("%s/%s", parentSubPath, p.getKey()));
+                }
+                return ImmutableList.copyOf(result);
+            }
+        }
         if (subPathDirFiles==null) return ImmutableList.<String>of();
         return FluentIterable.from(Arrays.asList(subPathDirFiles))
                 .transform(new Function<File, String>() {
@@ -163,6 +300,7 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
 
     @Override
     public void close() {
+        flushGroupCommitLog();
         executor.shutdown();
         try {
             executor.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
@@ -186,6 +324,7 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
     @Override
     public void prepareForSharedUse(@Nullable PersistMode persistMode, HighAvailabilityMode haMode) {
         if (mgmt==null) throw new NullPointerException("Must inject ManagementContext before preparing "+this);
+        groupCommitEnabled = Boolean.TRUE.equals(mgmt.getConfig().getConfig(GROUP_COMMIT_ENABLED));
         
         if (persistMode==null || persistMode==PersistMode.DISABLED) {
             // TODO is this check needed? shouldn't come here now without persistence on.
@@ -279,7 +418,12 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
             throw Exceptions.propagate(e);
         }
         
-        prepared = true;        
+        prepared = true;
+        
+        if (persistMode!=PersistMode.CLEAN && (haMode==HighAvailabilityMode.MASTER || haMode==HighAvailabilityMode.DISABLED)) {
+            // before anything is read, so that rebind sees writes logged by a previous master but not yet compacted
+            recoverGroupCommitLog();
+        }
     }
 
     protected File checkPersistenceDirPlausible(File dir) {
@@ -386,6 +530,11 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
 
     @Override
     public void deleteCompletely() {
+        GroupCommitLog l = groupCommitLog;
+        if (l!=null) {
+            l.discard();
+            groupCommitLog = null;
+        }
         deleteCompletely(getBaseDir());
     }
     
@@ -0,0 +1,484 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.io.FileUtil;
+import org.apache.brooklyn.util.stream.Streams;
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+import com.google.common.base.Stopwatch;
+import com.google.common.io.ByteSource;
+
+/**
+ * Append-only log of writes to a {@link FileBasedObjectStore}, used when group commit is enabled.
+ * <p>
+ * Each write (or delete) is appended to the current segment file and is durable when it returns,
+ * but concurrent writers share a single fsync: whichever thread syncs first covers every record
+ * appended before it, so the persister's writes for a delta cost a few syncs rather than one
+ * temp file, sync and rename per object.
+ * <p>
+ * Written values are served from memory until the log is <em>compacted</em>, periodically and when the
+ * segment grows large, which writes the latest value of each object to its usual file (so an object
+ * changed many times is written once) and then deletes the old segments. The per-object files are therefore
+ * the same as without group commit, but lag behind by up to the compaction period; other processes
+ * reading the store (e.g. a hot-standby) see changes only once compacted.
+ * <p>
+ * Each change is thus written twice, to the log and then to its file, but the log append costs no sync
+ * of its own and the file is written at most once per compaction, however often the object changed.
+ * The compaction period should therefore be several persist periods, so that objects which change on
+ * every delta (typically entities with frequently updated sensors) are coalesced; with a period of
+ * <i>n</i> deltas such an object costs one file write per <i>n</i> changes, rather than one per change.
+ * {@link #getCompactionMetrics()} against {@link #getMetrics()} shows how much is being coalesced.
+ * <p>
+ * On {@link #open()}, any segments left by a previous process (e.g. a master which crashed) are
+ * replayed into the per-object files before new writes are accepted.
+ */
+@Beta
+public class GroupCommitLog {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GroupCommitLog.class);
+
+    static final String SEGMENT_PREFIX = "segment-";
+    static final String SEGMENT_SUFFIX = ".log";
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final int MAX_PATH_LENGTH = 64*1024;
+
+    /** a write not yet compacted into its file; bytes null indicates a delete */
+    static class Pending {
+        final byte[] bytes;
+        final long timestamp;
+
+        Pending(byte[] bytes) {
+            this.bytes = bytes;
+            this.timestamp = System.currentTimeMillis();
+        }
+
+        boolean isDeleted() {
+            return bytes==null;
+        }
+    }
+
+    private final File dir;
+    private final Function<String, FileBasedStoreObjectAccessor> fileAccessors;
+    private final Duration compactionPeriod;
+    private final long compactionSize;
+    private final PersistenceActivityMetrics metrics = new PersistenceActivityMetrics();
+    private final PersistenceActivityMetrics compactionMetrics = new PersistenceActivityMetrics();
+
+    private final ConcurrentMap<String, Pending> pending = new ConcurrentHashMap<String, Pending>();
+    /** held while syncing (and rotating) the segment; acquired before the monitor on this */
+    private final Object syncLock = new Object();
+    private final ReentrantLock compactionLock = new ReentrantLock();
+
+    // guarded by this
+    private long segmentNumber;
+    private FileOutputStream segmentFile;
+    private DataOutputStream segmentOut;
+    private long segmentBytes;
+    private long written;
+    // guarded by syncLock
+    private long synced;
+
+    private volatile ScheduledExecutorService compactor;
+
+    /**
+     * @param dir directory for the segment files
+     * @param fileAccessors gives the (unlocked) file accessor for a path in the store
+     */
+    public GroupCommitLog(File dir, Function<String, FileBasedStoreObjectAccessor> fileAccessors, Duration compactionPeriod, long compactionSize) {
+        this.dir = dir;
+        this.fileAccessors = fileAccessors;
+        this.compactionPeriod = compactionPeriod;
+        this.compactionSize = compactionSize;
+    }
+
+    /** recovers any existing segments into their files, then starts a new segment */
+    public synchronized void open() {
+        if (segmentOut!=null) return;
+        try {
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IllegalStateException("Cannot create group commit log directory "+dir);
+            }
+            FileUtil.setFilePermissionsTo700(dir);
+            SortedMap<Long, File> segments = listSegments();
+            if (!segments.isEmpty()) {
+                recover(segments);
+                segmentNumber = segments.lastKey();
+            }
+            startSegment(segmentNumber+1);
+        } catch (IOException e) {
+            throw Exceptions.propagateAnnotated("Problem opening group commit log in "+dir, e);
+        }
+        if (compactionPeriod!=null && compactionPeriod.isPositive()) {
+            compactor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "brooklyn-persister-compaction");
+                    t.setDaemon(true);
+                    return t;
+                }});
+            compactor.scheduleWithFixedDelay(new Runnable() {
+                @Override public void run() {
+                    compactQuietly(false);
+                }}, compactionPeriod.toMilliseconds(), compactionPeriod.toMilliseconds(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** compacts everything written so far into the per-object files and closes the log; any later writes must re-{@link #open()} */
+    public void close() {
+        if (compactor!=null) {
+            compactor.shutdown();
+            compactor = null;
+        }
+        compact(true);
+        synchronized (syncLock) {
+            synchronized (this) {
+                if (segmentOut==null) return;
+                Streams.closeQuietly(segmentOut);
+                if (pending.isEmpty()) {
+                    deleteSegmentsUpTo(segmentNumber);
+                } else {
+                    // written while closing; left for recovery when next opened
+                    LOG.debug("Group commit log "+dir+" closed with "+pending.size()+" uncompacted writes");
+                }
+                segmentOut = null;
+                segmentFile = null;
+            }
+        }
+    }
+
+    /** closes the log without compacting, discarding anything not yet written to the per-object files */
+    public void discard() {
+        if (compactor!=null) {
+            compactor.shutdown();
+            compactor = null;
+        }
+        synchronized (syncLock) {
+            synchronized (this) {
+                Streams.closeQuietly(segmentOut);
+                segmentOut = null;
+                segmentFile = null;
+                pending.clear();
+            }
+        }
+    }
+
+    public boolean isOpen() {
+        synchronized (this) {
+            return segmentOut!=null;
+        }
+    }
+
+    /** metrics for the group syncs: durations are the sync latency, and changes the number of writes covered */
+    public PersistenceActivityMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** metrics for compactions: durations are the time to write the files, and changes the number of files written */
+    public PersistenceActivityMetrics getCompactionMetrics() {
+        return compactionMetrics;
+    }
+
+    Pending getPending(String path) {
+        return pending.get(path);
+    }
+
+    /** pending writes for objects directly in the given sub-path, by file name */
+    Map<String, Pending> getPendingInSubPath(String subPath) {
+        String prefix = subPath.endsWith("/") ? subPath : subPath+"/";
+        Map<String, Pending> result = new LinkedHashMap<String, Pending>();
+        for (Map.Entry<String, Pending> entry : pending.entrySet()) {
+            String path = entry.getKey();
+            if (path.startsWith(prefix) && path.indexOf('/', prefix.length())<0) {
+                result.put(path.substring(prefix.length()), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    int getPendingCount() {
+        return pending.size();
+    }
+
+    public void put(String path, byte[] bytes) {
+        append(OP_PUT, path, bytes);
+    }
+
+    public void delete(String path) {
+        append(OP_DELETE, path, null);
+    }
+
+    private void append(byte op, String path, byte[] bytes) {
+        long seq;
+        boolean full;
+        synchronized (this) {
+            if (segmentOut==null) throw new IllegalStateException("Group commit log not open: "+dir);
+            try {
+                segmentBytes += writeRecord(segmentOut, op, path, bytes);
+            } catch (IOException e) {
+                throw Exceptions.propagateAnnotated("Problem appending "+path+" to group commit log "+dir, e);
+            }
+            pending.put(path, new Pending(bytes));
+            seq = ++written;
+            full = segmentBytes >= compactionSize;
+        }
+        sync(seq);
+        ScheduledExecutorService compactorNow = compactor;
+        if (full && compactorNow!=null) {
+            try {
+                compactorNow.execute(new Runnable() {
+                    @Override public void run() {
+                        compactQuietly(false);
+                    }});
+            } catch (RejectedExecutionException e) {
+                // closing; compacted there
+            }
+        }
+    }
+
+    /** waits until the record with the given sequence number is synced, syncing it (and all others written) if no-one else is */
+    private void sync(long seq) {
+        synchronized (syncLock) {
+            if (synced >= seq) return;
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            long target;
+            try {
+                FileOutputStream file;
+                synchronized (this) {
+                    segmentOut.flush();
+                    target = written;
+                    file = segmentFile;
+                }
+                file.getChannel().force(false);
+            } catch (IOException e) {
+                metrics.noteFailure(Duration.of(stopwatch));
+                metrics.noteError(e.toString());
+                throw Exceptions.propagateAnnotated("Problem syncing group commit log "+dir, e);
+            }
+            metrics.noteSuccess(Duration.of(stopwatch));
+            metrics.noteChanges(target - synced);
+            synced = target;
+        }
+    }
+
+    private void compactQuietly(boolean wait) {
+        try {
+            compact(wait);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.warn("Problem compacting group commit log "+dir+" (will retry): "+e, e);
+        }
+    }
+
+    /**
+     * Writes the latest value of everything pending to the per-object files, then removes the segments which held them.
+     * If not waiting, returns immediately if another compaction is in progress.
+     */
+    public void compact(boolean wait) {
+        if (wait) {
+            compactionLock.lock();
+        } else if (!compactionLock.tryLock()) {
+            return;
+        }
+        try {
+            Map<String, Pending> snapshot;
+            long lastOldSegment;
+            synchronized (syncLock) {
+                synchronized (this) {
+                    if (segmentOut==null || pending.isEmpty()) return;
+                    snapshot = new LinkedHashMap<String, Pending>(pending);
+                    // everything in the snapshot is in this or earlier segments; later writes go to a new one
+                    segmentOut.flush();
+                    segmentFile.getChannel().force(false);
+                    Streams.closeQuietly(segmentOut);
+                    synced = written;
+                    lastOldSegment = segmentNumber;
+                    startSegment(segmentNumber+1);
+                }
+            }
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            try {
+                for (Map.Entry<String, Pending> entry : snapshot.entrySet()) {
+                    apply(entry.getKey(), entry.getValue().bytes);
+                }
+            } catch (RuntimeException e) {
+                compactionMetrics.noteFailure(Duration.of(stopwatch));
+                compactionMetrics.noteError(e.toString());
+                throw e;
+            }
+            compactionMetrics.noteSuccess(Duration.of(stopwatch));
+            compactionMetrics.noteChanges(snapshot.size());
+            deleteSegmentsUpTo(lastOldSegment);
+            for (Map.Entry<String, Pending> entry : snapshot.entrySet()) {
+                // only if not written again since the snapshot
+                pending.remove(entry.getKey(), entry.getValue());
+            }
+            if (LOG.isTraceEnabled()) LOG.trace("Compacted {} objects from group commit log {} in {}", new Object[] {snapshot.size(), dir, Duration.of(stopwatch)});
+        } catch (IOException e) {
+            throw Exceptions.propagateAnnotated("Problem compacting group commit log "+dir, e);
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    private void apply(String path, byte[] bytes) {
+        FileBasedStoreObjectAccessor accessor = fileAccessors.apply(path);
+        if (bytes==null) {
+            accessor.delete();
+        } else {
+            accessor.put(ByteSource.wrap(bytes));
+        }
+    }
+
+    // guarded by this
+    private void startSegment(long number) throws IOException {
+        segmentNumber = number;
+        File file = new File(dir, SEGMENT_PREFIX+number+SEGMENT_SUFFIX);
+        segmentFile = new FileOutputStream(file, true);
+        FileUtil.setFilePermissionsTo600(file);
+        segmentOut = new DataOutputStream(new BufferedOutputStream(segmentFile));
+        segmentBytes = file.length();
+    }
+
+    private SortedMap<Long, File> listSegments() {
+        SortedMap<Long, File> result = new TreeMap<Long, File>();
+        File[] files = dir.listFiles();
+        if (files==null) return result;
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                try {
+                    result.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length()-SEGMENT_SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    LOG.warn("Ignoring unexpected file in group commit log: "+file);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void deleteSegmentsUpTo(long number) {
+        for (Map.Entry<Long, File> segment : listSegments().headMap(number+1).entrySet()) {
+            if (!segment.getValue().delete() && segment.getValue().exists()) {
+                LOG.warn("Unable to delete group commit log segment "+segment.getValue());
+            }
+        }
+    }
+
+    private void recover(SortedMap<Long, File> segments) throws IOException {
+        Map<String, byte[]> latest = new LinkedHashMap<String, byte[]>();
+        int records = 0;
+        for (File segment : segments.values()) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment)));
+            try {
+                while (true) {
+                    Object[] record = readRecord(in);
+                    if (record==null) break;
+                    latest.remove(record[0]);
+                    latest.put((String) record[0], (byte[]) record[1]);
+                    records++;
+                }
+            } catch (IOException e) {
+                // a torn final write is expected if the process died mid-append; anything after it was never acknowledged
+                LOG.warn("Group commit log segment "+segment+" truncated or corrupt after "+records+" records; recovering what was read: "+e);
+            } finally {
+                Streams.closeQuietly(in);
+            }
+        }
+        LOG.info("Recovering {} objects ({} records) from group commit log {}", new Object[] {latest.size(), records, dir});
+        for (Map.Entry<String, byte[]> entry : latest.entrySet()) {
+            apply(entry.getKey(), entry.getValue());
+        }
+        deleteSegmentsUpTo(segments.lastKey());
+    }
+
+    private static long writeRecord(DataOutputStream out, byte op, String path, byte[] bytes) throws IOException {
+        byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+        out.writeByte(op);
+        out.writeInt(pathBytes.length);
+        out.write(pathBytes);
+        out.writeInt(bytes==null ? -1 : bytes.length);
+        if (bytes!=null) out.write(bytes);
+        out.writeLong(checksum(op, pathBytes, bytes));
+        return 1 + 4 + pathBytes.length + 4 + (bytes==null ? 0 : bytes.length) + 8;
+    }
+
+    /** returns the path and bytes (null for a delete), or null at the end of the segment */
+    private static Object[] readRecord(DataInputStream in) throws IOException {
+        int op = in.read();
+        if (op<0) return null;
+        if (op!=OP_PUT && op!=OP_DELETE) throw new IOException("Unknown record type "+op);
+        int pathLength = in.readInt();
+        if (pathLength<0 || pathLength>MAX_PATH_LENGTH) throw new IOException("Invalid path length "+pathLength);
+        byte[] pathBytes = new byte[pathLength];
+        in.readFully(pathBytes);
+        int length = in.readInt();
+        byte[] bytes = null;
+        if (length>=0) {
+            bytes = new byte[length];
+            in.readFully(bytes);
+        }
+        long checksum = in.readLong();
+        if (checksum!=checksum((byte)op, pathBytes, bytes)) throw new IOException("Checksum mismatch");
+        if ((op==OP_DELETE) != (bytes==null)) throw new IOException("Inconsistent record");
+        return new Object[] {new String(pathBytes, StandardCharsets.UTF_8), bytes};
+    }
+
+    private static long checksum(byte op, byte[] pathBytes, byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(op);
+        crc.update(pathBytes);
+        if (bytes!=null) crc.update(bytes);
+        return crc.getValue();
+    }
+
+    @Override
+    public String toString() {
+        return "GroupCommitLog["+dir+"]";
+    }
+}
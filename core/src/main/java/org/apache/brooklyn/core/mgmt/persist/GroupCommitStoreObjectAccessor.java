@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import java.io.IOException;
+import java.util.Date;
+
+import org.apache.brooklyn.core.mgmt.persist.GroupCommitLog.Pending;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Supplier;
+import com.google.common.io.ByteSource;
+
+/**
+ * Reads/writes an object in a {@link FileBasedObjectStore} with group commit:
+ * writes go to the store's {@link GroupCommitLog} while it is open (falling back to the file otherwise),
+ * and reads see those writes before they are compacted into the file.
+ * As with {@link FileBasedStoreObjectAccessor}, callers should wrap in {@link StoreObjectAccessorLocking}.
+ */
+class GroupCommitStoreObjectAccessor implements PersistenceObjectStore.StoreObjectAccessor {
+
+    private final String path;
+    private final FileBasedStoreObjectAccessor file;
+    private final Supplier<GroupCommitLog> log;
+
+    GroupCommitStoreObjectAccessor(String path, FileBasedStoreObjectAccessor file, Supplier<GroupCommitLog> log) {
+        this.path = path;
+        this.file = file;
+        this.log = log;
+    }
+
+    private Pending getPending() {
+        GroupCommitLog l = log.get();
+        return l==null ? null : l.getPending(path);
+    }
+
+    @Override
+    public String get() {
+        byte[] result = getBytes();
+        return result==null ? null : new String(result, Charsets.UTF_8);
+    }
+
+    @Override
+    public byte[] getBytes() {
+        Pending p = getPending();
+        if (p!=null) return p.isDeleted() ? null : p.bytes.clone();
+        return file.getBytes();
+    }
+
+    @Override
+    public boolean exists() {
+        Pending p = getPending();
+        if (p!=null) return !p.isDeleted();
+        return file.exists();
+    }
+
+    @Override
+    public void put(String val) {
+        if (val==null) val = "";
+        put(ByteSource.wrap(val.getBytes(Charsets.UTF_8)));
+    }
+
+    @Override
+    public void put(ByteSource bytes) {
+        GroupCommitLog l = log.get();
+        if (l==null) {
+            file.put(bytes);
+            return;
+        }
+        try {
+            l.put(path, bytes.read());
+        } catch (IOException e) {
+            throw Exceptions.propagateAnnotated("Problem reading data to write to "+path, e);
+        }
+    }
+
+    @Override
+    public void append(String val) {
+        if (log.get()==null) {
+            file.append(val);
+        } else {
+            String existing = get();
+            put((existing==null ? "" : existing) + (val==null ? "" : val));
+        }
+    }
+
+    @Override
+    public void delete() {
+        GroupCommitLog l = log.get();
+        if (l==null) {
+            file.delete();
+        } else {
+            l.delete(path);
+        }
+    }
+
+    @Override
+    public Date getLastModifiedDate() {
+        Pending p = getPending();
+        if (p!=null) return p.isDeleted() ? null : new Date(p.timestamp);
+        return file.getLastModifiedDate();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("path", path).add("file", file).toString();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Base64;
+import java.util.function.Consumer;
+
+import com.google.common.annotations.Beta;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.io.binary.BinaryStreamReader;
+import com.thoughtworks.xstream.io.binary.BinaryStreamWriter;
+import com.thoughtworks.xstream.io.copy.HierarchicalStreamCopier;
+import com.thoughtworks.xstream.io.xml.PrettyPrintWriter;
+import com.thoughtworks.xstream.io.xml.XppDriver;
+
+/**
+ * The format of a persisted memento.
+ * <p>
+ * {@link #COMPACT} is the XStream binary token stream of exactly the same structure as {@link #XML}
+ * (so the same converters and class renames apply), base64-encoded after a {@link #COMPACT_HEADER}.
+ * It is smaller than the XML and much quicker to parse. Either format can be read by
+ * {@link XmlMementoSerializer}, so a store can hold a mix while being migrated, and the two can be
+ * converted without loading any classes using {@link #toXml(String)} and {@link #toCompact(String)}.
+ * <p>
+ * Note that {@link org.apache.brooklyn.core.mgmt.rebind.transformer.CompoundTransformer} transformations
+ * operate on XML; they convert compact state with {@link #toXml(String)} before transforming, and write
+ * the result as XML.
+ */
+@Beta
+public enum MementoFormat {
+    XML,
+    COMPACT;
+
+    public static final String COMPACT_HEADER = "#brooklyn-compact-memento:1\n";
+
+    /** the format of the given persisted contents; anything which is not {@link #COMPACT} is assumed to be {@link #XML} */
+    public static MementoFormat of(String contents) {
+        return contents!=null && contents.startsWith(COMPACT_HEADER) ? COMPACT : XML;
+    }
+
+    /** a reader over the contents, in either format, positioned at the root node */
+    public static HierarchicalStreamReader newReader(String contents) {
+        if (of(contents)==COMPACT) {
+            byte[] bytes = Base64.getMimeDecoder().decode(contents.substring(COMPACT_HEADER.length()));
+            return new BinaryStreamReader(new ByteArrayInputStream(bytes));
+        } else {
+            return new XppDriver().createReader(new StringReader(contents));
+        }
+    }
+
+    /** writes {@link #COMPACT} contents using the given callback, e.g. to marshal an object */
+    static String writeCompact(Consumer<HierarchicalStreamWriter> writing) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryStreamWriter writer = new BinaryStreamWriter(out);
+        writing.accept(writer);
+        writer.flush();
+        return COMPACT_HEADER + Base64.getEncoder().encodeToString(out.toByteArray()) + "\n";
+    }
+
+    /** converts contents in either format to {@link #COMPACT} */
+    public static String toCompact(String contents) {
+        if (of(contents)==COMPACT) return contents;
+        return writeCompact(writer -> new HierarchicalStreamCopier().copy(newReader(contents), writer));
+    }
+
+    /** converts contents in either format to {@link #XML} */
+    public static String toXml(String contents) {
+        if (of(contents)==XML) return contents;
+        StringWriter result = new StringWriter();
+        new HierarchicalStreamCopier().copy(newReader(contents), new PrettyPrintWriter(result));
+        return result.append("\n").toString();
+    }
+}
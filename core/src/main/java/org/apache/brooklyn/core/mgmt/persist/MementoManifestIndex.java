@@ -0,0 +1,316 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.api.mgmt.rebind.mementos.EntityMemento;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.Memento;
+import org.apache.brooklyn.api.objs.BrooklynObjectType;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.net.Urls;
+import org.apache.brooklyn.util.text.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+
+/**
+ * Sidecar index of the manifest fields (type, parent, catalog item) of persisted mementos,
+ * so that {@link BrooklynMementoPersisterToObjectStore#loadMementoManifest} need not parse every memento.
+ * <p>
+ * Each entry records a hash of the contents it was computed from, and is only used if that matches
+ * the contents actually in the store; otherwise the contents are parsed as before and the entry replaced.
+ * The index is therefore never authoritative: a missing, stale or corrupt index costs time, not correctness.
+ * <p>
+ * Entries are sharded by type and by a hash of the id into {@value #SHARD_BUCKETS} buckets, stored as
+ * {@value #SUB_PATH}/shard-<i>type</i>-<i>bucket</i>, and only shards which have changed are written.
+ * Keeping types apart means the frequent entity deltas do not rewrite the location or adjunct shards,
+ * and the bucket count bounds how much of a type's index a small delta rewrites.
+ */
+@Beta
+public class MementoManifestIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MementoManifestIndex.class);
+
+    public static final String SUB_PATH = "manifest-index";
+    static final String SHARD_PREFIX = "shard-";
+    static final String HEADER = "#brooklyn-manifest-index:1";
+    static final int SHARD_BUCKETS = 16;
+
+    public static final Set<BrooklynObjectType> INDEXED_TYPES = ImmutableSet.of(
+        BrooklynObjectType.ENTITY, BrooklynObjectType.LOCATION, BrooklynObjectType.POLICY,
+        BrooklynObjectType.ENRICHER, BrooklynObjectType.FEED);
+
+    public static class Entry {
+        private final BrooklynObjectType type;
+        private final String id;
+        private final String contentHash;
+        private final String javaType;
+        private final String parent;
+        private final String catalogItemId;
+        private final List<String> searchPath;
+
+        private Entry(BrooklynObjectType type, String id, String contentHash, String javaType,
+                String parent, String catalogItemId, List<String> searchPath) {
+            this.type = type;
+            this.id = id;
+            this.contentHash = contentHash;
+            this.javaType = javaType;
+            this.parent = Strings.emptyToNull(parent);
+            this.catalogItemId = Strings.emptyToNull(catalogItemId);
+            this.searchPath = searchPath==null ? ImmutableList.<String>of() : ImmutableList.copyOf(searchPath);
+        }
+
+        /** an entry for the given contents, with the fields as parsed from them */
+        public static Entry of(BrooklynObjectType type, String id, String contents, String javaType,
+                @Nullable String parent, @Nullable String catalogItemId, @Nullable List<String> searchPath) {
+            return new Entry(type, id, hash(contents), javaType, parent, catalogItemId, searchPath);
+        }
+
+        /** an entry for the given contents, with the fields taken from the memento they were serialized from */
+        public static Entry of(BrooklynObjectType type, Memento memento, String contents) {
+            return of(type, memento.getId(), contents, memento.getType(),
+                memento instanceof EntityMemento ? ((EntityMemento)memento).getParent() : null,
+                memento.getCatalogItemId(), memento.getCatalogItemIdSearchPath());
+        }
+
+        /** whether this entry was computed from exactly the given contents */
+        public boolean matches(String contents) {
+            return contents!=null && contentHash.equals(hash(contents));
+        }
+
+        public BrooklynObjectType getType() { return type; }
+        public String getId() { return id; }
+        public String getJavaType() { return javaType; }
+        @Nullable public String getParent() { return parent; }
+        @Nullable public String getCatalogItemId() { return catalogItemId; }
+        public List<String> getSearchPath() { return searchPath; }
+
+        String toLine() {
+            StringBuilder result = new StringBuilder();
+            result.append(type.name()).append('\t').append(encode(id)).append('\t').append(contentHash)
+                .append('\t').append(encode(javaType)).append('\t').append(encode(parent))
+                .append('\t').append(encode(catalogItemId)).append('\t');
+            boolean first = true;
+            for (String s : searchPath) {
+                if (!first) result.append(',');
+                result.append(encode(s));
+                first = false;
+            }
+            return result.toString();
+        }
+
+        static Entry fromLine(String line) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length!=7) throw new IllegalArgumentException("Wrong number of fields ("+fields.length+")");
+            List<String> searchPath = MutableList.of();
+            if (!fields[6].isEmpty()) {
+                for (String s : fields[6].split(",", -1)) {
+                    searchPath.add(decode(s));
+                }
+            }
+            return new Entry(BrooklynObjectType.valueOf(fields[0]), decode(fields[1]), fields[2], decode(fields[3]),
+                decode(fields[4]), decode(fields[5]), searchPath);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Entry)) return false;
+            Entry o = (Entry) obj;
+            return type==o.type && Objects.equal(id, o.id) && Objects.equal(contentHash, o.contentHash)
+                && Objects.equal(javaType, o.javaType) && Objects.equal(parent, o.parent)
+                && Objects.equal(catalogItemId, o.catalogItemId) && Objects.equal(searchPath, o.searchPath);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(type, id, contentHash);
+        }
+
+        @Override
+        public String toString() {
+            return "Entry["+type+":"+id+"]";
+        }
+    }
+
+    static String hash(String contents) {
+        return Hashing.murmur3_128().hashString(contents, StandardCharsets.UTF_8).toString();
+    }
+
+    private static String encode(String s) {
+        return s==null ? "" : Urls.encode(s);
+    }
+
+    private static String decode(String s) {
+        return s.isEmpty() ? null : Urls.decode(s);
+    }
+
+    static String shardOf(BrooklynObjectType type, String id) {
+        int bucket = Hashing.murmur3_32().hashString(id==null ? "" : id, StandardCharsets.UTF_8).asInt() & (SHARD_BUCKETS-1);
+        return type.name().toLowerCase()+"-"+Integer.toHexString(bucket);
+    }
+
+    private static String key(BrooklynObjectType type, String id) {
+        return type.name()+":"+id;
+    }
+
+    private volatile ConcurrentMap<String, ConcurrentMap<String, Entry>> shards = new ConcurrentHashMap<String, ConcurrentMap<String, Entry>>();
+    private final Set<String> dirtyShards = Sets.newConcurrentHashSet();
+
+    @Nullable
+    public Entry get(BrooklynObjectType type, String id) {
+        Map<String, Entry> shard = shards.get(shardOf(type, id));
+        return shard==null ? null : shard.get(key(type, id));
+    }
+
+    /** the entry for the given object if it was computed from exactly the given contents, otherwise null */
+    @Nullable
+    public Entry getIfMatches(BrooklynObjectType type, String id, String contents) {
+        Entry result = get(type, id);
+        return result!=null && result.matches(contents) ? result : null;
+    }
+
+    public void put(Entry entry) {
+        String shard = shardOf(entry.getType(), entry.getId());
+        ConcurrentMap<String, Entry> entries = shards.get(shard);
+        if (entries==null) {
+            shards.putIfAbsent(shard, new ConcurrentHashMap<String, Entry>());
+            entries = shards.get(shard);
+        }
+        if (!entry.equals(entries.put(key(entry.getType(), entry.getId()), entry))) {
+            dirtyShards.add(shard);
+        }
+    }
+
+    public void remove(BrooklynObjectType type, String id) {
+        String shard = shardOf(type, id);
+        Map<String, Entry> entries = shards.get(shard);
+        if (entries!=null && entries.remove(key(type, id))!=null) {
+            dirtyShards.add(shard);
+        }
+    }
+
+    /** removes any entries for objects of indexed types not in the given ids */
+    public void retainAll(BrooklynObjectType type, Collection<String> ids) {
+        for (Map.Entry<String, ConcurrentMap<String, Entry>> shard : shards.entrySet()) {
+            for (Entry entry : shard.getValue().values()) {
+                if (entry.getType()==type && !ids.contains(entry.getId())) {
+                    shard.getValue().remove(key(type, entry.getId()));
+                    dirtyShards.add(shard.getKey());
+                }
+            }
+        }
+    }
+
+    public int size() {
+        int result = 0;
+        for (Map<String, Entry> shard : shards.values()) {
+            result += shard.size();
+        }
+        return result;
+    }
+
+    /** replaces the contents of this index with those in the store; unreadable shards or lines are skipped, and rebuilt when next written */
+    public void load(PersistenceObjectStore objectStore) {
+        ConcurrentMap<String, ConcurrentMap<String, Entry>> loaded = new ConcurrentHashMap<String, ConcurrentMap<String, Entry>>();
+        Set<String> toRewrite = MutableSet.of();
+        for (String path : objectStore.listContentsWithSubPath(SUB_PATH)) {
+            String name = path.substring(path.lastIndexOf('/')+1);
+            if (!name.startsWith(SHARD_PREFIX)) continue;
+            String shard = name.substring(SHARD_PREFIX.length());
+            if (!loaded.containsKey(shard)) loaded.put(shard, new ConcurrentHashMap<String, Entry>());
+            try {
+                String contents = objectStore.newAccessor(path).get();
+                if (contents==null) continue;
+                String[] lines = contents.split("\n");
+                if (lines.length==0 || !HEADER.equals(lines[0])) {
+                    LOG.debug("Ignoring manifest index shard "+path+" with unknown format");
+                    toRewrite.add(shard);
+                    continue;
+                }
+                for (int i=1; i<lines.length; i++) {
+                    if (lines[i].isEmpty()) continue;
+                    try {
+                        Entry entry = Entry.fromLine(lines[i]);
+                        String entryShard = shardOf(entry.getType(), entry.getId());
+                        if (!entryShard.equals(shard)) {
+                            // written with a different sharding; move it, and rewrite both shards
+                            toRewrite.add(shard);
+                            toRewrite.add(entryShard);
+                        }
+                        ConcurrentMap<String, Entry> shardEntries = loaded.get(entryShard);
+                        if (shardEntries==null) {
+                            shardEntries = new ConcurrentHashMap<String, Entry>();
+                            loaded.put(entryShard, shardEntries);
+                        }
+                        shardEntries.put(key(entry.getType(), entry.getId()), entry);
+                    } catch (Exception e) {
+                        LOG.debug("Ignoring malformed line "+i+" in manifest index shard "+path+": "+e);
+                        toRewrite.add(shard);
+                    }
+                }
+            } catch (Exception e) {
+                LOG.debug("Unable to read manifest index shard "+path+"; it will be rebuilt: "+e);
+                toRewrite.add(shard);
+            }
+        }
+        shards = loaded;
+        dirtyShards.addAll(toRewrite);
+    }
+
+    /** the shards changed since last {@link #takeDirtyShards() taken}, mapped to their serialized contents, or null if now empty */
+    public Map<String, String> takeDirtyShards() {
+        Map<String, String> result = new LinkedHashMap<String, String>();
+        for (String shard : ImmutableList.copyOf(dirtyShards)) {
+            // clear first so that any concurrent change marks the shard dirty again
+            dirtyShards.remove(shard);
+            Map<String, Entry> entries = shards.get(shard);
+            if (entries==null || entries.isEmpty()) {
+                result.put(SUB_PATH+"/"+SHARD_PREFIX+shard, null);
+                continue;
+            }
+            StringBuilder contents = new StringBuilder(HEADER).append('\n');
+            for (Entry entry : entries.values()) {
+                contents.append(entry.toLine()).append('\n');
+            }
+            result.put(SUB_PATH+"/"+SHARD_PREFIX+shard, contents.toString());
+        }
+        return result;
+    }
+
+    public boolean hasDirtyShards() {
+        return !dirtyShards.isEmpty();
+    }
+}
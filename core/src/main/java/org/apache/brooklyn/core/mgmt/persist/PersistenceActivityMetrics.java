@@ -18,6 +18,8 @@
  */
 package org.apache.brooklyn.core.mgmt.persist;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 
@@ -28,22 +30,62 @@ import org.apache.brooklyn.util.time.Duration;
 public class PersistenceActivityMetrics {
     
     final static int MAX_ERRORS = 200;
+    /** window over which {@link #noteChanges(long) changes} per second are reported */
+    final static long CHANGE_RATE_WINDOW_MILLIS = 60*1000;
     
-    long count=0, failureCount=0;
-    Long lastSuccessTime, lastDuration, lastFailureTime;
+    long count=0, failureCount=0, changeCount=0, totalDuration=0, durationCount=0;
+    Long lastSuccessTime, lastDuration, lastFailureTime, maxDuration;
     List<Map<String,Object>> errorMessages = MutableList.of();
+    /** pairs of timestamp and number of changes, within the {@link #CHANGE_RATE_WINDOW_MILLIS} */
+    final Deque<long[]> recentChanges = new ArrayDeque<long[]>();
 
-    public void noteSuccess(Duration duration) {
+    public synchronized void noteSuccess(Duration duration) {
         count++;
         lastSuccessTime = System.currentTimeMillis();
-        lastDuration = duration.toMilliseconds();
+        noteDuration(duration.toMilliseconds());
     }
     
-    public void noteFailure(Duration duration) {
+    public synchronized void noteFailure(Duration duration) {
         count++;
         failureCount++;
         lastFailureTime = System.currentTimeMillis();
-        lastDuration = duration!=null ? duration.toMilliseconds() : -1;
+        if (duration!=null) {
+            noteDuration(duration.toMilliseconds());
+        } else {
+            lastDuration = -1L;
+        }
+    }
+
+    private void noteDuration(long millis) {
+        lastDuration = millis;
+        totalDuration += millis;
+        durationCount++;
+        if (maxDuration==null || millis>maxDuration) maxDuration = millis;
+    }
+
+    /** records that the given number of objects were written or deleted, e.g. in a delta or a group commit */
+    public synchronized void noteChanges(long changes) {
+        long now = System.currentTimeMillis();
+        changeCount += changes;
+        recentChanges.addLast(new long[] {now, changes});
+        pruneRecentChanges(now);
+    }
+
+    private void pruneRecentChanges(long now) {
+        while (!recentChanges.isEmpty() && recentChanges.peekFirst()[0] < now-CHANGE_RATE_WINDOW_MILLIS) {
+            recentChanges.removeFirst();
+        }
+    }
+
+    /** changes per second over the last minute (or since the first change, if more recent) */
+    public synchronized double getChangesPerSecond() {
+        long now = System.currentTimeMillis();
+        pruneRecentChanges(now);
+        if (recentChanges.isEmpty()) return 0;
+        long total = 0;
+        for (long[] c : recentChanges) total += c[1];
+        long window = Math.max(1000, now - recentChanges.peekFirst()[0]);
+        return 1000.0 * total / window;
     }
 
     public void noteError(String error) {
@@ -68,6 +110,11 @@ public class PersistenceActivityMetrics {
         result.put("lastSuccessTimeUtc", lastSuccessTime);
         result.put("lastSuccessTimeMillisSince", since(lastSuccessTime));
         result.put("lastDuration", lastDuration);
+        result.put("maxDuration", maxDuration);
+        // over those with a duration, so failures reported without one do not skew it
+        result.put("meanDuration", durationCount>0 ? totalDuration/durationCount : null);
+        result.put("changeCount", changeCount);
+        result.put("changesPerSecond", getChangesPerSecond());
         result.put("failureCount", failureCount);
         result.put("lastFailureTimeUtc", lastFailureTime);
         result.put("lastFailureTimeMillisSince", since(lastFailureTime));
@@ -163,6 +163,16 @@ public class XmlMementoSerializer<T> extends XmlSerializer<T> implements Memento
         }
     }
 
+    /** Reads contents in either {@link MementoFormat}, so that stores can be migrated to or from {@link CompactMementoSerializer}. */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T fromString(String contents) {
+        if (MementoFormat.of(contents)==MementoFormat.COMPACT) {
+            return (T) xstream.unmarshal(MementoFormat.newReader(contents));
+        }
+        return super.fromString(contents);
+    }
+
     @Override
     public void setLookupContext(LookupContext lookupContext) {
         this.lookupContext = checkNotNull(lookupContext, "lookupContext");
@@ -516,6 +516,12 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
 
                 // Tell the persister to persist it
                 persister.delta(persisterDelta, exceptionHandler);
+
+                int changes = 0;
+                for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+                    changes += prevDeltaCollector.getCollectionOfType(type).size() + prevDeltaCollector.getRemovedIdsOfType(type).size();
+                }
+                metrics.noteChanges(changes);
             }
         } catch (Exception e) {
             if (isActive()) {
@@ -32,6 +32,11 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -106,6 +111,7 @@ import org.apache.brooklyn.core.typereg.BundleUpgradeParser.CatalogUpgrades;
 import org.apache.brooklyn.core.typereg.RegisteredTypeNaming;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.core.ClassLoaderUtils;
 import org.apache.brooklyn.util.core.flags.FlagUtils;
 import org.apache.brooklyn.util.core.task.BasicExecutionContext;
@@ -120,13 +126,16 @@ import org.apache.brooklyn.util.time.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
 Multi-phase deserialization:
@@ -194,6 +203,11 @@ public abstract class RebindIteration {
     // set on run start
     
     protected Stopwatch timer;
+    /** restarted at the end of each phase, to record {@link #phaseDurations} */
+    protected Stopwatch phaseTimer;
+    protected final Map<String, Duration> phaseDurations = new LinkedHashMap<String, Duration>();
+    /** used to rebind independent application subtrees in parallel; null if {@link RebindManagerImpl#REBIND_PARALLELISM} is 1 */
+    protected ExecutorService subtreeExecutor;
     /** phase is used to ensure our steps are run as we've expected, and documented (in javadoc at top).
      * it's worth the extra effort due to the complication and the subtleties. */
     protected int phase = 0;
@@ -255,15 +269,23 @@ public abstract class RebindIteration {
     protected void doRun() throws Exception {
         loadManifestFiles();
         initPlaneId();
+        notePhaseComplete("load");
         installBundlesAndRebuildCatalog();
+        notePhaseComplete("catalog");
         instantiateLocationsAndEntities();
+        notePhaseComplete("instantiate entities");
         instantiateMementos();
+        notePhaseComplete("load mementos");
         // adjuncts depend on actual mementos; whereas entity works off special memento manifest, 
         // and location, bundles etc just take type and id
         instantiateAdjuncts(instantiator); 
+        notePhaseComplete("instantiate adjuncts");
         reconstructEverything();
+        notePhaseComplete("reconstruct");
         associateAdjunctsWithEntities();
+        notePhaseComplete("associate adjuncts");
         manageTheObjects();
+        notePhaseComplete("manage");
         finishingUp();
     }
     
@@ -282,6 +304,11 @@ public abstract class RebindIteration {
                 readOnlyRebindCount.incrementAndGet();
 
             timer = Stopwatch.createStarted();
+            phaseTimer = Stopwatch.createStarted();
+            if (rebindManager.rebindParallelism > 1) {
+                subtreeExecutor = Executors.newFixedThreadPool(rebindManager.rebindParallelism, new ThreadFactoryBuilder()
+                    .setNameFormat("brooklyn-rebind-%d").setDaemon(true).build());
+            }
             exceptionHandler.onStart(rebindContext);
 
             doRun();
@@ -299,11 +326,134 @@ public abstract class RebindIteration {
             throw exceptionHandler.onFailed(e);
             
         } finally {
+            if (subtreeExecutor!=null) subtreeExecutor.shutdownNow();
             rebindActive.release();
             RebindTracker.reset();
         }
     }
     
+    /** records the time since the previous phase completed against the given name, for reporting when rebind completes */
+    protected void notePhaseComplete(String name) {
+        phaseDurations.put(name, Duration.of(phaseTimer));
+        phaseTimer.reset().start();
+    }
+    
+    protected String getPhaseDurationsSummary() {
+        List<String> result = MutableList.of();
+        for (Map.Entry<String, Duration> phase : phaseDurations.entrySet()) {
+            result.add(phase.getKey()+" "+Time.makeTimeStringRounded(phase.getValue()));
+        }
+        return Strings.join(result, ", ");
+    }
+    
+    /**
+     * Groups the given nodes (in their given order) by the top-most ancestor which is also in the map,
+     * so that each group is an independent subtree, typically an application and its descendants.
+     * Order within each group is preserved, so parent-first input gives parent-first groups.
+     */
+    protected static <T> Collection<List<T>> groupBySubtree(Map<String, T> nodes, Function<? super T, String> parentFn) {
+        return groupBySubtree(nodes, parentFn, null);
+    }
+    
+    /**
+     * As {@link #groupBySubtree(Map, Function)}, but where a node refers (as given by the optional {@code referencesFn})
+     * to a node in another subtree, those subtrees are not independent so are merged into one group.
+     */
+    protected static <T> Collection<List<T>> groupBySubtree(Map<String, T> nodes, Function<? super T, String> parentFn,
+            Function<? super T, ? extends Iterable<String>> referencesFn) {
+        Map<String, String> roots = MutableMap.of();
+        for (Map.Entry<String, T> node : nodes.entrySet()) {
+            String root = node.getKey();
+            Set<String> visited = MutableSet.of(root);
+            while (true) {
+                if (roots.containsKey(root)) {
+                    root = roots.get(root);
+                    break;
+                }
+                T n = nodes.get(root);
+                String parent = n==null ? null : parentFn.apply(n);
+                if (parent==null || !nodes.containsKey(parent) || !visited.add(parent)) break;
+                root = parent;
+            }
+            roots.put(node.getKey(), root);
+        }
+        
+        // a subtree root merged into another subtree maps (possibly indirectly) to the root it was merged into
+        Map<String, String> merged = MutableMap.of();
+        if (referencesFn!=null) {
+            for (Map.Entry<String, T> node : nodes.entrySet()) {
+                Iterable<String> references = referencesFn.apply(node.getValue());
+                if (references==null) continue;
+                for (String reference : references) {
+                    if (!roots.containsKey(reference)) continue;
+                    String root1 = findMergedRoot(merged, roots.get(node.getKey()));
+                    String root2 = findMergedRoot(merged, roots.get(reference));
+                    if (!root1.equals(root2)) merged.put(root2, root1);
+                }
+            }
+        }
+        
+        Map<String, List<T>> result = new LinkedHashMap<String, List<T>>();
+        for (Map.Entry<String, T> node : nodes.entrySet()) {
+            String root = findMergedRoot(merged, roots.get(node.getKey()));
+            List<T> group = result.get(root);
+            if (group==null) {
+                group = MutableList.of();
+                result.put(root, group);
+            }
+            group.add(node.getValue());
+        }
+        return result.values();
+    }
+    
+    private static String findMergedRoot(Map<String, String> merged, String root) {
+        while (merged.containsKey(root)) {
+            root = merged.get(root);
+        }
+        return root;
+    }
+    
+    /**
+     * Runs the given tasks using {@link #subtreeExecutor}, or in order on this thread if running sequentially,
+     * returning when all have completed. The first failure is rethrown (after which other tasks are cancelled),
+     * so fail-fast behaves as it does when sequential.
+     */
+    protected void runSubtreeTasks(List<? extends Runnable> tasks) {
+        if (subtreeExecutor==null || tasks.size()<=1) {
+            for (Runnable task : tasks) {
+                task.run();
+            }
+            return;
+        }
+        List<Future<?>> futures = MutableList.of();
+        for (final Runnable task : tasks) {
+            futures.add(subtreeExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    RebindTracker.setRebinding();
+                    try {
+                        task.run();
+                    } finally {
+                        RebindTracker.reset();
+                    }
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw Exceptions.propagate(e.getCause());
+        } catch (InterruptedException e) {
+            throw Exceptions.propagate(e);
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+    
     protected void checkEnteringPhase(int targetPhase) {
         phase++;
         checkContinuingPhase(targetPhase);
@@ -441,22 +591,36 @@ public abstract class RebindIteration {
             }
         }
         
-        // Instantiate entities
+        // Instantiate entities, subtrees in parallel if configured, then register them in the order of the manifest
         logRebindingDebug("RebindManager instantiating entities: {}", mementoManifest.getEntityIdToManifest().keySet());
-        for (Map.Entry<String, EntityMementoManifest> entry : mementoManifest.getEntityIdToManifest().entrySet()) {
-            String entityId = entry.getKey();
-            EntityMementoManifest entityManifest = entry.getValue();
-            
-            if (LOG.isTraceEnabled()) LOG.trace("RebindManager instantiating entity {}", entityId);
-            
-            try {
-                Entity entity = instantiator.newEntity(entityManifest);
-                ((EntityInternal)entity).getManagementSupport().setReadOnly( rebindContext.isReadOnly(entity) );
-                rebindContext.registerEntity(entityId, entity);
-
-            } catch (Exception e) {
-                exceptionHandler.onCreateFailed(BrooklynObjectType.ENTITY, entityId, entityManifest.getType(), e);
-            }
+        final Map<String, Entity> instantiated = new ConcurrentHashMap<String, Entity>();
+        List<Runnable> tasks = MutableList.of();
+        for (final List<EntityMementoManifest> subtree : groupBySubtree(mementoManifest.getEntityIdToManifest(), new Function<EntityMementoManifest, String>() {
+                @Override public String apply(EntityMementoManifest input) { return input.getParent(); }
+            })) {
+            tasks.add(new Runnable() {
+                @Override
+                public void run() {
+                    for (EntityMementoManifest entityManifest : subtree) {
+                        String entityId = entityManifest.getId();
+                        if (LOG.isTraceEnabled()) LOG.trace("RebindManager instantiating entity {}", entityId);
+                        
+                        try {
+                            Entity entity = instantiator.newEntity(entityManifest);
+                            ((EntityInternal)entity).getManagementSupport().setReadOnly( rebindContext.isReadOnly(entity) );
+                            instantiated.put(entityId, entity);
+                            
+                        } catch (Exception e) {
+                            exceptionHandler.onCreateFailed(BrooklynObjectType.ENTITY, entityId, entityManifest.getType(), e);
+                        }
+                    }
+                }
+            });
+        }
+        runSubtreeTasks(tasks);
+        for (String entityId : mementoManifest.getEntityIdToManifest().keySet()) {
+            Entity entity = instantiated.get(entityId);
+            if (entity!=null) rebindContext.registerEntity(entityId, entity);
         }
     }
 
@@ -623,22 +787,80 @@ public abstract class RebindIteration {
             }
         }
    
-        // Reconstruct entities
+        // Reconstruct entities, parent-first within each subtree, subtrees in parallel if configured
         logRebindingDebug("RebindManager reconstructing entities");
-        for (EntityMemento entityMemento : sortParentFirst(memento.getEntityMementos()).values()) {
-            Entity entity = rebindContext.lookup().lookupEntity(entityMemento.getId());
-            logRebindingDebug("RebindManager reconstructing entity {}", entityMemento);
-   
-            if (entity == null) {
-                // usually because of creation-failure, when not using fail-fast
-                exceptionHandler.onNotFound(BrooklynObjectType.ENTITY, entityMemento.getId());
-            } else {
-                try {
-                    entityMemento.injectTypeClass(entity.getClass());
-                    ((EntityInternal)entity).getRebindSupport().reconstruct(rebindContext, entityMemento);
-                } catch (Exception e) {
-                    exceptionHandler.onRebindFailed(BrooklynObjectType.ENTITY, entity, e);
+        List<Runnable> tasks = MutableList.of();
+        for (final List<EntityMemento> subtree : groupEntityMementosBySubtree()) {
+            tasks.add(new Runnable() {
+                @Override
+                public void run() {
+                    for (EntityMemento entityMemento : subtree) {
+                        Entity entity = rebindContext.lookup().lookupEntity(entityMemento.getId());
+                        logRebindingDebug("RebindManager reconstructing entity {}", entityMemento);
+               
+                        if (entity == null) {
+                            // usually because of creation-failure, when not using fail-fast
+                            exceptionHandler.onNotFound(BrooklynObjectType.ENTITY, entityMemento.getId());
+                        } else {
+                            try {
+                                entityMemento.injectTypeClass(entity.getClass());
+                                ((EntityInternal)entity).getRebindSupport().reconstruct(rebindContext, entityMemento);
+                            } catch (Exception e) {
+                                exceptionHandler.onRebindFailed(BrooklynObjectType.ENTITY, entity, e);
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        runSubtreeTasks(tasks);
+    }
+    
+    /**
+     * Groups the entity mementos parent-first by subtree, where subtrees which refer to each other
+     * (e.g. a group in one application with members in another) are in the same group,
+     * so that only independent subtrees are rebinded in parallel.
+     */
+    protected Collection<List<EntityMemento>> groupEntityMementosBySubtree() {
+        return groupBySubtree(sortParentFirst(memento.getEntityMementos()), new Function<EntityMemento, String>() {
+                @Override public String apply(EntityMemento input) { return input.getParent(); }
+            }, new Function<EntityMemento, Set<String>>() {
+                @Override public Set<String> apply(EntityMemento input) {
+                    Entity entity = rebindContext.lookup().lookupEntity(input.getId());
+                    // not reconstructed if not instantiated, so no references to follow
+                    if (entity == null) return ImmutableSet.of();
+                    // as when reconstructing, so the memento resolves its config and sensor keys against the right type
+                    input.injectTypeClass(entity.getClass());
+                    return getReferencedEntityIds(input);
                 }
+            });
+    }
+    
+    /**
+     * Returns the ids of entities the given memento refers to other than as parent or child:
+     * group members, relations, and entities in config and sensor values (including within collections and maps).
+     */
+    protected static Set<String> getReferencedEntityIds(EntityMemento memento) {
+        Set<String> result = MutableSet.of();
+        result.addAll(memento.getMembers());
+        for (Set<String> ids : memento.getRelations().values()) {
+            result.addAll(ids);
+        }
+        addReferencedEntityIds(memento.getConfig().values(), result);
+        addReferencedEntityIds(memento.getConfigUnmatched().values(), result);
+        addReferencedEntityIds(memento.getAttributes().values(), result);
+        return result;
+    }
+    
+    private static void addReferencedEntityIds(Object value, Set<String> result) {
+        if (value instanceof Entity) {
+            result.add(((Entity)value).getId());
+        } else if (value instanceof Map) {
+            addReferencedEntityIds(((Map<?,?>)value).keySet(), result);
+            addReferencedEntityIds(((Map<?,?>)value).values(), result);
+        } else if (value instanceof Iterable) {
+            for (Object v : (Iterable<?>)value) {
+                addReferencedEntityIds(v, result);
             }
         }
     }
@@ -648,35 +870,48 @@ public abstract class RebindIteration {
         checkEnteringPhase(7);
 
         logRebindingDebug("RebindManager associating adjuncts to entities");
-        for (EntityMemento entityMemento : sortParentFirst(memento.getEntityMementos()).values()) {
-            Entity entity = rebindContext.getEntity(entityMemento.getId());
-            logRebindingDebug("RebindManager associating adjuncts to entity {}", entityMemento);
-   
-            if (entity == null) {
-                // usually because of creation-failure, when not using fail-fast
-                exceptionHandler.onNotFound(BrooklynObjectType.ENTITY, entityMemento.getId());
-            } else {
-                // Must execute in entity's context, so policy.setEntity can resolve config (BROOKLYN-549).
-                Runnable body = new Runnable() {
-                    public void run() {
-                        try {
-                            entityMemento.injectTypeClass(entity.getClass());
-                            // TODO these call to the entity which in turn sets the entity on the underlying feeds and enrichers;
-                            // that is taken as the cue to start, but it should not be. start should be a separate call.
-                            ((EntityInternal)entity).getRebindSupport().addPolicies(rebindContext, entityMemento);
-                            ((EntityInternal)entity).getRebindSupport().addEnrichers(rebindContext, entityMemento);
-                            ((EntityInternal)entity).getRebindSupport().addFeeds(rebindContext, entityMemento);
-                        } catch (Exception e) {
-                            exceptionHandler.onRebindFailed(BrooklynObjectType.ENTITY, entity, e);
-                        }
+        List<Runnable> tasks = MutableList.of();
+        for (final List<EntityMemento> subtree : groupEntityMementosBySubtree()) {
+            tasks.add(new Runnable() {
+                @Override
+                public void run() {
+                    for (EntityMemento entityMemento : subtree) {
+                        associateAdjunctsWithEntity(entityMemento);
                     }
-                };
-                ((EntityInternal)entity).getExecutionContext().get(Tasks.<Void>builder()
-                        .displayName("rebind-adjuncts-"+entity.getId())
-                        .dynamic(false)
-                        .body(body)
-                        .build());
-            }
+                }
+            });
+        }
+        runSubtreeTasks(tasks);
+    }
+    
+    protected void associateAdjunctsWithEntity(final EntityMemento entityMemento) {
+        final Entity entity = rebindContext.getEntity(entityMemento.getId());
+        logRebindingDebug("RebindManager associating adjuncts to entity {}", entityMemento);
+
+        if (entity == null) {
+            // usually because of creation-failure, when not using fail-fast
+            exceptionHandler.onNotFound(BrooklynObjectType.ENTITY, entityMemento.getId());
+        } else {
+            // Must execute in entity's context, so policy.setEntity can resolve config (BROOKLYN-549).
+            Runnable body = new Runnable() {
+                public void run() {
+                    try {
+                        entityMemento.injectTypeClass(entity.getClass());
+                        // TODO these call to the entity which in turn sets the entity on the underlying feeds and enrichers;
+                        // that is taken as the cue to start, but it should not be. start should be a separate call.
+                        ((EntityInternal)entity).getRebindSupport().addPolicies(rebindContext, entityMemento);
+                        ((EntityInternal)entity).getRebindSupport().addEnrichers(rebindContext, entityMemento);
+                        ((EntityInternal)entity).getRebindSupport().addFeeds(rebindContext, entityMemento);
+                    } catch (Exception e) {
+                        exceptionHandler.onRebindFailed(BrooklynObjectType.ENTITY, entity, e);
+                    }
+                }
+            };
+            ((EntityInternal)entity).getExecutionContext().get(Tasks.<Void>builder()
+                    .displayName("rebind-adjuncts-"+entity.getId())
+                    .dynamic(false)
+                    .body(body)
+                    .build());
         }
     }
 
@@ -707,29 +942,55 @@ public abstract class RebindIteration {
         
         // Manage the top-level apps (causing everything under them to become managed)
         logRebindingDebug("RebindManager managing entities");
-        EntityManagerInternal entityManager = (EntityManagerInternal)managementContext.getEntityManager();
+        final EntityManagerInternal entityManager = (EntityManagerInternal)managementContext.getEntityManager();
         Set<String> oldEntities = Sets.newLinkedHashSet(entityManager.getEntityIds());
         for (Entity entity: rebindContext.getEntities()) {
             ManagementTransitionMode oldMode = updateTransitionMode(entityManager, entity);
             if (oldMode!=null)
                 oldEntities.remove(entity.getId());
         }
+        // roots of subtrees which refer to each other are managed in turn by the same task
+        Map<String, String> subtreeOfEntity = MutableMap.of();
+        for (List<EntityMemento> subtree : groupEntityMementosBySubtree()) {
+            for (EntityMemento entityMemento : subtree) {
+                subtreeOfEntity.put(entityMemento.getId(), subtree.get(0).getId());
+            }
+        }
         List<Application> apps = Lists.newArrayList();
+        Map<String, List<Entity>> rootsBySubtree = new LinkedHashMap<String, List<Entity>>();
         for (String rootId : getMementoRootEntities()) {
             Entity entity = rebindContext.getEntity(rootId);
             if (entity == null) {
                 // usually because of creation-failure, when not using fail-fast
                 exceptionHandler.onNotFound(BrooklynObjectType.ENTITY, rootId);
             } else {
-                try {
-                    entityManager.manageRebindedRoot(entity);
-                } catch (Exception e) {
-                    exceptionHandler.onManageFailed(BrooklynObjectType.ENTITY, entity, e);
+                String subtreeId = subtreeOfEntity.containsKey(rootId) ? subtreeOfEntity.get(rootId) : rootId;
+                List<Entity> roots = rootsBySubtree.get(subtreeId);
+                if (roots==null) {
+                    roots = MutableList.of();
+                    rootsBySubtree.put(subtreeId, roots);
                 }
+                roots.add(entity);
                 if (entity instanceof Application)
                     apps.add((Application)entity);
             }
         }
+        List<Runnable> tasks = MutableList.of();
+        for (final List<Entity> roots : rootsBySubtree.values()) {
+            tasks.add(new Runnable() {
+                @Override
+                public void run() {
+                    for (Entity entity : roots) {
+                        try {
+                            entityManager.manageRebindedRoot(entity);
+                        } catch (Exception e) {
+                            exceptionHandler.onManageFailed(BrooklynObjectType.ENTITY, entity, e);
+                        }
+                    }
+                }
+            });
+        }
+        runSubtreeTasks(tasks);
         cleanupOldEntities(oldEntities);
 
         this.applications = apps;
@@ -774,10 +1035,11 @@ public abstract class RebindIteration {
         
         checkContinuingPhase(8);
         
+        rebindManager.lastRebindPhaseDurations = ImmutableMap.copyOf(phaseDurations);
         if (!isEmpty) {
             BrooklynLogging.log(LOG, shouldLogRebinding() ? LoggingLevel.INFO : LoggingLevel.DEBUG, 
                 "Rebind complete " + "("+mode+(readOnlyRebindCount.get()>=0 ? ", iteration "+readOnlyRebindCount : "")+")" +
-                    " in {}: {} app{}, {} entit{}, {} location{}, {} polic{}, {} enricher{}, {} feed{}, {} catalog item{}, {} catalog bundle{}",
+                    " in {}: {} app{}, {} entit{}, {} location{}, {} polic{}, {} enricher{}, {} feed{}, {} catalog item{}, {} catalog bundle{}; phases: {}",
                 Time.makeTimeStringRounded(timer), applications.size(), Strings.s(applications),
                 rebindContext.getEntities().size(), Strings.ies(rebindContext.getEntities()),
                 rebindContext.getLocations().size(), Strings.s(rebindContext.getLocations()),
@@ -785,7 +1047,8 @@ public abstract class RebindIteration {
                 rebindContext.getEnrichers().size(), Strings.s(rebindContext.getEnrichers()),
                 rebindContext.getFeeds().size(), Strings.s(rebindContext.getFeeds()),
                 rebindContext.getCatalogItems().size(), Strings.s(rebindContext.getCatalogItems()),
-                rebindContext.getBundles().size(), Strings.s(rebindContext.getBundles())
+                rebindContext.getBundles().size(), Strings.s(rebindContext.getBundles()),
+                getPhaseDurationsSummary()
             );
         }
 
@@ -52,7 +52,10 @@ import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.core.mgmt.persist.BrooklynMementoPersisterToObjectStore;
 import org.apache.brooklyn.core.mgmt.persist.BrooklynPersistenceUtils;
 import org.apache.brooklyn.core.mgmt.persist.BrooklynPersistenceUtils.CreateBackupMode;
+import org.apache.brooklyn.core.mgmt.persist.FileBasedObjectStore;
+import org.apache.brooklyn.core.mgmt.persist.GroupCommitLog;
 import org.apache.brooklyn.core.mgmt.persist.PersistenceActivityMetrics;
+import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStore;
 import org.apache.brooklyn.core.mgmt.rebind.transformer.CompoundTransformer;
 import org.apache.brooklyn.core.server.BrooklynServerConfig;
 import org.apache.brooklyn.util.collections.MutableList;
@@ -110,6 +113,13 @@ public class RebindManagerImpl implements RebindManager {
                 + "then linear regression to allow max 5% at 100 items and above", 
                 QuorumChecks.newLinearRange("[[0,-2],[10,8],[100,95],[200,190]]"));
 
+    @Beta
+    public static final ConfigKey<Integer> REBIND_PARALLELISM =
+        ConfigKeys.newIntegerConfigKey("rebind.parallelism",
+                "Number of threads used to instantiate, reconstruct and manage independent application subtrees during rebind; "
+                + "1 (the default) rebinds everything on the calling thread, in order", 
+                1);
+
     public static final Logger LOG = LoggerFactory.getLogger(RebindManagerImpl.class);
 
     private final ManagementContextInternal managementContext;
@@ -139,11 +149,14 @@ public class RebindManagerImpl implements RebindManager {
     private RebindFailureMode addPolicyFailureMode;
     private RebindFailureMode loadPolicyFailureMode;
     private QuorumCheck danglingRefsQuorumRequiredHealthy;
+    final int rebindParallelism;
     
     private boolean isAwaitingInitialRebind;
     
     private PersistenceActivityMetrics rebindMetrics = new PersistenceActivityMetrics();
     private PersistenceActivityMetrics persistMetrics = new PersistenceActivityMetrics();
+    /** durations of the phases of the last rebind, set by {@link RebindIteration} */
+    volatile Map<String, Duration> lastRebindPhaseDurations;
 
     Integer firstRebindAppCount, firstRebindEntityCount, firstRebindItemCount;
     
@@ -195,6 +208,7 @@ public class RebindManagerImpl implements RebindManager {
         loadPolicyFailureMode = managementContext.getConfig().getConfig(LOAD_POLICY_FAILURE_MODE);
         
         danglingRefsQuorumRequiredHealthy = managementContext.getConfig().getConfig(DANGLING_REFERENCES_MIN_REQUIRED_HEALTHY);
+        rebindParallelism = Math.max(1, managementContext.getConfig().getConfig(REBIND_PARALLELISM));
 
         LOG.debug("{} initialized, settings: policies={}, enrichers={}, feeds={}, catalog={}",
                 new Object[]{this, persistPoliciesEnabled, persistEnrichersEnabled, persistFeedsEnabled, persistCatalogItemsEnabled});
@@ -553,6 +567,14 @@ public class RebindManagerImpl implements RebindManager {
     }
     
     protected List<Application> rebindImpl(final ClassLoader classLoader, final RebindExceptionHandler exceptionHandler, ManagementNodeState mode) {
+        if (mode==ManagementNodeState.MASTER && persistenceStoreAccess instanceof BrooklynMementoPersisterToObjectStore) {
+            // e.g. when promoted from standby: take over any group commit log of the previous master before reading
+            PersistenceObjectStore store = ((BrooklynMementoPersisterToObjectStore)persistenceStoreAccess).getObjectStore();
+            if (store instanceof FileBasedObjectStore) {
+                ((FileBasedObjectStore)store).recoverGroupCommitLog();
+            }
+        }
+        
         RebindIteration iteration = new InitialFullRebindIteration(this, mode, classLoader, exceptionHandler,
             rebindActive, readOnlyRebindCount, rebindMetrics, persistenceStoreAccess);
         
@@ -660,6 +682,27 @@ public class RebindManagerImpl implements RebindManager {
         result.put("rebind", rebindMetrics.asMap());
         result.put("persist", persistMetrics.asMap());
         
+        Map<String, Duration> phases = lastRebindPhaseDurations;
+        if (phases!=null) {
+            Map<String, Object> phaseTimes = MutableMap.of();
+            for (Map.Entry<String, Duration> phase : phases.entrySet()) {
+                phaseTimes.put(phase.getKey(), phase.getValue().toMilliseconds());
+            }
+            result.put("rebindPhasesMillis", phaseTimes);
+        }
+        
+        BrooklynMementoPersister persister = persistenceStoreAccess;
+        if (persister instanceof BrooklynMementoPersisterToObjectStore) {
+            PersistenceObjectStore store = ((BrooklynMementoPersisterToObjectStore)persister).getObjectStore();
+            if (store instanceof FileBasedObjectStore) {
+                GroupCommitLog groupCommitLog = ((FileBasedObjectStore)store).getGroupCommitLog();
+                if (groupCommitLog!=null) {
+                    result.put("persistGroupCommit", groupCommitLog.getMetrics().asMap());
+                    result.put("persistGroupCommitCompaction", groupCommitLog.getCompactionMetrics().asMap());
+                }
+            }
+        }
+        
         if (readOnlyRebindCount.get()>=0)
             result.put("rebindReadOnlyCount", readOnlyRebindCount);
         
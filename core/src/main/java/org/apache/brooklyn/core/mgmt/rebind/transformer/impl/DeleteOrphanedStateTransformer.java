@@ -26,6 +26,7 @@ import javax.xml.xpath.XPathConstants;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoRawData;
 import org.apache.brooklyn.api.objs.BrooklynObjectType;
 import org.apache.brooklyn.core.location.access.PortForwardManager;
+import org.apache.brooklyn.core.mgmt.persist.MementoFormat;
 import org.apache.brooklyn.core.mgmt.rebind.transformer.CompoundTransformer;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.MutableSet;
@@ -72,12 +73,16 @@ public class DeleteOrphanedStateTransformer extends CompoundTransformer {
      * We inspect the state in two different ways to find the entities that will be deleted:
      * belt-and-braces! Only if the state is not referenced by either of those two approaches
      * will we delete it.
+     * <p>
+     * The inspection is done on an XML copy of the state (see {@link MementoFormat#toXml(String)}),
+     * but the state which is kept is returned in whatever format it was persisted.
      */
     @Override
     public BrooklynMementoRawData transform(BrooklynMementoRawData input) {
-        ReferencedState stateReferencedFromXpath = new ReachabilityXpathInspector().inspect(input);
-        ReferencedState stateToKeepFromGrep = new ReachabilityGrepInspector().inspect(input);
-        ReferencedState stateToKeepFromXpath = stateReferencedFromXpath.filterForExtant(input);
+        BrooklynMementoRawData inputXml = toXml(input);
+        ReferencedState stateReferencedFromXpath = new ReachabilityXpathInspector().inspect(inputXml);
+        ReferencedState stateToKeepFromGrep = new ReachabilityGrepInspector().inspect(inputXml);
+        ReferencedState stateToKeepFromXpath = stateReferencedFromXpath.filterForExtant(inputXml);
         ReferencedState.warnOfDifferences(stateToKeepFromXpath, stateToKeepFromGrep);
 
         ReferencedState stateToKeep = ReferencedState.union(stateToKeepFromXpath, stateToKeepFromGrep);
@@ -321,6 +326,27 @@ public class DeleteOrphanedStateTransformer extends CompoundTransformer {
         }
     }
     
+    protected static BrooklynMementoRawData toXml(BrooklynMementoRawData input) {
+        return BrooklynMementoRawData.builder()
+                .planeId(input.getPlaneId())
+                .brooklynVersion(input.getBrooklynVersion())
+                .catalogItems(toXml(input.getCatalogItems()))
+                .entities(toXml(input.getEntities()))
+                .locations(toXml(input.getLocations()))
+                .enrichers(toXml(input.getEnrichers()))
+                .policies(toXml(input.getPolicies()))
+                .feeds(toXml(input.getFeeds()))
+                .build();
+    }
+
+    protected static Map<String, String> toXml(Map<String, String> contents) {
+        Map<String, String> result = MutableMap.of();
+        for (Map.Entry<String, String> entry : contents.entrySet()) {
+            result.put(entry.getKey(), MementoFormat.toXml(entry.getValue()));
+        }
+        return result;
+    }
+
     protected <K, V> Map<K, V> copyRetainingKeys(Map<K, V> orig, Set<? extends K> keysToKeep) {
         Map<K, V> result = MutableMap.of();
         for (Map.Entry<K, V> entry : orig.entrySet()) {
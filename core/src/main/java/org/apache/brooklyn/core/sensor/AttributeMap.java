@@ -24,6 +24,9 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -42,11 +45,17 @@ import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 
 /**
  * A {@link Map} of {@link Entity} attribute values.
+ * <p>
+ * Values are held in a concurrent map keyed by sensor name, so reads never block.
+ * Snapshots ({@link #asMap()}) are taken without blocking writers, and are reused until a value next changes.
+ * Writes which publish are serialized by {@link #getLockInternal()}.
  */
 public final class AttributeMap {
 
@@ -56,10 +65,35 @@ public final class AttributeMap {
         NULL;
     }
     
+    private static final Splitter DOTS = Splitter.on('.');
+    private static final Joiner JOIN_DOTS = Joiner.on('.');
+    
+    /** attempts at a snapshot unaffected by concurrent writes, before settling for one which may be */
+    private static final int MAX_SNAPSHOT_ATTEMPTS = 3;
+    
     private final AbstractEntity entity;
 
-    // Assumed to be something like a ConcurrentMap passed in.
-    private final Map<Collection<String>, Object> values;
+    /** values keyed by sensor name; null values are stored as {@link Marker#NULL} */
+    private final ConcurrentMap<String, Object> values = new ConcurrentHashMap<String, Object>();
+    
+    /** sensor names in the order first set; copy-on-write (under {@link #namesLock}) as adding a sensor is rare */
+    private volatile ImmutableList<String> names = ImmutableList.of();
+    private final transient Object namesLock = new Object();
+    
+    /** incremented after every change to {@link #values} */
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    private static class Snapshot {
+        final long version;
+        /** unmodifiable, with raw values */
+        final Map<String, Object> values;
+        
+        Snapshot(long version, Map<String, Object> values) {
+            this.version = version;
+            this.values = values;
+        }
+    }
 
     /**
      * Creates a new AttributeMap.
@@ -68,21 +102,26 @@ public final class AttributeMap {
      * @throws NullPointerException if entity is null
      */
     public AttributeMap(AbstractEntity entity) {
-        // Not using ConcurrentMap, because want to (continue to) allow null values.
-        // Could use ConcurrentMapAcceptingNullVals (with the associated performance hit on entrySet() etc).
-        this(entity, Collections.synchronizedMap(Maps.<Collection<String>, Object>newLinkedHashMap()));
+        this.entity = checkNotNull(entity, "entity must be specified");
     }
 
     /**
      * Creates a new AttributeMap.
      *
      * @param entity  the Entity this AttributeMap belongs to.
-     * @param storage the Map in which to store the values - should be concurrent or synchronized.
+     * @param storage initial values; no longer used as the storage
      * @throws NullPointerException if entity is null
+     * 
+     * @deprecated since 1.1.0 values are held in a concurrent map keyed by sensor name; use {@link #AttributeMap(AbstractEntity)}
      */
+    @Deprecated
     public AttributeMap(AbstractEntity entity, Map<Collection<String>, Object> storage) {
-        this.entity = checkNotNull(entity, "entity must be specified");
-        this.values = checkNotNull(storage, "storage map must not be null");
+        this(entity);
+        synchronized (checkNotNull(storage, "storage map must not be null")) {
+            for (Map.Entry<Collection<String>, Object> entry : storage.entrySet()) {
+                put(toName(entry.getKey()), entry.getValue());
+            }
+        }
     }
 
     /** 
@@ -90,8 +129,8 @@ public final class AttributeMap {
      * any sensor value at a time.  Methods which set, modify, and publish values
      * acquire this lock.
      * <p>
-     * Reads are not blocked by this, although this synchs on {@link #values}
-     * when actually changing the low-level value to ensure consistency there.
+     * Reads, including snapshots, are not blocked by this; the low-level values
+     * are held in a concurrent map.
      * <p>
      * See {@link #getLockInternal()}
      */
@@ -114,21 +153,87 @@ public final class AttributeMap {
     }
     
     public Map<Collection<String>, Object> asRawMap() {
-        synchronized (values) {
-            return ImmutableMap.copyOf(values);
+        ImmutableMap.Builder<Collection<String>, Object> result = ImmutableMap.builder();
+        for (Map.Entry<String, Object> entry : snapshot().entrySet()) {
+            result.put(ImmutableList.copyOf(DOTS.split(entry.getKey())), entry.getValue());
         }
+        return result.build();
     }
 
+    /**
+     * A snapshot of the values, keyed by sensor name, in the order the sensors were first set.
+     * The result is unmodifiable, and may be shared with other callers.
+     */
     public Map<String, Object> asMap() {
-        Map<String, Object> result = Maps.newLinkedHashMap();
-        synchronized (values) {
-            for (Map.Entry<Collection<String>, Object> entry : values.entrySet()) {
-                String sensorName = Joiner.on('.').join(entry.getKey());
-                Object val = (isNull(entry.getValue())) ? null : entry.getValue();
-                result.put(sensorName, val);
+        return Collections.unmodifiableMap(Maps.transformValues(snapshot(), new Function<Object, Object>() {
+            @Override
+            public Object apply(Object input) {
+                return isNull(input) ? null : input;
+            }
+        }));
+    }
+    
+    /**
+     * Returns the values, reusing the last snapshot if nothing has changed since.
+     * Writers are not blocked; if they change values while the snapshot is being taken, it is retried.
+     */
+    private Map<String, Object> snapshot() {
+        Snapshot result = snapshot;
+        if (result != null && result.version == version.get()) {
+            return result.values;
+        }
+        for (int attempt = 1; ; attempt++) {
+            long before = version.get();
+            Map<String, Object> copy = Maps.newLinkedHashMap();
+            for (String name : names) {
+                Object val = values.get(name);
+                if (val != null) copy.put(name, val);
+            }
+            Map<String, Object> unmodifiableCopy = Collections.unmodifiableMap(copy);
+            if (version.get() == before) {
+                snapshot = new Snapshot(before, unmodifiableCopy);
+                return unmodifiableCopy;
+            }
+            if (attempt >= MAX_SNAPSHOT_ATTEMPTS) {
+                if (log.isTraceEnabled()) log.trace("attributes of {} changing while taking snapshot; using snapshot from attempt {}", entity, attempt);
+                return unmodifiableCopy;
             }
         }
-        return result;
+    }
+    
+    private static String toName(Collection<String> path) {
+        return JOIN_DOTS.join(path);
+    }
+    
+    /** Sets the raw value, returning the previous raw value (or null if there was none). */
+    private Object put(String name, Object val) {
+        Object oldValue = values.replace(name, val);
+        if (oldValue == null) {
+            synchronized (namesLock) {
+                oldValue = values.put(name, val);
+                if (oldValue == null) {
+                    names = ImmutableList.<String>builder().addAll(names).add(name.intern()).build();
+                }
+            }
+        }
+        version.incrementAndGet();
+        return oldValue;
+    }
+    
+    private Object removeName(String name) {
+        Object oldValue;
+        synchronized (namesLock) {
+            oldValue = values.remove(name);
+            if (oldValue != null) {
+                ImmutableList.Builder<String> newNames = ImmutableList.builder();
+                for (String n : names) {
+                    if (!n.equals(name)) newNames.add(n);
+                }
+                names = newNames.build();
+            }
+        }
+        version.incrementAndGet();
+        return oldValue;
     }
     
     /**
@@ -156,7 +261,7 @@ public final class AttributeMap {
         }
 
         @SuppressWarnings("unchecked")
-        T oldValue = (T) values.put(path, newValue);
+        T oldValue = (T) put(toName(path), newValue);
         return (isNull(oldValue)) ? null : oldValue;
     }
 
@@ -195,19 +300,18 @@ public final class AttributeMap {
     
     @Beta
     public <T> T updateInternalWithoutLockOrPublish(AttributeSensor<T> attribute, T newValue) {
-        synchronized (values) {
-            if (log.isTraceEnabled()) {
-                Object oldValue = getValue(attribute);
-                if (!Objects.equal(oldValue, newValue != null)) {
-                    log.trace("setting attribute {} to {} (was {}) on {}", new Object[] {attribute.getName(), newValue, oldValue, entity});
-                } else {
-                    log.trace("setting attribute {} to {} (unchanged) on {}", new Object[] {attribute.getName(), newValue, this});
-                }
+        if (log.isTraceEnabled()) {
+            Object oldValue = getValue(attribute);
+            if (!Objects.equal(oldValue, newValue != null)) {
+                log.trace("setting attribute {} to {} (was {}) on {}", new Object[] {attribute.getName(), newValue, oldValue, entity});
+            } else {
+                log.trace("setting attribute {} to {} (unchanged) on {}", new Object[] {attribute.getName(), newValue, this});
             }
-    
-            T oldValue = update(attribute.getNameParts(), newValue);
-            return (isNull(oldValue)) ? null : oldValue;
         }
+
+        @SuppressWarnings("unchecked")
+        T oldValue = (T) put(attribute.getName(), (newValue == null) ? typedNull() : newValue);
+        return (isNull(oldValue)) ? null : oldValue;
     }
 
     private <T> T withLock(Callable<T> body) { return Locks.withLock(getLockInternal(), body); }
@@ -243,7 +347,7 @@ public final class AttributeMap {
     public void remove(AttributeSensor<?> attribute) {
         BrooklynLogging.log(log, BrooklynLogging.levelDebugOrTraceIfReadOnly(entity),
             "removing attribute {} on {}", attribute.getName(), entity);
-        withLock(() -> remove(attribute.getNameParts()) );
+        withLock(() -> { removeName(attribute.getName()); } );
     }
 
     // TODO path must be ordered(and legal to contain duplicates like "a.b.a"; list would be better
@@ -257,7 +361,7 @@ public final class AttributeMap {
             log.trace("removing sensor {} for {}", new Object[] {path, entity});
         }
 
-        values.remove(path);
+        removeName(toName(path));
     }
 
     /**
@@ -271,13 +375,14 @@ public final class AttributeMap {
     @Deprecated
     public Object getValue(Collection<String> path) {
         checkPath(path);
-        Object result = values.get(path);
+        Object result = values.get(toName(path));
         return (isNull(result)) ? null : result;
     }
 
     @SuppressWarnings("unchecked")
     public <T> T getValue(AttributeSensor<T> sensor) {
-        return (T) TypeCoercions.coerce(getValue(sensor.getNameParts()), sensor.getType());
+        Object result = values.get(sensor.getName());
+        return (T) TypeCoercions.coerce((isNull(result)) ? null : result, sensor.getType());
     }
 
     @SuppressWarnings("unchecked")
@@ -44,6 +44,15 @@ public interface BrooklynMetrics extends Entity {
     public static final AttributeSensor<Long> NUM_ACTIVE_TASKS = new BasicAttributeSensor<Long>(
             Long.class, "brooklyn.metrics.numActiveTasks", "Number of currently active tasks being executed");
 
+    public static final AttributeSensor<Long> NUM_POOL_ACTIVE_THREADS = new BasicAttributeSensor<Long>(
+            Long.class, "brooklyn.metrics.numPoolActiveThreads", "Number of threads running tasks in bounded execution pools");
+
+    public static final AttributeSensor<Long> POOL_QUEUE_DEPTH = new BasicAttributeSensor<Long>(
+            Long.class, "brooklyn.metrics.poolQueueDepth", "Number of tasks waiting for a thread in bounded execution pools");
+
+    public static final AttributeSensor<Long> TOTAL_POOL_REJECTIONS = new BasicAttributeSensor<Long>(
+            Long.class, "brooklyn.metrics.totalPoolRejections", "Total number of tasks submitted when a bounded execution pool and its queue were full");
+
     public static final AttributeSensor<Long> TOTAL_EVENTS_PUBLISHED = new BasicAttributeSensor<Long>(
             Long.class, "brooklyn.metrics.totalEventsPublished", "Total number of events published");
     
@@ -52,4 +61,13 @@ public interface BrooklynMetrics extends Entity {
     
     public static final AttributeSensor<Long> NUM_SUBSCRIPTIONS = new BasicAttributeSensor<Long>(
             Long.class, "brooklyn.metrics.numSubscriptions", "Current number of event subscriptions");
+    
+    public static final AttributeSensor<Double> EVENTS_DELIVERED_PER_SECOND = new BasicAttributeSensor<Double>(
+            Double.class, "brooklyn.metrics.eventsDeliveredPerSecond", "Rate of events submitted for delivery, over the last update period");
+    
+    public static final AttributeSensor<Long> TOTAL_EVENTS_CONFLATED = new BasicAttributeSensor<Long>(
+            Long.class, "brooklyn.metrics.totalEventsConflated", "Total number of events replaced by newer values before delivery to conflating subscriptions");
+    
+    public static final AttributeSensor<Long> EVENT_DELIVERY_QUEUE_DEPTH = new BasicAttributeSensor<Long>(
+            Long.class, "brooklyn.metrics.eventDeliveryQueueDepth", "Number of events queued for batched delivery to subscribers");
 }
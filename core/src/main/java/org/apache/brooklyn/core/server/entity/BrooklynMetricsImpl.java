@@ -28,6 +28,7 @@ import org.apache.brooklyn.core.entity.AbstractEntity;
 import org.apache.brooklyn.core.mgmt.internal.LocalSubscriptionManager;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.util.core.task.BasicExecutionManager;
+import org.apache.brooklyn.util.core.task.ExecutionPool;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
@@ -35,6 +36,9 @@ public class BrooklynMetricsImpl extends AbstractEntity implements BrooklynMetri
 
     private ScheduledExecutorService executor;
     
+    private long lastEventsDelivered = -1;
+    private long lastEventsDeliveredTime;
+    
     public BrooklynMetricsImpl() {
     }
 
@@ -77,11 +81,29 @@ public class BrooklynMetricsImpl extends AbstractEntity implements BrooklynMetri
             sensors().set(TOTAL_TASKS_SUBMITTED, execManager.getTotalTasksSubmitted());
             sensors().set(NUM_INCOMPLETE_TASKS, execManager.getNumIncompleteTasks());
             sensors().set(NUM_ACTIVE_TASKS, execManager.getNumActiveTasks());
+            long poolActiveThreads = 0, poolQueueDepth = 0, poolRejections = 0;
+            for (ExecutionPool pool : execManager.getExecutionPools().values()) {
+                poolActiveThreads += pool.getActiveThreads();
+                poolQueueDepth += pool.getQueueDepth();
+                poolRejections += pool.getRejectedCount();
+            }
+            sensors().set(NUM_POOL_ACTIVE_THREADS, poolActiveThreads);
+            sensors().set(POOL_QUEUE_DEPTH, poolQueueDepth);
+            sensors().set(TOTAL_POOL_REJECTIONS, poolRejections);
         }
         if (subsManager != null) {
             sensors().set(TOTAL_EVENTS_PUBLISHED, subsManager.getTotalEventsPublished());
-            sensors().set(TOTAL_EVENTS_DELIVERED, subsManager.getTotalEventsDelivered());
+            long eventsDelivered = subsManager.getTotalEventsDelivered();
+            long now = System.currentTimeMillis();
+            sensors().set(TOTAL_EVENTS_DELIVERED, eventsDelivered);
             sensors().set(NUM_SUBSCRIPTIONS, subsManager.getNumSubscriptions());
+            sensors().set(TOTAL_EVENTS_CONFLATED, subsManager.getTotalEventsConflated());
+            sensors().set(EVENT_DELIVERY_QUEUE_DEPTH, subsManager.getDeliveryQueueDepth());
+            if (lastEventsDelivered >= 0 && now > lastEventsDeliveredTime) {
+                sensors().set(EVENTS_DELIVERED_PER_SECOND, 1000.0 * (eventsDelivered - lastEventsDelivered) / (now - lastEventsDeliveredTime));
+            }
+            lastEventsDelivered = eventsDelivered;
+            lastEventsDeliveredTime = now;
         }
     }
 }
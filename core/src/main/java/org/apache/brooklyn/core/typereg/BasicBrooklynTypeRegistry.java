@@ -19,10 +19,12 @@
 package org.apache.brooklyn.core.typereg;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
@@ -38,14 +40,17 @@ import org.apache.brooklyn.api.typereg.BrooklynTypeRegistry;
 import org.apache.brooklyn.api.typereg.RegisteredType;
 import org.apache.brooklyn.api.typereg.RegisteredType.TypeImplementationPlan;
 import org.apache.brooklyn.api.typereg.RegisteredTypeLoadingContext;
+import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.catalog.internal.BasicBrooklynCatalog;
 import org.apache.brooklyn.core.catalog.internal.CatalogItemBuilder;
 import org.apache.brooklyn.core.catalog.internal.CatalogUtils;
+import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.mgmt.ha.OsgiManager;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.core.typereg.BundleUpgradeParser.CatalogUpgrades;
 import org.apache.brooklyn.core.typereg.RegisteredTypes.RegisteredTypeNameThenBestFirstComparator;
 import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.concurrent.Locks;
@@ -56,6 +61,7 @@ import org.apache.brooklyn.util.osgi.VersionedName.VersionedNameStringComparator
 import org.apache.brooklyn.util.text.BrooklynVersionSyntax;
 import org.apache.brooklyn.util.text.Identifiers;
 import org.apache.brooklyn.util.text.Strings;
+import org.apache.brooklyn.util.text.VersionComparator;
 import org.osgi.framework.Bundle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,6 +70,7 @@ import com.google.common.annotations.Beta;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Ordering;
 
@@ -71,6 +78,14 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
 
     private static final Logger log = LoggerFactory.getLogger(BasicBrooklynTypeRegistry.class);
     
+    @Beta
+    public static final ConfigKey<Integer> SPEC_CACHE_MAX_SIZE = ConfigKeys.newIntegerConfigKey(
+        "brooklyn.typeRegistry.specCache.maxSize",
+        "Maximum number of specs created from plans to keep, so that deploying the same blueprint or instantiating "
+        + "the same type again does not re-parse and re-resolve the plan; cleared whenever types, bundles or locations change. "
+        + "0 (the default) disables the cache.",
+        0);
+
     private ManagementContext mgmt;
     private Map<String,Map<String,RegisteredType>> localRegisteredTypesAndContainingBundles = MutableMap.of();
     /**
@@ -84,8 +99,26 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
      */
     private ReadWriteLock localRegistryLock = new ReentrantReadWriteLock();
 
+    /**
+     * Secondary indexes of the IDs in {@link #localRegisteredTypesAndContainingBundles},
+     * so that lookups by name do not have to scan every type; guarded by {@link #localRegistryLock}.
+     * Iteration order of each set matches the order IDs appear in the main map.
+     */
+    private final Map<String,Set<String>> localIdsBySymbolicName = MutableMap.of();
+    private final Map<String,Set<String>> localIdsByAlias = MutableMap.of();
+    /**
+     * All local types with a given symbolic name, highest version first;
+     * populated on demand while holding the read lock, and entries discarded under the write lock whenever types of that name change.
+     * Not ordered by whether types are disabled or deprecated, as those can be changed in place (e.g. by {@link CatalogUtils#setDisabled(ManagementContext, String, boolean)});
+     * see {@link #getBestMatchingLocalBySymbolicName(String, Predicate)}.
+     */
+    private final Map<String,List<RegisteredType>> localTypesHighestVersionFirstBySymbolicName = new ConcurrentHashMap<>();
+
     private CatalogUpgrades catalogUpgrades;
 
+    /** created on first use, as config is not necessarily available when we are constructed */
+    private volatile Maybe<PlanSpecCache> specCache;
+
     public BasicBrooklynTypeRegistry(ManagementContext mgmt) {
         this.mgmt = mgmt;
     }
@@ -169,36 +202,42 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
             // didn't find exact so will search against osgi version
             versionCheck = RegisteredTypePredicates.versionOsgi(version);
         }
+        Predicate<RegisteredType> filter = Predicates.and(versionCheck, RegisteredTypePredicates.satisfies(context));
         
-        Iterable<RegisteredType> types = getMatching(Predicates.and(
-            RegisteredTypePredicates.symbolicName(symbolicNameOrAliasIfNoVersion),
-            versionCheck,
-            RegisteredTypePredicates.satisfies(context)));
-        
-        if (Iterables.isEmpty(types)) {
-            // look for alias if no exact symbolic name match AND no version is specified
-            types = getMatching(Predicates.and(
-                RegisteredTypePredicates.alias(symbolicNameOrAliasIfNoVersion),
-                versionCheck,
-                RegisteredTypePredicates.satisfies(context) ) );
-            // if there are multiple symbolic names then throw?
-            Set<String> uniqueSymbolicNames = MutableSet.of();
-            for (RegisteredType t: types) {
-                uniqueSymbolicNames.add(t.getSymbolicName());
-            }
-            if (uniqueSymbolicNames.size()>1) {
-                String message = "Multiple matches found for alias '"+symbolicNameOrAliasIfNoVersion+"': "+uniqueSymbolicNames+"; "
-                    + "refusing to select any.";
-                log.warn(message);
-                return Maybe.absent(message);
+        // equivalent to getMatching with a symbolic name predicate, but using the indexes
+        RegisteredType type = getBestMatchingLocalBySymbolicName(symbolicNameOrAliasIfNoVersion, filter);
+        List<RegisteredType> legacyTypes = getMatchingLegacyBySymbolicName(symbolicNameOrAliasIfNoVersion, filter);
+        if (!legacyTypes.isEmpty()) {
+            if (type!=null) {
+                Set<String> localIds = MutableSet.of();
+                for (RegisteredType t: getLocalHighestVersionFirstBySymbolicName(symbolicNameOrAliasIfNoVersion)) {
+                    if (filter.apply(t)) localIds.add(t.getId());
+                }
+                legacyTypes.removeIf(t -> localIds.contains(t.getId()));
+                legacyTypes.add(0, type);
             }
+            type = RegisteredTypes.getBestVersion(legacyTypes);
         }
+        if (type!=null) return Maybe.of(type);
         
-        if (!Iterables.isEmpty(types)) {
-            RegisteredType type = RegisteredTypes.getBestVersion(types);
-            if (type!=null) return Maybe.of(type);
+        // look for alias if no exact symbolic name match AND no version is specified
+        // (legacy catalog items do not have aliases)
+        Iterable<RegisteredType> types = Iterables.filter(getLocalByAlias(symbolicNameOrAliasIfNoVersion), filter);
+        // if there are multiple symbolic names then throw?
+        Set<String> uniqueSymbolicNames = MutableSet.of();
+        for (RegisteredType t: types) {
+            uniqueSymbolicNames.add(t.getSymbolicName());
+        }
+        if (uniqueSymbolicNames.size()>1) {
+            String message = "Multiple matches found for alias '"+symbolicNameOrAliasIfNoVersion+"': "+uniqueSymbolicNames+"; "
+                + "refusing to select any.";
+            log.warn(message);
+            return Maybe.absent(message);
         }
         
+        type = RegisteredTypes.getBestVersion(types);
+        if (type!=null) return Maybe.of(type);
+        
         // missing case is to look for exact version in legacy catalog
         CatalogItem<?, ?> item = mgmt.getCatalog().getCatalogItemLegacy(symbolicNameOrAliasIfNoVersion, version);
         if (item!=null) 
@@ -209,6 +248,113 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
             (contextFinal!=null ? " ("+contextFinal+")" : "") );
     }
 
+    private List<RegisteredType> getLocalHighestVersionFirstBySymbolicName(String symbolicName) {
+        return Locks.withLock(localRegistryLock.readLock(), () -> {
+            List<RegisteredType> result = localTypesHighestVersionFirstBySymbolicName.get(symbolicName);
+            if (result==null) {
+                result = Ordering.from((RegisteredType t1, RegisteredType t2) -> VersionComparator.INSTANCE.compare(t2.getVersion(), t1.getVersion()))
+                    .sortedCopy(getLocalTypesWithIds(localIdsBySymbolicName.get(symbolicName)));
+                // safe to cache as writers (which clear this) need the write lock
+                localTypesHighestVersionFirstBySymbolicName.put(symbolicName, result);
+            }
+            return result;
+        });
+    }
+
+    /** as {@link RegisteredTypes#getBestVersion(Iterable)} on the matching types, preferring those not disabled then those not deprecated */
+    private RegisteredType getBestMatchingLocalBySymbolicName(String symbolicName, Predicate<? super RegisteredType> filter) {
+        // list is sorted highest version first, and the sort is stable so ties are resolved as getBestVersion would
+        RegisteredType bestDeprecated = null;
+        RegisteredType bestDisabled = null;
+        for (RegisteredType t: getLocalHighestVersionFirstBySymbolicName(symbolicName)) {
+            if (!filter.apply(t)) continue;
+            if (t.isDisabled()) {
+                if (bestDisabled==null) bestDisabled = t;
+            } else if (t.isDeprecated()) {
+                if (bestDeprecated==null) bestDeprecated = t;
+            } else {
+                return t;
+            }
+        }
+        return bestDeprecated!=null ? bestDeprecated : bestDisabled;
+    }
+
+    private List<RegisteredType> getLocalByAlias(String alias) {
+        return Locks.withLock(localRegistryLock.readLock(), () -> getLocalTypesWithIds(localIdsByAlias.get(alias)));
+    }
+
+    /** caller must hold the read or write lock; returns types in the order {@link #getAllWithoutCatalog(Predicate)} would */
+    private List<RegisteredType> getLocalTypesWithIds(@Nullable Set<String> ids) {
+        if (ids==null) return MutableList.of();
+        Ordering<RegisteredType> typeOrder = Ordering.from(RegisteredTypeNameThenBestFirstComparator.INSTANCE);
+        List<RegisteredType> result = MutableList.of();
+        for (String id: ids) {
+            Map<String, RegisteredType> m = localRegisteredTypesAndContainingBundles.get(id);
+            if (m!=null) result.addAll(typeOrder.sortedCopy(m.values()));
+        }
+        return result;
+    }
+
+    @SuppressWarnings("deprecation")
+    private List<RegisteredType> getMatchingLegacyBySymbolicName(String symbolicName, Predicate<? super RegisteredType> filter) {
+        // compare names before converting, as most legacy items will not match
+        List<RegisteredType> result = MutableList.of();
+        Set<String> ids = MutableSet.of();
+        for (CatalogItem<?, ?> item: mgmt.getCatalog().getCatalogItemsLegacy()) {
+            if (symbolicName.equals(item.getSymbolicName())) {
+                RegisteredType rt = RegisteredTypes.CI_TO_RT.apply(item);
+                if (filter.apply(rt) && ids.add(rt.getId())) result.add(rt);
+            }
+        }
+        return result;
+    }
+
+    /** caller must hold the write lock; to be invoked after the types for the given ID have changed,
+     * with the aliases the types for that ID had before the change */
+    private void updateLocalIndexes(String id, String symbolicName, Set<String> oldAliases) {
+        localTypesHighestVersionFirstBySymbolicName.remove(symbolicName);
+        Map<String, RegisteredType> m = localRegisteredTypesAndContainingBundles.get(id);
+        Set<String> newAliases = getAliases(m==null ? null : m.values());
+        if (m==null) {
+            removeFromIndex(localIdsBySymbolicName, symbolicName, id);
+        } else {
+            addToIndex(localIdsBySymbolicName, symbolicName, id);
+        }
+        for (String alias: oldAliases) {
+            if (!newAliases.contains(alias)) removeFromIndex(localIdsByAlias, alias, id);
+        }
+        for (String alias: newAliases) {
+            addToIndex(localIdsByAlias, alias, id);
+        }
+    }
+
+    private static Set<String> getAliases(@Nullable Collection<RegisteredType> types) {
+        Set<String> result = MutableSet.of();
+        if (types!=null) {
+            for (RegisteredType t: types) {
+                if (t.getAliases()!=null) result.addAll(t.getAliases());
+            }
+        }
+        return result;
+    }
+
+    private static void addToIndex(Map<String,Set<String>> index, String key, String id) {
+        Set<String> ids = index.get(key);
+        if (ids==null) {
+            ids = MutableSet.of();
+            index.put(key, ids);
+        }
+        ids.add(id);
+    }
+
+    private static void removeFromIndex(Map<String,Set<String>> index, String key, String id) {
+        Set<String> ids = index.get(key);
+        if (ids!=null) {
+            ids.remove(id);
+            if (ids.isEmpty()) index.remove(key);
+        }
+    }
+
     @Override
     public RegisteredType get(String symbolicName, String version) {
         return getSingle(symbolicName, version, null).orNull();
@@ -286,7 +432,11 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
         }
         constraint = RegisteredTypeLoadingContexts.withSpecSuperType(constraint, specSuperType);
 
-        Maybe<Object> result = TypePlanTransformers.transform(mgmt, type, constraint);
+        RegisteredTypeLoadingContext constraintFinal = constraint;
+        Maybe<PlanSpecCache> cache = getSpecCache();
+        Maybe<Object> result = cache.isPresent()
+            ? cache.get().get(type, constraint, () -> TypePlanTransformers.transform(mgmt, type, constraintFinal))
+            : TypePlanTransformers.transform(mgmt, type, constraint);
         if (result.isPresent()) return (SpecT) result.get();
         
         // fallback: look up in (legacy) catalog
@@ -410,6 +560,7 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
                 if (knownMatchingTypesByBundles==null) {
                     knownMatchingTypesByBundles = MutableMap.of();
                     localRegisteredTypesAndContainingBundles.put(type.getId(), knownMatchingTypesByBundles);
+                    addToIndex(localIdsBySymbolicName, type.getSymbolicName(), type.getId());
                 }
 
                 Set<String> oldContainingBundlesToRemove = MutableSet.of();
@@ -458,11 +609,14 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
             
                 log.debug("Inserting "+type+" into "+this+
                     (oldContainingBundlesToRemove.isEmpty() ? "" : " (removing entry from "+oldContainingBundlesToRemove+")"));
+                Set<String> oldAliases = getAliases(knownMatchingTypesByBundles.values());
                 for (String oldContainingBundle: oldContainingBundlesToRemove) {
                     knownMatchingTypesByBundles.remove(oldContainingBundle);
                 }
                 knownMatchingTypesByBundles.put(type.getContainingBundle(), type);
+                updateLocalIndexes(type.getId(), type.getSymbolicName(), oldAliases);
             });
+        invalidateSpecCache();
     }
 
     private boolean isWrapperBundle(String bundleNameVersion) { 
@@ -571,12 +725,15 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
     public void delete(VersionedName type) {
         boolean changedLocally = Locks.withLock(localRegistryLock.writeLock(),
             () -> {
-                boolean changed = (localRegisteredTypesAndContainingBundles.remove(type.toString()) != null);
+                Map<String, RegisteredType> removed = localRegisteredTypesAndContainingBundles.remove(type.toString());
+                boolean changed = (removed != null);
                 if (changed) {
+                    updateLocalIndexes(type.toString(), type.getSymbolicName(), getAliases(removed.values()));
                     CatalogUpgrades.clearTypeInStoredUpgrades(mgmt, type);
                 }
                 return changed;
             });
+        if (changedLocally) invalidateSpecCache();
         legacyDelete(type, changedLocally);
     }
     
@@ -604,17 +761,20 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
             () -> {
                 Map<String, RegisteredType> m = localRegisteredTypesAndContainingBundles.get(type.getId());
                 if (m==null) return false;
+                Set<String> oldAliases = getAliases(m.values());
                 RegisteredType removedItem = m.remove(type.getContainingBundle());
                 if (m.isEmpty()) {
                     localRegisteredTypesAndContainingBundles.remove(type.getId());
                     CatalogUpgrades.clearTypeInStoredUpgrades(mgmt, type.getVersionedName());
                 }
+                updateLocalIndexes(type.getId(), type.getSymbolicName(), oldAliases);
                 if (removedItem==null) {
                     throw new NoSuchElementException("Requested to delete "+type+" from "+type.getContainingBundle()+", "
                         + "but that type was not known in that bundle, it is in "+m.keySet()+" instead");
                 }
                 return true;
             });
+        if (changedLocally) invalidateSpecCache();
         legacyDelete(type.getVersionedName(), changedLocally);
     }
     
@@ -628,8 +788,43 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
     public void clear() {
         Locks.withLock(localRegistryLock.writeLock(), () -> {
             localRegisteredTypesAndContainingBundles.clear();
+            localIdsBySymbolicName.clear();
+            localIdsByAlias.clear();
+            localTypesHighestVersionFirstBySymbolicName.clear();
             catalogUpgrades = null;
         });
+        invalidateSpecCache();
+    }
+
+    private Maybe<PlanSpecCache> getSpecCache() {
+        Maybe<PlanSpecCache> result = specCache;
+        if (result==null) {
+            synchronized (this) {
+                result = specCache;
+                if (result==null) {
+                    Integer maxSize = mgmt.getConfig().getConfig(SPEC_CACHE_MAX_SIZE);
+                    result = (maxSize!=null && maxSize>0) ? Maybe.of(new PlanSpecCache(maxSize)) : Maybe.<PlanSpecCache>absent();
+                    specCache = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Discards all specs cached from plans; invoked whenever types change here,
+     * and should be invoked by anything else which changes how plans resolve (e.g. the legacy catalog or named locations). */
+    @Beta
+    public void invalidateSpecCache() {
+        Maybe<PlanSpecCache> cache = specCache;
+        if (cache!=null && cache.isPresent()) cache.get().invalidate();
+    }
+
+    /** Statistics on the cache of specs created from plans (see {@link #SPEC_CACHE_MAX_SIZE}), 
+     * or absent if that cache is disabled. */
+    @Beta
+    public Maybe<CacheStats> getSpecCacheStats() {
+        Maybe<PlanSpecCache> cache = getSpecCache();
+        return cache.isPresent() ? Maybe.of(cache.get().getStats()) : Maybe.<CacheStats>absent("Spec cache disabled");
     }
 
     
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.typereg;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.internal.AbstractBrooklynObjectSpec;
+import org.apache.brooklyn.api.location.LocationSpec;
+import org.apache.brooklyn.api.mgmt.classloading.BrooklynClassLoadingContext;
+import org.apache.brooklyn.api.policy.PolicySpec;
+import org.apache.brooklyn.api.sensor.EnricherSpec;
+import org.apache.brooklyn.api.typereg.BrooklynTypeRegistry.RegisteredTypeKind;
+import org.apache.brooklyn.api.typereg.OsgiBundleWithUrl;
+import org.apache.brooklyn.api.typereg.RegisteredType;
+import org.apache.brooklyn.api.typereg.RegisteredTypeLoadingContext;
+import org.apache.brooklyn.core.catalog.internal.BasicBrooklynCatalog.BrooklynLoaderTracker;
+import org.apache.brooklyn.util.guava.Maybe;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+/**
+ * Caches the specs created from type plans, keyed on a hash of the plan text and on everything else
+ * which influences its resolution, so that repeatedly instantiating the same blueprint does not
+ * re-parse it and re-resolve its references.
+ * <p>
+ * Callers always get a copy (as per {@link EntitySpec#create(EntitySpec)}), so may customise the result.
+ * The cache must be {@link #invalidate() invalidated} whenever types, bundles or locations change,
+ * as any of those can affect the spec created from an unchanged plan.
+ */
+class PlanSpecCache {
+
+    private final Cache<Key, AbstractBrooklynObjectSpec<?,?>> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    PlanSpecCache(int maxSize) {
+        cache = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().build();
+    }
+
+    /**
+     * Returns a copy of the spec cached for the given type and context, or else creates it with the given
+     * supplier and caches it if successful. Plans which are not strings are never cached.
+     */
+    Maybe<Object> get(RegisteredType type, RegisteredTypeLoadingContext context, Supplier<Maybe<Object>> creator) {
+        Object planData = type.getPlan()==null ? null : type.getPlan().getPlanData();
+        if (!(planData instanceof String)) return creator.get();
+
+        Key key = new Key(type, (String) planData, context, BrooklynLoaderTracker.getLoader());
+        AbstractBrooklynObjectSpec<?,?> template = cache.getIfPresent(key);
+        if (template!=null) {
+            return Maybe.<Object>of(copy(template));
+        }
+
+        long generationBefore = generation.get();
+        Maybe<Object> result = creator.get();
+        if (result.isPresent() && result.get() instanceof AbstractBrooklynObjectSpec) {
+            AbstractBrooklynObjectSpec<?,?> spec = (AbstractBrooklynObjectSpec<?,?>) result.get();
+            AbstractBrooklynObjectSpec<?,?> copy = copy(spec);
+            if (copy!=null && generation.get()==generationBefore) {
+                // keep the one we created, and give the caller the copy
+                cache.put(key, spec);
+                // types may have changed while we were putting
+                if (generation.get()!=generationBefore) cache.invalidate(key);
+                return Maybe.<Object>of(copy);
+            }
+        }
+        return result;
+    }
+
+    void invalidate() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    CacheStats getStats() {
+        return cache.stats();
+    }
+
+    long size() {
+        return cache.size();
+    }
+
+    /** copies the spec, or returns null if it is not a type of spec which can be copied */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Nullable
+    static AbstractBrooklynObjectSpec<?,?> copy(AbstractBrooklynObjectSpec<?,?> spec) {
+        if (spec instanceof EntitySpec) return EntitySpec.create((EntitySpec) spec);
+        if (spec instanceof LocationSpec) return LocationSpec.create((LocationSpec) spec);
+        if (spec instanceof PolicySpec) return PolicySpec.create((PolicySpec) spec);
+        if (spec instanceof EnricherSpec) return EnricherSpec.create((EnricherSpec) spec);
+        return null;
+    }
+
+    private static class Key {
+        private final String typeId;
+        private final RegisteredTypeKind kind;
+        private final String containingBundle;
+        private final String displayName;
+        private final Set<Object> superTypes;
+        private final Collection<OsgiBundleWithUrl> libraries;
+        private final String planFormat;
+        private final HashCode planHash;
+        private final RegisteredTypeKind expectedKind;
+        private final Class<?> expectedJavaSuperType;
+        private final Set<String> alreadyEncounteredTypes;
+        private final BrooklynClassLoadingContext loader;
+        private final BrooklynClassLoadingContext threadLocalLoader;
+        private final int hashCode;
+
+        Key(RegisteredType type, String plan, @Nullable RegisteredTypeLoadingContext context, @Nullable BrooklynClassLoadingContext threadLocalLoader) {
+            typeId = type.getId();
+            kind = type.getKind();
+            containingBundle = type.getContainingBundle();
+            displayName = type.getDisplayName();
+            superTypes = type.getSuperTypes();
+            libraries = type.getLibraries();
+            planFormat = type.getPlan().getPlanFormat();
+            planHash = Hashing.sha256().hashString(plan, StandardCharsets.UTF_8);
+            expectedKind = context==null ? null : context.getExpectedKind();
+            expectedJavaSuperType = context==null ? null : context.getExpectedJavaSuperType();
+            alreadyEncounteredTypes = context==null ? null : context.getAlreadyEncounteredTypes();
+            loader = context==null ? null : context.getLoader();
+            this.threadLocalLoader = threadLocalLoader;
+            hashCode = Objects.hash(typeId, containingBundle, planFormat, planHash, expectedJavaSuperType, alreadyEncounteredTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this==obj) return true;
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return hashCode==other.hashCode
+                && Objects.equals(planHash, other.planHash)
+                && Objects.equals(planFormat, other.planFormat)
+                && Objects.equals(typeId, other.typeId)
+                && kind==other.kind
+                && Objects.equals(containingBundle, other.containingBundle)
+                && Objects.equals(displayName, other.displayName)
+                && Objects.equals(superTypes, other.superTypes)
+                && Objects.equals(libraries, other.libraries)
+                && expectedKind==other.expectedKind
+                && Objects.equals(expectedJavaSuperType, other.expectedJavaSuperType)
+                && Objects.equals(alreadyEncounteredTypes, other.alreadyEncounteredTypes)
+                && Objects.equals(loader, other.loader)
+                && Objects.equals(threadLocalLoader, other.threadLocalLoader);
+        }
+    }
+}
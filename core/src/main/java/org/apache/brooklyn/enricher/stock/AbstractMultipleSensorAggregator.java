@@ -31,10 +31,14 @@ import org.apache.brooklyn.api.sensor.SensorEventListener;
 import org.apache.brooklyn.core.BrooklynLogging;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.flags.TypeCoercions;
+import org.apache.brooklyn.util.guava.Maybe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
 
 /** Building on {@link AbstractAggregator} for a single source sensor (on multiple children and/or members) */
 public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggregator<Object,U> implements SensorEventListener<Object> {
@@ -43,6 +47,10 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
 
     /** access via {@link #getValues(Sensor)} */
     private final Map<String, Map<Entity,Object>> values = Collections.synchronizedMap(new LinkedHashMap<String, Map<Entity,Object>>());
+    
+    /** for each sensor, the number of producers reporting each (coerced) value; guarded by synchronizing on {@link #values}; 
+     * access via {@link #getValueCounts(Sensor)} */
+    private final Map<String, Multiset<Object>> valueCounts = MutableMap.of();
 
     public AbstractMultipleSensorAggregator() { }
 
@@ -100,7 +108,10 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
                     } else {
                         initialVal = null;
                     }
-                    vs.put(producer, initialVal != null ? initialVal : defaultMemberValue);
+                    boolean hadOldValue = vs.containsKey(producer);
+                    Object newValue = initialVal != null ? initialVal : defaultMemberValue;
+                    vs.put(producer, newValue);
+                    updateValueCounts(sensor, hadOldValue, null, true, newValue);
                     // there may be sensor events older than initialVal because this is run in 
                     // the _parents_ synched subscription block.  we live with this for now,
                     // as those sensor events will catch up, but val here might see
@@ -118,8 +129,8 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
         synchronized (values) {
             for (Sensor<?> sensor: getSourceSensors()) {
                 Map<Entity,Object> vs = values.get(sensor.getName());
-                if (vs!=null)
-                    vs.remove(producer);
+                if (vs!=null && vs.containsKey(producer))
+                    updateValueCounts(sensor, true, vs.remove(producer), false, null);
             }
         }
         onUpdated();
@@ -134,13 +145,52 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
                 if (vs==null) {
                     LOG.debug(this+" received event when no entry for sensor ("+event+"); likely just added or removed, and will initialize subsequently if needed");
                 } else {
-                    vs.put(e, event.getValue());
+                    boolean hadOldValue = vs.containsKey(e);
+                    updateValueCounts(event.getSensor(), hadOldValue, vs.put(e, event.getValue()), true, event.getValue());
                 }
             }
             onUpdated();
         }
     }
 
+    private void updateValueCounts(Sensor<?> sensor, boolean hadOldValue, Object oldValue, boolean hasNewValue, Object newValue) {
+        Multiset<Object> counts = valueCounts.get(sensor.getName());
+        if (counts==null) {
+            counts = HashMultiset.create();
+            valueCounts.put(sensor.getName(), counts);
+        }
+        if (hadOldValue) counts.remove(coerceForCount(oldValue, sensor.getType()));
+        if (hasNewValue) counts.add(coerceForCount(newValue, sensor.getType()));
+    }
+    
+    private Object coerceForCount(Object value, Class<?> type) {
+        // as getValues, but tolerating values which cannot be coerced (for which getValues will fail)
+        Maybe<?> coerced = TypeCoercions.tryCoerce(value, type);
+        return coerced.isPresent() ? coerced.get() : value;
+    }
+    
+    /**
+     * The number of producers reporting each value of the given sensor (coerced to the sensor's type, as for {@link #getValues(Sensor)}).
+     * This is maintained as values change, so is cheap when there are few distinct values (such as booleans or
+     * {@link org.apache.brooklyn.core.entity.lifecycle.Lifecycle}), allowing aggregations which just need counts
+     * to avoid copying and iterating over the values of all producers.
+     */
+    @Beta
+    public <T> Map<T,Integer> getValueCounts(Sensor<T> sensor) {
+        synchronized (values) {
+            Map<T,Integer> result = MutableMap.of();
+            Multiset<Object> counts = valueCounts.get(sensor.getName());
+            if (counts!=null) {
+                for (Multiset.Entry<Object> entry : counts.entrySet()) {
+                    @SuppressWarnings("unchecked")
+                    T value = (T) entry.getElement();
+                    result.put(value, entry.getCount());
+                }
+            }
+            return result;
+        }
+    }
+
     public <T> Map<Entity,T> getValues(Sensor<T> sensor) {
         Map<Entity, T> valuesCopy = copyValues(sensor);
         return coerceValues(valuesCopy, sensor.getType());
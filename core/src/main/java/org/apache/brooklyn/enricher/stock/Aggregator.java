@@ -92,6 +92,13 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
      */
     // We use a synchronizedMap over a ConcurrentHashMap for entities that store null values.
     protected final Map<Entity, T> values = Collections.synchronizedMap(new LinkedHashMap<Entity, T>());
+    
+    /**
+     * If the transformation is an {@link IncrementalAggregation}, the running aggregate of the (filtered) {@link #values},
+     * updated as each value changes so that {@link #compute()} need not re-apply the transformation to every value;
+     * otherwise null. Guarded by synchronizing on {@link #values}.
+     */
+    private IncrementalAggregation.Accumulator<?> accumulator;
 
     public Aggregator() {}
 
@@ -122,6 +129,22 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         } else if (t1!=null && !Objects.equals(t2, this.transformation)) {
             throw new IllegalStateException("Cannot supply both "+TRANSFORMATION_UNTYPED+" and "+TRANSFORMATION+" unless they are equal.");
         }
+        
+        synchronized (values) {
+            accumulator = (transformation instanceof IncrementalAggregation) ? ((IncrementalAggregation<?>)transformation).newAccumulator() : null;
+            if (accumulator!=null) {
+                for (T v : values.values()) {
+                    updateAccumulator(false, null, true, v);
+                }
+            }
+        }
+    }
+    
+    /** updates the {@link #accumulator}, if there is one, for a change in a producer's value; caller must synchronize on {@link #values} */
+    private void updateAccumulator(boolean hadOldValue, T oldValue, boolean hasNewValue, T newValue) {
+        if (accumulator==null) return;
+        if (hadOldValue && valueFilter.apply(oldValue)) accumulator.remove(oldValue);
+        if (hasNewValue && valueFilter.apply(newValue)) accumulator.add(newValue);
     }
         
     @SuppressWarnings({ "rawtypes", "unchecked" })
@@ -203,7 +226,10 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
                 } else {
                     initialVal = null;
                 }
-                values.put(producer, initialVal != null ? initialVal : defaultMemberValue);
+                boolean hadOldValue = values.containsKey(producer);
+                T newValue = initialVal != null ? initialVal : defaultMemberValue;
+                values.put(producer, newValue);
+                updateAccumulator(hadOldValue, null, true, newValue);
                 //we might skip in onEvent in the short window while !values.containsKey(producer)
                 //but that's okay because the put which would have been done there is done here now
             } else {
@@ -216,7 +242,11 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     
     @Override
     protected void onProducerRemoved(Entity producer) {
-        values.remove(producer);
+        synchronized (values) {
+            if (values.containsKey(producer)) {
+                updateAccumulator(true, values.remove(producer), false, null);
+            }
+        }
         onUpdated();
     }
 
@@ -225,7 +255,8 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         Entity e = event.getSource();
         synchronized (values) {
             if (values.containsKey(e)) {
-                values.put(e, event.getValue());
+                T newValue = event.getValue();
+                updateAccumulator(true, values.put(e, newValue), true, newValue);
             } else {
                 if (LOG.isDebugEnabled()) LOG.debug("{} received event for unknown producer ({}); presumably that producer has recently been removed", this, e);
             }
@@ -246,6 +277,7 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     @Override
     protected Object compute() {
         synchronized (values) {
+            if (accumulator!=null) return accumulator.get();
             // TODO Could avoid copying when filter not needed
             List<T> vs = MutableList.copyOf(Iterables.filter(values.values(), valueFilter));
             if (transformation==null) return vs;
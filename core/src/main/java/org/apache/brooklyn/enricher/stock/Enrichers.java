@@ -263,7 +263,7 @@ public class Enrichers {
                 @SuppressWarnings({ "unchecked", "rawtypes" })
                 public Function<? super Collection<S>, ? extends T> get() {
                     // relies on TypeCoercion of result from Number to T, and type erasure for us to get away with it!
-                    return new ComputingSum((Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, publishing.getTypeToken());
+                    return (Function) MathAggregatorFunctions.computingSum((Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, (TypeToken) publishing.getTypeToken());
                 }
             };
             return self();
@@ -274,7 +274,7 @@ public class Enrichers {
                 @SuppressWarnings({ "unchecked", "rawtypes" })
                 public Function<? super Collection<S>, ? extends T> get() {
                     // relies on TypeCoercion of result from Number to T, and type erasure for us to get away with it!
-                    return new ComputingAverage((Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, publishing.getTypeToken());
+                    return (Function) MathAggregatorFunctions.computingAverage((Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, (TypeToken) publishing.getTypeToken());
                 }
             };
             return self();
@@ -938,7 +938,7 @@ public class Enrichers {
     }
     
     @Beta
-    public static class ComputingIsQuorate<T> implements Function<Collection<Boolean>, Boolean> {
+    public static class ComputingIsQuorate<T> implements Function<Collection<Boolean>, Boolean>, IncrementalAggregation<Boolean> {
         protected final TypeToken<T> typeToken;
         protected final QuorumCheck quorumCheck;
         protected final int totalSize;
@@ -967,6 +967,22 @@ public class Enrichers {
 
             return Boolean.valueOf(quorumCheck.isQuorate(numTrue, totalSize));
         }
+
+        @Override
+        public Accumulator<Boolean> newAccumulator() {
+            return new Accumulator<Boolean>() {
+                private int numTrue;
+                @Override public void add(Object value) {
+                    if (Boolean.TRUE.equals(value)) numTrue++;
+                }
+                @Override public void remove(Object value) {
+                    if (Boolean.TRUE.equals(value)) numTrue--;
+                }
+                @Override public Boolean get() {
+                    return Boolean.valueOf(quorumCheck.isQuorate(numTrue, totalSize));
+                }
+            };
+        }
     }
 
     private static <T> Map<T,T> newIdentityMap(Set<T> keys) {
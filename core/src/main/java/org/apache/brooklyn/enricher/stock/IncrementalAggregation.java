@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.enricher.stock;
+
+import javax.annotation.Nullable;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Implemented by aggregating functions (a function from a collection of values to a single value)
+ * which can also maintain their result as values are added and removed,
+ * so that an {@link Aggregator} need not re-apply the function to every member's value on each change.
+ * <p>
+ * The result of an {@link Accumulator} must be the same as applying the function to the values added
+ * (and not removed), though for floating point arithmetic it may differ in rounding.
+ */
+@Beta
+public interface IncrementalAggregation<T> {
+
+    /** A running aggregation, not thread-safe; callers synchronize as for the values themselves. */
+    @Beta
+    public interface Accumulator<T> {
+        void add(@Nullable Object value);
+        /** removes a value previously {@link #add(Object) added} */
+        void remove(@Nullable Object value);
+        T get();
+    }
+
+    /** a new, empty accumulator; or null if this instance cannot aggregate incrementally */
+    @Nullable
+    Accumulator<T> newAccumulator();
+
+}
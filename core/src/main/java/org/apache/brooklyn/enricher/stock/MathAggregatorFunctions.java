@@ -18,6 +18,7 @@
  */
 package org.apache.brooklyn.enricher.stock;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -31,6 +32,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
+import com.google.common.collect.TreeMultiset;
 import com.google.common.reflect.TypeToken;
 
 @Beta
@@ -113,7 +115,7 @@ public class MathAggregatorFunctions {
     }
 
     @Beta
-    protected abstract static class BasicComputingNumber<T extends Number> extends AbstractComputingNumber<T> {
+    protected abstract static class BasicComputingNumber<T extends Number> extends AbstractComputingNumber<T> implements IncrementalAggregation<T> {
         private boolean loggedNonNumber;
         
         public BasicComputingNumber(Number defaultValueForUnreportedSensors, Number valueToReportIfNoSensors, TypeToken<T> typeToken) {
@@ -123,42 +125,177 @@ public class MathAggregatorFunctions {
         @Override
         public T apply(@Nullable Collection<? extends Number> vals) {
             List<Number> postProcessedVals = new ArrayList<>();
-            int count = 0;
             boolean hasNonNumber = false;
             if (vals != null) {
                 for (Object val : vals) {
                     Maybe<Number> coercedVal = TypeCoercions.tryCoerce(val, Number.class);
-                    if (coercedVal.isPresentAndNonNull()) {
-                        postProcessedVals.add(coercedVal.get());
-                        count++;
-                    } else {
-                        if (val != null) {
-                            // This function is used for example in an enricher, to compute an aggregated value.
-                            // Log at warn only once per enricher if we have a non-number; but if things go back to healthy
-                            // (i.e. no non-numbers) then we'll log again at warn next time.
-                            hasNonNumber = true;
-                            if (loggedNonNumber) {
-                                if (LOG.isTraceEnabled()) LOG.trace("Input to numeric aggregator is not a number (again): "+val+" ("+val.getClass()+")");
-                            } else {
-                                loggedNonNumber = true;
-                                LOG.warn("Input to numeric aggregator is not a number: "+val+" ("+val.getClass()+")");
-                            }
-                        }
-                        if (defaultValueForUnreportedSensors != null) {
-                            postProcessedVals.add(defaultValueForUnreportedSensors);
-                            count++;
-                        }
+                    if (isNonNumber(val, coercedVal)) {
+                        hasNonNumber = true;
+                        logNonNumber(val);
                     }
+                    Number n = toNumber(coercedVal);
+                    if (n != null) postProcessedVals.add(n);
                 }
             }
             if (!hasNonNumber) loggedNonNumber = false;
-            if (count==0) return cast(valueToReportIfNoSensors, typeToken);
+            if (postProcessedVals.isEmpty()) return cast(valueToReportIfNoSensors, typeToken);
             
             Number result = applyImpl(postProcessedVals);
             return cast(result, typeToken);
         }
         
+        /** the number to aggregate for the given value (once coerced), or null if it should be ignored */
+        @Nullable
+        private Number toNumber(Maybe<Number> coercedVal) {
+            if (coercedVal.isPresentAndNonNull()) return coercedVal.get();
+            return defaultValueForUnreportedSensors;
+        }
+        
+        private boolean isNonNumber(@Nullable Object val, Maybe<Number> coercedVal) {
+            return val != null && !coercedVal.isPresentAndNonNull();
+        }
+        
+        protected void logNonNumber(Object val) {
+            // This function is used for example in an enricher, to compute an aggregated value.
+            // Log at warn only once per enricher if we have a non-number; but if things go back to healthy
+            // (i.e. no non-numbers) then we'll log again at warn next time.
+            if (loggedNonNumber) {
+                if (LOG.isTraceEnabled()) LOG.trace("Input to numeric aggregator is not a number (again): "+val+" ("+val.getClass()+")");
+            } else {
+                loggedNonNumber = true;
+                LOG.warn("Input to numeric aggregator is not a number: "+val+" ("+val.getClass()+")");
+            }
+        }
+        
         public abstract Number applyImpl(Collection<Number> vals);
+        
+        /**
+         * For subclasses which can aggregate incrementally, a new running aggregation of the numbers;
+         * returns null by default, in which case {@link #newAccumulator()} returns null.
+         */
+        @Nullable
+        protected NumberAccumulator newNumberAccumulator() {
+            return null;
+        }
+        
+        @Override
+        public Accumulator<T> newAccumulator() {
+            final NumberAccumulator numbers = newNumberAccumulator();
+            if (numbers == null) return null;
+            return new Accumulator<T>() {
+                private int nonNumbers;
+                
+                @Override
+                public void add(Object val) {
+                    Maybe<Number> coercedVal = TypeCoercions.tryCoerce(val, Number.class);
+                    if (isNonNumber(val, coercedVal)) {
+                        nonNumbers++;
+                        logNonNumber(val);
+                    }
+                    Number n = toNumber(coercedVal);
+                    if (n != null) numbers.add(n.doubleValue());
+                }
+                
+                @Override
+                public void remove(Object val) {
+                    Maybe<Number> coercedVal = TypeCoercions.tryCoerce(val, Number.class);
+                    if (isNonNumber(val, coercedVal) && --nonNumbers == 0) {
+                        loggedNonNumber = false;
+                    }
+                    Number n = toNumber(coercedVal);
+                    if (n != null) numbers.remove(n.doubleValue());
+                }
+                
+                @Override
+                public T get() {
+                    if (numbers.count() == 0) return cast(valueToReportIfNoSensors, typeToken);
+                    return cast(numbers.get(), typeToken);
+                }
+            };
+        }
+    }
+
+    /** Running aggregation of numbers (as doubles) for {@link BasicComputingNumber#newNumberAccumulator()} */
+    @Beta
+    protected abstract static class NumberAccumulator {
+        private int count;
+        
+        public void add(double val) {
+            count++;
+            addImpl(val);
+        }
+        public void remove(double val) {
+            count--;
+            removeImpl(val);
+        }
+        public int count() {
+            return count;
+        }
+        protected abstract void addImpl(double val);
+        protected abstract void removeImpl(double val);
+        /** the aggregate, only called when {@link #count()} is positive */
+        public abstract Number get();
+    }
+
+    /**
+     * Maintains the sum exactly (as a {@link BigDecimal}, so there is no drift from repeated addition and removal),
+     * with infinite and NaN values counted separately as they cannot be represented.
+     */
+    @Beta
+    protected static class SumAccumulator extends NumberAccumulator {
+        private BigDecimal sum = BigDecimal.ZERO;
+        private int nans, positiveInfinities, negativeInfinities;
+        
+        @Override
+        protected void addImpl(double val) {
+            update(val, 1);
+        }
+        @Override
+        protected void removeImpl(double val) {
+            update(val, -1);
+        }
+        private void update(double val, int delta) {
+            if (Double.isNaN(val)) nans += delta;
+            else if (val == Double.POSITIVE_INFINITY) positiveInfinities += delta;
+            else if (val == Double.NEGATIVE_INFINITY) negativeInfinities += delta;
+            else if (delta > 0) sum = sum.add(new BigDecimal(val));
+            else sum = sum.subtract(new BigDecimal(val));
+        }
+        @Override
+        public Number get() {
+            if (nans > 0 || (positiveInfinities > 0 && negativeInfinities > 0)) return Double.NaN;
+            if (positiveInfinities > 0) return Double.POSITIVE_INFINITY;
+            if (negativeInfinities > 0) return Double.NEGATIVE_INFINITY;
+            return sum.doubleValue();
+        }
+    }
+
+    /** Maintains the values in sorted order, so the min or max is available in O(log n) */
+    @Beta
+    protected static class ExtremeAccumulator extends NumberAccumulator {
+        private final boolean max;
+        private final TreeMultiset<Double> values = TreeMultiset.create();
+        private int nans;
+        
+        public ExtremeAccumulator(boolean max) {
+            this.max = max;
+        }
+        @Override
+        protected void addImpl(double val) {
+            if (Double.isNaN(val)) nans++;
+            else values.add(val);
+        }
+        @Override
+        protected void removeImpl(double val) {
+            if (Double.isNaN(val)) nans--;
+            else values.remove(val);
+        }
+        @Override
+        public Number get() {
+            // as Math.min and Math.max, any NaN gives NaN
+            if (nans > 0) return Double.NaN;
+            return max ? values.lastEntry().getElement() : values.firstEntry().getElement();
+        }
     }
 
     @Beta
@@ -174,6 +311,10 @@ public class MathAggregatorFunctions {
             }
             return result;
         }
+        @Override
+        protected NumberAccumulator newNumberAccumulator() {
+            return new SumAccumulator();
+        }
     }
 
     @Beta
@@ -189,6 +330,15 @@ public class MathAggregatorFunctions {
             }
             return (sum / vals.size());
         }
+        @Override
+        protected NumberAccumulator newNumberAccumulator() {
+            return new SumAccumulator() {
+                @Override
+                public Number get() {
+                    return super.get().doubleValue() / count();
+                }
+            };
+        }
     }
 
     @Beta
@@ -204,6 +354,10 @@ public class MathAggregatorFunctions {
             }
             return result;
         }
+        @Override
+        protected NumberAccumulator newNumberAccumulator() {
+            return new ExtremeAccumulator(false);
+        }
     }
 
     @Beta
@@ -219,6 +373,10 @@ public class MathAggregatorFunctions {
             }
             return result;
         }
+        @Override
+        protected NumberAccumulator newNumberAccumulator() {
+            return new ExtremeAccumulator(true);
+        }
     }
 
     protected static <N extends Number> N cast(Number n, TypeToken<? extends N> numberType) {
@@ -18,15 +18,13 @@
  */
 package org.apache.brooklyn.enricher.stock;
 
-import java.util.Iterator;
-import java.util.LinkedList;
-
 import org.apache.brooklyn.api.catalog.Catalog;
 import org.apache.brooklyn.api.entity.EntityLocal;
 import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.util.collections.TimeWindowedNumbers;
 import org.apache.brooklyn.util.time.Duration;
 
 import com.google.common.base.Function;
@@ -84,8 +82,8 @@ public class YamlRollingTimeWindowMeanEnricher<T extends Number> extends Abstrac
         
     }
     
-    private final LinkedList<T> values = new LinkedList<T>();
-    private final LinkedList<Long> timestamps = new LinkedList<Long>();
+    /** the samples, keeping one value from before the period so that we can tell the window's start time */
+    private TimeWindowedNumbers values;
     volatile ConfidenceQualifiedNumber lastAverage = new ConfidenceQualifiedNumber(0d,0d);
     
     @Override
@@ -105,8 +103,7 @@ public class YamlRollingTimeWindowMeanEnricher<T extends Number> extends Abstrac
                 if (event.getValue()==null) {
                     return null;
                 }
-                values.addLast(event.getValue());
-                timestamps.addLast(eventTime);
+                getValues().add(event.getValue(), eventTime);
                 if (eventTime>0) {
                     ConfidenceQualifiedNumber average = getAverage(eventTime, 0);
 
@@ -125,22 +122,28 @@ public class YamlRollingTimeWindowMeanEnricher<T extends Number> extends Abstrac
     }
     
     public ConfidenceQualifiedNumber getAverage(long fromTime, long graceAllowed) {
-        if (timestamps.isEmpty()) {
-            return lastAverage = new ConfidenceQualifiedNumber(lastAverage.value, 0.0d);
+        TimeWindowedNumbers values = getValues();
+        synchronized (values) {
+            return lastAverage = computeAverage(values, fromTime, graceAllowed);
+        }
+    }
+
+    private ConfidenceQualifiedNumber computeAverage(TimeWindowedNumbers values, long fromTime, long graceAllowed) {
+        if (values.isEmpty()) {
+            return new ConfidenceQualifiedNumber(lastAverage.value, 0.0d);
         }
         
         long firstTimestamp = -1;
-        Iterator<Long> ti = timestamps.iterator();
-        while (ti.hasNext()) {
-            firstTimestamp = ti.next();
+        for (int i = 0; i < values.size(); i++) {
+            firstTimestamp = values.getTimestamp(i);
             if (firstTimestamp>0) break;
         }
         if (firstTimestamp<=0) {
             // no values with reasonable timestamps
-            return lastAverage = new ConfidenceQualifiedNumber(values.get(values.size()-1).doubleValue(), 0.0d);
+            return new ConfidenceQualifiedNumber(values.getLatestValue(), 0.0d);
         }
 
-        long lastTimestamp = timestamps.get(timestamps.size()-1);
+        long lastTimestamp = values.getLatestTimestamp();
 
         long now = fromTime;
         if (lastTimestamp > fromTime - graceAllowed) {
@@ -148,47 +151,40 @@ public class YamlRollingTimeWindowMeanEnricher<T extends Number> extends Abstrac
             // we treat X seconds as time for which we have no confidence in the data
             now = lastTimestamp;
         }
-        pruneValues(now);
+        values.pruneValues(now);
         
-        Duration timePeriod = getConfig(WINDOW_DURATION);
+        Duration timePeriod = values.getTimePeriod();
         long windowStart = Math.max(now-timePeriod.toMilliseconds(), firstTimestamp);
         long windowEnd = Math.max(now-timePeriod.toMilliseconds(), lastTimestamp);
         Double confidence = ((double)(windowEnd - windowStart)) / timePeriod.toMilliseconds();
         if (confidence <= 0.0000001d) {
             // not enough timestamps in window 
-            double lastValue = values.get(values.size()-1).doubleValue();
-            return lastAverage = new ConfidenceQualifiedNumber(lastValue, 0.0d);
+            return new ConfidenceQualifiedNumber(values.getLatestValue(), 0.0d);
         }
         
         long start = windowStart;
         long end;
         double weightedAverage = 0.0d;
         
-        Iterator<T> valuesIter = values.iterator();
-        Iterator<Long> timestampsIter = timestamps.iterator();
-        while (valuesIter.hasNext()) {
+        for (int i = 0; i < values.size(); i++) {
             // Ignores null and out-of-date values (and also values that are received out-of-order, but that shouldn't happen!)
-            Number val = valuesIter.next();
-            Long timestamp = timestampsIter.next();
-            if (val!=null && timestamp >= start) {
+            double val = values.getValue(i);
+            long timestamp = values.getTimestamp(i);
+            if (!Double.isNaN(val) && timestamp >= start) {
                 end = timestamp;
-                weightedAverage += ((end - start) / (confidence * timePeriod.toMilliseconds())) * val.doubleValue();
+                weightedAverage += ((end - start) / (confidence * timePeriod.toMilliseconds())) * val;
                 start = timestamp;
             }
         }
         
-        return lastAverage = new ConfidenceQualifiedNumber(weightedAverage, confidence);
+        return new ConfidenceQualifiedNumber(weightedAverage, confidence);
     }
     
-    /**
-     * Discards out-of-date values, but keeps at least one value.
-     */
-    private void pruneValues(long now) {
-        // keep one value from before the period, so that we can tell the window's start time
-        Duration timePeriod = getConfig(WINDOW_DURATION);
-        while(timestamps.size() > 1 && timestamps.get(1) < (now - timePeriod.toMilliseconds())) {
-            timestamps.removeFirst();
-            values.removeFirst();
+    private synchronized TimeWindowedNumbers getValues() {
+        if (values == null) {
+            values = new TimeWindowedNumbers(getConfig(WINDOW_DURATION), 1, 1);
         }
+        values.setTimePeriod(getConfig(WINDOW_DURATION));
+        return values;
     }
 }
@@ -46,14 +46,17 @@ import org.apache.brooklyn.core.feed.Poller;
 import org.apache.brooklyn.core.location.Locations;
 import org.apache.brooklyn.core.location.Machines;
 import org.apache.brooklyn.core.location.internal.LocationInternal;
+import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.executor.HttpExecutorFactory;
 import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.http.HttpToolResponse;
+import org.apache.brooklyn.util.http.executor.AsyncHttpExecutor;
 import org.apache.brooklyn.util.http.executor.HttpConfig;
 import org.apache.brooklyn.util.http.executor.HttpExecutor;
 import org.apache.brooklyn.util.http.executor.HttpRequest;
 import org.apache.brooklyn.util.http.executor.HttpResponse;
 import org.apache.brooklyn.util.http.auth.UsernamePassword;
+import org.apache.brooklyn.util.http.executor.apacheclient.AsyncHttpExecutorImpl;
 import org.apache.brooklyn.util.http.executor.apacheclient.HttpExecutorImpl;
 import org.apache.brooklyn.util.stream.Streams;
 import org.apache.brooklyn.util.time.Duration;
@@ -62,6 +65,8 @@ import org.apache.http.auth.UsernamePasswordCredentials;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.base.Optional;
 import com.google.common.base.Supplier;
@@ -76,6 +81,8 @@ import com.google.common.collect.Sets;
 import com.google.common.io.BaseEncoding;
 import com.google.common.io.ByteStreams;
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * Provides a feed of attribute values, by polling over http.
@@ -147,6 +154,7 @@ public class HttpFeed extends AbstractFeed {
         private Credentials credentials;
         private String uniqueTag;
         private HttpExecutor httpExecutor;
+        private boolean async = false;
         private Boolean preemptiveBasicAuth;
         private volatile boolean built;
 
@@ -236,6 +244,20 @@ public class HttpFeed extends AbstractFeed {
             this.httpExecutor = val;
             return this;
         }
+        /** @see #async(boolean) */
+        @Beta
+        public Builder async() { return async(true); }
+        /**
+         * Whether to poll without blocking a thread while waiting for each response, with connections
+         * pooled and reused across all such feeds (see {@link AsyncHttpExecutorImpl#shared()}).
+         * Has no effect if an {@link #httpExecutor(HttpExecutor)} is given, or supplied by the location;
+         * polls are non-blocking whenever the executor is an {@link AsyncHttpExecutor}.
+         */
+        @Beta
+        public Builder async(boolean val) {
+            this.async = val;
+            return this;
+        }
         public Map<String, String> buildBaseHeaders() {
             if (Boolean.TRUE.equals(preemptiveBasicAuth)) {
                 Credentials creds = credentials;
@@ -345,6 +367,8 @@ public class HttpFeed extends AbstractFeed {
                 httpExecutorFactory = location.get().getExtension(HttpExecutorFactory.class);
                 Map<String, Object> httpExecutorProps = ((LocationInternal)location.get()).config().getBag().getAllConfig();
                 httpExecutor = httpExecutorFactory.getHttpExecutor(httpExecutorProps);
+            } else if (builder.async) {
+                httpExecutor = AsyncHttpExecutorImpl.shared();
             } else {
                 httpExecutor = HttpExecutorImpl.newInstance();
             }
@@ -403,37 +427,61 @@ public class HttpFeed extends AbstractFeed {
                 if (config.getPeriod() > 0) minPeriod = Math.min(minPeriod, config.getPeriod());
             }
 
-            Callable<HttpToolResponse> pollJob;
-            pollJob = new Callable<HttpToolResponse>() {
-                @Override
-                public HttpToolResponse call() throws Exception {
-                    if (log.isTraceEnabled()) log.trace("http polling for {} sensors at {}", entity, pollInfo);
-
-                    UsernamePassword creds = null;
-                    if (pollInfo.credentials.isPresent()) {
-                        creds =  new UsernamePassword(
-                                pollInfo.credentials.get().getUserPrincipal().getName(),
-                                pollInfo.credentials.get().getPassword());
-                    }
-
-                    HttpResponse response =  pollInfo.httpExecutor.execute(new HttpRequest.Builder()
-                            .headers(pollInfo.headers)
-                            .uri(pollInfo.uriProvider.get())
-                            .credentials(creds)
-                            .method(pollInfo.method)
-                            .body(pollInfo.body)
-                            .config(HttpConfig.builder()
-                                    .trustSelfSigned(true)
-                                    .trustAll(true)
-                                    .laxRedirect(true)
-                                    .build())
-                            .build());
-                    return createHttpToolRespose(response);
-                }};
+            if (pollInfo.httpExecutor instanceof AsyncHttpExecutor) {
+                // handlers are called once the response has been fully received; no thread waits meanwhile
+                Callable<ListenableFuture<HttpToolResponse>> pollJob = new Callable<ListenableFuture<HttpToolResponse>>() {
+                    @Override
+                    public ListenableFuture<HttpToolResponse> call() {
+                        if (log.isTraceEnabled()) log.trace("http polling (async) for {} sensors at {}", entity, pollInfo);
+                        final long startTime = System.currentTimeMillis();
+                        ListenableFuture<HttpResponse> response = ((AsyncHttpExecutor)pollInfo.httpExecutor).executeAsync(newHttpRequest(pollInfo));
+                        return Futures.transform(response, new Function<HttpResponse, HttpToolResponse>() {
+                            @Override
+                            public HttpToolResponse apply(HttpResponse input) {
+                                try {
+                                    return createHttpToolRespose(input, startTime);
+                                } catch (IOException e) {
+                                    throw Exceptions.propagate(e);
+                                }
+                            }
+                        }, Poller.newPollTaskExecutor(getExecutionContext(), "HTTP poll response"));
+                    }};
+                getPoller().scheduleAsyncAtFixedRate(pollJob, new DelegatingPollHandler<HttpToolResponse>(handlers), Duration.millis(minPeriod));
+            } else {
+                Callable<HttpToolResponse> pollJob = new Callable<HttpToolResponse>() {
+                    @Override
+                    public HttpToolResponse call() throws Exception {
+                        if (log.isTraceEnabled()) log.trace("http polling for {} sensors at {}", entity, pollInfo);
+                        HttpResponse response = pollInfo.httpExecutor.execute(newHttpRequest(pollInfo));
+                        return createHttpToolRespose(response, System.currentTimeMillis());
+                    }};
                 getPoller().scheduleAtFixedRate(pollJob, new DelegatingPollHandler<HttpToolResponse>(handlers), minPeriod);
+            }
         }
     }
 
+    private HttpRequest newHttpRequest(HttpPollIdentifier pollInfo) {
+        UsernamePassword creds = null;
+        if (pollInfo.credentials.isPresent()) {
+            creds =  new UsernamePassword(
+                    pollInfo.credentials.get().getUserPrincipal().getName(),
+                    pollInfo.credentials.get().getPassword());
+        }
+
+        return new HttpRequest.Builder()
+                .headers(pollInfo.headers)
+                .uri(pollInfo.uriProvider.get())
+                .credentials(creds)
+                .method(pollInfo.method)
+                .body(pollInfo.body)
+                .config(HttpConfig.builder()
+                        .trustSelfSigned(true)
+                        .trustAll(true)
+                        .laxRedirect(true)
+                        .build())
+                .build();
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     protected Poller<HttpToolResponse> getPoller() {
@@ -441,7 +489,7 @@ public class HttpFeed extends AbstractFeed {
     }
 
     @SuppressWarnings("unchecked")
-    private HttpToolResponse createHttpToolRespose(HttpResponse response) throws IOException {
+    private HttpToolResponse createHttpToolRespose(HttpResponse response, long startTime) throws IOException {
         int responseCode = response.code();
 
         Map<String,? extends List<String>> headers = (Map<String, List<String>>) (Map<?, ?>) response.headers().asMap();
@@ -449,7 +497,6 @@ public class HttpFeed extends AbstractFeed {
         byte[] content = null;
         final long durationMillisOfFirstResponse;
         final long durationMillisOfFullContent;
-        final long startTime = System.currentTimeMillis();
 
         ByteArrayOutputStream out = new ByteArrayOutputStream();
         durationMillisOfFirstResponse = Duration.sinceUtc(startTime).toMilliseconds();
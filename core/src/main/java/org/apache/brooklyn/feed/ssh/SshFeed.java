@@ -18,12 +18,28 @@
  */
 package org.apache.brooklyn.feed.ssh;
 
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.core.feed.AttributePollHandler;
+import org.apache.brooklyn.core.feed.DelegatingPollHandler;
+import org.apache.brooklyn.core.feed.PollHandler;
+import org.apache.brooklyn.core.feed.Poller;
 import org.apache.brooklyn.feed.CommandPollConfig;
 import org.apache.brooklyn.location.ssh.SshMachineLocation;
+import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.core.config.ConfigBag;
 import org.apache.brooklyn.util.core.internal.ssh.SshTool;
+import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.text.Identifiers;
+import org.apache.brooklyn.util.text.StringEscapes.BashStringEscapes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,6 +47,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * Provides a feed of attribute values, by polling over ssh.
@@ -64,13 +82,24 @@ import java.util.Map;
  * }
  * </pre>
  * 
+ * With {@link Builder#batchPolls()}, all polls with the same period are run together as one script,
+ * over a single ssh exec, rather than one exec per command. The output of each command is delimited
+ * in the script's stdout and stderr, and split out again for that command's handlers.
+ * Each command runs in its own subshell (with its own env, and stdin from {@code /dev/null}),
+ * but a slow command delays the results of the others in its batch.
+ * 
  * @author aled
  */
 public class SshFeed extends org.apache.brooklyn.feed.AbstractCommandFeed {
     public static final Logger log = LoggerFactory.getLogger(SshFeed.class);
 
+    @Beta
+    public static final ConfigKey<Boolean> BATCH_POLLS = ConfigKeys.newBooleanConfigKey("batchPolls",
+            "Whether to run all commands with the same poll period as a single script", false);
+
     public static class Builder extends org.apache.brooklyn.feed.AbstractCommandFeed.Builder<SshFeed, Builder> {
         private List<CommandPollConfig<?>> polls = Lists.newArrayList();
+        private boolean batchPolls = false;
 
         @Override
         public Builder poll(CommandPollConfig<?> config) {
@@ -83,6 +112,19 @@ public class SshFeed extends org.apache.brooklyn.feed.AbstractCommandFeed {
             return polls;
         }
 
+        /** @see #batchPolls(boolean) */
+        @Beta
+        public Builder batchPolls() {
+            return batchPolls(true);
+        }
+
+        /** Whether to run all commands with the same period as a single script; see {@link SshFeed}. */
+        @Beta
+        public Builder batchPolls(boolean val) {
+            batchPolls = val;
+            return self();
+        }
+
         @Override
         protected Builder self() {
            return this;
@@ -106,6 +148,180 @@ public class SshFeed extends org.apache.brooklyn.feed.AbstractCommandFeed {
 
     public SshFeed(final Builder builder) {
         super(builder);
+        config().set(BATCH_POLLS, builder.batchPolls);
+    }
+
+    @Override
+    protected void preStart() {
+        if (!Boolean.TRUE.equals(config().get(BATCH_POLLS))) {
+            super.preStart();
+            return;
+        }
+        
+        SetMultimap<CommandPollIdentifier, CommandPollConfig<?>> polls = config().get(POLLS);
+        Map<Long, List<BatchedCommand>> batches = new TreeMap<Long, List<BatchedCommand>>();
+        for (CommandPollIdentifier pollInfo : polls.keySet()) {
+            long minPeriod = Integer.MAX_VALUE;
+            Set<AttributePollHandler<? super SshPollValue>> handlers = Sets.newLinkedHashSet();
+            for (CommandPollConfig<?> config : polls.get(pollInfo)) {
+                handlers.add(new AttributePollHandler<SshPollValue>(config, entity, this));
+                if (config.getPeriod() > 0) minPeriod = Math.min(minPeriod, config.getPeriod());
+            }
+            List<BatchedCommand> batch = batches.get(minPeriod);
+            if (batch == null) {
+                batch = MutableList.of();
+                batches.put(minPeriod, batch);
+            }
+            batch.add(new BatchedCommand(pollInfo.getCommandSupplier(), pollInfo.getEnvSupplier(), new DelegatingPollHandler<SshPollValue>(handlers)));
+        }
+        
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Poller<List<Maybe<SshPollValue>>> poller = (Poller) getPoller();
+        for (Map.Entry<Long, List<BatchedCommand>> entry : batches.entrySet()) {
+            final List<BatchedCommand> batch = entry.getValue();
+            poller.scheduleAtFixedRate(() -> execBatch(batch), new BatchPollHandler(batch), entry.getKey());
+        }
+    }
+
+    private static class BatchedCommand {
+        final Supplier<String> command;
+        final Supplier<Map<String, String>> env;
+        final PollHandler<SshPollValue> handler;
+        
+        BatchedCommand(Supplier<String> command, Supplier<Map<String, String>> env, PollHandler<SshPollValue> handler) {
+            this.command = command;
+            this.env = env;
+            this.handler = handler;
+        }
+    }
+
+    /** Passes each command's result from a batch to that command's handler. */
+    private static class BatchPollHandler implements PollHandler<List<Maybe<SshPollValue>>> {
+        private final List<BatchedCommand> batch;
+        
+        BatchPollHandler(List<BatchedCommand> batch) {
+            this.batch = batch;
+        }
+        
+        @Override
+        public boolean checkSuccess(List<Maybe<SshPollValue>> val) {
+            // success or failure is decided per command, in onSuccess
+            return true;
+        }
+        
+        @Override
+        public void onSuccess(List<Maybe<SshPollValue>> val) {
+            for (int i = 0; i < batch.size(); i++) {
+                PollHandler<SshPollValue> handler = batch.get(i).handler;
+                Maybe<SshPollValue> result = val.get(i);
+                if (result.isAbsent()) {
+                    handler.onException(Maybe.getException(result));
+                } else if (handler.checkSuccess(result.get())) {
+                    handler.onSuccess(result.get());
+                } else {
+                    handler.onFailure(result.get());
+                }
+            }
+        }
+        
+        @Override
+        public void onFailure(List<Maybe<SshPollValue>> val) {
+            onSuccess(val);
+        }
+        
+        @Override
+        public void onException(Exception exception) {
+            for (BatchedCommand command : batch) {
+                command.handler.onException(exception);
+            }
+        }
+        
+        @Override
+        public String getDescription() {
+            List<String> descriptions = MutableList.of();
+            for (BatchedCommand command : batch) {
+                descriptions.add(command.handler.getDescription());
+            }
+            return "batch"+descriptions;
+        }
+    }
+
+    protected List<Maybe<SshPollValue>> execBatch(List<BatchedCommand> batch) throws IOException {
+        String delimiter = "BROOKLYN-SSH-FEED-"+Identifiers.makeRandomId(8);
+        List<String> commands = MutableList.of();
+        for (BatchedCommand command : batch) {
+            Map<String, String> env = command.env.get();
+            commands.add(command.command.get());
+            commands.add(env == null ? "" : toExports(env));
+        }
+        SshPollValue batchResult = exec(toBatchScript(delimiter, commands), ImmutableMap.<String, String>of());
+        return parseBatchResult(delimiter, batch.size(), batchResult);
+    }
+
+    private static String toExports(Map<String, String> env) {
+        StringBuilder result = new StringBuilder();
+        for (Map.Entry<String, String> entry : env.entrySet()) {
+            result.append("export ").append(entry.getKey()).append("=").append(BashStringEscapes.wrapBash(entry.getValue())).append("\n");
+        }
+        return result.toString();
+    }
+
+    /**
+     * Builds a script running each command in a subshell, with its output bracketed by lines containing the delimiter;
+     * takes pairs of command and env exports.
+     * <p>
+     * A failing command must not abort the batch, as it would with the default script header {@code #!/bin/bash -e};
+     * so the script turns off {@code -e}, and turns it back on only within each command's subshell, if it was set.
+     */
+    @VisibleForTesting
+    static String toBatchScript(String delimiter, List<String> commandsAndExports) {
+        StringBuilder result = new StringBuilder();
+        result.append("BROOKLYN_SHELL_OPTS=$-\n");
+        result.append("set +e\n");
+        for (int i = 0; i < commandsAndExports.size() / 2; i++) {
+            result.append("echo '"+delimiter+" BEGIN "+i+"'; echo '"+delimiter+" BEGIN "+i+"' >&2\n");
+            result.append("(\n");
+            result.append("case $BROOKLYN_SHELL_OPTS in *e*) set -e ;; esac\n");
+            result.append(commandsAndExports.get(2*i+1));
+            result.append(commandsAndExports.get(2*i)).append("\n");
+            result.append(") </dev/null\n");
+            result.append("BROOKLYN_EXIT_STATUS=$?\n");
+            result.append("printf '\\n%s\\n' \""+delimiter+" END "+i+" $BROOKLYN_EXIT_STATUS\"; printf '\\n%s\\n' '"+delimiter+" END "+i+"' >&2\n");
+        }
+        return result.toString();
+    }
+
+    /** Splits the output of {@link #toBatchScript(String, List)} into the result of each command. */
+    @VisibleForTesting
+    static List<Maybe<SshPollValue>> parseBatchResult(String delimiter, int size, SshPollValue batchResult) {
+        List<Maybe<SshPollValue>> result = MutableList.of();
+        String stdout = batchResult.getStdout() == null ? "" : batchResult.getStdout();
+        String stderr = batchResult.getStderr() == null ? "" : batchResult.getStderr();
+        for (int i = 0; i < size; i++) {
+            String begin = delimiter+" BEGIN "+i+"\n";
+            String end = "\n"+delimiter+" END "+i;
+            int outStart = stdout.indexOf(begin);
+            int outEnd = (outStart < 0) ? -1 : stdout.indexOf(end+" ", outStart);
+            int outStatusEnd = (outEnd < 0) ? -1 : stdout.indexOf("\n", outEnd+end.length());
+            int errStart = stderr.indexOf(begin);
+            int errEnd = (errStart < 0) ? -1 : stderr.indexOf(end+"\n", errStart);
+            if (outStatusEnd < 0 || errEnd < 0) {
+                result.add(Maybe.<SshPollValue>absent("No result for command "+i+" of batched poll "
+                        + "(batch exit status "+batchResult.getExitStatus()+")"));
+                continue;
+            }
+            int exitStatus;
+            try {
+                exitStatus = Integer.parseInt(stdout.substring(outEnd+end.length()+1, outStatusEnd).trim());
+            } catch (NumberFormatException e) {
+                result.add(Maybe.<SshPollValue>absent("Invalid exit status for command "+i+" of batched poll", e));
+                continue;
+            }
+            result.add(Maybe.of(new SshPollValue(batchResult.getMachine(), exitStatus,
+                    stdout.substring(outStart+begin.length(), outEnd),
+                    stderr.substring(errStart+begin.length(), errEnd))));
+        }
+        return result;
     }
 
     @Override
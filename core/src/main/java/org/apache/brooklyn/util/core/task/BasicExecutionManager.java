@@ -22,13 +22,13 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
@@ -37,6 +37,8 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.SynchronousQueue;
@@ -47,12 +49,17 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.Nullable;
+
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.mgmt.ExecutionManager;
 import org.apache.brooklyn.api.mgmt.HasTaskChildren;
 import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.api.mgmt.TaskAdaptable;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.config.StringConfigMap;
 import org.apache.brooklyn.core.BrooklynFeatureEnablement;
+import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.config.Sanitizer;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
@@ -73,9 +80,9 @@ import com.google.common.annotations.Beta;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.CaseFormat;
 import com.google.common.base.Function;
-import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.Callables;
 import com.google.common.util.concurrent.ExecutionList;
@@ -95,6 +102,65 @@ public class BasicExecutionManager implements ExecutionManager {
     private static final boolean RENAME_THREADS = BrooklynFeatureEnablement.isEnabled(BrooklynFeatureEnablement.FEATURE_RENAME_THREADS);
     private static final String JITTER_THREADS_MAX_DELAY_PROPERTY = BrooklynFeatureEnablement.FEATURE_JITTER_THREADS + ".maxDelay";
 
+    public static final String POOL_PROPERTY_PREFIX = "brooklyn.executionManager.pool";
+    
+    /** name of the {@link ExecutionPool} for tasks tagged {@link BrooklynTaskTags#SENSOR_TAG} */
+    public static final String SENSOR_POOL = "sensor";
+    /** name of the {@link ExecutionPool} for tasks tagged {@link BrooklynTaskTags#FEED_POLL_TAG} */
+    public static final String FEED_POOL = "feed";
+    /** name of the {@link ExecutionPool} for tasks tagged {@link BrooklynTaskTags#EFFECTOR_TAG} */
+    public static final String EFFECTOR_POOL = "effector";
+    /** name of the {@link ExecutionPool} for all other tasks */
+    public static final String DEFAULT_POOL = "default";
+    
+    public static final ConfigKey<Integer> SENSOR_POOL_MAX_THREADS = ConfigKeys.newIntegerConfigKey(
+        POOL_PROPERTY_PREFIX+"."+SENSOR_POOL+".maxThreads",
+        "maximum number of threads for sensor delivery tasks; if not set these run on the default pool");
+    
+    public static final ConfigKey<Integer> FEED_POOL_MAX_THREADS = ConfigKeys.newIntegerConfigKey(
+        POOL_PROPERTY_PREFIX+"."+FEED_POOL+".maxThreads",
+        "maximum number of threads for feed poll tasks; if not set these run on the default pool");
+    
+    public static final ConfigKey<Integer> EFFECTOR_POOL_MAX_THREADS = ConfigKeys.newIntegerConfigKey(
+        POOL_PROPERTY_PREFIX+"."+EFFECTOR_POOL+".maxThreads",
+        "maximum number of threads for effector tasks; if not set these run on the default pool; "
+        + "must not be set where effectors wait on other effectors (e.g. a start effector starting its children), "
+        + "as the pool deadlocks once all its threads are waiting");
+    
+    public static final ConfigKey<Integer> DEFAULT_POOL_MAX_THREADS = ConfigKeys.newIntegerConfigKey(
+        POOL_PROPERTY_PREFIX+"."+DEFAULT_POOL+".maxThreads",
+        "maximum number of threads for tasks not in any other pool; if not set the number of threads is unbounded "
+        + "(the traditional behaviour); must not be set where tasks wait on other tasks in this pool, "
+        + "as the pool deadlocks once all its threads are waiting, whatever the rejection policy");
+    
+    public static final ConfigKey<Integer> POOL_QUEUE_SIZE = ConfigKeys.newIntegerConfigKey(
+        POOL_PROPERTY_PREFIX+".queueSize",
+        "number of tasks which can be queued waiting for a thread in each bounded pool, before applying the rejection policy",
+        10000);
+    
+    public static final ConfigKey<ExecutionPool.RejectionPolicy> POOL_REJECTION_POLICY = ConfigKeys.newConfigKey(
+        ExecutionPool.RejectionPolicy.class,
+        POOL_PROPERTY_PREFIX+".rejectionPolicy",
+        "what to do when a bounded pool and its queue are full: FALLBACK to the unbounded executor, "
+        + "CALLER_RUNS to run in the submitting thread, or ABORT; "
+        + "tasks ordered by a scheduler (such as subscription deliveries) always fall back",
+        ExecutionPool.RejectionPolicy.FALLBACK);
+    
+    public enum ThreadMode {
+        /** conventional (platform) threads, from an unbounded cached pool */
+        PLATFORM,
+        /** a new virtual thread per task, where supported by the JVM (Java 21 and later); 
+         * suited to large numbers of tasks which spend most of their time blocked */
+        VIRTUAL
+    }
+    
+    public static final ConfigKey<ThreadMode> THREAD_MODE = ConfigKeys.newConfigKey(
+        ThreadMode.class,
+        "brooklyn.executionManager.threadMode",
+        "whether tasks not in a bounded pool run on PLATFORM threads or VIRTUAL threads; "
+        + "VIRTUAL falls back to PLATFORM with a warning if the JVM does not support virtual threads",
+        ThreadMode.PLATFORM);
+    
     private boolean jitterThreads = BrooklynFeatureEnablement.isEnabled(BrooklynFeatureEnablement.FEATURE_JITTER_THREADS);
     private int jitterThreadsMaxDelay = Integer.getInteger(JITTER_THREADS_MAX_DELAY_PROPERTY, 200);
 
@@ -111,21 +177,19 @@ public class BasicExecutionManager implements ExecutionManager {
     private final ThreadFactory daemonThreadFactory;
     
     private final ExecutorService runner;
+    
+    private final ThreadMode threadMode;
+    
+    /** bounded pools, by name; if empty all tasks use the {@link #runner} */
+    private final Map<String, ExecutionPool> pools;
+    
+    /** executor given to {@link TaskScheduler}s; routes to the pool for the task */
+    private final ExecutorService schedulerRunner;
         
     private final ScheduledExecutorService delayedRunner;
 
-    // inefficient having so many records, and also doing searches through ...
-    // many things in here could be more efficient however (different types of lookup etc),
-    // do that when we need to.
-    
-    //access to this field AND to members in this field is synchronized, 
-    //to allow us to preserve order while guaranteeing thread-safe
-    //(but more testing is needed before we are completely sure it is thread-safe!)
-    //synch blocks are as finely grained as possible for efficiency;
-    //NB CopyOnWriteArraySet is a perf bottleneck, and the simple map makes it easier to remove when a tag is empty
-    private Map<Object,Set<Task<?>>> tasksByTag = new HashMap<Object,Set<Task<?>>>();
-    
-    private ConcurrentMap<String,Task<?>> tasksById = new ConcurrentHashMap<String,Task<?>>();
+    /** tasks by id and by tag; concurrent, so submission, deletion and lookups do not contend on a shared lock */
+    private final TaskIndex taskIndex = new TaskIndex();
 
     private ConcurrentMap<Object, TaskScheduler> schedulerByTag = new ConcurrentHashMap<Object, TaskScheduler>();
 
@@ -150,15 +214,43 @@ public class BasicExecutionManager implements ExecutionManager {
     };
     
     public BasicExecutionManager(String contextid) {
+        this(contextid, null);
+    }
+    
+    /**
+     * @param config if non-null, used to configure the {@link #THREAD_MODE} and bounded {@link ExecutionPool}s 
+     *        (see {@link #SENSOR_POOL_MAX_THREADS} and related keys)
+     */
+    public BasicExecutionManager(String contextid, @Nullable StringConfigMap config) {
         threadFactory = newThreadFactory(contextid);
         daemonThreadFactory = new ThreadFactoryBuilder()
                 .setThreadFactory(threadFactory)
                 .setDaemon(true)
                 .build();
                 
-        // use Executors.newCachedThreadPool(daemonThreadFactory), but timeout of 1s rather than 60s for better shutdown!
-        runner = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 10L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), 
-                daemonThreadFactory);
+        ThreadMode requestedThreadMode = config!=null ? config.getConfig(THREAD_MODE) : ThreadMode.PLATFORM;
+        if (requestedThreadMode==ThreadMode.VIRTUAL && !VirtualThreads.isSupported()) {
+            log.warn("Virtual threads requested for execution manager "+contextid+" but not supported in this JVM (Java "
+                + System.getProperty("java.version")+"); using platform threads");
+            requestedThreadMode = ThreadMode.PLATFORM;
+        }
+        threadMode = requestedThreadMode;
+        
+        if (threadMode==ThreadMode.VIRTUAL) {
+            // virtual threads are cheap so are not pooled; thread-locals (current task, execution context) work as normal
+            log.info("Using virtual threads for tasks in execution manager "+contextid);
+            runner = VirtualThreads.newThreadPerTaskExecutor(new ThreadFactoryBuilder()
+                    .setThreadFactory(VirtualThreads.newThreadFactory("brooklyn-execmanager-"+contextid+"-virtual-"))
+                    .setUncaughtExceptionHandler(new UncaughtExceptionHandlerImplementation())
+                    .build());
+        } else {
+            // use Executors.newCachedThreadPool(daemonThreadFactory), but timeout of 1s rather than 60s for better shutdown!
+            runner = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 10L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), 
+                    daemonThreadFactory);
+        }
+        
+        pools = newExecutionPools(contextid, config);
+        schedulerRunner = pools.isEmpty() ? runner : new TaskRoutingExecutor();
             
         delayedRunner = new ScheduledThreadPoolExecutor(1, daemonThreadFactory);
 
@@ -167,6 +259,35 @@ public class BasicExecutionManager implements ExecutionManager {
         }
     }
     
+    /** the {@link ThreadMode} in use, which may be {@link ThreadMode#PLATFORM} even if virtual was requested, if not supported */
+    public ThreadMode getThreadMode() {
+        return threadMode;
+    }
+    
+    private Map<String, ExecutionPool> newExecutionPools(String contextid, StringConfigMap config) {
+        if (config==null) return ImmutableMap.of();
+        Map<String, ConfigKey<Integer>> maxThreadsKeys = ImmutableMap.of(
+            SENSOR_POOL, SENSOR_POOL_MAX_THREADS,
+            FEED_POOL, FEED_POOL_MAX_THREADS,
+            EFFECTOR_POOL, EFFECTOR_POOL_MAX_THREADS,
+            DEFAULT_POOL, DEFAULT_POOL_MAX_THREADS);
+        Map<String, ExecutionPool> result = MutableMap.of();
+        for (Map.Entry<String, ConfigKey<Integer>> entry : maxThreadsKeys.entrySet()) {
+            Integer maxThreads = config.getConfig(entry.getValue());
+            if (maxThreads==null) continue;
+            String name = entry.getKey();
+            ThreadFactory poolThreadFactory = new ThreadFactoryBuilder()
+                .setThreadFactory(daemonThreadFactory)
+                .setNameFormat("brooklyn-execmanager-"+contextid+"-"+name+"-%d")
+                .build();
+            ExecutionPool pool = new ExecutionPool(name, maxThreads, config.getConfig(POOL_QUEUE_SIZE), 
+                config.getConfig(POOL_REJECTION_POLICY), poolThreadFactory, runner);
+            log.info("Using bounded execution pool: "+pool);
+            result.put(name, pool);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+    
     private final static class UncaughtExceptionHandlerImplementation implements Thread.UncaughtExceptionHandler {
         @Override
         public void uncaughtException(Thread t, Throwable e) {
@@ -196,17 +317,27 @@ public class BasicExecutionManager implements ExecutionManager {
     @Beta
     public boolean shutdownNow(Duration howLongToWaitForTermination) {
         runner.shutdownNow();
+        for (ExecutionPool pool : pools.values()) {
+            pool.getExecutor().shutdownNow();
+        }
         delayedRunner.shutdownNow();
         if (howLongToWaitForTermination!=null) {
             CountdownTimer timer = howLongToWaitForTermination.countdownTimer();
             try {
                 runner.awaitTermination(timer.getDurationRemaining().toMilliseconds(), TimeUnit.MILLISECONDS);
+                for (ExecutionPool pool : pools.values()) {
+                    if (timer.isLive()) pool.getExecutor().awaitTermination(timer.getDurationRemaining().toMilliseconds(), TimeUnit.MILLISECONDS);
+                }
                 if (timer.isLive()) delayedRunner.awaitTermination(timer.getDurationRemaining().toMilliseconds(), TimeUnit.MILLISECONDS);
             } catch (InterruptedException e) {
                 throw Exceptions.propagate(e);
             }
         }
-        return runner.isTerminated() && delayedRunner.isTerminated();
+        boolean poolsTerminated = true;
+        for (ExecutionPool pool : pools.values()) {
+            poolsTerminated &= pool.getExecutor().isTerminated();
+        }
+        return runner.isTerminated() && poolsTerminated && delayedRunner.isTerminated();
     }
     
     public void addListener(ExecutionListener listener) {
@@ -224,14 +355,8 @@ public class BasicExecutionManager implements ExecutionManager {
      * a reference to it as a tag.
      */
     public void deleteTag(Object tag) {
-        Set<Task<?>> tasks;
-        synchronized (tasksByTag) {
-            tasks = tasksByTag.remove(tag);
-        }
-        if (tasks != null) {
-            for (Task<?> task : tasks) {
-                deleteTask(task);
-            }
+        for (Task<?> task : taskIndex.removeTag(tag)) {
+            deleteTask(task);
         }
     }
 
@@ -248,19 +373,7 @@ public class BasicExecutionManager implements ExecutionManager {
     }
 
     protected boolean deleteTaskNonRecursive(Task<?> task) {
-        Set<?> tags = TaskTags.getTagsFast(checkNotNull(task, "task"));
-        for (Object tag : tags) {
-            synchronized (tasksByTag) {
-                Set<Task<?>> tasks = tasksWithTagLiveOrNull(tag);
-                if (tasks != null) {
-                    tasks.remove(task);
-                    if (tasks.isEmpty()) {
-                        tasksByTag.remove(tag);
-                    }
-                }
-            }
-        }
-        Task<?> removed = tasksById.remove(task.getId());
+        Task<?> removed = taskIndex.remove(checkNotNull(task, "task"));
         incompleteTaskIds.remove(task.getId());
         if (removed!=null && removed.isSubmitted() && !removed.isDone(true)) {
             Entity context = BrooklynTaskTags.getContextEntity(removed);
@@ -293,52 +406,37 @@ public class BasicExecutionManager implements ExecutionManager {
         return activeTaskCount.get();
     }
 
-    /** count of tasks kept in memory, often including ended tasks */
-    public long getNumInMemoryTasks() {
-        return tasksById.size();
+    /** bounded execution pools, by name (see {@link #SENSOR_POOL} etc); empty if all tasks use the default unbounded executor */
+    public Map<String, ExecutionPool> getExecutionPools() {
+        return pools;
     }
 
-    private Set<Task<?>> tasksWithTagCreating(Object tag) {
-        Preconditions.checkNotNull(tag);
-        synchronized (tasksByTag) {
-            Set<Task<?>> result = tasksWithTagLiveOrNull(tag);
-            if (result==null) {
-                result = Collections.synchronizedSet(new LinkedHashSet<Task<?>>());
-                tasksByTag.put(tag, result);
-            }
-            return result;
-        }
+    /** count of tasks kept in memory, often including ended tasks */
+    public long getNumInMemoryTasks() {
+        return taskIndex.size();
     }
 
-    /** exposes live view, for internal use only */
+    /** exposes live (read-only, weakly consistent) view, for internal use only */
     @Beta
     public Set<Task<?>> tasksWithTagLiveOrNull(Object tag) {
-        synchronized (tasksByTag) {
-            return tasksByTag.get(tag);
-        }
+        return taskIndex.getTasksWithTagLiveOrNull(tag);
     }
 
     @Override
     public Task<?> getTask(String id) {
-        return tasksById.get(id);
+        return taskIndex.get(id);
     }
     
     /** not on interface because potentially expensive */
     public List<Task<?>> getAllTasks() {
-        // not sure if synching makes any difference; have not observed CME's yet
-        // (and so far this is only called when a CME was caught on a previous operation)
-        synchronized (tasksById) {
-            return MutableList.copyOf(tasksById.values());
-        }
+        return MutableList.copyOf(taskIndex.getAllTasksLive());
     }
     
     @Override
     public Set<Task<?>> getTasksWithTag(Object tag) {
         Set<Task<?>> result = tasksWithTagLiveOrNull(tag);
         if (result==null) return Collections.emptySet();
-        synchronized (result) {
-            return Collections.unmodifiableSet(new LinkedHashSet<Task<?>>(result));
-        }
+        return Collections.unmodifiableSet(new LinkedHashSet<Task<?>>(result));
     }
     
     @Override
@@ -348,9 +446,7 @@ public class BasicExecutionManager implements ExecutionManager {
         while (ti.hasNext()) {
             Set<Task<?>> tasksForTag = tasksWithTagLiveOrNull(ti.next());
             if (tasksForTag!=null) {
-                synchronized (tasksForTag) {
-                    result.addAll(tasksForTag);
-                }
+                result.addAll(tasksForTag);
             }
         }
         return Collections.unmodifiableSet(result);
@@ -359,33 +455,39 @@ public class BasicExecutionManager implements ExecutionManager {
     /** only works with at least one tag; returns empty if no tags */
     @Override
     public Set<Task<?>> getTasksWithAllTags(Iterable<?> tags) {
-        //NB: for this method retrieval for multiple tags could be made (much) more efficient (if/when it is used with multiple tags!)
-        //by first looking for the least-used tag, getting those tasks, and then for each of those tasks
-        //checking whether it contains the other tags (looking for second-least used, then third-least used, etc)
+        // start from the least-used tag, then keep only those tasks which are also in the live sets for the other tags
+        List<Set<Task<?>>> tasksForTags = MutableList.of();
+        for (Object tag : tags) {
+            Set<Task<?>> tasksForTag = tasksWithTagLiveOrNull(tag);
+            if (tasksForTag==null) return Collections.emptySet();
+            tasksForTags.add(tasksForTag);
+        }
+        if (tasksForTags.isEmpty()) return Collections.emptySet();
+        Set<Task<?>> smallest = tasksForTags.get(0);
+        for (Set<Task<?>> tasksForTag : tasksForTags) {
+            if (tasksForTag.size() < smallest.size()) smallest = tasksForTag;
+        }
         Set<Task<?>> result = new LinkedHashSet<Task<?>>();
-        boolean first = true;
-        Iterator<?> ti = tags.iterator();
-        while (ti.hasNext()) {
-            Object tag = ti.next();
-            if (first) { 
-                first = false;
-                result.addAll(getTasksWithTag(tag));
-            } else {
-                result.retainAll(getTasksWithTag(tag));
+        for (Task<?> task : smallest) {
+            boolean inAll = true;
+            for (Set<Task<?>> tasksForTag : tasksForTags) {
+                if (tasksForTag!=smallest && !tasksForTag.contains(task)) {
+                    inAll = false;
+                    break;
+                }
             }
+            if (inAll) result.add(task);
         }
         return Collections.unmodifiableSet(result);
     }
 
-    /** live view of all tasks, for internal use only */
+    /** live (read-only, weakly consistent) view of all tasks, for internal use only */
     @Beta
-    public Collection<Task<?>> allTasksLive() { return tasksById.values(); }
+    public Collection<Task<?>> allTasksLive() { return taskIndex.getAllTasksLive(); }
     
     @Override
     public Set<Object> getTaskTags() { 
-        synchronized (tasksByTag) {
-            return Collections.unmodifiableSet(Sets.newLinkedHashSet(tasksByTag.keySet())); 
-        }
+        return Collections.unmodifiableSet(Sets.newLinkedHashSet(taskIndex.getTagsLive())); 
     }
 
     @Override @Deprecated public Task<?> submit(Runnable r) { return submit(new LinkedHashMap<Object,Object>(1), r); }
@@ -715,18 +817,90 @@ public class BasicExecutionManager implements ExecutionManager {
                 schedulers.add(scheduler);
             }
         }
-        Future<T> future;
         if (schedulers!=null && !schedulers.isEmpty()) {
             if (schedulers.size()>1) log.warn("multiple schedulers detected, using only the first, for "+task+": "+schedulers);
-            future = schedulers.iterator().next().submit(job);
+            Future<T> future = schedulers.iterator().next().submit(job);
+            afterSubmitRecordFuture(task, future);
         } else {
-            future = runner.submit(job);
+            // record the future before handing over the job, as the executor may run it before returning
+            // (the CALLER_RUNS policy of a full pool)
+            SubmittedFutureTask<T> future = new SubmittedFutureTask<T>(job);
+            afterSubmitRecordFuture(task, future);
+            try {
+                getExecutorForTask(task).execute(future);
+            } catch (RejectedExecutionException e) {
+                // the task will never run, so end it and forget it, so that nothing waits on it
+                future.setRejected(e);
+                internalAfterEnd(flags, task, false, true, null);
+                taskIndex.remove(task);
+                throw e;
+            }
         }
-        afterSubmitRecordFuture(task, future);
         
         return task;
     }
 
+    /** a future for a task given to an executor, which can be failed if the executor rejects it */
+    private static class SubmittedFutureTask<T> extends FutureTask<T> {
+        SubmittedFutureTask(Callable<T> job) {
+            super(job);
+        }
+        void setRejected(RejectedExecutionException e) {
+            setException(e);
+        }
+    }
+
+    /** 
+     * Returns the executor to run the given task: the {@link ExecutionPool} for its 
+     * {@link BrooklynTaskTags#SENSOR_TAG sensor}, {@link BrooklynTaskTags#FEED_POLL_TAG feed} or
+     * {@link BrooklynTaskTags#EFFECTOR_TAG effector} tag if one is configured, 
+     * else the {@link #DEFAULT_POOL} if configured, else the unbounded executor.
+     */
+    protected ExecutorService getExecutorForTask(Task<?> task) {
+        ExecutionPool pool = getPoolForTask(task);
+        return pool!=null ? pool.getExecutor() : runner;
+    }
+    
+    private ExecutionPool getPoolForTask(Task<?> task) {
+        if (pools.isEmpty()) return null;
+        Set<Object> tags = BrooklynTaskTags.getTagsFast(task);
+        ExecutionPool pool = null;
+        if (tags.contains(BrooklynTaskTags.SENSOR_TAG)) pool = pools.get(SENSOR_POOL);
+        else if (tags.contains(BrooklynTaskTags.FEED_POLL_TAG)) pool = pools.get(FEED_POOL);
+        else if (tags.contains(BrooklynTaskTags.EFFECTOR_TAG)) pool = pools.get(EFFECTOR_POOL);
+        if (pool==null) pool = pools.get(DEFAULT_POOL);
+        return pool;
+    }
+    
+    /** 
+     * Executor given to {@link TaskScheduler}s when there are {@link ExecutionPool}s, 
+     * so that tasks submitted via a scheduler still run in the pool for the task. 
+     * If that pool is full they always fall back to the unbounded executor, whatever the rejection policy: 
+     * schedulers submit while holding their own lock, so can neither run the task inline nor recover from a rejection. 
+     */
+    private class TaskRoutingExecutor extends AbstractExecutorService {
+        @Override
+        public <T> Future<T> submit(Callable<T> job) {
+            Callable<?> unwrapped = job;
+            if (unwrapped instanceof SingleThreadedScheduler.ScheduledCallable) {
+                unwrapped = ((SingleThreadedScheduler.ScheduledCallable<?>)unwrapped).delegate;
+            }
+            if (unwrapped instanceof SubmissionCallable) {
+                ExecutionPool pool = getPoolForTask(((SubmissionCallable<?>)unwrapped).task);
+                if (pool!=null) return pool.submitFallingBackWhenFull(job);
+            }
+            return runner.submit(job);
+        }
+        @Override public void execute(Runnable command) { runner.execute(command); }
+        @Override public void shutdown() { runner.shutdown(); }
+        @Override public List<Runnable> shutdownNow() { return runner.shutdownNow(); }
+        @Override public boolean isShutdown() { return runner.isShutdown(); }
+        @Override public boolean isTerminated() { return runner.isTerminated(); }
+        @Override public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return runner.awaitTermination(timeout, unit);
+        }
+    }
+
     protected <T> void afterSubmitRecordFuture(final Task<T> task, Future<T> future) {
         // SubmissionCallable (above) invokes the listeners on completion;
         // this future allows a caller to add custom listeners
@@ -766,11 +940,7 @@ public class BasicExecutionManager implements ExecutionManager {
         if (flags!=null && flags.get("tag")!=null) ((TaskInternal<?>)task).getMutableTags().add(flags.remove("tag"));
         if (flags!=null && flags.get("tags")!=null) ((TaskInternal<?>)task).getMutableTags().addAll((Collection<?>)flags.remove("tags"));
 
-        for (Object tag: BrooklynTaskTags.getTagsFast(task)) {
-            tasksWithTagCreating(tag).add(task);
-        }
-        
-        tasksById.put(task.getId(), task);
+        taskIndex.add(task);
         totalTaskCount.incrementAndGet();
     }
     
@@ -1026,7 +1196,7 @@ public class BasicExecutionManager implements ExecutionManager {
      */
     public void setTaskSchedulerForTag(Object tag, TaskScheduler scheduler) {
         synchronized (schedulerByTag) {
-            scheduler.injectExecutor(runner);
+            scheduler.injectExecutor(schedulerRunner);
 
             Object old = schedulerByTag.put(tag, scheduler);
             if (old!=null && old!=scheduler) {
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+/**
+ * A bounded thread pool used by {@link BasicExecutionManager} for a category of tasks
+ * (e.g. sensor delivery, feed polling or effectors), with a fixed maximum number of threads,
+ * a bounded queue, and a {@link RejectionPolicy} applied when both are full.
+ * <p>
+ * A bounded pool must not be used for tasks which block waiting on other tasks in the same pool:
+ * once all its threads are running such tasks, the tasks they wait on stay queued and the pool deadlocks.
+ * No {@link RejectionPolicy} avoids this, as the policy applies only once the queue is also full.
+ */
+@Beta
+public class ExecutionPool {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionPool.class);
+
+    public enum RejectionPolicy {
+        /** run the task on the execution manager's default (unbounded) executor */
+        FALLBACK,
+        /** run the task in the submitting thread, slowing down the submitter */
+        CALLER_RUNS,
+        /** fail the submission with a {@link RejectedExecutionException} */
+        ABORT
+    }
+
+    private final String name;
+    private final int maxThreads;
+    private final int queueSize;
+    private final RejectionPolicy rejectionPolicy;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public ExecutionPool(String name, int maxThreads, int queueSize, RejectionPolicy rejectionPolicy, ThreadFactory threadFactory, final ExecutorService fallback) {
+        Preconditions.checkArgument(maxThreads > 0, "maxThreads must be positive for pool %s", name);
+        Preconditions.checkArgument(queueSize >= 0, "queueSize must not be negative for pool %s", name);
+        this.name = name;
+        this.maxThreads = maxThreads;
+        this.queueSize = queueSize;
+        this.rejectionPolicy = Preconditions.checkNotNull(rejectionPolicy, "rejectionPolicy");
+
+        RejectedExecutionHandler handler = new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
+                long count = rejectedCount.incrementAndGet();
+                if (count==1 || count % 1000 == 0) {
+                    log.warn("Execution pool "+ExecutionPool.this.name+" is full ("+ExecutionPool.this.maxThreads+" threads, "+
+                        ExecutionPool.this.queueSize+" queued); "+count+" rejection(s), applying policy "+ExecutionPool.this.rejectionPolicy);
+                }
+                if (e.isShutdown()) {
+                    throw new RejectedExecutionException("Execution pool "+ExecutionPool.this.name+" is shut down");
+                }
+                if (r instanceof FallbackWhenFull) {
+                    fallback.execute(r);
+                    return;
+                }
+                switch (ExecutionPool.this.rejectionPolicy) {
+                case FALLBACK: fallback.execute(r); break;
+                case CALLER_RUNS: r.run(); break;
+                default: throw new RejectedExecutionException("Execution pool "+ExecutionPool.this.name+" is full");
+                }
+            }
+        };
+        // a zero-capacity queue is not permitted by LinkedBlockingQueue, so use a hand-off queue in that case
+        executor = new ThreadPoolExecutor(maxThreads, maxThreads, 10L, TimeUnit.SECONDS,
+            queueSize > 0 ? new LinkedBlockingQueue<Runnable>(queueSize) : new SynchronousQueue<Runnable>(),
+            threadFactory, handler);
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Submits the job to this pool, but if the pool is full runs it on the fallback executor
+     * regardless of the {@link RejectionPolicy}. This is for submissions which must neither fail nor
+     * run in the caller, such as those from a {@link TaskScheduler} which holds its own lock while submitting.
+     */
+    public <T> Future<T> submitFallingBackWhenFull(Callable<T> job) {
+        FutureTask<T> future = new FutureTask<T>(job);
+        executor.execute(new FallbackWhenFull(future));
+        return future;
+    }
+
+    /** marks a submission which should use the fallback executor when the pool is full */
+    private static class FallbackWhenFull implements Runnable {
+        private final Runnable delegate;
+
+        FallbackWhenFull(Runnable delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void run() {
+            delegate.run();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public RejectionPolicy getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+    /** threads currently running a task */
+    public int getActiveThreads() {
+        return executor.getActiveCount();
+    }
+
+    /** threads currently in the pool, whether or not running a task */
+    public int getPoolSize() {
+        return executor.getPoolSize();
+    }
+
+    /** tasks waiting for a thread */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /** count of submissions which found the pool and its queue full, and so were handled by the {@link RejectionPolicy} */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public long getCompletedTaskCount() {
+        return executor.getCompletedTaskCount();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("name", name).add("maxThreads", maxThreads)
+            .add("queueSize", queueSize).add("rejectionPolicy", rejectionPolicy).toString();
+    }
+}
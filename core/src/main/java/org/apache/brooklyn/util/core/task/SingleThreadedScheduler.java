@@ -33,6 +33,8 @@ import org.apache.brooklyn.api.mgmt.Task;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.Futures;
+
 /**
  * Instances of this class ensures that {@link Task}s execute with in-order
  * single-threaded semantics.
@@ -73,7 +75,13 @@ public class SingleThreadedScheduler implements TaskScheduler, CanSetName {
     @Override
     public synchronized <T> Future<T> submit(Callable<T> c) {
         if (running.compareAndSet(false, true)) {
-            return executeNow(c);
+            try {
+                return executeNow(c);
+            } catch (RuntimeException e) {
+                // nothing is queued if we were not running; clear the flag so later submissions are not queued forever
+                running.set(false);
+                throw e;
+            }
         } else {
             WrappingFuture<T> f = new WrappingFuture<T>();
             order.add(new QueuedSubmission<T>(c, f));
@@ -101,23 +109,44 @@ public class SingleThreadedScheduler implements TaskScheduler, CanSetName {
                 QueuedSubmission<?> qs = order.remove();
                 queueSize--;
                 if (!qs.f.isCancelled()) {
-                    Future future = executeNow(qs.c);
-                    qs.f.setDelegate(future);
-                    done = true;
+                    try {
+                        Future future = executeNow(qs.c);
+                        qs.f.setDelegate(future);
+                        done = true;
+                    } catch (RuntimeException e) {
+                        // e.g. executor rejected it; fail this one and carry on with the next
+                        LOG.debug("{} could not execute {}: {}", new Object[] {this, qs, e});
+                        qs.f.setDelegate(Futures.immediateFailedFuture(e));
+                    }
                 }
             }
         }
     }
 
     private synchronized <T> Future<T> executeNow(final Callable<T> c) {
-        return executor.submit(new Callable<T>() {
-            @Override public T call() throws Exception {
-                try {
-                    return c.call();
-                } finally {
-                    onEnd();
-                }
-            }});
+        return executor.submit(new ScheduledCallable<T>(c));
+    }
+    
+    /** Runs the submitted callable then the next queued one; exposes the submitted callable so executors can inspect it. */
+    class ScheduledCallable<T> implements Callable<T> {
+        final Callable<T> delegate;
+        
+        ScheduledCallable(Callable<T> delegate) {
+            this.delegate = delegate;
+        }
+        
+        @Override public T call() throws Exception {
+            try {
+                return delegate.call();
+            } finally {
+                onEnd();
+            }
+        }
+        
+        @Override
+        public String toString() {
+            return "STS.call("+delegate+")";
+        }
     }
     
     
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.brooklyn.api.mgmt.Task;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+
+/**
+ * Concurrent index of tasks by id and by tag, as used by {@link BasicExecutionManager}.
+ * <p>
+ * Insertion and removal do not take any global lock (only the per-tag bin in a {@link ConcurrentHashMap}),
+ * and the live views returned here can be iterated without locking: iteration is weakly consistent,
+ * in submission order, and never throws {@link java.util.ConcurrentModificationException}.
+ * <p>
+ * Tasks are indexed by the tags they have when {@link #add(Task) added}, and removed using those same tags,
+ * so tags added to a task later do not leave stale entries. Tasks in an entity's context are found
+ * through the entity's context tag, as elsewhere.
+ */
+@Beta
+public class TaskIndex {
+
+    private static class IndexedTask {
+        final Task<?> task;
+        final long sequence;
+        final Set<Object> tags;
+
+        IndexedTask(Task<?> task, long sequence, Set<Object> tags) {
+            this.task = task;
+            this.sequence = sequence;
+            this.tags = tags;
+        }
+    }
+
+    /** live, read-only set of the tasks with a tag, in submission order */
+    private class TasksWithTag extends AbstractSet<Task<?>> {
+        private final ConcurrentSkipListMap<Long, Task<?>> tasks = new ConcurrentSkipListMap<Long, Task<?>>();
+        // skip-list size() is linear, and callers such as the GC ask for it often
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Iterator<Task<?>> iterator() {
+            return Iterators.unmodifiableIterator(tasks.values().iterator());
+        }
+
+        @Override
+        public int size() {
+            return count.get();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return tasks.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Task)) return false;
+            IndexedTask it = tasksById.get(((Task<?>)o).getId());
+            return it!=null && tasks.containsKey(it.sequence);
+        }
+    }
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentMap<String, IndexedTask> tasksById = new ConcurrentHashMap<String, IndexedTask>();
+    private final ConcurrentMap<Object, TasksWithTag> tasksByTag = new ConcurrentHashMap<Object, TasksWithTag>();
+
+    /**
+     * Adds the task, indexed by its id and its current tags.
+     * @return false if a task with that id was already present (in which case nothing is changed)
+     */
+    public boolean add(final Task<?> task) {
+        final IndexedTask it = new IndexedTask(task, sequence.incrementAndGet(), ImmutableSet.copyOf(TaskTags.getTagsFast(task)));
+        if (tasksById.putIfAbsent(task.getId(), it)!=null) return false;
+        for (Object tag : it.tags) {
+            tasksByTag.compute(tag, (k, tasks) -> {
+                if (tasks==null) tasks = new TasksWithTag();
+                if (tasks.tasks.put(it.sequence, task)==null) tasks.count.incrementAndGet();
+                return tasks;
+            });
+        }
+        if (tasksById.get(task.getId())!=it) {
+            // removed concurrently while we were adding it to the tag indexes; make sure none are left behind
+            removeFromTags(it);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the task from all indexes.
+     * @return the task removed, or null if it was not present
+     */
+    public Task<?> remove(Task<?> task) {
+        final IndexedTask it = tasksById.remove(Preconditions.checkNotNull(task, "task").getId());
+        if (it==null) return null;
+        removeFromTags(it);
+        return it.task;
+    }
+
+    private void removeFromTags(final IndexedTask it) {
+        for (Object tag : it.tags) {
+            tasksByTag.computeIfPresent(tag, (k, tasks) -> {
+                if (tasks.tasks.remove(it.sequence)!=null) tasks.count.decrementAndGet();
+                return tasks.isEmpty() ? null : tasks;
+            });
+        }
+    }
+
+    /**
+     * Removes the given tag from the index, returning the tasks which had it (or empty);
+     * the tasks themselves remain indexed by id and their other tags.
+     */
+    public Set<Task<?>> removeTag(Object tag) {
+        Set<Task<?>> result = tasksByTag.remove(tag);
+        return result!=null ? result : Collections.<Task<?>>emptySet();
+    }
+
+    public Task<?> get(String id) {
+        IndexedTask it = tasksById.get(id);
+        return it!=null ? it.task : null;
+    }
+
+    /** live read-only view of the tasks with the given tag, or null if there are none */
+    public Set<Task<?>> getTasksWithTagLiveOrNull(Object tag) {
+        return tasksByTag.get(Preconditions.checkNotNull(tag, "tag"));
+    }
+
+    /** live read-only view of all tasks */
+    public Collection<Task<?>> getAllTasksLive() {
+        return Collections.unmodifiableCollection(Collections2.transform(tasksById.values(), it -> it.task));
+    }
+
+    /** live read-only view of all tags in use */
+    public Set<Object> getTagsLive() {
+        return Collections.unmodifiableSet(tasksByTag.keySet());
+    }
+
+    public int size() {
+        return tasksById.size();
+    }
+}
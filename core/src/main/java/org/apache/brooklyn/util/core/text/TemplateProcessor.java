@@ -20,12 +20,15 @@ package org.apache.brooklyn.util.core.text;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TimeZone;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.drivers.EntityDriver;
@@ -44,11 +47,18 @@ import org.apache.brooklyn.util.text.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.Iterables;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import com.google.common.io.Files;
 
 import freemarker.cache.StringTemplateLoader;
+import freemarker.core.Environment;
 import freemarker.template.Configuration;
 import freemarker.template.DefaultObjectWrapperBuilder;
 import freemarker.template.MapKeyValuePairIterator;
@@ -75,6 +85,27 @@ public class TemplateProcessor {
     private static final ObjectWrapper WRAPPER =
             new DefaultObjectWrapperBuilder(Configuration.DEFAULT_INCOMPATIBLE_IMPROVEMENTS).build();
 
+    /** Shared (thread-safe) configuration for all templates; settings as per a default new {@link Configuration},
+     * but with an empty template loader so that {@code #include} and {@code #import} cannot read files from the server. */
+    private static final Configuration CONFIGURATION = newConfiguration();
+
+    /** Templates longer than this are parsed each time rather than cached. */
+    private static final int MAX_CACHEABLE_TEMPLATE_LENGTH = 256 * 1024;
+
+    /** Compiled templates, keyed by a hash of their contents; compiled templates are thread-safe to process. */
+    private static final Cache<HashCode, Template> TEMPLATE_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(256)
+            .softValues()
+            .recordStats()
+            .build();
+
+    private static Configuration newConfiguration() {
+        Configuration result = new Configuration(Configuration.DEFAULT_INCOMPATIBLE_IMPROVEMENTS);
+        // without an explicit loader freemarker falls back to loading from the current working directory
+        result.setTemplateLoader(new StringTemplateLoader());
+        return result;
+    }
+
     protected static TemplateModel wrapAsTemplateModel(Object o) throws TemplateModelException {
         if (o instanceof Map) return new DotSplittingTemplateModel((Map<?,?>)o);
         return WRAPPER.wrap(o);
@@ -510,6 +541,10 @@ public class TemplateProcessor {
     /** Processes template contents using the given map, passed to freemarker,
      * with dot handling as per {@link DotSplittingTemplateModel}. */
     public static String processTemplateContents(String templateContents, final Map<String, ? extends Object> substitutions) {
+        return processTemplateContents(templateContents, wrapAsTemplateHashModel(substitutions));
+    }
+
+    private static TemplateHashModel wrapAsTemplateHashModel(Map<String, ? extends Object> substitutions) {
         TemplateHashModel root;
         try {
             root = substitutions != null
@@ -518,26 +553,35 @@ public class TemplateProcessor {
         } catch (TemplateModelException e) {
             throw new IllegalStateException("Unable to set up TemplateHashModel to parse template, given "+substitutions+": "+e, e);
         }
-        
-        return processTemplateContents(templateContents, root);
+        return root;
     }
-    
+
     /** Processes template contents against the given {@link TemplateHashModel}. */
     public static String processTemplateContents(String templateContents, final TemplateHashModel substitutions) {
+        StringWriter out = new StringWriter(templateContents.length());
+        processTemplateContents(templateContents, substitutions, out);
+        return out.toString();
+    }
+
+    /** As per {@link #processTemplateContents(String, Map)}, but writing the result to the given {@link Writer}
+     * (which is flushed but not closed). */
+    public static void processTemplateContents(String templateContents, final Map<String, ? extends Object> substitutions, Writer out) {
+        processTemplateContents(templateContents, wrapAsTemplateHashModel(substitutions), out);
+    }
+
+    /** As per {@link #processTemplateContents(String, TemplateHashModel)}, but writing the result to the given {@link Writer}
+     * (which is flushed but not closed), so large outputs need not be held in memory. */
+    public static void processTemplateContents(String templateContents, final TemplateHashModel substitutions, Writer out) {
         try {
-            Configuration cfg = new Configuration();
-            StringTemplateLoader templateLoader = new StringTemplateLoader();
-            templateLoader.putTemplate("config", templateContents);
-            cfg.setTemplateLoader(templateLoader);
-            Template template = cfg.getTemplate("config");
+            Template template = getTemplate(templateContents);
 
             // TODO could expose CAMP '$brooklyn:' style dsl, based on template.createProcessingEnvironment
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            Writer out = new OutputStreamWriter(baos);
-            template.process(substitutions, out);
+            Environment env = template.createProcessingEnvironment(substitutions, out);
+            // the configuration is shared, so pick up the current defaults as a new configuration would
+            env.setLocale(Locale.getDefault());
+            env.setTimeZone(TimeZone.getDefault());
+            env.process();
             out.flush();
-
-            return new String(baos.toByteArray());
         } catch (Exception e) {
             log.warn("Error processing template (propagating): "+e, e);
             log.debug("Template which could not be parsed (causing "+e+") is:"
@@ -545,4 +589,33 @@ public class TemplateProcessor {
             throw Exceptions.propagate(e);
         }
     }
+
+    /** Returns the compiled template for the given contents, parsing it only if it is not already cached. */
+    private static Template getTemplate(String templateContents) throws IOException {
+        if (templateContents.length() > MAX_CACHEABLE_TEMPLATE_LENGTH) {
+            return newTemplate(templateContents);
+        }
+        HashCode key = Hashing.sha256().hashString(templateContents, StandardCharsets.UTF_8);
+        Template result = TEMPLATE_CACHE.getIfPresent(key);
+        if (result == null) {
+            // not using a cache loader, so that parse errors are propagated unwrapped
+            result = newTemplate(templateContents);
+            TEMPLATE_CACHE.put(key, result);
+        }
+        return result;
+    }
+
+    private static Template newTemplate(String templateContents) throws IOException {
+        return new Template("config", new StringReader(templateContents), CONFIGURATION);
+    }
+
+    @VisibleForTesting
+    static void clearTemplateCache() {
+        TEMPLATE_CACHE.invalidateAll();
+    }
+
+    @VisibleForTesting
+    static CacheStats getTemplateCacheStats() {
+        return TEMPLATE_CACHE.stats();
+    }
 }
@@ -21,9 +21,8 @@ package org.apache.brooklyn.core.entity;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
-import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -38,7 +37,6 @@ import org.apache.brooklyn.core.test.entity.TestApplication;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.core.test.entity.TestEntityImpl;
 import org.apache.brooklyn.test.Asserts;
-import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.guava.Maybe;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
@@ -47,6 +45,7 @@ import org.testng.annotations.Test;
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 
@@ -64,7 +63,7 @@ public class AttributeMapTest {
         app = TestApplication.Factory.newManagedInstanceForTests();
         TestEntity entity = app.addChild(EntitySpec.create(TestEntity.class));
         entityImpl = (TestEntityImpl) Entities.deproxy(entity);
-        map = new AttributeMap(entityImpl, Collections.synchronizedMap(MutableMap.<Collection<String>,Object>of()));
+        map = new AttributeMap(entityImpl);
         executor = Executors.newCachedThreadPool();
     }
     
@@ -184,6 +183,64 @@ public class AttributeMapTest {
         assertEquals(map.getValue(sensor), "parentValue");
     }
     
+    @Test
+    public void testAsMapInInsertionOrderWithNulls() throws Exception {
+        AttributeSensor<String> sensor1 = Sensors.newStringSensor("b", "");
+        AttributeSensor<String> sensor2 = Sensors.newStringSensor("a.c", "");
+        AttributeSensor<String> sensor3 = Sensors.newStringSensor("a", "");
+        
+        map.update(sensor1, "1val");
+        map.update(sensor2, null);
+        map.update(sensor3, "3val");
+        map.update(sensor1, "1val-changed");
+        
+        Map<String, Object> snapshot = map.asMap();
+        assertEquals(ImmutableList.copyOf(snapshot.keySet()), ImmutableList.of("b", "a.c", "a"));
+        assertEquals(snapshot.get("b"), "1val-changed");
+        assertTrue(snapshot.containsKey("a.c"));
+        assertEquals(snapshot.get("a.c"), null);
+        assertEquals(ImmutableList.copyOf(map.asRawMap().keySet()), ImmutableList.of(ImmutableList.of("b"), ImmutableList.of("a", "c"), ImmutableList.of("a")));
+    }
+    
+    @Test
+    public void testAsMapReflectsLaterChanges() throws Exception {
+        AttributeSensor<String> sensor1 = Sensors.newStringSensor("a", "");
+        AttributeSensor<String> sensor2 = Sensors.newStringSensor("b", "");
+        
+        map.update(sensor1, "1val");
+        map.update(sensor2, "2val");
+        Map<String, Object> snapshot = map.asMap();
+        assertEquals(map.asMap(), snapshot);
+        
+        map.update(sensor1, "1val-changed");
+        map.remove(sensor2);
+        assertEquals(snapshot, ImmutableMap.of("a", "1val", "b", "2val"));
+        assertEquals(map.asMap(), ImmutableMap.of("a", "1val-changed"));
+        assertEquals(map.getValue(sensor2), null);
+        
+        map.update(sensor2, "2val-again");
+        assertEquals(ImmutableList.copyOf(map.asMap().keySet()), ImmutableList.of("a", "b"));
+    }
+    
+    @Test
+    public void testConcurrentUpdatesAndSnapshots() throws Exception {
+        List<Future<?>> futures = Lists.newArrayList();
+        
+        for (int i = 0; i < NUM_TASKS; i++) {
+            final AttributeSensor<String> nextSensor = Sensors.newStringSensor("attributeMapTest.exampleSensor"+i, "");
+            futures.add(executor.submit(newUpdateMapRunnable(map, nextSensor, "a")));
+            futures.add(executor.submit(new Callable<Map<String, Object>>() {
+                @Override public Map<String, Object> call() {
+                    return map.asMap();
+                }}));
+        }
+
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        assertEquals(map.asMap().size(), NUM_TASKS);
+    }
+    
     @Test
     public void testConcurrentModifyAttributeCalls() throws Exception {
         AttributeSensor<Integer> sensor = Sensors.newIntegerSensor("a", "");
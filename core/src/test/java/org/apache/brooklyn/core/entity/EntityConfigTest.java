@@ -47,6 +47,7 @@ import org.apache.brooklyn.core.config.ConfigKeyDeprecationTest.MySubEntityImpl;
 import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.config.ConfigPredicates;
 import org.apache.brooklyn.core.config.MapConfigKey;
+import org.apache.brooklyn.core.config.internal.ResolvedConfigCacheMetrics;
 import org.apache.brooklyn.core.sensor.BasicAttributeSensorAndConfigKey.IntegerAttributeSensorAndConfigKey;
 import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.TestEntity;
@@ -66,14 +67,17 @@ import org.apache.brooklyn.util.guava.Maybe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
+import org.testng.SkipException;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.reflect.TypeToken;
 import com.google.common.util.concurrent.MoreExecutors;
 
 import groovy.lang.Closure;
@@ -864,6 +868,60 @@ public class EntityConfigTest extends BrooklynAppUnitTestSupport {
         public static final ConfigKey<String> MY_CHILD_CONFIG_WITH_FLAGNAME = ConfigKeys.newStringConfigKey("mychildentity.myconfigwithflagname");
     }
     
+    @Test
+    public void testResolvedConfigCachedUntilChanged() throws Exception {
+        ResolvedConfigCacheMetrics metrics = ResolvedConfigCacheMetrics.get(mgmt);
+        if (!metrics.isEnabled()) throw new SkipException("resolved config cache disabled");
+        
+        MyOtherEntity entity = app.addChild(EntitySpec.create(MyOtherEntity.class));
+        entity.config().set(MyOtherEntity.STRING_KEY, "v1");
+        assertEquals(entity.config().get(MyOtherEntity.STRING_KEY), "v1");
+        long hits = metrics.getHits();
+        assertEquals(entity.config().get(MyOtherEntity.STRING_KEY), "v1");
+        assertEquals(metrics.getHits(), hits+1);
+        
+        entity.config().set(MyOtherEntity.STRING_KEY, "v2");
+        assertEquals(entity.config().get(MyOtherEntity.STRING_KEY), "v2");
+        
+        ((EntityInternal)entity).config().removeKey(MyOtherEntity.STRING_KEY);
+        assertEquals(entity.config().get(MyOtherEntity.STRING_KEY), MyOtherEntity.STRING_KEY.getDefaultValue());
+    }
+
+    @Test
+    public void testResolvedConfigCacheSeesChangesToAncestors() throws Exception {
+        Entity parent = app.addChild(EntitySpec.create(BasicEntity.class));
+        MyOtherEntity child = parent.addChild(EntitySpec.create(MyOtherEntity.class));
+        
+        app.config().set(MyOtherEntity.STRING_KEY, "fromApp");
+        assertEquals(child.config().get(MyOtherEntity.STRING_KEY), "fromApp");
+        assertEquals(child.config().get(MyOtherEntity.STRING_KEY), "fromApp");
+        
+        parent.config().set(MyOtherEntity.STRING_KEY, "fromParent");
+        assertEquals(child.config().get(MyOtherEntity.STRING_KEY), "fromParent");
+        
+        app.config().set(MyOtherEntity.STRING_KEY, "fromAppAgain");
+        assertEquals(child.config().get(MyOtherEntity.STRING_KEY), "fromParent");
+        
+        ((EntityInternal)parent).config().removeKey(MyOtherEntity.STRING_KEY);
+        assertEquals(child.config().get(MyOtherEntity.STRING_KEY), "fromAppAgain");
+    }
+
+    @Test
+    public void testResolvedConfigNotSharedIfMutable() throws Exception {
+        ConfigKey<List<Object>> key = ConfigKeys.newConfigKey(new TypeToken<List<Object>>() {}, "myListOfLists");
+        MyOtherEntity entity = app.addChild(EntitySpec.create(MyOtherEntity.class));
+        entity.config().set(key, MutableList.<Object>of(MutableList.of("a")));
+        
+        @SuppressWarnings("unchecked")
+        List<Object> inner = (List<Object>) entity.config().get(key).get(0);
+        try {
+            inner.add("b");
+        } catch (UnsupportedOperationException e) {
+            // fine, cannot be changed
+        }
+        assertEquals(entity.config().get(key), ImmutableList.of(ImmutableList.of("a")));
+    }
+
     @Test
     public void testInheritedDefault() {
         final Entity e1 = app.addChild(EntitySpec.create(MyBaseEntity.class));
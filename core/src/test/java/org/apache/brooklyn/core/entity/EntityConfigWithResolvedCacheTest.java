@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.entity;
+
+import org.apache.brooklyn.core.BrooklynFeatureEnablement;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+
+/** Runs the {@link EntityConfigTest} tests with {@link BrooklynFeatureEnablement#FEATURE_RESOLVED_CONFIG_CACHE} enabled. */
+public class EntityConfigWithResolvedCacheTest extends EntityConfigTest {
+
+    private boolean resolvedConfigCacheOriginal;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        // must be enabled before the management context first looks up config
+        resolvedConfigCacheOriginal = BrooklynFeatureEnablement.enable(BrooklynFeatureEnablement.FEATURE_RESOLVED_CONFIG_CACHE);
+        super.setUp();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        try {
+            super.tearDown();
+        } finally {
+            BrooklynFeatureEnablement.setEnablement(BrooklynFeatureEnablement.FEATURE_RESOLVED_CONFIG_CACHE, resolvedConfigCacheOriginal);
+        }
+    }
+}
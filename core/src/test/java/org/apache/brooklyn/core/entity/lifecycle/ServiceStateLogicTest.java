@@ -21,6 +21,8 @@ package org.apache.brooklyn.core.entity.lifecycle;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.brooklyn.api.entity.Entity;
@@ -46,6 +48,7 @@ import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.core.test.entity.TestEntityImpl.TestEntityWithoutEnrichers;
 import org.apache.brooklyn.entity.group.DynamicCluster;
 import org.apache.brooklyn.test.support.FlakyRetryAnalyser;
+import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.QuorumCheck.QuorumChecks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.time.Duration;
@@ -53,6 +56,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -296,6 +300,71 @@ public class ServiceStateLogicTest extends BrooklynAppUnitTestSupport {
         EntityAsserts.assertAttributeEqualsContinually(cluster, Attributes.SERVICE_STATE_ACTUAL, Lifecycle.RUNNING);
     }
 
+    @Test
+    public void testCoalescesIndicatorsFromChildren() {
+        app.config().set(ServiceStateLogic.SERVICE_STATE_COALESCE_PERIOD, Duration.millis(200));
+        CountingComputeServiceIndicators enricher = app.enrichers().add(EnricherSpec.create(CountingComputeServiceIndicators.class)
+                .uniqueTag("coalesced-indicators")
+                .configure(ComputeServiceIndicatorsFromChildrenAndMembers.DERIVE_SERVICE_PROBLEMS, false)
+                .configure(ComputeServiceIndicatorsFromChildrenAndMembers.UP_QUORUM_CHECK, QuorumChecks.all()));
+        final int numChildren = 10;
+        List<TestEntity> children = MutableList.of();
+        for (int i=0; i<numChildren; i++) {
+            children.add(app.createAndManageChild(EntitySpec.create(TestEntity.class).impl(TestEntityWithoutEnrichers.class)));
+        }
+        for (TestEntity child : children) {
+            // not an ignored state, so children which are not up count against the quorum
+            child.sensors().set(Attributes.SERVICE_STATE_ACTUAL, Lifecycle.RUNNING);
+            child.sensors().set(Attributes.SERVICE_UP, true);
+        }
+        assertNotUpIndicatorEventually(app, "coalesced-indicators", false);
+
+        enricher.cntCalled.set(0);
+        for (TestEntity child : children) {
+            child.sensors().set(Attributes.SERVICE_UP, false);
+        }
+        assertNotUpIndicatorEventually(app, "coalesced-indicators", true);
+        assertTrue(enricher.cntCalled.get() < numChildren, "calls="+enricher.cntCalled);
+
+        for (TestEntity child : children) {
+            child.sensors().set(Attributes.SERVICE_UP, true);
+        }
+        assertNotUpIndicatorEventually(app, "coalesced-indicators", false);
+    }
+
+    @Test
+    public void testExpectedStateAppliedImmediatelyWhenCoalescing() {
+        // long enough that a coalesced recompute would not happen within the assertion's timeout
+        entity.config().set(ServiceStateLogic.SERVICE_STATE_COALESCE_PERIOD, Duration.ONE_MINUTE);
+        ServiceNotUpLogic.updateNotUpIndicator(entity, INDICATOR_KEY_1, "not yet up");
+
+        ServiceStateLogic.setExpectedState(entity, Lifecycle.STARTING);
+        EntityAsserts.assertAttributeEqualsEventually(ImmutableMap.of("timeout", Duration.TEN_SECONDS), entity, Attributes.SERVICE_STATE_ACTUAL, Lifecycle.STARTING);
+        ServiceStateLogic.setExpectedState(entity, Lifecycle.RUNNING);
+        EntityAsserts.assertAttributeEqualsEventually(ImmutableMap.of("timeout", Duration.TEN_SECONDS), entity, Attributes.SERVICE_STATE_ACTUAL, Lifecycle.ON_FIRE);
+    }
+
+    private static void assertNotUpIndicatorEventually(final Entity x, final String key, final boolean present) {
+        EntityAsserts.assertAttributeEventually(x, Attributes.SERVICE_NOT_UP_INDICATORS, new Predicate<Map<String, Object>>() {
+            @Override
+            public boolean apply(Map<String, Object> input) {
+                return (input!=null && input.containsKey(key)) == present;
+            }
+        });
+    }
+
+    public static class CountingComputeServiceIndicators extends ComputeServiceIndicatorsFromChildrenAndMembers {
+        AtomicInteger cntCalled = new AtomicInteger();
+
+        public CountingComputeServiceIndicators() {}
+
+        @Override
+        protected void recomputeIndicators() {
+            cntCalled.incrementAndGet();
+            super.recomputeIndicators();
+        }
+    }
+
     public static class CountingComputeServiceState extends ComputeServiceState {
         AtomicInteger cntCalled = new AtomicInteger();
         AtomicInteger cntCalledWithNull = new AtomicInteger();
@@ -18,11 +18,13 @@
  */
 package org.apache.brooklyn.core.entity.proxying;
 
+import static org.apache.brooklyn.test.Asserts.assertEqualsIgnoringOrder;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
+import java.util.Collection;
 import java.util.ConcurrentModificationException;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -34,6 +36,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.mgmt.EntityManager;
+import org.apache.brooklyn.core.entity.BrooklynConfigKeys;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.mgmt.internal.EntityManagerInternal;
 import org.apache.brooklyn.core.mgmt.internal.IdAlreadyExistsException;
@@ -166,6 +169,44 @@ public class EntityManagerTest extends BrooklynAppUnitTestSupport {
     
     // See https://issues.apache.org/jira/browse/BROOKLYN-352
     // Before the fix, 250ms was sufficient to cause the ConcurrentModificationException
+    @Test
+    public void testGetEntitiesInApplicationWithPlanId() {
+        TestEntity e1 = app.createAndManageChild(EntitySpec.create(TestEntity.class)
+                .configure(BrooklynConfigKeys.PLAN_ID, "a"));
+        TestEntity e2 = e1.addChild(EntitySpec.create(TestEntity.class)
+                .configure(BrooklynConfigKeys.PLAN_ID, "a"));
+        TestEntity e3 = app.createAndManageChild(EntitySpec.create(TestEntity.class)
+                .configure(BrooklynConfigKeys.PLAN_ID, "b"));
+        TestApplication app2 = mgmt.getEntityManager().createEntity(EntitySpec.create(TestApplication.class)
+                .child(EntitySpec.create(TestEntity.class).configure(BrooklynConfigKeys.PLAN_ID, "a")));
+        
+        assertEqualsIgnoringOrder(getEntitiesWithPlanId(app, "a"), ImmutableList.of(e1, e2));
+        assertEqualsIgnoringOrder(getEntitiesWithPlanId(app, "b"), ImmutableList.of(e3));
+        assertEqualsIgnoringOrder(getEntitiesWithPlanId(app, "c"), ImmutableList.of());
+        assertEqualsIgnoringOrder(getEntitiesWithPlanId(app2, "a"), app2.getChildren());
+        
+        Entities.unmanage(e2);
+        assertEqualsIgnoringOrder(getEntitiesWithPlanId(app, "a"), ImmutableList.of(e1));
+        
+        Entities.unmanage(app2);
+        assertEqualsIgnoringOrder(getEntitiesWithPlanId(app2, "a"), ImmutableList.of());
+    }
+
+    @Test
+    public void testGetEntitiesInApplicationWithPlanIdChecksCurrentConfig() {
+        TestEntity e1 = app.createAndManageChild(EntitySpec.create(TestEntity.class)
+                .configure(BrooklynConfigKeys.PLAN_ID, "a"));
+        assertEqualsIgnoringOrder(getEntitiesWithPlanId(app, "a"), ImmutableList.of(e1));
+        
+        // index is not updated, but must not return stale results
+        e1.config().set(BrooklynConfigKeys.PLAN_ID, "b");
+        assertEqualsIgnoringOrder(getEntitiesWithPlanId(app, "a"), ImmutableList.of());
+    }
+
+    private Collection<Entity> getEntitiesWithPlanId(TestApplication app, String planId) {
+        return ((EntityManagerInternal)mgmt.getEntityManager()).getEntitiesInApplicationWithPlanId(app, planId);
+    }
+
     @Test
     public void testGetAllEntitiesWhileEntitiesAddedAndRemoved() throws Exception {
         runGetAllEntitiesWhileEntitiesAddedAndRemoved(Duration.millis(250));
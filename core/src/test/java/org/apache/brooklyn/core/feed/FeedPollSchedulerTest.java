@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.feed;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.core.entity.EntityAsserts;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
+import org.apache.brooklyn.core.sensor.Sensors;
+import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.feed.function.FunctionFeed;
+import org.apache.brooklyn.feed.function.FunctionPollConfig;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.core.task.DynamicTasks;
+import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.time.Duration;
+import org.apache.brooklyn.util.time.Time;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableMap;
+
+public class FeedPollSchedulerTest extends BrooklynAppUnitTestSupport {
+
+    private static final AttributeSensor<Integer> SENSOR_INT = Sensors.newIntegerSensor("aLong", "");
+
+    private TestEntity entity;
+    private AtomicInteger counter;
+
+    @Override
+    protected BrooklynProperties getBrooklynProperties() {
+        BrooklynProperties result = BrooklynProperties.Factory.newEmpty();
+        result.put(FeedPollScheduler.MAX_THREADS, 2);
+        return result;
+    }
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        counter = new AtomicInteger();
+    }
+
+    @Test
+    public void testFeedPollsWithoutCreatingTasks() throws Exception {
+        FunctionFeed feed = FunctionFeed.builder()
+                .entity(entity)
+                .poll(new FunctionPollConfig<Integer, Integer>(SENSOR_INT)
+                        .period(10)
+                        .callable(newCountingCallable()))
+                .build();
+
+        EntityAsserts.assertAttributeEventually(entity, SENSOR_INT, Predicates.<Integer>notNull());
+        Asserts.succeedsEventually(() -> assertTrue(entity.getAttribute(SENSOR_INT) > 3));
+        assertTrue(mgmt.getExecutionManager().getTasksWithTag(BrooklynTaskTags.FEED_POLL_TAG).isEmpty(),
+            "tasks="+mgmt.getExecutionManager().getTasksWithTag(BrooklynTaskTags.FEED_POLL_TAG));
+
+        FeedPollScheduler.PollStats stats = FeedPollScheduler.get(mgmt).getStats().get(feed.getId());
+        assertTrue(stats.getPolls() > 3, "stats="+stats);
+        assertEquals(stats.getFailures(), 0, "stats="+stats);
+    }
+
+    @Test
+    public void testPollCanSubmitTasks() throws Exception {
+        FunctionFeed.builder()
+                .entity(entity)
+                .poll(new FunctionPollConfig<Integer, Integer>(SENSOR_INT)
+                        .period(10)
+                        .callable(new Callable<Integer>() {
+                            @Override
+                            public Integer call() {
+                                return DynamicTasks.get(Tasks.<Integer>builder().displayName("get").body(newCountingCallable()).build());
+                            }
+                        }))
+                .build();
+
+        EntityAsserts.assertAttributeEventually(entity, SENSOR_INT, Predicates.<Integer>notNull());
+    }
+
+    @Test
+    public void testStopCancelsPolls() throws Exception {
+        FunctionFeed feed = FunctionFeed.builder()
+                .entity(entity)
+                .poll(new FunctionPollConfig<Integer, Integer>(SENSOR_INT)
+                        .period(10)
+                        .callable(newCountingCallable()))
+                .build();
+        EntityAsserts.assertAttributeEventually(entity, SENSOR_INT, Predicates.<Integer>notNull());
+
+        feed.stop();
+        assertFalse(FeedPollScheduler.get(mgmt).getStats().containsKey(feed.getId()));
+        // allow any poll in progress to finish
+        Time.sleep(Duration.millis(50));
+        final int count = counter.get();
+        Asserts.succeedsContinually(ImmutableMap.of("timeout", Duration.millis(100)), () -> assertEquals(counter.get(), count));
+    }
+
+    @Test
+    public void testSkipsPollsWhilePreviousStillRunning() throws Exception {
+        FeedPollScheduler scheduler = FeedPollScheduler.get(mgmt);
+        FeedPollScheduler.Registration registration = scheduler.schedule("myfeed", "slow", Duration.millis(10), () -> {
+            counter.incrementAndGet();
+            Time.sleep(Duration.millis(50));
+        });
+        try {
+            Asserts.succeedsEventually(() -> {
+                FeedPollScheduler.PollStats stats = registration.getStats();
+                assertTrue(stats.getPolls() > 1, "stats="+stats);
+                assertTrue(stats.getSkipped() > 1, "stats="+stats);
+                assertTrue(stats.getOverruns() > 1, "stats="+stats);
+            });
+            assertEquals(counter.get(), registration.getStats().getPolls(), 1);
+        } finally {
+            registration.cancel();
+        }
+        assertFalse(scheduler.getStats().containsKey("myfeed"));
+    }
+
+    private Callable<Integer> newCountingCallable() {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return counter.incrementAndGet();
+            }
+        };
+    }
+}
@@ -19,9 +19,11 @@
 package org.apache.brooklyn.core.mgmt.internal;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -42,6 +44,8 @@ import org.apache.brooklyn.entity.group.BasicGroup;
 import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.task.BasicExecutionContext;
+import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.time.Duration;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
@@ -143,6 +147,35 @@ public class LocalSubscriptionManagerTest extends BrooklynAppUnitTestSupport {
         assertEquals(events.get(0).getSource().getId(), member.getId());
     }
     
+    @Test
+    public void testGetSubscriptionsForEntitySensorIncludesWildcardsAndExcludesUnsubscribed() throws Exception {
+        SubscriptionManager subscriptionManager = mgmt.getSubscriptionManager();
+        SensorEventListener<Object> noopListener = new SensorEventListener<Object>() {
+            @Override public void onEvent(SensorEvent<Object> event) {
+            }
+        };
+        int initialCount = subscriptionManager.getSubscriptionsForEntitySensor(entity, TestEntity.SEQUENCE).size();
+        SubscriptionHandle exact = subscriptionManager.subscribe(entity, TestEntity.SEQUENCE, noopListener);
+        SubscriptionHandle otherSensor = subscriptionManager.subscribe(entity, TestEntity.NAME, noopListener);
+        SubscriptionHandle anyProducer = subscriptionManager.subscribe(null, TestEntity.SEQUENCE, noopListener);
+        SubscriptionHandle anySensor = subscriptionManager.subscribe(entity, null, noopListener);
+        
+        Set<SubscriptionHandle> subs = subscriptionManager.getSubscriptionsForEntitySensor(entity, TestEntity.SEQUENCE);
+        assertEquals(subs.size(), initialCount + 3, "subs="+subs);
+        Asserts.assertTrue(subs.containsAll(ImmutableList.of(exact, anyProducer, anySensor)), "subs="+subs);
+        Asserts.assertFalse(subs.contains(otherSensor), "subs="+subs);
+        
+        subscriptionManager.unsubscribe(anyProducer);
+        subscriptionManager.unsubscribe(anySensor);
+        subscriptionManager.unsubscribe(exact);
+        subs = subscriptionManager.getSubscriptionsForEntitySensor(entity, TestEntity.SEQUENCE);
+        assertEquals(subs.size(), initialCount, "subs="+subs);
+        Asserts.assertFalse(subs.contains(exact), "subs="+subs);
+        
+        subscriptionManager.unsubscribe(otherSensor);
+        Asserts.assertFalse(subscriptionManager.getSubscriptionsForEntitySensor(entity, TestEntity.NAME).contains(otherSensor));
+    }
+    
     // Regression test for ConcurrentModificationException in issue #327
     @Test(groups="Integration")
     public void testConcurrentSubscribingAndPublishing() throws Exception {
@@ -260,6 +293,123 @@ public class LocalSubscriptionManagerTest extends BrooklynAppUnitTestSupport {
         Assert.assertEquals(listener.getEvents().get(9).getValue(), entity.sensors().get(TestEntity.SEQUENCE));
     }
 
+    @Test
+    public void testBatchedDeliveryPreservesOrder() throws Exception {
+        LocalSubscriptionManager subscriptionManager = (LocalSubscriptionManager) mgmt.getSubscriptionManager();
+        subscriptionManager.setBatchedDelivery(true);
+        RecordingSensorEventListener<Object> listener = new RecordingSensorEventListener<>();
+        entity.subscriptions().subscribe(entity, TestEntity.SEQUENCE, listener);
+        entity.subscriptions().subscribe(entity, TestEntity.NAME, listener);
+        
+        for (int i=0; i<100; i++) {
+            entity.sensors().set(TestEntity.SEQUENCE, i);
+            if (i % 10 == 0) entity.sensors().set(TestEntity.NAME, "name"+i);
+        }
+        
+        Asserts.succeedsEventually(() -> Asserts.assertSize(listener.getEvents(), 110));
+        int nextSequence = 0;
+        for (SensorEvent<Object> event : listener.getEvents()) {
+            if (event.getSensor().equals(TestEntity.SEQUENCE)) {
+                assertEquals(event.getValue(), nextSequence++);
+            } else {
+                // names are interleaved, immediately after the corresponding sequence value
+                assertEquals(event.getValue(), "name"+(nextSequence-1));
+            }
+        }
+        Asserts.succeedsEventually(() -> assertEquals(subscriptionManager.getDeliveryQueueDepth(), 0));
+    }
+    
+    @Test
+    public void testBatchedDeliveryHasSubscribersExecutionContext() throws Exception {
+        ((LocalSubscriptionManager) mgmt.getSubscriptionManager()).setBatchedDelivery(true);
+        final AtomicReference<BasicExecutionContext> result = new AtomicReference<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        app.subscriptions().subscribe(entity, TestEntity.SEQUENCE, new SensorEventListener<Object>() {
+                @Override public void onEvent(SensorEvent<Object> event) {
+                    result.set(BasicExecutionContext.getCurrentExecutionContext());
+                    latch.countDown();
+                }});
+        entity.setSequenceValue(1234);
+        if (!latch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            fail("Timeout waiting for Event on TestEntity listener");
+        }
+        Assert.assertEquals(result.get(), app.getExecutionContext());
+    }
+    
+    @Test
+    public void testBatchedDeliveryWithSharedTagUsesEachSubscriptionsTags() throws Exception {
+        SubscriptionManager subscriptionManager = mgmt.getSubscriptionManager();
+        ((LocalSubscriptionManager) subscriptionManager).setBatchedDelivery(true);
+        final List<Set<Object>> tags1 = new CopyOnWriteArrayList<>();
+        final List<Set<Object>> tags2 = new CopyOnWriteArrayList<>();
+        subscriptionManager.subscribe(MutableMap.<String, Object>of("subscriberExecutionManagerTag", "shared", "tag", "extra1"), 
+                entity, TestEntity.SEQUENCE, new SensorEventListener<Object>() {
+                    @Override public void onEvent(SensorEvent<Object> event) {
+                        tags1.add(Tasks.current().getTags());
+                    }});
+        subscriptionManager.subscribe(MutableMap.<String, Object>of("subscriberExecutionManagerTag", "shared", "tag", "extra2"), 
+                entity, TestEntity.SEQUENCE, new SensorEventListener<Object>() {
+                    @Override public void onEvent(SensorEvent<Object> event) {
+                        tags2.add(Tasks.current().getTags());
+                    }});
+        entity.sensors().set(TestEntity.SEQUENCE, 1);
+        
+        Asserts.succeedsEventually(() -> { Asserts.assertSize(tags1, 1); Asserts.assertSize(tags2, 1); });
+        assertTrue(tags1.get(0).contains("extra1") && !tags1.get(0).contains("extra2"), "tags="+tags1);
+        assertTrue(tags2.get(0).contains("extra2") && !tags2.get(0).contains("extra1"), "tags="+tags2);
+    }
+    
+    @Test
+    public void testBatchedDeliveryWithoutExecutionManagerTag() throws Exception {
+        SubscriptionManager subscriptionManager = mgmt.getSubscriptionManager();
+        ((LocalSubscriptionManager) subscriptionManager).setBatchedDelivery(true);
+        RecordingSensorEventListener<Object> listener = new RecordingSensorEventListener<>();
+        subscriptionManager.subscribe(MutableMap.<String, Object>of("subscriberExecutionManagerTag", null), 
+                entity, TestEntity.SEQUENCE, listener);
+        entity.sensors().set(TestEntity.SEQUENCE, 1);
+        
+        Asserts.succeedsEventually(() -> Asserts.assertSize(listener.getEvents(), 1));
+    }
+    
+    @Test
+    public void testConflatingSubscriptionDeliversLatestValueWhenBehind() throws Exception {
+        doTestConflatingSubscriptionDeliversLatestValueWhenBehind(false);
+    }
+    
+    @Test
+    public void testConflatingSubscriptionDeliversLatestValueWhenBehindWithBatchedDelivery() throws Exception {
+        doTestConflatingSubscriptionDeliversLatestValueWhenBehind(true);
+    }
+    
+    protected void doTestConflatingSubscriptionDeliversLatestValueWhenBehind(boolean batched) throws Exception {
+        LocalSubscriptionManager subscriptionManager = (LocalSubscriptionManager) mgmt.getSubscriptionManager();
+        subscriptionManager.setBatchedDelivery(batched);
+        final CountDownLatch firstEventReceived = new CountDownLatch(1);
+        final CountDownLatch allowDelivery = new CountDownLatch(1);
+        final List<Object> values = new CopyOnWriteArrayList<Object>();
+        entity.subscriptions().subscribe(ImmutableMap.of("conflate", true), entity, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+            @Override public void onEvent(SensorEvent<Integer> event) {
+                values.add(event.getValue());
+                firstEventReceived.countDown();
+                try {
+                    allowDelivery.await();
+                } catch (InterruptedException e) {
+                    throw Exceptions.propagate(e);
+                }
+            }});
+        
+        entity.sensors().set(TestEntity.SEQUENCE, 0);
+        assertTrue(firstEventReceived.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        for (int i=1; i<=100; i++) {
+            entity.sensors().set(TestEntity.SEQUENCE, i);
+        }
+        allowDelivery.countDown();
+        
+        Asserts.succeedsEventually(() -> assertEquals(values, ImmutableList.of(0, 100)));
+        assertEquals(subscriptionManager.getTotalEventsConflated(), 99);
+        assertEquals(subscriptionManager.getNumSubscriptionsConflated(), 1);
+    }
+    
     @Test
     public void testSubscriptionHasSubscribersExecutionContext() throws Exception {
         final AtomicReference<BasicExecutionContext> result = new AtomicReference<>();
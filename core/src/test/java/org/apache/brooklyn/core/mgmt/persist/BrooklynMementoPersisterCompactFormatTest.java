@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import static org.testng.Assert.assertEquals;
+
+import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.api.mgmt.rebind.RebindManager.RebindFailureMode;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoManifest;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoRawData;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.rebind.RebindTestUtils;
+import org.apache.brooklyn.core.mgmt.rebind.RecordingRebindExceptionHandler;
+import org.apache.brooklyn.core.mgmt.rebind.transformer.impl.DeleteOrphanedStateTransformer;
+import org.apache.brooklyn.core.test.entity.TestEntityImpl;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.Test;
+
+/** Runs the persister tests writing {@link MementoFormat#COMPACT}, and checks mixed-format stores can be read. */
+@Test
+public class BrooklynMementoPersisterCompactFormatTest extends BrooklynMementoPersisterTestFixture {
+
+    @Override
+    protected ManagementContext newPersistingManagementContext() {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(BrooklynMementoPersisterToObjectStore.PERSISTER_FORMAT, MementoFormat.COMPACT);
+        return RebindTestUtils.managementContextBuilder(classLoader, new InMemoryObjectStore())
+            .properties(props)
+            .persistPeriod(Duration.millis(10)).buildStarted();
+    }
+
+    @Test
+    public void testWritesCompactAndLoadsManifest() throws Exception {
+        BrooklynMementoPersisterToObjectStore p = (BrooklynMementoPersisterToObjectStore) persister;
+        BrooklynMementoRawData rawData = loadRawMemento(p);
+        assertEquals(MementoFormat.of(rawData.getEntities().get(entity.getId())), MementoFormat.COMPACT);
+
+        // make the app's memento XML, so the store is mixed
+        BrooklynMementoRawData mixed = BrooklynMementoRawData.builder()
+            .entities(rawData.getEntities())
+            .entity(app.getId(), MementoFormat.toXml(rawData.getEntities().get(app.getId())))
+            .locations(rawData.getLocations())
+            .policies(rawData.getPolicies())
+            .enrichers(rawData.getEnrichers())
+            .build();
+
+        RecordingRebindExceptionHandler failFast = new RecordingRebindExceptionHandler(RebindFailureMode.FAIL_FAST, RebindFailureMode.FAIL_FAST);
+        BrooklynMementoManifest manifest = p.loadMementoManifest(mixed, failFast);
+        assertEquals(manifest.getEntityIdToManifest().get(entity.getId()).getType(), TestEntityImpl.class.getName());
+        assertEquals(manifest.getEntityIdToManifest().get(entity.getId()).getParent(), app.getId());
+        assertEquals(manifest.getEntityIdToManifest().get(app.getId()).getParent(), null);
+        assertEquals(manifest.getLocationIdToType().get(location.getId()), location.getClass().getName());
+        assertEquals(manifest.getPolicyIdToType().get(policy.getId()), policy.getClass().getName());
+    }
+
+    @Test
+    public void testDeleteOrphanedStateKeepsReferencedCompactState() throws Exception {
+        BrooklynMementoRawData rawData = loadRawMemento((BrooklynMementoPersisterToObjectStore) persister);
+        assertEquals(MementoFormat.of(rawData.getLocations().get(location.getId())), MementoFormat.COMPACT);
+
+        BrooklynMementoRawData transformed = DeleteOrphanedStateTransformer.builder().build().transform(rawData);
+        assertEquals(transformed.getLocations(), rawData.getLocations());
+        assertEquals(transformed.getPolicies(), rawData.getPolicies());
+        assertEquals(transformed.getEnrichers(), rawData.getEnrichers());
+    }
+}
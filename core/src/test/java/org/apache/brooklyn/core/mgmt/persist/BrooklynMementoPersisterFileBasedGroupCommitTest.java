@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Map;
+
+import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoRawData;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.rebind.RebindTestUtils;
+import org.apache.brooklyn.util.javalang.JavaClassNames;
+import org.apache.brooklyn.util.os.Os;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/** Runs the file-based persister tests with {@link FileBasedObjectStore#GROUP_COMMIT_ENABLED group commit}. */
+@Test
+public class BrooklynMementoPersisterFileBasedGroupCommitTest extends BrooklynMementoPersisterFileBasedTest {
+
+    @Override
+    protected ManagementContext newPersistingManagementContext() {
+        mementoDir = Os.newTempDir(JavaClassNames.cleanSimpleClassName(this));
+        Os.deleteOnExitRecursively(mementoDir);
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(FileBasedObjectStore.GROUP_COMMIT_ENABLED, true);
+        // long enough that the tests see the files only once flushed
+        props.put(FileBasedObjectStore.GROUP_COMMIT_COMPACTION_PERIOD, Duration.ONE_HOUR);
+        return RebindTestUtils.managementContextBuilder(classLoader, new FileBasedObjectStore(mementoDir))
+            .properties(props)
+            .persistPeriod(Duration.millis(10)).buildStarted();
+    }
+
+    @Test
+    public void testFilesWrittenWhenWritesDisabled() throws Exception {
+        BrooklynMementoRawData rawData = loadRawMemento((BrooklynMementoPersisterToObjectStore)persister);
+        File entityFile = new File(mementoDir, "entities/"+entity.getId());
+
+        FileBasedObjectStore store = (FileBasedObjectStore) ((BrooklynMementoPersisterToObjectStore)persister).getObjectStore();
+        assertNotNull(store.getGroupCommitLog());
+        assertTrue(store.getGroupCommitLog().getPendingCount() > 0);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> metrics = (Map<String, Object>) localManagementContext.getRebindManager().getMetrics().get("persistGroupCommit");
+        assertTrue((Long)metrics.get("changeCount") > 0, "metrics="+metrics);
+        assertTrue((Long)((Map<?,?>)localManagementContext.getRebindManager().getMetrics().get("persist")).get("changeCount") > 0);
+
+        persister.disableWriteAccess(true);
+        assertEquals(Files.asCharSource(entityFile, Charsets.UTF_8).read(), rawData.getEntities().get(entity.getId()));
+        assertEquals(new File(mementoDir, FileBasedObjectStore.GROUP_COMMIT_LOG_SUB_PATH).list().length, 0);
+    }
+}
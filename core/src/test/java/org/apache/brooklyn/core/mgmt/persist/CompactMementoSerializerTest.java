@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.apache.brooklyn.api.catalog.CatalogItem;
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.location.Location;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.EntityMemento;
+import org.apache.brooklyn.api.policy.Policy;
+import org.apache.brooklyn.api.sensor.Enricher;
+import org.apache.brooklyn.api.sensor.Feed;
+import org.apache.brooklyn.api.typereg.ManagedBundle;
+import org.apache.brooklyn.core.entity.EntityInternal;
+import org.apache.brooklyn.core.mgmt.persist.XmlMementoSerializerTest.LookupContextImpl;
+import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class CompactMementoSerializerTest extends BrooklynAppUnitTestSupport {
+
+    private XmlMementoSerializer<Object> xmlSerializer;
+    private CompactMementoSerializer<Object> compactSerializer;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        xmlSerializer = new XmlMementoSerializer<Object>(getClass().getClassLoader());
+        compactSerializer = new CompactMementoSerializer<Object>(getClass().getClassLoader());
+    }
+
+    @Test
+    public void testRoundTripCollections() throws Exception {
+        Object obj = MutableMap.of("list", MutableList.of("a", 1, 2.5), "set", MutableSet.of("x"),
+            "immutable", ImmutableMap.of("k", ImmutableList.of("v")), "null", null);
+        String compact = compactSerializer.toString(obj);
+        assertEquals(MementoFormat.of(compact), MementoFormat.COMPACT);
+        assertEquals(compactSerializer.fromString(compact), obj);
+    }
+
+    @Test
+    public void testEachSerializerReadsBothFormats() throws Exception {
+        Object obj = MutableMap.of("a", MutableList.of("b", "c"));
+        String xml = xmlSerializer.toString(obj);
+        String compact = compactSerializer.toString(obj);
+        assertEquals(MementoFormat.of(xml), MementoFormat.XML);
+
+        assertEquals(xmlSerializer.fromString(compact), obj);
+        assertEquals(compactSerializer.fromString(xml), obj);
+    }
+
+    @Test
+    public void testEntityMementoConvertsToIdenticalXml() throws Exception {
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class)
+            .configure(TestEntity.CONF_NAME, "myname")
+            .configure(TestEntity.CONF_MAP_THING, ImmutableMap.of("k", "v")));
+        entity.sensors().set(TestEntity.NAME, "mysensor");
+        EntityMemento memento = ((EntityInternal)entity).getRebindSupport().getMemento();
+
+        String xml = xmlSerializer.toString(memento);
+        String compact = compactSerializer.toString(memento);
+        assertEquals(MementoFormat.toXml(compact), xml);
+        assertEquals(MementoFormat.toXml(MementoFormat.toCompact(xml)), xml);
+
+        LookupContextImpl lookupContext = new LookupContextImpl("test", mgmt,
+            ImmutableList.<Entity>of(app, entity), ImmutableList.<Location>of(), ImmutableList.<Policy>of(),
+            ImmutableList.<Enricher>of(), ImmutableList.<Feed>of(), ImmutableList.<CatalogItem<?, ?>>of(), ImmutableList.<ManagedBundle>of(), true);
+        compactSerializer.setLookupContext(lookupContext);
+        try {
+            EntityMemento reloaded = (EntityMemento) compactSerializer.fromString(compact);
+            assertEquals(reloaded.getId(), entity.getId());
+            assertEquals(reloaded.getParent(), app.getId());
+            assertEquals(reloaded.getAttributes().get(TestEntity.NAME), "mysensor");
+            assertEquals(reloaded.getConfig().get(TestEntity.CONF_NAME), "myname");
+        } finally {
+            compactSerializer.unsetLookupContext();
+        }
+        assertTrue(compact.length() < xml.length(), "compact="+compact.length()+"; xml="+xml.length());
+    }
+}
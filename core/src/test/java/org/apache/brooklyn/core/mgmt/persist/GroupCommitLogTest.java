@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.os.Os;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+
+public class GroupCommitLogTest {
+
+    private File dir;
+    private File logDir;
+    private GroupCommitLog log;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        dir = Os.newTempDir(getClass());
+        logDir = new File(dir, "journal");
+        log = newLog();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (log!=null) log.discard();
+        if (dir!=null) Os.deleteRecursively(dir);
+    }
+
+    private GroupCommitLog newLog() {
+        // no periodic compaction, so the tests control it
+        return new GroupCommitLog(logDir, new Function<String, FileBasedStoreObjectAccessor>() {
+            @Override public FileBasedStoreObjectAccessor apply(String path) {
+                return new FileBasedStoreObjectAccessor(new File(dir, path), ".tmp");
+            }
+        }, Duration.ZERO, Long.MAX_VALUE);
+    }
+
+    private GroupCommitStoreObjectAccessor accessor(final String path) {
+        return new GroupCommitStoreObjectAccessor(path, new FileBasedStoreObjectAccessor(new File(dir, path), ".tmp"),
+            new Supplier<GroupCommitLog>() {
+                @Override public GroupCommitLog get() {
+                    return log;
+                }
+            });
+    }
+
+    private String readFile(String path) throws Exception {
+        File f = new File(dir, path);
+        return f.exists() ? Files.asCharSource(f, Charsets.UTF_8).read() : null;
+    }
+
+    @Test
+    public void testWritesVisibleBeforeCompactionAndInFilesAfter() throws Exception {
+        new File(dir, "entities").mkdirs();
+        log.open();
+        GroupCommitStoreObjectAccessor a = accessor("entities/a");
+        a.put("v1");
+        a.put("v2");
+        assertEquals(a.get(), "v2");
+        assertTrue(a.exists());
+        assertNull(readFile("entities/a"));
+        assertEquals(log.getPendingInSubPath("entities").keySet(), ImmutableSet.of("a"));
+
+        log.compact(true);
+        assertEquals(readFile("entities/a"), "v2");
+        assertEquals(log.getPendingCount(), 0);
+        assertEquals(a.get(), "v2");
+
+        a.delete();
+        assertFalse(a.exists());
+        assertNull(a.get());
+        assertEquals(readFile("entities/a"), "v2");
+        log.close();
+        assertNull(readFile("entities/a"));
+        assertEquals(logDir.list().length, 0);
+    }
+
+    @Test
+    public void testRecoversUncompactedWritesOnOpen() throws Exception {
+        new File(dir, "entities").mkdirs();
+        log.open();
+        accessor("entities/a").put("a1");
+        accessor("entities/b").put("b1");
+        log.compact(true);
+        accessor("entities/a").put("a2");
+        accessor("entities/b").delete();
+        accessor("entities/c").put("c1");
+        // as though the process died: nothing written to the files since the compaction
+        log.discard();
+        assertEquals(readFile("entities/a"), "a1");
+        assertEquals(readFile("entities/b"), "b1");
+
+        log = newLog();
+        log.open();
+        assertEquals(readFile("entities/a"), "a2");
+        assertNull(readFile("entities/b"));
+        assertEquals(readFile("entities/c"), "c1");
+        assertEquals(log.getPendingCount(), 0);
+    }
+
+    @Test
+    public void testTornFinalRecordIsIgnored() throws Exception {
+        new File(dir, "entities").mkdirs();
+        log.open();
+        accessor("entities/a").put("a1");
+        log.discard();
+
+        File[] segments = logDir.listFiles();
+        assertEquals(segments.length, 1);
+        FileOutputStream out = new FileOutputStream(segments[0], true);
+        try {
+            // the start of a record, as if the write was interrupted
+            out.write(new byte[] {1, 0, 0, 0, 10, 'e', 'n'});
+        } finally {
+            out.close();
+        }
+
+        log = newLog();
+        log.open();
+        assertEquals(readFile("entities/a"), "a1");
+    }
+
+    @Test
+    public void testConcurrentWritesShareSyncs() throws Exception {
+        new File(dir, "entities").mkdirs();
+        log.open();
+        final int numThreads = 10;
+        final int numWrites = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<?>> futures = MutableList.of();
+            for (int i=0; i<numThreads; i++) {
+                final int thread = i;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override public Void call() {
+                        for (int j=0; j<numWrites; j++) {
+                            accessor("entities/t"+thread).put("value-"+j);
+                        }
+                        return null;
+                    }}));
+            }
+            for (Future<?> f : futures) f.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        PersistenceActivityMetrics metrics = log.getMetrics();
+        assertEquals(metrics.asMap().get("changeCount"), (long)numThreads*numWrites);
+        assertTrue((Long)metrics.asMap().get("count") <= numThreads*numWrites, "metrics="+metrics.asMap());
+
+        log.close();
+        for (int i=0; i<numThreads; i++) {
+            assertEquals(readFile("entities/t"+i), "value-"+(numWrites-1));
+        }
+    }
+
+    @Test
+    public void testCompactionWritesEachChangedObjectOnce() throws Exception {
+        new File(dir, "entities").mkdirs();
+        log.open();
+        for (int i=0; i<10; i++) {
+            accessor("entities/a").put("a"+i);
+            accessor("entities/b").put("b"+i);
+        }
+        log.compact(true);
+        assertEquals(readFile("entities/a"), "a9");
+        assertEquals(log.getMetrics().asMap().get("changeCount"), 20L);
+        assertEquals(log.getCompactionMetrics().asMap().get("changeCount"), 2L);
+        assertEquals(log.getCompactionMetrics().asMap().get("count"), 1L);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.api.mgmt.rebind.RebindManager.RebindFailureMode;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoManifest;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoRawData;
+import org.apache.brooklyn.api.objs.BrooklynObjectType;
+import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.mgmt.rebind.RebindTestUtils;
+import org.apache.brooklyn.core.mgmt.rebind.RecordingRebindExceptionHandler;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.core.test.entity.TestEntityImpl;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+@Test
+public class MementoManifestIndexTest extends BrooklynMementoPersisterTestFixture {
+
+    @Override
+    protected ManagementContext newPersistingManagementContext() {
+        return RebindTestUtils.managementContextBuilder(classLoader, new InMemoryObjectStore())
+            .persistPeriod(Duration.millis(10)).buildStarted();
+    }
+
+    // the fixture's objectStore field is only set for the first test, so always ask the current persister
+    private PersistenceObjectStore store() {
+        return ((BrooklynMementoPersisterToObjectStore)persister).getObjectStore();
+    }
+
+    private MementoManifestIndex loadIndex() {
+        MementoManifestIndex result = new MementoManifestIndex();
+        result.load(store());
+        return result;
+    }
+
+    private void writeIndex(MementoManifestIndex index) {
+        for (Map.Entry<String, String> shard : index.takeDirtyShards().entrySet()) {
+            if (shard.getValue()==null) {
+                store().newAccessor(shard.getKey()).delete();
+            } else {
+                store().newAccessor(shard.getKey()).put(shard.getValue());
+            }
+        }
+    }
+
+    private BrooklynMementoManifest loadManifest(BrooklynMementoRawData rawData) throws Exception {
+        RecordingRebindExceptionHandler failFast = new RecordingRebindExceptionHandler(RebindFailureMode.FAIL_FAST, RebindFailureMode.FAIL_FAST);
+        return ((BrooklynMementoPersisterToObjectStore)persister).loadMementoManifest(rawData, failFast);
+    }
+
+    @Test
+    public void testEntryRoundTrip() {
+        MementoManifestIndex.Entry entry = MementoManifestIndex.Entry.of(BrooklynObjectType.ENTITY, "a1", "<contents/>",
+            "my.Type", "p1", "cat:1.0", ImmutableList.of("x:1.0", "odd, \t\nname"));
+        assertEquals(MementoManifestIndex.Entry.fromLine(entry.toLine()), entry);
+        assertTrue(entry.matches("<contents/>"));
+        assertFalse(entry.matches("<contents />"));
+
+        MementoManifestIndex.Entry sparse = MementoManifestIndex.Entry.of(BrooklynObjectType.POLICY, "b2", "", "my.Policy", null, null, null);
+        assertEquals(MementoManifestIndex.Entry.fromLine(sparse.toLine()), sparse);
+    }
+
+    @Test
+    public void testIndexWrittenOnDeltaAndUpdatedOnDelete() throws Exception {
+        BrooklynMementoRawData rawData = loadRawMemento((BrooklynMementoPersisterToObjectStore)persister);
+
+        MementoManifestIndex index = loadIndex();
+        MementoManifestIndex.Entry entry = index.get(BrooklynObjectType.ENTITY, entity.getId());
+        assertNotNull(entry);
+        assertTrue(entry.matches(rawData.getEntities().get(entity.getId())));
+        assertEquals(entry.getJavaType(), TestEntityImpl.class.getName());
+        assertEquals(entry.getParent(), app.getId());
+        assertEquals(index.get(BrooklynObjectType.LOCATION, location.getId()).getJavaType(), location.getClass().getName());
+        assertEquals(index.get(BrooklynObjectType.POLICY, policy.getId()).getJavaType(), policy.getClass().getName());
+
+        Entities.unmanage(entity);
+        RebindTestUtils.waitForPersisted(localManagementContext);
+        assertNull(loadIndex().get(BrooklynObjectType.ENTITY, entity.getId()));
+    }
+
+    @Test
+    public void testManifestUsesMatchingEntriesAndReparsesStaleOnes() throws Exception {
+        BrooklynMementoRawData rawData = loadRawMemento((BrooklynMementoPersisterToObjectStore)persister);
+        String contents = rawData.getEntities().get(entity.getId());
+
+        // an entry matching the contents is trusted, so a forged one shows the index is used
+        MementoManifestIndex index = loadIndex();
+        index.put(MementoManifestIndex.Entry.of(BrooklynObjectType.ENTITY, entity.getId(), contents, "forged.Type", app.getId(), null, null));
+        writeIndex(index);
+        // the index is loaded along with the raw data, as on rebind
+        rawData = loadRawMemento((BrooklynMementoPersisterToObjectStore)persister);
+        assertEquals(loadManifest(rawData).getEntityIdToManifest().get(entity.getId()).getType(), "forged.Type");
+
+        // but once the contents differ, the entry is stale and the contents are parsed
+        BrooklynMementoRawData changed = BrooklynMementoRawData.builder()
+            .entities(rawData.getEntities())
+            .entity(entity.getId(), contents+"\n")
+            .locations(rawData.getLocations())
+            .policies(rawData.getPolicies())
+            .enrichers(rawData.getEnrichers())
+            .build();
+        BrooklynMementoManifest manifest = loadManifest(changed);
+        assertEquals(manifest.getEntityIdToManifest().get(entity.getId()).getType(), TestEntityImpl.class.getName());
+        assertEquals(manifest.getEntityIdToManifest().get(entity.getId()).getParent(), app.getId());
+    }
+
+    @Test
+    public void testCorruptIndexIsIgnoredAndRebuilt() throws Exception {
+        BrooklynMementoRawData rawData = loadRawMemento((BrooklynMementoPersisterToObjectStore)persister);
+        for (String path : store().listContentsWithSubPath(MementoManifestIndex.SUB_PATH)) {
+            store().newAccessor(path).put("not an index\n\tgarbage");
+        }
+        assertEquals(loadIndex().size(), 0);
+        rawData = loadRawMemento((BrooklynMementoPersisterToObjectStore)persister);
+
+        BrooklynMementoManifest manifest = loadManifest(rawData);
+        assertEquals(manifest.getEntityIdToManifest().get(entity.getId()).getType(), TestEntityImpl.class.getName());
+        assertEquals(manifest.getPolicyIdToType().get(policy.getId()), policy.getClass().getName());
+
+        // rebuilt index written on next change
+        entity.sensors().set(TestEntity.NAME, "changed");
+        RebindTestUtils.waitForPersisted(localManagementContext);
+        MementoManifestIndex reloaded = loadIndex();
+        assertNotNull(reloaded.get(BrooklynObjectType.POLICY, policy.getId()));
+        assertNotNull(reloaded.get(BrooklynObjectType.ENTITY, entity.getId()));
+    }
+
+    @Test
+    public void testSmallDeltaRewritesOneShardOfItsType() throws Exception {
+        MementoManifestIndex index = new MementoManifestIndex();
+        for (int i=0; i<100; i++) {
+            index.put(MementoManifestIndex.Entry.of(BrooklynObjectType.ENTITY, "e"+i, "<e"+i+"/>", "my.Entity", null, null, null));
+            index.put(MementoManifestIndex.Entry.of(BrooklynObjectType.LOCATION, "l"+i, "<l"+i+"/>", "my.Location", null, null, null));
+        }
+        assertEquals(index.takeDirtyShards().size(), 2*MementoManifestIndex.SHARD_BUCKETS);
+
+        index.put(MementoManifestIndex.Entry.of(BrooklynObjectType.ENTITY, "e1", "<e1 changed/>", "my.Entity", null, null, null));
+        index.put(MementoManifestIndex.Entry.of(BrooklynObjectType.ENTITY, "e1", "<e1 changed again/>", "my.Entity", null, null, null));
+        Map<String, String> dirty = index.takeDirtyShards();
+        assertEquals(dirty.keySet(), ImmutableSet.of(MementoManifestIndex.SUB_PATH+"/"+MementoManifestIndex.SHARD_PREFIX
+            +MementoManifestIndex.shardOf(BrooklynObjectType.ENTITY, "e1")));
+    }
+
+    @Test
+    public void testEntryInDifferentlyNamedShardIsMovedAndOldShardDeleted() throws Exception {
+        MementoManifestIndex.Entry entry = MementoManifestIndex.Entry.of(BrooklynObjectType.ENTITY, "a1", "<a1/>", "my.Entity", null, null, null);
+        String oldShard = MementoManifestIndex.SUB_PATH+"/"+MementoManifestIndex.SHARD_PREFIX+"a";
+        store().newAccessor(oldShard).put(MementoManifestIndex.HEADER+"\n"+entry.toLine()+"\n");
+
+        MementoManifestIndex index = loadIndex();
+        assertEquals(index.get(BrooklynObjectType.ENTITY, "a1"), entry);
+        Map<String, String> dirty = index.takeDirtyShards();
+        assertTrue(dirty.containsKey(oldShard), "dirty="+dirty.keySet());
+        assertNull(dirty.get(oldShard));
+
+        // the dirty shards were taken above, so write them from a freshly loaded index
+        writeIndex(loadIndex());
+        assertEquals(loadIndex().get(BrooklynObjectType.ENTITY, "a1"), entry);
+        assertNull(store().newAccessor(oldShard).get());
+    }
+}
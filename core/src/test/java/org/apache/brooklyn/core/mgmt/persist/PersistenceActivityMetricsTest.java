@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Map;
+
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.Test;
+
+public class PersistenceActivityMetricsTest {
+
+    @Test
+    public void testMeanDurationExcludesFailuresWithoutDuration() {
+        PersistenceActivityMetrics metrics = new PersistenceActivityMetrics();
+        metrics.noteSuccess(Duration.millis(10));
+        metrics.noteSuccess(Duration.millis(30));
+        metrics.noteFailure(null);
+        metrics.noteFailure(Duration.millis(50));
+
+        Map<String, Object> result = metrics.asMap();
+        assertEquals(result.get("count"), 4L);
+        assertEquals(result.get("failureCount"), 2L);
+        assertEquals(result.get("meanDuration"), 30L);
+        assertEquals(result.get("maxDuration"), 50L);
+    }
+}
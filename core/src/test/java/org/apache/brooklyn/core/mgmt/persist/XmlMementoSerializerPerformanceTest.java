@@ -18,19 +18,29 @@
 */
 package org.apache.brooklyn.core.mgmt.persist;
 
-import java.io.StringWriter;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.brooklyn.api.catalog.CatalogItem;
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.location.Location;
+import org.apache.brooklyn.api.mgmt.rebind.RebindExceptionHandler;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoPersister.LookupContext;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoRawData;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.Memento;
+import org.apache.brooklyn.api.policy.Policy;
 import org.apache.brooklyn.api.policy.PolicySpec;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.api.sensor.Enricher;
 import org.apache.brooklyn.api.sensor.EnricherSpec;
+import org.apache.brooklyn.api.sensor.Feed;
+import org.apache.brooklyn.api.typereg.ManagedBundle;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.mgmt.rebind.RebindExceptionHandlerImpl;
 import org.apache.brooklyn.core.mgmt.rebind.dto.MementosGenerators;
 import org.apache.brooklyn.core.objs.BasicSpecParameter;
 import org.apache.brooklyn.core.sensor.Sensors;
@@ -39,6 +49,7 @@ import org.apache.brooklyn.core.test.policy.TestEnricher;
 import org.apache.brooklyn.core.test.policy.TestPolicy;
 import org.apache.brooklyn.core.test.qa.performance.AbstractPerformanceTest;
 import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -49,6 +60,8 @@ import com.google.common.collect.Maps;
 public class XmlMementoSerializerPerformanceTest extends AbstractPerformanceTest {
 
     private XmlMementoSerializer<Object> serializer;
+    private CompactMementoSerializer<Object> compactSerializer;
+    private Entity entity;
     
     @BeforeMethod(alwaysRun=true)
     @Override
@@ -56,6 +69,7 @@ public class XmlMementoSerializerPerformanceTest extends AbstractPerformanceTest
         super.setUp();
 
         serializer = new XmlMementoSerializer<Object>(XmlMementoSerializerPerformanceTest.class.getClassLoader());
+        compactSerializer = new CompactMementoSerializer<Object>(XmlMementoSerializerPerformanceTest.class.getClassLoader());
     }
 
     protected int numIterations() {
@@ -64,9 +78,102 @@ public class XmlMementoSerializerPerformanceTest extends AbstractPerformanceTest
     
      @Test(groups={"Live", "Acceptance"})
      public void testSerializeEntityMemento() throws Exception {
+         runSerializeEntityMemento(serializer, "mementoSerializer");
+     }
+     
+     @Test(groups={"Live", "Acceptance"})
+     public void testSerializeEntityMementoCompact() throws Exception {
+         runSerializeEntityMemento(compactSerializer, "compactMementoSerializer");
+     }
+     
+     @Test(groups={"Live", "Acceptance"})
+     public void testDeserializeEntityMemento() throws Exception {
+         runDeserializeEntityMemento(serializer, "mementoSerializer");
+     }
+     
+     @Test(groups={"Live", "Acceptance"})
+     public void testDeserializeEntityMementoCompact() throws Exception {
+         runDeserializeEntityMemento(compactSerializer, "compactMementoSerializer");
+     }
+     
+     @Test(groups={"Live", "Acceptance"})
+     public void testLoadManifest() throws Exception {
+         runLoadManifest(serializer, "mementoSerializer");
+     }
+     
+     @Test(groups={"Live", "Acceptance"})
+     public void testLoadManifestCompact() throws Exception {
+         runLoadManifest(compactSerializer, "compactMementoSerializer");
+     }
+     
+     protected void runSerializeEntityMemento(final MementoSerializer<Object> serializer, String name) throws Exception {
          int numIterations = numIterations();
          double minRatePerSec = 10 * PERFORMANCE_EXPECTATION;
 
+         // Create the memento for that entity (only once)
+         final Memento memento = newEntityMemento();
+         int serializedLength = serializer.toString(memento).length();
+
+         // Run the performance test
+         measure(PerformanceTestDescriptor.create()
+                 .summary(name+".serializeEntityMemento(size="+serializedLength+"chars)")
+                 .iterations(numIterations)
+                 .minAcceptablePerSecond(minRatePerSec)
+                 .job(new Runnable() {
+                     @Override public void run() {
+                         serializer.toString(memento);
+                     }}));
+     }
+     
+     protected void runDeserializeEntityMemento(final MementoSerializer<Object> serializer, String name) throws Exception {
+         int numIterations = numIterations();
+         double minRatePerSec = 10 * PERFORMANCE_EXPECTATION;
+
+         final String serialized = serializer.toString(newEntityMemento());
+         serializer.setLookupContext(newLookupContext());
+         try {
+             measure(PerformanceTestDescriptor.create()
+                     .summary(name+".deserializeEntityMemento(size="+serialized.length()+"chars)")
+                     .iterations(numIterations)
+                     .minAcceptablePerSecond(minRatePerSec)
+                     .job(new Runnable() {
+                         @Override public void run() {
+                             serializer.fromString(serialized);
+                         }}));
+         } finally {
+             serializer.unsetLookupContext();
+         }
+     }
+     
+     protected void runLoadManifest(MementoSerializer<Object> serializer, String name) throws Exception {
+         int numIterations = numIterations();
+         double minRatePerSec = 10 * PERFORMANCE_EXPECTATION;
+
+         Memento memento = newEntityMemento();
+         String serialized = serializer.toString(memento);
+         final BrooklynMementoRawData rawData = BrooklynMementoRawData.builder().entity(memento.getId(), serialized).build();
+         final BrooklynMementoPersisterToObjectStore persister = new BrooklynMementoPersisterToObjectStore(
+                 new InMemoryObjectStore(), mgmt, getClass().getClassLoader());
+         final RebindExceptionHandler exceptionHandler = RebindExceptionHandlerImpl.builder().build();
+         try {
+             measure(PerformanceTestDescriptor.create()
+                     .summary(name+".loadManifest(size="+serialized.length()+"chars)")
+                     .iterations(numIterations)
+                     .minAcceptablePerSecond(minRatePerSec)
+                     .job(new Runnable() {
+                         @Override public void run() {
+                             try {
+                                 persister.loadMementoManifest(rawData, exceptionHandler);
+                             } catch (IOException e) {
+                                 throw Exceptions.propagate(e);
+                             }
+                         }}));
+         } finally {
+             persister.stop(false);
+         }
+     }
+     
+     private Memento newEntityMemento() {
          // Create an entity with lots of config/parameters, and sensors
          Map<ConfigKey<?>, String> config = Maps.newLinkedHashMap();
          List<BasicSpecParameter<?>> params = Lists.newArrayList();
@@ -75,7 +182,7 @@ public class XmlMementoSerializerPerformanceTest extends AbstractPerformanceTest
              params.add(new BasicSpecParameter<String>("mylabel"+i, false, key));
              config.put(key, "val"+i);
          }
-         Entity entity = app.addChild(EntitySpec.create(TestEntity.class)
+         entity = app.addChild(EntitySpec.create(TestEntity.class)
                  .configure(TestEntity.CONF_NAME, "myname")
                  .configure(config)
                  .parametersAdd(params)
@@ -88,24 +195,13 @@ public class XmlMementoSerializerPerformanceTest extends AbstractPerformanceTest
              entity.sensors().set(sensor, "valsensor"+i);
          }
 
-         // Create the memento for that entity (only once)
-         final Memento memento = MementosGenerators.newBasicMemento(Entities.deproxy(entity));
-         int serializedLength = serializeToString(memento).length();
-
-         // Run the performance test
-         measure(PerformanceTestDescriptor.create()
-                 .summary("mementoSerializer.serializeEntityMemento(size="+serializedLength+"chars)")
-                 .iterations(numIterations)
-                 .minAcceptablePerSecond(minRatePerSec)
-                 .job(new Runnable() {
-                     @Override public void run() {
-                         serializeToString(memento);
-                     }}));
+         return MementosGenerators.newBasicMemento(Entities.deproxy(entity));
      }
      
-     private String serializeToString(Object val) {
-         StringWriter writer = new StringWriter();
-         serializer.serialize(val, writer);
-         return writer.toString();
+     private LookupContext newLookupContext() {
+         return new XmlMementoSerializerTest.LookupContextImpl("perf test", mgmt,
+                 ImmutableList.<Entity>of(app, entity), ImmutableList.<Location>of(), ImmutableList.<Policy>of(),
+                 ImmutableList.<Enricher>of(), ImmutableList.<Feed>of(), ImmutableList.<CatalogItem<?, ?>>of(), 
+                 ImmutableList.<ManagedBundle>of(), false);
      }
 }
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.rebind;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.brooklyn.api.entity.Application;
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.core.entity.EntityFunctions;
+import org.apache.brooklyn.core.entity.EntityInternal;
+import org.apache.brooklyn.core.test.entity.TestApplication;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.entity.group.BasicGroup;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+
+public class RebindParallelTest extends RebindTestFixtureWithApp {
+
+    private static final int NUM_APPS = 6;
+    private static final int NUM_CHILDREN = 3;
+
+    @Test
+    public void testGroupBySubtree() {
+        // id -> parent id; "x" has a parent not in the map so is its own root
+        Map<String, String> nodes = MutableMap.of();
+        nodes.put("a", null);
+        nodes.put("a1", "a");
+        nodes.put("b", null);
+        nodes.put("a11", "a1");
+        nodes.put("b1", "b");
+        nodes.put("x", "missing");
+        // the values are the parents, so each group lists its members' parents, in order
+        Collection<List<String>> groups = RebindIteration.groupBySubtree(nodes, Functions.<String>identity());
+        assertEquals(MutableList.copyOf(groups), ImmutableList.of(
+            Arrays.asList(null, "a", "a1"),
+            Arrays.asList(null, "b"),
+            Arrays.asList("missing")));
+    }
+
+    @Test
+    public void testGroupBySubtreeMergesSubtreesWhichReferenceEachOther() {
+        // the ids, in order; a child's parent is the first letter of its id
+        Map<String, String> nodes = MutableMap.of();
+        for (String id : ImmutableList.of("a", "a1", "b", "b1", "c", "d", "d1")) {
+            nodes.put(id, id);
+        }
+        // a1 refers to b1, and d1 to c (and to something not being grouped)
+        final Map<String, List<String>> references = ImmutableMap.<String, List<String>>of(
+            "a1", ImmutableList.of("b1"),
+            "d1", ImmutableList.of("c", "unknown"));
+        Collection<List<String>> groups = RebindIteration.groupBySubtree(nodes,
+            new Function<String, String>() {
+                @Override public String apply(String input) { return input.length()>1 ? input.substring(0, 1) : null; }
+            },
+            new Function<String, List<String>>() {
+                @Override public List<String> apply(String input) { return references.get(input); }
+            });
+        assertEquals(MutableList.copyOf(groups), ImmutableList.of(
+            ImmutableList.of("a", "a1", "b", "b1"),
+            ImmutableList.of("c", "d", "d1")));
+    }
+
+    @Test
+    public void testParallelRebindOfGroupWithMembersInOtherApp() throws Exception {
+        TestApplication otherApp = mgmt().getEntityManager().createEntity(EntitySpec.create(TestApplication.class));
+        BasicGroup group = origApp.addChild(EntitySpec.create(BasicGroup.class));
+        List<String> memberIds = MutableList.of();
+        for (int i=0; i<NUM_CHILDREN; i++) {
+            TestEntity member = otherApp.addChild(EntitySpec.create(TestEntity.class));
+            group.addMember(member);
+            memberIds.add(member.getId());
+        }
+        // and a reference back the other way, in config
+        TestEntity referrer = otherApp.addChild(EntitySpec.create(TestEntity.class).configure(TestEntity.CONF_OBJECT, group));
+        for (int i=0; i<NUM_APPS; i++) {
+            mgmt().getEntityManager().createEntity(EntitySpec.create(TestApplication.class)
+                .child(EntitySpec.create(TestEntity.class)));
+        }
+        // the references which make the two apps' subtrees dependent, so rebinded together
+        assertTrue(RebindIteration.getReferencedEntityIds(((EntityInternal)group).getRebindSupport().getMemento()).containsAll(memberIds));
+        assertTrue(RebindIteration.getReferencedEntityIds(((EntityInternal)referrer).getRebindSupport().getMemento()).contains(group.getId()));
+
+        rebind(RebindOptions.create().additionalProperties(ImmutableMap.of(RebindManagerImpl.REBIND_PARALLELISM.getName(), "4")));
+
+        BasicGroup newGroup = (BasicGroup) newManagementContext.getEntityManager().getEntity(group.getId());
+        assertEquals(ImmutableList.copyOf(Iterables.transform(newGroup.getMembers(), EntityFunctions.id())), memberIds);
+        for (String memberId : memberIds) {
+            Entity newMember = newManagementContext.getEntityManager().getEntity(memberId);
+            assertEquals(newMember.getApplicationId(), otherApp.getId());
+        }
+        Entity newReferrer = newManagementContext.getEntityManager().getEntity(referrer.getId());
+        assertEquals(newReferrer.config().get(TestEntity.CONF_OBJECT), newGroup);
+    }
+
+    @Test
+    public void testParallelRebindOfManyApps() throws Exception {
+        List<String> appIds = MutableList.of(origApp.getId());
+        Map<String, Integer> childCounts = MutableMap.of();
+        TestEntity other = null;
+        for (int i=0; i<NUM_APPS; i++) {
+            TestApplication app = i==0 ? origApp : mgmt().getEntityManager().createEntity(EntitySpec.create(TestApplication.class));
+            if (i>0) appIds.add(app.getId());
+            for (int j=0; j<NUM_CHILDREN; j++) {
+                TestEntity child = app.addChild(EntitySpec.create(TestEntity.class).configure(TestEntity.CONF_NAME, "child-"+i+"-"+j));
+                child.addChild(EntitySpec.create(TestEntity.class).configure(TestEntity.CONF_NAME, "grandchild-"+i+"-"+j));
+                if (i==NUM_APPS-1 && j==0) other = child;
+            }
+            childCounts.put(app.getId(), NUM_CHILDREN);
+        }
+        // a group in one app with a member in another, so subtrees reference each other
+        BasicGroup group = origApp.addChild(EntitySpec.create(BasicGroup.class));
+        group.addMember(other);
+        childCounts.put(origApp.getId(), NUM_CHILDREN+1);
+
+        rebind(RebindOptions.create().additionalProperties(ImmutableMap.of(RebindManagerImpl.REBIND_PARALLELISM.getName(), "4")));
+
+        assertEquals(ImmutableSet.copyOf(Iterables.transform(newManagementContext.getApplications(), EntityFunctions.id())),
+            ImmutableSet.copyOf(appIds));
+        for (Application app : newManagementContext.getApplications()) {
+            assertEquals(app.getChildren().size(), (int)childCounts.get(app.getId()), "app="+app);
+            for (Entity child : app.getChildren()) {
+                assertTrue(child.getApplication()==app, "child="+child);
+                if (child instanceof TestEntity) {
+                    Entity grandchild = Iterables.getOnlyElement(child.getChildren());
+                    assertEquals(grandchild.config().get(TestEntity.CONF_NAME),
+                        child.config().get(TestEntity.CONF_NAME).replace("child", "grandchild"));
+                }
+            }
+        }
+        BasicGroup newGroup = (BasicGroup) newManagementContext.getEntityManager().getEntity(group.getId());
+        Entity newOther = newManagementContext.getEntityManager().getEntity(other.getId());
+        assertEquals(ImmutableList.copyOf(newGroup.getMembers()), ImmutableList.of(newOther));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> phases = (Map<String, Object>) newManagementContext.getRebindManager().getMetrics().get("rebindPhasesMillis");
+        assertNotNull(phases);
+        assertTrue(phases.keySet().containsAll(ImmutableSet.of("instantiate entities", "reconstruct", "manage")), "phases="+phases);
+    }
+}
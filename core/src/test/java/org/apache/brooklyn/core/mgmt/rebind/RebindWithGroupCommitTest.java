@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.rebind;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
+import org.apache.brooklyn.core.entity.EntityAsserts;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.persist.FileBasedObjectStore;
+import org.apache.brooklyn.core.mgmt.persist.PersistMode;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.util.io.FileUtil;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Iterables;
+import com.google.common.io.Files;
+
+/** Rebind with {@link FileBasedObjectStore#GROUP_COMMIT_ENABLED group commit}, where recent writes are only in the log. */
+public class RebindWithGroupCommitTest extends RebindTestFixtureWithApp {
+
+    @Override
+    protected BrooklynProperties createBrooklynProperties() {
+        BrooklynProperties result = super.createBrooklynProperties();
+        result.put(FileBasedObjectStore.GROUP_COMMIT_ENABLED, true);
+        // long enough that nothing is compacted into the per-object files during the test
+        result.put(FileBasedObjectStore.GROUP_COMMIT_COMPACTION_PERIOD, Duration.ONE_HOUR);
+        return result;
+    }
+
+    @Test
+    public void testRebindAfterCrashSeesWritesOnlyInLog() throws Exception {
+        TestEntity child = origApp.createAndManageChild(EntitySpec.create(TestEntity.class));
+        child.sensors().set(TestEntity.NAME, "logged");
+        RebindTestUtils.waitForPersisted(origApp);
+        
+        File entityFile = new File(mementoDir, "entities/"+child.getId());
+        assertFalse(entityFile.exists() && Files.asCharSource(entityFile, Charsets.UTF_8).read().contains("logged"));
+        assertTrue(new File(mementoDir, FileBasedObjectStore.GROUP_COMMIT_LOG_SUB_PATH).list().length > 0);
+        
+        // the state on disk if the master died now, without compacting
+        File crashedDir = new File(mementoDir.getParentFile(), mementoDir.getName()+".crashed");
+        FileUtil.copyDir(mementoDir, crashedDir);
+        try {
+            rebind(RebindOptions.create().mementoDir(crashedDir));
+            TestEntity newChild = (TestEntity) Iterables.getOnlyElement(newApp.getChildren());
+            assertEquals(newChild.getId(), child.getId());
+            EntityAsserts.assertAttributeEquals(newChild, TestEntity.NAME, "logged");
+        } finally {
+            FileBasedObjectStore.deleteCompletely(crashedDir);
+        }
+    }
+
+    @Test
+    public void testStandbyDoesNotTakeOverLog() throws Exception {
+        origApp.sensors().set(TestEntity.NAME, "logged");
+        RebindTestUtils.waitForPersisted(origApp);
+        File logDir = new File(mementoDir, FileBasedObjectStore.GROUP_COMMIT_LOG_SUB_PATH);
+        String[] segments = logDir.list();
+        assertTrue(segments.length > 0);
+        
+        FileBasedObjectStore store = new FileBasedObjectStore(mementoDir);
+        store.injectManagementContext(origManagementContext);
+        store.prepareForSharedUse(PersistMode.AUTO, HighAvailabilityMode.HOT_STANDBY);
+        assertNull(store.getGroupCommitLog());
+        assertEquals(logDir.list(), segments);
+    }
+}
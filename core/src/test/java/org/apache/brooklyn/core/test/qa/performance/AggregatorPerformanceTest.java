@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.test.qa.performance;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.brooklyn.enricher.stock.IncrementalAggregation;
+import org.apache.brooklyn.enricher.stock.MathAggregatorFunctions;
+import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+
+/**
+ * Compares re-applying an aggregating function to every member's value on each change (as
+ * {@link org.apache.brooklyn.enricher.stock.Aggregator} did) with maintaining it incrementally,
+ * for a range of member counts. Each iteration is a change to one member's value.
+ */
+public class AggregatorPerformanceTest extends AbstractPerformanceTest {
+
+    protected int numIterations() {
+        return 10000;
+    }
+
+    @DataProvider(name = "memberCounts")
+    public Object[][] memberCounts() {
+        return new Object[][] {{10}, {100}, {1000}, {10000}};
+    }
+
+    @Test(groups = { "Integration", "Acceptance" }, dataProvider = "memberCounts")
+    public void testSumFullRecompute(int numMembers) throws Exception {
+        measureFullRecompute("sum", MathAggregatorFunctions.computingSum(null, null, Double.class), numMembers);
+    }
+
+    @Test(groups = { "Integration", "Acceptance" }, dataProvider = "memberCounts")
+    public void testSumIncremental(int numMembers) throws Exception {
+        measureIncremental("sum", MathAggregatorFunctions.computingSum(null, null, Double.class), numMembers);
+    }
+
+    @Test(groups = { "Integration", "Acceptance" }, dataProvider = "memberCounts")
+    public void testMaxFullRecompute(int numMembers) throws Exception {
+        measureFullRecompute("max", MathAggregatorFunctions.computingMax(null, null, Double.class), numMembers);
+    }
+
+    @Test(groups = { "Integration", "Acceptance" }, dataProvider = "memberCounts")
+    public void testMaxIncremental(int numMembers) throws Exception {
+        measureIncremental("max", MathAggregatorFunctions.computingMax(null, null, Double.class), numMembers);
+    }
+
+    protected void measureFullRecompute(String name, final Function<Collection<? extends Number>, Double> func, int numMembers) {
+        final List<Number> values = initialValues(numMembers);
+        final Random random = new Random(0);
+        measure(PerformanceTestDescriptor.create()
+                .summary("AggregatorPerformanceTest."+name+"FullRecompute("+numMembers+")")
+                .iterations(numIterations())
+                .minAcceptablePerSecond(10 * PERFORMANCE_EXPECTATION)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        values.set(random.nextInt(values.size()), random.nextInt(1000));
+                        func.apply(MutableList.copyOf(values));
+                    }}));
+    }
+
+    protected void measureIncremental(String name, Function<Collection<? extends Number>, Double> func, int numMembers) {
+        final List<Number> values = initialValues(numMembers);
+        @SuppressWarnings("unchecked")
+        final IncrementalAggregation.Accumulator<Double> accumulator = ((IncrementalAggregation<Double>)func).newAccumulator();
+        for (Number value : values) {
+            accumulator.add(value);
+        }
+        final Random random = new Random(0);
+        measure(PerformanceTestDescriptor.create()
+                .summary("AggregatorPerformanceTest."+name+"Incremental("+numMembers+")")
+                .iterations(numIterations())
+                .minAcceptablePerSecond(1000 * PERFORMANCE_EXPECTATION)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        int index = random.nextInt(values.size());
+                        Number newValue = random.nextInt(1000);
+                        accumulator.remove(values.set(index, newValue));
+                        accumulator.add(newValue);
+                        accumulator.get();
+                    }}));
+    }
+
+    private List<Number> initialValues(int numMembers) {
+        Random random = new Random(numMembers);
+        List<Number> result = MutableList.of();
+        for (int i = 0; i < numMembers; i++) {
+            result.add(random.nextInt(1000));
+        }
+        return result;
+    }
+}
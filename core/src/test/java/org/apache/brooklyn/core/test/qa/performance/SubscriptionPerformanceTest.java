@@ -27,6 +27,7 @@ import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.mgmt.SubscriptionManager;
 import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.api.sensor.SensorEventListener;
+import org.apache.brooklyn.core.mgmt.internal.LocalSubscriptionManager;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
 import org.apache.brooklyn.util.collections.MutableMap;
@@ -91,6 +92,36 @@ public class SubscriptionPerformanceTest extends AbstractPerformanceTest {
                 .completionLatch(completionLatch));
     }
     
+    @Test(groups={"Integration", "Acceptance"})
+    public void testManyPublishedOneSubscriberWithBatchedDelivery() throws Exception {
+        ((LocalSubscriptionManager)subscriptionManager).setBatchedDelivery(true);
+        int numIterations = NUM_ITERATIONS;
+        double minRatePerSec = 100 * PERFORMANCE_EXPECTATION;
+        final AtomicInteger iter = new AtomicInteger();
+        final int expectedCount = numIterations;
+        
+        final AtomicInteger listenerCount = new AtomicInteger();
+        final CountDownLatch completionLatch = new CountDownLatch(1);
+        
+        subscriptionManager.subscribe(MutableMap.<String, Object>of("subscriber", "batched"), entity, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+            @Override
+            public void onEvent(SensorEvent<Integer> event) {
+                int count = listenerCount.incrementAndGet();
+                if (count >= expectedCount) completionLatch.countDown();
+            }});
+        
+        measure(PerformanceTestDescriptor.create()
+                .summary("SubscriptionPerformanceTest.testManyPublishedOneSubscriberWithBatchedDelivery")
+                .iterations(numIterations)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        entity.sensors().set(TestEntity.SEQUENCE, (iter.getAndIncrement()));
+                    }})
+                .completionLatch(completionLatch));
+    }
+    
     @Test(groups={"Integration", "Acceptance"})
     public void testManyListenersForSensorEvent() throws Exception {
         int numSubscribers = 10;
@@ -122,6 +153,51 @@ public class SubscriptionPerformanceTest extends AbstractPerformanceTest {
                 .completionLatch(completionLatch));
     }
     
+    @Test(groups={"Integration", "Acceptance"})
+    public void testManyThreadsPublishingToManySubscriptions() throws Exception {
+        // each thread publishes on its own entity, so threads contend only in the subscription manager
+        int numThreads = entities.size();
+        int numSubscriptionsPerEntity = 10;
+        int numIterations = NUM_ITERATIONS / numThreads;
+        double minRatePerSec = 10 * PERFORMANCE_EXPECTATION; // i.e. 10*10*10 events delivered per sec
+        final AtomicInteger iter = new AtomicInteger();
+        // each iteration runs the job once in each thread
+        final int expectedCount = numIterations*numThreads*numSubscriptionsPerEntity;
+        // the measurer uses a fixed pool of numThreads threads, so each gets a different entity
+        final AtomicInteger nextProducer = new AtomicInteger();
+        final ThreadLocal<TestEntity> producerForThread = new ThreadLocal<TestEntity>() {
+            @Override
+            protected TestEntity initialValue() {
+                return entities.get(nextProducer.getAndIncrement() % entities.size());
+            }
+        };
+        
+        final AtomicInteger listenerCount = new AtomicInteger();
+        final CountDownLatch completionLatch = new CountDownLatch(1);
+        
+        for (TestEntity producer : entities) {
+            for (int i = 0; i < numSubscriptionsPerEntity; i++) {
+                subscriptionManager.subscribe(MutableMap.<String, Object>of("subscriber", producer.getId()+"-"+i), producer, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+                    @Override
+                    public void onEvent(SensorEvent<Integer> event) {
+                        int count = listenerCount.incrementAndGet();
+                        if (count >= expectedCount) completionLatch.countDown();
+                    }});
+            }
+        }
+        
+        measure(PerformanceTestDescriptor.create()
+                .summary("SubscriptionPerformanceTest.testManyThreadsPublishingToManySubscriptions")
+                .iterations(numIterations)
+                .numConcurrentJobs(numThreads)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override public void run() {
+                        producerForThread.get().sensors().set(TestEntity.SEQUENCE, iter.getAndIncrement());
+                    }})
+                .completionLatch(completionLatch));
+    }
+    
     @Test(groups={"Integration", "Acceptance"})
     public void testUpdateAttributeWithNoListenersButManyUnrelatedListeners() throws Exception {
         int numUnrelatedSubscribers = 1000;
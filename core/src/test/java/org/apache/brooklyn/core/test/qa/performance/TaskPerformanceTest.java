@@ -21,13 +21,17 @@ package org.apache.brooklyn.core.test.qa.performance;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.task.BasicExecutionManager;
 import org.apache.brooklyn.util.core.task.SingleThreadedScheduler;
+import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.time.Time;
 import org.slf4j.Logger;
@@ -154,6 +158,46 @@ public class TaskPerformanceTest extends AbstractPerformanceTest {
         if (exceptions.size() > 0) throw exceptions.get(0);
     }
     
+    /**
+     * Submits tagged tasks from several threads while deleting completed ones and listing by tag,
+     * as happens with effectors, the GC and REST activity listings running together.
+     */
+    @Test(groups={"Integration", "Acceptance"})
+    public void testSubmitCompleteAndDeleteChurn() throws Exception {
+        double minRatePerSec = 10000 * PERFORMANCE_EXPECTATION;
+        final int numThreads = 8;
+        final int numTags = 100;
+        
+        final AtomicInteger counter = new AtomicInteger();
+        final Queue<Task<?>> completed = new ConcurrentLinkedQueue<Task<?>>();
+        
+        final Runnable work = new Runnable() {
+            @Override public void run() {
+                counter.incrementAndGet();
+                completed.add(Tasks.current());
+            }
+        };
+        
+        measure(PerformanceTestDescriptor.create()
+                .summary("TaskPerformanceTest.testSubmitCompleteAndDeleteChurn")
+                .iterations(numIterations / numThreads)
+                .numConcurrentJobs(numThreads)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override public void run() {
+                        int i = counter.get();
+                        String tag = "tag-" + (i % numTags);
+                        executionManager.submit(MutableMap.of("tags", ImmutableList.of("churn", tag)), work);
+                        Task<?> done = completed.poll();
+                        if (done != null) {
+                            executionManager.deleteTask(done);
+                        }
+                        if (i % 100 == 0) {
+                            executionManager.getTasksWithTag(tag);
+                        }
+                    }}));
+    }
+    
     public static void main(String[] args) throws Exception {
         TaskPerformanceTest t = new TaskPerformanceTest();
         t.setUp();
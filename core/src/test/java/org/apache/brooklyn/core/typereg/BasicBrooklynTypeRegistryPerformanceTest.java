@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.typereg;
+
+import static org.testng.Assert.assertEquals;
+
+import org.apache.brooklyn.api.typereg.RegisteredType;
+import org.apache.brooklyn.core.test.qa.performance.AbstractPerformanceTest;
+import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Measures resolution of the unversioned type references a typical blueprint makes
+ * (a handful of symbolic names, an alias, and a versioned reference) against registries of various sizes.
+ */
+public class BasicBrooklynTypeRegistryPerformanceTest extends AbstractPerformanceTest {
+
+    private static final int VERSIONS_PER_NAME = 2;
+    private static final int LOOKUPS_PER_BLUEPRINT = 10;
+
+    protected int numIterations() {
+        return 1000;
+    }
+
+    @DataProvider(name = "registrySizes")
+    public Object[][] registrySizes() {
+        return new Object[][] { {100}, {1000}, {5000}, {20000} };
+    }
+
+    @Test(groups = { "Integration", "Acceptance" }, dataProvider = "registrySizes")
+    public void testResolveBlueprintTypes(final int numTypes) throws Exception {
+        final BasicBrooklynTypeRegistry registry = (BasicBrooklynTypeRegistry) mgmt.getTypeRegistry();
+        final int numNames = numTypes / VERSIONS_PER_NAME;
+        for (int i = 0; i < numNames; i++) {
+            for (int v = 1; v <= VERSIONS_PER_NAME; v++) {
+                RegisteredType type = RegisteredTypes.bean("item.perf"+i, v+".0", new BasicTypeImplementationPlan("ignore", null));
+                RegisteredTypes.addSuperType(type, String.class);
+                if (v == VERSIONS_PER_NAME) RegisteredTypes.addAliases(type, MutableList.of("perf_alias"+i));
+                registry.addToLocalUnpersistedTypeRegistry(type, false);
+            }
+        }
+        assertEquals(registry.get("item.perf0").getVersion(), VERSIONS_PER_NAME+".0");
+        assertEquals(registry.get("perf_alias"+(numNames-1)).getSymbolicName(), "item.perf"+(numNames-1));
+
+        measure(PerformanceTestDescriptor.create()
+                .summary("BasicBrooklynTypeRegistryPerformanceTest.testResolveBlueprintTypes("+numTypes+")")
+                .iterations(numIterations())
+                .minAcceptablePerSecond(100 * PERFORMANCE_EXPECTATION)
+                .job(new Runnable() {
+                    int blueprint = 0;
+                    @Override
+                    public void run() {
+                        blueprint++;
+                        for (int i = 0; i < LOOKUPS_PER_BLUEPRINT; i++) {
+                            registry.get("item.perf"+((blueprint * LOOKUPS_PER_BLUEPRINT + i) % numNames));
+                        }
+                        registry.get("perf_alias"+(blueprint % numNames));
+                        registry.get("item.perf"+(blueprint % numNames)+":1.0");
+                    }}));
+    }
+}
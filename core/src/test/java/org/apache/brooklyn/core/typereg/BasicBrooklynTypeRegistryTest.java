@@ -22,6 +22,7 @@ import javax.annotation.Nonnull;
 
 import org.apache.brooklyn.api.typereg.RegisteredType;
 import org.apache.brooklyn.api.typereg.RegisteredType.TypeImplementationPlan;
+import org.apache.brooklyn.core.catalog.internal.CatalogUtils;
 import org.apache.brooklyn.core.test.BrooklynMgmtUnitTestSupport;
 import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.util.collections.MutableList;
@@ -191,4 +192,71 @@ public class BasicBrooklynTypeRegistryTest extends BrooklynMgmtUnitTestSupport {
         
     }
 
+    @Test
+    public void testGetBestVersionAfterDisabledOrDeprecatedInPlace() {
+        RegisteredType type1 = beanWithSuper("item.B", "1", new BasicTypeImplementationPlan("ignore", null), String.class);
+        RegisteredType type2 = beanWithSuper("item.B", "2", new BasicTypeImplementationPlan("ignore", null), String.class);
+        add(type1);
+        add(type2);
+        Assert.assertEquals( registry().get("item.B"), type2 );
+        
+        CatalogUtils.setDisabled(mgmt, "item.B", "2", true);
+        Assert.assertEquals( registry().get("item.B"), type1 );
+        
+        CatalogUtils.setDisabled(mgmt, "item.B", "2", false);
+        Assert.assertEquals( registry().get("item.B"), type2 );
+        
+        CatalogUtils.setDeprecated(mgmt, "item.B", "2", true);
+        Assert.assertEquals( registry().get("item.B"), type1 );
+        
+        CatalogUtils.setDisabled(mgmt, "item.B", "1", true);
+        Assert.assertEquals( registry().get("item.B"), type2 );
+    }
+
+    @Test
+    public void testGetAfterDelete() {
+        add(SAMPLE_TYPE);
+        add(SAMPLE_TYPE2);
+        Assert.assertEquals( registry().get(SAMPLE_TYPE.getSymbolicName()), SAMPLE_TYPE2 );
+        
+        registry().delete(SAMPLE_TYPE2);
+        Assert.assertEquals( registry().get(SAMPLE_TYPE.getSymbolicName()), SAMPLE_TYPE );
+        
+        registry().delete(SAMPLE_TYPE.getVersionedName());
+        Assert.assertNull( registry().get(SAMPLE_TYPE.getSymbolicName()) );
+        
+        add(SAMPLE_TYPE);
+        Assert.assertEquals( registry().get(SAMPLE_TYPE.getSymbolicName()), SAMPLE_TYPE );
+    }
+
+    @Test
+    public void testAliasUpdatedWhenTypeReplacedOrDeleted() {
+        RegisteredType sampleTypeWithAlias = RegisteredTypes.addAliases(
+            beanWithSuper("item.A", "1", new BasicTypeImplementationPlan("ignore", null), String.class),
+            MutableList.of("my_a"));
+        add(sampleTypeWithAlias);
+        Assert.assertEquals( registry().get("my_a"), sampleTypeWithAlias );
+        
+        RegisteredType sampleTypeWithOtherAlias = RegisteredTypes.addAliases(
+            beanWithSuper("item.A", "1", new BasicTypeImplementationPlan("ignore", null), String.class),
+            MutableList.of("other_a"));
+        add(sampleTypeWithOtherAlias, true);
+        Assert.assertNull( registry().get("my_a") );
+        Assert.assertEquals( registry().get("other_a"), sampleTypeWithOtherAlias );
+        Assert.assertEquals( registry().getMatching(RegisteredTypePredicates.alias("my_a")), MutableList.of() );
+        
+        registry().delete(sampleTypeWithOtherAlias);
+        Assert.assertNull( registry().get("other_a") );
+    }
+
+    @Test
+    public void testClear() {
+        add(SAMPLE_TYPE);
+        Assert.assertEquals( registry().get(SAMPLE_TYPE.getSymbolicName()), SAMPLE_TYPE );
+        registry().clear();
+        Assert.assertNull( registry().get(SAMPLE_TYPE.getSymbolicName()) );
+        add(SAMPLE_TYPE2);
+        Assert.assertEquals( registry().get(SAMPLE_TYPE.getSymbolicName()), SAMPLE_TYPE2 );
+    }
+
 }
@@ -319,6 +319,35 @@ public class EnrichersTest extends BrooklynAppUnitTestSupport {
         EntityAsserts.assertAttributeEqualsEventually(group, NUM2, 5);
     }
 
+    @Test
+    public void testAggregatingSumUpdatesOnChangeAndRemoval() {
+        group.addMember(entity);
+        group.addMember(entity2);
+        group.enrichers().add(Enrichers.builder()
+                .aggregating(NUM1)
+                .publishing(NUM2)
+                .fromMembers()
+                .computingSum()
+                .build());
+        
+        entity.sensors().set(NUM1, 1);
+        entity2.sensors().set(NUM1, 2);
+        EntityAsserts.assertAttributeEqualsEventually(group, NUM2, 3);
+        
+        entity.sensors().set(NUM1, 10);
+        EntityAsserts.assertAttributeEqualsEventually(group, NUM2, 12);
+        
+        entity2.sensors().set(NUM1, null);
+        EntityAsserts.assertAttributeEqualsEventually(group, NUM2, 10);
+        
+        entity2.sensors().set(NUM1, 5);
+        group.removeMember(entity);
+        EntityAsserts.assertAttributeEqualsEventually(group, NUM2, 5);
+        
+        group.addMember(entity);
+        EntityAsserts.assertAttributeEqualsEventually(group, NUM2, 15);
+    }
+
     @Test
     public void testAggregatingExcludingBlankString() {
         group.addMember(entity);
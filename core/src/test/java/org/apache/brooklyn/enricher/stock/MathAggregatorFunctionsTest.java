@@ -25,6 +25,7 @@ import static org.testng.Assert.assertTrue;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Random;
 
 import org.apache.brooklyn.test.LogWatcher;
 import org.apache.brooklyn.util.collections.MutableList;
@@ -160,4 +161,56 @@ public class MathAggregatorFunctionsTest {
         assertEquals(func.apply(MutableList.<Number>of(1, 3, 5)), (Integer)5);
         assertEquals(func.apply(MutableList.<Number>of(3, null, 1)), (Integer)3);
     }
+    
+    @Test
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void testAccumulatorsMatchApply() throws Exception {
+        List<Function<Collection<? extends Number>, Double>> funcs = new ArrayList<>();
+        funcs.add(MathAggregatorFunctions.computingSum(null, 999, Double.class));
+        funcs.add(MathAggregatorFunctions.computingAverage(null, 999, Double.class));
+        funcs.add(MathAggregatorFunctions.computingMin(-1, 999, Double.class));
+        funcs.add(MathAggregatorFunctions.computingMax(-1, 999, Double.class));
+        
+        Random random = new Random(1234);
+        Object[] candidates = new Object[] {1, 2, 3.5, -7, "4", null, 100L, 0.25};
+        for (Function<Collection<? extends Number>, Double> func : funcs) {
+            IncrementalAggregation.Accumulator<Double> accumulator = ((IncrementalAggregation<Double>)func).newAccumulator();
+            List<Object> current = MutableList.of();
+            assertEquals(accumulator.get(), func.apply((List)current), "func="+func);
+            for (int i = 0; i < 500; i++) {
+                if (!current.isEmpty() && random.nextInt(3) == 0) {
+                    accumulator.remove(current.remove(random.nextInt(current.size())));
+                } else {
+                    Object val = candidates[random.nextInt(candidates.length)];
+                    current.add(val);
+                    accumulator.add(val);
+                }
+                assertEquals(accumulator.get(), func.apply((List)current), "func="+func+"; values="+current);
+            }
+        }
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAccumulatorsWithNonFiniteValues() throws Exception {
+        IncrementalAggregation.Accumulator<Double> sum = ((IncrementalAggregation<Double>)MathAggregatorFunctions.computingSum(null, null, Double.class)).newAccumulator();
+        IncrementalAggregation.Accumulator<Double> min = ((IncrementalAggregation<Double>)MathAggregatorFunctions.computingMin(null, null, Double.class)).newAccumulator();
+        for (IncrementalAggregation.Accumulator<Double> acc : ImmutableList.of(sum, min)) {
+            acc.add(1);
+            acc.add(Double.NaN);
+        }
+        assertEquals(sum.get(), Double.NaN);
+        assertEquals(min.get(), Double.NaN);
+        for (IncrementalAggregation.Accumulator<Double> acc : ImmutableList.of(sum, min)) {
+            acc.remove(Double.NaN);
+            acc.add(Double.NEGATIVE_INFINITY);
+        }
+        assertEquals(sum.get(), Double.NEGATIVE_INFINITY);
+        assertEquals(min.get(), Double.NEGATIVE_INFINITY);
+        for (IncrementalAggregation.Accumulator<Double> acc : ImmutableList.of(sum, min)) {
+            acc.remove(Double.NEGATIVE_INFINITY);
+        }
+        assertEquals(sum.get(), 1d);
+        assertEquals(min.get(), 1d);
+    }
 }
@@ -19,7 +19,11 @@
 package org.apache.brooklyn.feed.ssh;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.List;
 import java.util.Map;
 
@@ -27,12 +31,18 @@ import org.apache.brooklyn.api.entity.EntityLocal;
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.location.LocationSpec;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.core.entity.EntityAsserts;
 import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.location.localhost.LocalhostMachineProvisioningLocation;
 import org.apache.brooklyn.location.ssh.SshMachineLocation;
 import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.core.internal.ssh.ShellAbstractTool;
+import org.apache.brooklyn.util.core.internal.ssh.SshTool;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.os.Os;
 import org.apache.brooklyn.util.stream.Streams;
 import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
@@ -42,6 +52,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.google.common.base.Functions;
+import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -53,6 +64,7 @@ public class SshFeedTest extends BrooklynAppUnitTestSupport {
     
     final static AttributeSensor<String> SENSOR_STRING = Sensors.newStringSensor("aString", "");
     final static AttributeSensor<String> SENSOR_STRING2 = Sensors.newStringSensor("aString2", "");
+    final static AttributeSensor<String> SENSOR_STRING3 = Sensors.newStringSensor("aString3", "");
 
     private LocalhostMachineProvisioningLocation loc;
     private EntityLocal entity;
@@ -165,6 +177,129 @@ public class SshFeedTest extends BrooklynAppUnitTestSupport {
             }});
     }
 
+    @Test
+    public void testBatchPollsRunsCommandsInOneScript() throws Exception {
+        final RecordingSshMachineLocation recordingMachine = mgmt.getLocationManager().createLocation(LocationSpec.create(RecordingSshMachineLocation.class));
+        app.start(ImmutableList.of(recordingMachine));
+        
+        feed = SshFeed.builder()
+                .period(Duration.PRACTICALLY_FOREVER)
+                .entity(entity)
+                .batchPolls()
+                .poll(new SshPollConfig<String>(SENSOR_STRING)
+                        .command("myCommand")
+                        .onSuccess(Functions.constant("success")))
+                .poll(new SshPollConfig<String>(SENSOR_STRING2)
+                        .command("myCommand2")
+                        .onSuccess(Functions.constant("success")))
+                .build();
+        
+        Asserts.succeedsEventually(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(RecordingSshMachineLocation.execScriptCalls.size(), 1);
+            }});
+        List<String> script = RecordingSshMachineLocation.execScriptCalls.get(0);
+        assertEquals(script.size(), 1);
+        assertTrue(script.get(0).contains("\nmyCommand\n"), "script="+script);
+        assertTrue(script.get(0).contains("\nmyCommand2\n"), "script="+script);
+    }
+
+    @Test(groups="Integration") // needs bash
+    public void testBatchPollsSplitsResults() throws Exception {
+        final LocalBashMachineLocation machine = mgmt.getLocationManager().createLocation(LocationSpec.create(LocalBashMachineLocation.class));
+        app.start(ImmutableList.of(machine));
+        
+        feed = SshFeed.builder()
+                .period(Duration.millis(100))
+                .entity(entity)
+                .batchPolls()
+                .poll(new SshPollConfig<String>(SENSOR_STRING)
+                        .command("printf hello")
+                        .onSuccess(SshValueFunctions.stdout()))
+                .poll(new SshPollConfig<String>(SENSOR_STRING2)
+                        .command("echo oops >&2; exit 3")
+                        .onSuccess(Functions.constant("success"))
+                        .onFailure(SshValueFunctions.stderr()))
+                .poll(new SshPollConfig<String>(SENSOR_STRING3)
+                        .env(ImmutableMap.of("MYVAR", "a \"b\" $c"))
+                        .command("echo \"$MYVAR\"")
+                        .onSuccess(SshValueFunctions.stdout()))
+                .build();
+        
+        EntityAsserts.assertAttributeEqualsEventually(entity, SENSOR_STRING, "hello");
+        EntityAsserts.assertAttributeEqualsEventually(entity, SENSOR_STRING2, "oops\n");
+        EntityAsserts.assertAttributeEqualsEventually(entity, SENSOR_STRING3, "a \"b\" $c\n");
+    }
+
+    @Test(groups="Integration") // needs bash
+    public void testBatchPollsRunEachCommandWithScriptHeaderOptions() throws Exception {
+        final LocalBashMachineLocation machine = mgmt.getLocationManager().createLocation(LocationSpec.create(LocalBashMachineLocation.class)
+                .configure(SshTool.PROP_SCRIPT_HEADER, "#!/bin/bash -e"));
+        app.start(ImmutableList.of(machine));
+        
+        feed = SshFeed.builder()
+                .period(Duration.millis(100))
+                .entity(entity)
+                .batchPolls()
+                .poll(new SshPollConfig<String>(SENSOR_STRING)
+                        .command("false; echo not-reached")
+                        .onSuccess(Functions.constant("success"))
+                        .onFailure(Functions.constant("failed")))
+                .poll(new SshPollConfig<String>(SENSOR_STRING2)
+                        .command("printf after-failure")
+                        .onSuccess(SshValueFunctions.stdout()))
+                .build();
+        
+        EntityAsserts.assertAttributeEqualsEventually(entity, SENSOR_STRING, "failed");
+        EntityAsserts.assertAttributeEqualsEventually(entity, SENSOR_STRING2, "after-failure");
+    }
+
+    @Test
+    public void testParseBatchResult() throws Exception {
+        String script = SshFeed.toBatchScript("DELIM", ImmutableList.of("cmd1", "", "cmd2", ""));
+        assertTrue(script.contains("\ncmd1\n"), script);
+        
+        List<Maybe<SshPollValue>> result = SshFeed.parseBatchResult("DELIM", 3, new SshPollValue(null, 0,
+                "DELIM BEGIN 0\nout1\n\nDELIM END 0 0\nDELIM BEGIN 1\nout2\nDELIM END 1 2\nDELIM BEGIN 2\n",
+                "DELIM BEGIN 0\n\nDELIM END 0\nDELIM BEGIN 1\nerr2\n\nDELIM END 1\n"));
+        assertEquals(result.get(0).get().getExitStatus(), 0);
+        assertEquals(result.get(0).get().getStdout(), "out1\n");
+        assertEquals(result.get(0).get().getStderr(), "");
+        assertEquals(result.get(1).get().getExitStatus(), 2);
+        assertEquals(result.get(1).get().getStdout(), "out2");
+        assertEquals(result.get(1).get().getStderr(), "err2\n");
+        assertTrue(result.get(2).isAbsent());
+    }
+
+    /** Runs scripts with a local bash, rather than over ssh; honours the script header, as ssh would. */
+    public static class LocalBashMachineLocation extends SshMachineLocation {
+        @Override 
+        public int execScript(Map<String,?> props, String summaryForLogging, List<String> cmds, Map<String,?> env) {
+            File script = Os.newTempFile(getClass(), "sh");
+            File out = Os.newTempFile(getClass(), "out");
+            File err = Os.newTempFile(getClass(), "err");
+            try {
+                String header = ShellAbstractTool.getOptionalVal(props, SshTool.PROP_SCRIPT_HEADER);
+                Files.write(script.toPath(), (header+"\n"+Joiner.on("\n").join(cmds)+"\n").getBytes());
+                script.setExecutable(true);
+                // outputs to files, so that neither stream can fill up and block the script while the other is read
+                Process process = new ProcessBuilder(script.getAbsolutePath()).redirectOutput(out).redirectError(err).start();
+                process.getOutputStream().close();
+                int result = process.waitFor();
+                ((OutputStream) props.get(SshTool.PROP_OUT_STREAM.getName())).write(Files.readAllBytes(out.toPath()));
+                ((OutputStream) props.get(SshTool.PROP_ERR_STREAM.getName())).write(Files.readAllBytes(err.toPath()));
+                return result;
+            } catch (Exception e) {
+                throw Exceptions.propagate(e);
+            } finally {
+                script.delete();
+                out.delete();
+                err.delete();
+            }
+        }
+    }
+
     public static class RecordingSshMachineLocation extends SshMachineLocation {
         public static List<List<String>> execScriptCalls = Lists.newCopyOnWriteArrayList();
 
@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+public class ExecutionPoolTest {
+
+    private BasicExecutionManager em;
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() {
+        if (em != null) em.shutdownNow();
+    }
+
+    private BasicExecutionManager newExecutionManager(int maxSensorThreads, int queueSize, ExecutionPool.RejectionPolicy policy) {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(BasicExecutionManager.SENSOR_POOL_MAX_THREADS, maxSensorThreads);
+        props.put(BasicExecutionManager.POOL_QUEUE_SIZE, queueSize);
+        props.put(BasicExecutionManager.POOL_REJECTION_POLICY, policy);
+        return new BasicExecutionManager("mycontextid", props);
+    }
+
+    private static Callable<String> threadName() {
+        return new Callable<String>() {
+            @Override public String call() {
+                return Thread.currentThread().getName();
+            }};
+    }
+
+    @Test
+    public void testNoPoolsByDefault() throws Exception {
+        em = new BasicExecutionManager("mycontextid");
+        assertTrue(em.getExecutionPools().isEmpty());
+
+        em = new BasicExecutionManager("mycontextid", BrooklynProperties.Factory.newEmpty());
+        assertTrue(em.getExecutionPools().isEmpty());
+    }
+
+    @Test
+    public void testTaskRunsInPoolForTag() throws Exception {
+        em = newExecutionManager(2, 10, ExecutionPool.RejectionPolicy.FALLBACK);
+        assertEquals(em.getExecutionPools().keySet(), ImmutableSet.of(BasicExecutionManager.SENSOR_POOL));
+
+        Task<String> sensorTask = em.submit(MutableMap.of("tag", BrooklynTaskTags.SENSOR_TAG), threadName());
+        Task<String> otherTask = em.submit(MutableMap.of("tag", "other"), threadName());
+
+        assertTrue(sensorTask.get().contains("-sensor-"), "thread="+sensorTask.get());
+        assertFalse(otherTask.get().contains("-sensor-"), "thread="+otherTask.get());
+    }
+
+    @Test
+    public void testScheduledTasksRunInPoolForTagAndInOrder() throws Exception {
+        em = newExecutionManager(2, 10, ExecutionPool.RejectionPolicy.FALLBACK);
+        em.setTaskSchedulerForTag("category1", SingleThreadedScheduler.class);
+
+        final List<Integer> order = new CopyOnWriteArrayList<Integer>();
+        final List<String> threads = new CopyOnWriteArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            final int counter = i;
+            em.submit(MutableMap.of("tags", ImmutableList.of("category1", BrooklynTaskTags.SENSOR_TAG)), new Runnable() {
+                @Override public void run() {
+                    order.add(counter);
+                    threads.add(Thread.currentThread().getName());
+                }});
+        }
+
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(order.size(), 20);
+            }});
+        for (int i = 0; i < 20; i++) {
+            assertEquals(order.get(i), (Integer)i);
+            assertTrue(threads.get(i).contains("-sensor-"), "thread="+threads.get(i));
+        }
+    }
+
+    @Test
+    public void testFallbackWhenPoolFull() throws Exception {
+        em = newExecutionManager(1, 0, ExecutionPool.RejectionPolicy.FALLBACK);
+        ExecutionPool pool = em.getExecutionPools().get(BasicExecutionManager.SENSOR_POOL);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        Task<?> blocker = em.submit(MutableMap.of("tag", BrooklynTaskTags.SENSOR_TAG), new Runnable() {
+            @Override public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }});
+        try {
+            Asserts.succeedsEventually(new Runnable() {
+                @Override public void run() {
+                    assertEquals(pool.getActiveThreads(), 1);
+                }});
+
+            Task<String> overflow = em.submit(MutableMap.of("tag", BrooklynTaskTags.SENSOR_TAG), threadName());
+            assertFalse(overflow.get().contains("-sensor-"), "thread="+overflow.get());
+            assertEquals(pool.getRejectedCount(), 1);
+        } finally {
+            latch.countDown();
+        }
+        blocker.get(10, TimeUnit.SECONDS);
+    }
+
+    @DataProvider(name = "rejectionPolicies")
+    public Object[][] rejectionPolicies() {
+        return new Object[][] { {ExecutionPool.RejectionPolicy.FALLBACK}, {ExecutionPool.RejectionPolicy.CALLER_RUNS}, {ExecutionPool.RejectionPolicy.ABORT} };
+    }
+
+    @Test(dataProvider = "rejectionPolicies")
+    public void testScheduledTasksFallBackWhenPoolFull(ExecutionPool.RejectionPolicy policy) throws Exception {
+        em = newExecutionManager(1, 0, policy);
+        em.setTaskSchedulerForTag("category1", SingleThreadedScheduler.class);
+        ExecutionPool pool = em.getExecutionPools().get(BasicExecutionManager.SENSOR_POOL);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        Task<?> blocker = em.submit(MutableMap.of("tag", BrooklynTaskTags.SENSOR_TAG), new Runnable() {
+            @Override public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }});
+        final List<Integer> order = new CopyOnWriteArrayList<Integer>();
+        final List<String> threads = new CopyOnWriteArrayList<String>();
+        try {
+            Asserts.succeedsEventually(new Runnable() {
+                @Override public void run() {
+                    assertEquals(pool.getActiveThreads(), 1);
+                }});
+
+            // submitted while the pool is full: none should fail, nor run in this thread
+            for (int i = 0; i < 20; i++) {
+                final int counter = i;
+                em.submit(MutableMap.of("tags", ImmutableList.of("category1", BrooklynTaskTags.SENSOR_TAG)), new Runnable() {
+                    @Override public void run() {
+                        order.add(counter);
+                        threads.add(Thread.currentThread().getName());
+                    }});
+            }
+            Asserts.succeedsEventually(new Runnable() {
+                @Override public void run() {
+                    assertEquals(order.size(), 20);
+                }});
+            assertTrue(pool.getRejectedCount() > 0);
+        } finally {
+            latch.countDown();
+        }
+        blocker.get(10, TimeUnit.SECONDS);
+
+        // and the scheduler still runs tasks once the pool has capacity again
+        Task<?> later = em.submit(MutableMap.of("tags", ImmutableList.of("category1", BrooklynTaskTags.SENSOR_TAG)), new Runnable() {
+            @Override public void run() {
+                order.add(20);
+            }});
+        later.get(10, TimeUnit.SECONDS);
+        for (int i = 0; i <= 20; i++) {
+            assertEquals(order.get(i), (Integer)i);
+        }
+        assertFalse(threads.contains(Thread.currentThread().getName()), "threads="+threads);
+    }
+
+    @Test
+    public void testAbortWhenPoolFull() throws Exception {
+        em = newExecutionManager(1, 0, ExecutionPool.RejectionPolicy.ABORT);
+        ExecutionPool pool = em.getExecutionPools().get(BasicExecutionManager.SENSOR_POOL);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        Task<?> blocker = em.submit(MutableMap.of("tag", BrooklynTaskTags.SENSOR_TAG), new Runnable() {
+            @Override public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }});
+        try {
+            Asserts.succeedsEventually(new Runnable() {
+                @Override public void run() {
+                    assertEquals(pool.getActiveThreads(), 1);
+                }});
+            Task<String> overflow = Tasks.<String>builder().dynamic(false).tag(BrooklynTaskTags.SENSOR_TAG).body(threadName()).build();
+            try {
+                em.submit(overflow);
+                Asserts.shouldHaveFailedPreviously("overflow="+overflow);
+            } catch (RejectedExecutionException e) {
+                // expected
+            }
+            // the rejected task is ended and forgotten, rather than left incomplete for ever
+            assertEquals(em.getNumIncompleteTasks(), 1);
+            assertFalse(em.getTasksWithTag(BrooklynTaskTags.SENSOR_TAG).contains(overflow));
+            assertTrue(overflow.isDone());
+            try {
+                overflow.get(10, TimeUnit.SECONDS);
+                Asserts.shouldHaveFailedPreviously();
+            } catch (ExecutionException e) {
+                Asserts.expectedFailureOfType(e, RejectedExecutionException.class);
+            }
+        } finally {
+            latch.countDown();
+        }
+        blocker.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testCallerRunsWhenPoolFull() throws Exception {
+        em = newExecutionManager(1, 0, ExecutionPool.RejectionPolicy.CALLER_RUNS);
+        ExecutionPool pool = em.getExecutionPools().get(BasicExecutionManager.SENSOR_POOL);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        Task<?> blocker = em.submit(MutableMap.of("tag", BrooklynTaskTags.SENSOR_TAG), new Runnable() {
+            @Override public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }});
+        try {
+            Asserts.succeedsEventually(new Runnable() {
+                @Override public void run() {
+                    assertEquals(pool.getActiveThreads(), 1);
+                }});
+            final Thread callerThread = Thread.currentThread();
+            Task<Boolean> overflow = em.submit(MutableMap.of("tag", BrooklynTaskTags.SENSOR_TAG), new Callable<Boolean>() {
+                @Override public Boolean call() {
+                    assertEquals(Thread.currentThread(), callerThread);
+                    // submission is complete, even though the task is run by the submitting thread
+                    return ((TaskInternal<?>)Tasks.current()).getInternalFuture() != null;
+                }});
+            assertTrue(overflow.get());
+        } finally {
+            latch.countDown();
+        }
+        blocker.get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+public class TaskIndexTest {
+
+    private static Task<?> newTask(Object... tags) {
+        return new BasicTask<Void>(MutableMap.of("tags", ImmutableList.copyOf(tags)), new Runnable() {
+            @Override public void run() {}
+        });
+    }
+
+    @Test
+    public void testAddAndRemoveByIdAndTag() {
+        TaskIndex index = new TaskIndex();
+        Task<?> t1 = newTask("a", "b");
+        Task<?> t2 = newTask("b");
+
+        assertTrue(index.add(t1));
+        assertTrue(index.add(t2));
+        assertFalse(index.add(t1));
+
+        assertSame(index.get(t1.getId()), t1);
+        assertEquals(ImmutableList.copyOf(index.getTasksWithTagLiveOrNull("a")), ImmutableList.of(t1));
+        assertEquals(ImmutableList.copyOf(index.getTasksWithTagLiveOrNull("b")), ImmutableList.of(t1, t2));
+        assertEquals(index.getTasksWithTagLiveOrNull("b").size(), 2);
+        assertTrue(index.getTasksWithTagLiveOrNull("b").contains(t2));
+        assertEquals(index.getTagsLive(), ImmutableSet.of("a", "b"));
+        assertEquals(index.size(), 2);
+
+        assertSame(index.remove(t1), t1);
+        assertNull(index.remove(t1));
+        assertNull(index.get(t1.getId()));
+        assertNull(index.getTasksWithTagLiveOrNull("a"));
+        assertEquals(ImmutableList.copyOf(index.getTasksWithTagLiveOrNull("b")), ImmutableList.of(t2));
+        assertFalse(index.getTasksWithTagLiveOrNull("b").contains(t1));
+        assertEquals(ImmutableList.copyOf(index.getAllTasksLive()), ImmutableList.of(t2));
+    }
+
+    @Test
+    public void testTagAddedAfterIndexingIsNotLeftBehind() {
+        TaskIndex index = new TaskIndex();
+        Task<?> t1 = newTask("a");
+        index.add(t1);
+        ((TaskInternal<?>)t1).getMutableTags().add("late");
+
+        assertNull(index.getTasksWithTagLiveOrNull("late"));
+        index.remove(t1);
+        assertTrue(index.getTagsLive().isEmpty());
+    }
+
+    @Test
+    public void testRemoveTag() {
+        TaskIndex index = new TaskIndex();
+        Task<?> t1 = newTask("a", "b");
+        index.add(t1);
+
+        assertEquals(ImmutableList.copyOf(index.removeTag("a")), ImmutableList.of(t1));
+        assertTrue(index.removeTag("a").isEmpty());
+        assertNull(index.getTasksWithTagLiveOrNull("a"));
+        assertSame(index.get(t1.getId()), t1);
+
+        index.remove(t1);
+        assertTrue(index.getTagsLive().isEmpty());
+    }
+
+    @Test
+    public void testConcurrentAddAndRemoveLeavesIndexEmpty() throws Exception {
+        final TaskIndex index = new TaskIndex();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = MutableList.of();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override public Void call() {
+                        for (int j = 0; j < 1000; j++) {
+                            Task<?> t = newTask("shared", "tag-"+(j % 10));
+                            index.add(t);
+                            // iterate the live view while others are modifying it
+                            for (Task<?> other : index.getTasksWithTagLiveOrNull("shared")) {
+                                other.getId();
+                            }
+                            index.remove(t);
+                        }
+                        return null;
+                    }}));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(index.size(), 0);
+        assertTrue(index.getTagsLive().isEmpty(), "tags="+index.getTagsLive());
+    }
+}
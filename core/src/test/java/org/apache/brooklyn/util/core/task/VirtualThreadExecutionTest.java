@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.brooklyn.api.mgmt.ExecutionContext;
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.testng.SkipException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class VirtualThreadExecutionTest {
+
+    private BasicExecutionManager em;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(BasicExecutionManager.THREAD_MODE, BasicExecutionManager.ThreadMode.VIRTUAL);
+        em = new BasicExecutionManager("mycontextid", props);
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() {
+        if (em != null) em.shutdownNow();
+    }
+
+    @Test
+    public void testThreadModeFallsBackIfUnsupported() throws Exception {
+        assertEquals(em.getThreadMode(), VirtualThreads.isSupported() ? BasicExecutionManager.ThreadMode.VIRTUAL : BasicExecutionManager.ThreadMode.PLATFORM);
+        BasicExecutionManager other = new BasicExecutionManager("other");
+        try {
+            assertEquals(other.getThreadMode(), BasicExecutionManager.ThreadMode.PLATFORM);
+        } finally {
+            other.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testTaskRunsWithCurrentTaskAndExecutionContext() throws Exception {
+        final BasicExecutionContext ec = new BasicExecutionContext(em);
+        Task<List<Object>> t = ec.submit(MutableMap.of("tag", "mytag"), new Callable<List<Object>>() {
+            @Override public List<Object> call() {
+                return MutableList.<Object>of(Tasks.current(), BasicExecutionContext.getCurrentExecutionContext(),
+                    VirtualThreads.isVirtual(Thread.currentThread()));
+            }});
+        List<Object> result = t.get();
+        assertSame(result.get(0), t);
+        assertSame(result.get(1), ec);
+        assertEquals(result.get(2), em.getThreadMode()==BasicExecutionManager.ThreadMode.VIRTUAL);
+        assertEquals(em.getTasksWithTag("mytag").size(), 1);
+    }
+
+    @Test(groups="Integration")
+    public void testManyConcurrentWaitingTasks() throws Exception {
+        if (em.getThreadMode()!=BasicExecutionManager.ThreadMode.VIRTUAL) {
+            throw new SkipException("Virtual threads not supported in this JVM");
+        }
+        final int numTasks = 100*1000;
+        final CountDownLatch latch = new CountDownLatch(1);
+        ExecutionContext ec = new BasicExecutionContext(em);
+        List<Task<?>> tasks = MutableList.of();
+        for (int i = 0; i < numTasks; i++) {
+            tasks.add(ec.submit(new Callable<Void>() {
+                @Override public Void call() throws Exception {
+                    latch.await();
+                    return null;
+                }}));
+        }
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(em.getNumActiveTasks(), numTasks);
+            }});
+        latch.countDown();
+        for (Task<?> t : tasks) {
+            t.get(Asserts.DEFAULT_LONG_TIMEOUT.toMilliseconds(), TimeUnit.MILLISECONDS);
+        }
+    }
+}
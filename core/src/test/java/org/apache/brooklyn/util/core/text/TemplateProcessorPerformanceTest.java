@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.text;
+
+import static org.testng.Assert.assertTrue;
+
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.brooklyn.core.test.qa.performance.AbstractPerformanceTest;
+import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.io.CharStreams;
+
+/**
+ * Measures rendering of a large config-file style template (a few thousand lines, with loops and
+ * dot-separated substitutions), as done when copying templated config files to a server.
+ */
+public class TemplateProcessorPerformanceTest extends AbstractPerformanceTest {
+
+    private static final int NUM_SECTIONS = 200;
+
+    private String templateContents;
+    private Map<String, Object> substitutions;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        StringBuilder template = new StringBuilder();
+        for (int i = 0; i < NUM_SECTIONS; i++) {
+            template.append("[section").append(i).append("]\n")
+                .append("# settings for section ").append(i).append(", generated for ${app.name}\n")
+                .append("host = ${server.host}\n")
+                .append("port = ${(server.port + ").append(i).append(")?c}\n")
+                .append("<#if server.secure>protocol = https<#else>protocol = http</#if>\n")
+                .append("<#list members as m>member.${m?index} = ${m}:${server.port?c}\n</#list>")
+                .append("\n");
+        }
+        templateContents = template.toString();
+
+        List<String> members = MutableList.of();
+        for (int i = 0; i < 10; i++) {
+            members.add("10.0.0."+i);
+        }
+        substitutions = MutableMap.<String, Object>of(
+                "app.name", "myapp",
+                "server.host", "myhost.example.com",
+                "server.port", 8080,
+                "server.secure", true,
+                "members", members);
+    }
+
+    protected int numIterations() {
+        return 1000;
+    }
+
+    @Test(groups = { "Integration", "Acceptance" })
+    public void testProcessLargeTemplate() throws Exception {
+        String result = TemplateProcessor.processTemplateContents(templateContents, substitutions);
+        assertTrue(result.contains("member.9 = 10.0.0.9:8080"), result);
+
+        measure(PerformanceTestDescriptor.create()
+                .summary("TemplateProcessorPerformanceTest.testProcessLargeTemplate")
+                .iterations(numIterations())
+                .minAcceptablePerSecond(10 * PERFORMANCE_EXPECTATION)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        TemplateProcessor.processTemplateContents(templateContents, substitutions);
+                    }}));
+    }
+
+    @Test(groups = { "Integration", "Acceptance" })
+    public void testProcessLargeTemplateToWriter() throws Exception {
+        final Writer out = CharStreams.nullWriter();
+
+        measure(PerformanceTestDescriptor.create()
+                .summary("TemplateProcessorPerformanceTest.testProcessLargeTemplateToWriter")
+                .iterations(numIterations())
+                .minAcceptablePerSecond(10 * PERFORMANCE_EXPECTATION)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        TemplateProcessor.processTemplateContents(templateContents, substitutions, out);
+                    }}));
+    }
+}
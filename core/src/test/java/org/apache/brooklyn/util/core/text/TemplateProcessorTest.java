@@ -19,6 +19,11 @@
 package org.apache.brooklyn.util.core.text;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.Locale;
 
 import com.google.common.collect.Iterables;
 import org.apache.brooklyn.api.entity.EntitySpec;
@@ -34,14 +39,22 @@ import org.apache.brooklyn.core.test.entity.TestApplication;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.entity.group.DynamicCluster;
 import org.apache.brooklyn.location.localhost.LocalhostMachineProvisioningLocation;
+import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.test.FixedLocaleTest;
+import org.apache.brooklyn.util.text.Identifiers;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+
+import freemarker.core.ParseException;
+import freemarker.template.TemplateNotFoundException;
 
 public class TemplateProcessorTest extends BrooklynAppUnitTestSupport {
     private FixedLocaleTest localeFix = new FixedLocaleTest();
@@ -256,4 +269,65 @@ public class TemplateProcessorTest extends BrooklynAppUnitTestSupport {
         assertEquals(result, "war = peace");
     }
 
+    @Test
+    public void testProcessToWriter() {
+        StringWriter out = new StringWriter();
+        TemplateProcessor.processTemplateContents("${a.b} and ${c}", ImmutableMap.of("a.b", "x", "c", 1234), out);
+        assertEquals(out.toString(), "x and 1,234");
+    }
+
+    @Test
+    public void testCompiledTemplateReused() {
+        String templateContents = "${mykey} "+Identifiers.makeRandomId(8);
+        CacheStats before = TemplateProcessor.getTemplateCacheStats();
+        assertEquals(TemplateProcessor.processTemplateContents(templateContents, app, ImmutableMap.of("mykey", "myval1")),
+                "myval1 "+templateContents.substring(9));
+        assertEquals(TemplateProcessor.processTemplateContents(templateContents, app, ImmutableMap.of("mykey", "myval2")),
+                "myval2 "+templateContents.substring(9));
+        CacheStats stats = TemplateProcessor.getTemplateCacheStats().minus(before);
+        assertEquals(stats.missCount(), 1, "stats="+stats);
+        assertTrue(stats.hitCount() >= 1, "stats="+stats);
+    }
+
+    @Test
+    public void testCachedTemplateUsesCurrentLocale() {
+        String templateContents = "${n}";
+        Locale original = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.UK);
+            assertEquals(TemplateProcessor.processTemplateContents(templateContents, ImmutableMap.of("n", 1234.5)), "1,234.5");
+            Locale.setDefault(Locale.GERMANY);
+            assertEquals(TemplateProcessor.processTemplateContents(templateContents, ImmutableMap.of("n", 1234.5)), "1.234,5");
+        } finally {
+            Locale.setDefault(original);
+        }
+    }
+
+    @Test
+    public void testInvalidTemplateNotCached() {
+        String templateContents = "${unclosed "+Identifiers.makeRandomId(8);
+        for (int i = 0; i < 2; i++) {
+            try {
+                TemplateProcessor.processTemplateContents(templateContents, ImmutableMap.<String,Object>of());
+                Assert.fail("Should have failed to parse template");
+            } catch (Exception e) {
+                Asserts.expectedFailureOfType(e, ParseException.class);
+            }
+        }
+    }
+
+    @Test
+    public void testIncludeCannotReadLocalFiles() throws Exception {
+        // a file in the current working directory, which freemarker would load from if no template loader were set
+        File file = new File(new File(".").getCanonicalFile(), "template-include-"+Identifiers.makeRandomId(8)+".txt");
+        Files.write("secret", file, Charsets.UTF_8);
+        try {
+            TemplateProcessor.processTemplateContents("before <#include \""+file.getName()+"\"> after", ImmutableMap.<String,Object>of());
+            Assert.fail("Should have failed to include "+file);
+        } catch (Exception e) {
+            Asserts.expectedFailureOfType(e, TemplateNotFoundException.class);
+        } finally {
+            file.delete();
+        }
+    }
 }
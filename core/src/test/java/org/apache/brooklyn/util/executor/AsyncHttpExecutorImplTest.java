@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.executor;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.http.executor.HttpExecutor;
+import org.apache.brooklyn.util.http.executor.HttpRequest;
+import org.apache.brooklyn.util.http.executor.HttpResponse;
+import org.apache.brooklyn.util.http.executor.apacheclient.AsyncHttpExecutorImpl;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.mockwebserver.MockResponse;
+
+public class AsyncHttpExecutorImplTest extends HttpExecutorImplTest {
+
+    @Override
+    protected Map<?, ?> getProps() {
+        return ImmutableMap.of(
+                HttpExecutorFactory.HTTP_EXECUTOR_CLASS_CONFIG, AsyncHttpExecutorImpl.class.getName(),
+                HttpExecutorFactory.HTTP_EXECUTOR_CLASS_CONFIG_PREFIX + AsyncHttpExecutorImpl.MAX_CONNECTIONS_PER_ROUTE, "2");
+    }
+
+    @Test
+    public void testConcurrentRequestsLimitedPerHost() throws Exception {
+        int numRequests = 5;
+        for (int i = 0; i < numRequests; i++) {
+            server.enqueue(new MockResponse().setResponseCode(200).setBody("body"+i));
+        }
+        AsyncHttpExecutorImpl executor = (AsyncHttpExecutorImpl) factory.getHttpExecutor(getProps());
+        try {
+            List<ListenableFuture<HttpResponse>> responses = MutableList.of();
+            for (int i = 0; i < numRequests; i++) {
+                responses.add(executor.executeAsync(new HttpRequest.Builder()
+                        .method(HttpExecutor.GET)
+                        .uri(baseUrl.toURI())
+                        .build()));
+            }
+            List<String> bodies = MutableList.of();
+            for (ListenableFuture<HttpResponse> response : responses) {
+                assertEquals(response.get().code(), 200);
+                bodies.add(new String(ByteStreams.toByteArray(response.get().getContent())));
+            }
+            assertEquals(bodies.size(), numRequests);
+            assertEquals(server.getRequestCount(), numRequests);
+        } finally {
+            executor.close();
+        }
+    }
+
+    @Test
+    public void testSharedInstanceRestoredOnDeserialization() throws Exception {
+        AsyncHttpExecutorImpl shared = AsyncHttpExecutorImpl.shared();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(shared);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(in.readObject(), shared);
+        }
+    }
+}
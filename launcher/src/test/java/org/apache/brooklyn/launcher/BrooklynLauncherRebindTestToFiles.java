@@ -24,6 +24,7 @@ import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
 import org.apache.brooklyn.core.internal.BrooklynProperties;
 import org.apache.brooklyn.core.mgmt.persist.BrooklynMementoPersisterToObjectStore;
 import org.apache.brooklyn.core.mgmt.persist.FileBasedObjectStore;
+import org.apache.brooklyn.core.mgmt.persist.MementoFormat;
 import org.apache.brooklyn.core.mgmt.persist.PersistMode;
 import org.apache.brooklyn.core.server.BrooklynServerPaths;
 import org.apache.brooklyn.core.test.entity.TestApplication;
@@ -40,7 +41,9 @@ import java.io.File;
 
 import org.testng.annotations.Test;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
+import com.google.common.collect.Iterables;
 import com.google.common.io.Files;
 
 public class BrooklynLauncherRebindTestToFiles extends BrooklynLauncherRebindTestFixture {
@@ -155,4 +158,45 @@ public class BrooklynLauncherRebindTestToFiles extends BrooklynLauncherRebindTes
             Os.deleteRecursively(destinationDir);
         }
     }
+
+    @Test(groups="Integration")
+    public void testCopyPersistedStateFromCompactFormat() throws Exception {
+        BrooklynProperties brooklynProperties = BrooklynProperties.Factory.newEmpty();
+        brooklynProperties.put(BrooklynMementoPersisterToObjectStore.PERSISTER_FORMAT, MementoFormat.COMPACT);
+        newLauncherDefault(PersistMode.CLEAN)
+                .managementContext(newManagementContextForTests(brooklynProperties))
+                .highAvailabilityMode(HighAvailabilityMode.MASTER)
+                .application(EntitySpec.create(TestApplication.class))
+                .location("localhost")
+                .start()
+                .terminate();
+        assertMementoContainerNonEmptyForTypeEventually("entities");
+        File origEntity = new File(persistenceDir, "entities").listFiles()[0];
+        assertEquals(MementoFormat.of(Files.toString(origEntity, Charsets.UTF_8)), MementoFormat.COMPACT);
+
+        File destinationDir = Files.createTempDir();
+        String destination = destinationDir.getAbsolutePath();
+        try {
+            BrooklynLauncher launcher = newLauncherDefault(PersistMode.AUTO)
+                    .highAvailabilityMode(HighAvailabilityMode.MASTER)
+                    .restServer(false);
+            launcher.copyPersistedState(destination, null);
+            launcher.terminate();
+
+            // the location is referenced by the app so must not be deleted as orphaned
+            File locations = new File(Os.mergePaths(destination, "locations"));
+            assertTrue(locations.isDirectory(), "locations directory should exist");
+            assertEquals(locations.listFiles().length, 1, "locations directory should contain one file (contained: "+
+                    Joiner.on(", ").join(locations.listFiles()) +")");
+
+            newLauncherDefault(PersistMode.AUTO)
+                    .restServer(false)
+                    .persistenceDir(destinationDir)
+                    .start();
+            assertOnlyApp(lastMgmt(), TestApplication.class);
+            assertEquals(Iterables.getOnlyElement(lastMgmt().getApplications()).getLocations().size(), 1);
+        } finally {
+            Os.deleteRecursively(destinationDir);
+        }
+    }
 }
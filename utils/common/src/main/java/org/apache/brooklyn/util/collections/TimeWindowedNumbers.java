@@ -0,0 +1,290 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.collections;
+
+import java.util.List;
+
+import org.apache.brooklyn.util.time.Duration;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+
+/**
+ * As {@link TimeWindowedList}, but specialised for numeric samples: timestamps and values are held
+ * in primitive ring buffers (which grow as needed), so adding a sample does not allocate.
+ * <p>
+ * The sum, min and max of the retained values are maintained as samples are added and pruned
+ * (min and max using monotonic queues), so are available in constant time; the min and max
+ * of the values since a given time are found by a binary search.
+ * <p>
+ * A value of {@link Double#NaN} records a sample with no value (e.g. a null sensor value):
+ * it is retained, and counts towards the time covered, but is ignored by the aggregates.
+ * Samples are expected to be added in timestamp order.
+ */
+@Beta
+public class TimeWindowedNumbers {
+
+    private final LongRing timestamps = new LongRing();
+    private final LongRing values = new LongRing();
+    /** sequence numbers of samples in decreasing order of value, for the max of any suffix */
+    private final LongRing maxQueue = new LongRing();
+    /** sequence numbers of samples in increasing order of value, for the min of any suffix */
+    private final LongRing minQueue = new LongRing();
+    /** sequence number of the oldest sample retained */
+    private long firstSeq = 0;
+    private double sum = 0;
+    private int count = 0;
+
+    private volatile Duration timePeriod;
+    private final int minVals;
+    private final int minExpiredVals;
+
+    public TimeWindowedNumbers(Duration timePeriod) {
+        this(timePeriod, 0, 0);
+    }
+
+    /**
+     * @param minVals the number of values to keep, even if out-of-date
+     * @param minExpiredVals the number of out-of-date values to keep, e.g. 1 to know the value at the start of the window
+     */
+    public TimeWindowedNumbers(Duration timePeriod, int minVals, int minExpiredVals) {
+        this.timePeriod = Preconditions.checkNotNull(timePeriod, "timePeriod");
+        this.minVals = minVals;
+        this.minExpiredVals = minExpiredVals;
+    }
+
+    public void setTimePeriod(Duration newTimePeriod) {
+        timePeriod = Preconditions.checkNotNull(newTimePeriod, "timePeriod");
+    }
+
+    public Duration getTimePeriod() {
+        return timePeriod;
+    }
+
+    public void add(Number val, long timestamp) {
+        add(val == null ? Double.NaN : val.doubleValue(), timestamp);
+    }
+
+    public synchronized void add(double val, long timestamp) {
+        long seq = firstSeq + timestamps.size();
+        timestamps.addLast(timestamp);
+        values.addLast(Double.doubleToRawLongBits(val));
+        if (!Double.isNaN(val)) {
+            sum += val;
+            count++;
+            while (!maxQueue.isEmpty() && valueOfSeq(maxQueue.peekLast()) <= val) maxQueue.removeLast();
+            maxQueue.addLast(seq);
+            while (!minQueue.isEmpty() && valueOfSeq(minQueue.peekLast()) >= val) minQueue.removeLast();
+            minQueue.addLast(seq);
+        }
+        pruneValues(timestamp);
+    }
+
+    /** Discards out-of-date values, subject to the minimum numbers of values to keep. */
+    public synchronized void pruneValues(long now) {
+        int size = timestamps.size();
+        int expiredValsCount;
+        if (timePeriod.equals(Duration.ZERO)) {
+            expiredValsCount = size;
+        } else {
+            long startTime = now - timePeriod.toMilliseconds();
+            expiredValsCount = 0;
+            while (expiredValsCount < size && timestamps.get(expiredValsCount) < startTime) {
+                expiredValsCount++;
+            }
+        }
+        int numToPrune = Math.min(expiredValsCount - minExpiredVals, size - minVals);
+        for (int i = 0; i < numToPrune; i++) {
+            removeFirst();
+        }
+    }
+
+    private void removeFirst() {
+        timestamps.removeFirst();
+        double val = Double.longBitsToDouble(values.removeFirst());
+        if (!Double.isNaN(val)) {
+            count--;
+            // reset when empty, so rounding errors do not accumulate indefinitely
+            sum = (count == 0) ? 0 : sum - val;
+            if (!maxQueue.isEmpty() && maxQueue.peekFirst() == firstSeq) maxQueue.removeFirst();
+            if (!minQueue.isEmpty() && minQueue.peekFirst() == firstSeq) minQueue.removeFirst();
+        }
+        firstSeq++;
+    }
+
+    private double valueOfSeq(long seq) {
+        return Double.longBitsToDouble(values.get((int) (seq - firstSeq)));
+    }
+
+    /** the number of samples retained, including any without a value */
+    public synchronized int size() {
+        return timestamps.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return timestamps.isEmpty();
+    }
+
+    /** the timestamp of the sample at the given index, where 0 is the oldest retained */
+    public synchronized long getTimestamp(int index) {
+        return timestamps.get(checkIndex(index));
+    }
+
+    /** the value of the sample at the given index, where 0 is the oldest retained; NaN if it has no value */
+    public synchronized double getValue(int index) {
+        return Double.longBitsToDouble(values.get(checkIndex(index)));
+    }
+
+    private int checkIndex(int index) {
+        return Preconditions.checkElementIndex(index, timestamps.size());
+    }
+
+    /** the most recent value; NaN if none */
+    public synchronized double getLatestValue() {
+        return timestamps.isEmpty() ? Double.NaN : getValue(timestamps.size() - 1);
+    }
+
+    /** the most recent timestamp; -1 if none */
+    public synchronized long getLatestTimestamp() {
+        return timestamps.isEmpty() ? -1 : timestamps.get(timestamps.size() - 1);
+    }
+
+    /** the index of the first sample at or after the given time; {@link #size()} if there is none */
+    public synchronized int indexAtOrAfter(long timestamp) {
+        int low = 0;
+        int high = timestamps.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps.get(mid) < timestamp) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /** the number of samples retained which have a value */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /** the sum of the values retained; 0 if none */
+    public synchronized double getSum() {
+        return sum;
+    }
+
+    /** the maximum of the values retained; NaN if none */
+    public synchronized double getMax() {
+        return maxQueue.isEmpty() ? Double.NaN : valueOfSeq(maxQueue.peekFirst());
+    }
+
+    /** the minimum of the values retained; NaN if none */
+    public synchronized double getMin() {
+        return minQueue.isEmpty() ? Double.NaN : valueOfSeq(minQueue.peekFirst());
+    }
+
+    /** the maximum of the values from the sample at the given index onwards; NaN if none */
+    public synchronized double getMaxFrom(int index) {
+        return suffixExtreme(maxQueue, index);
+    }
+
+    /** the minimum of the values from the sample at the given index onwards; NaN if none */
+    public synchronized double getMinFrom(int index) {
+        return suffixExtreme(minQueue, index);
+    }
+
+    private double suffixExtreme(LongRing queue, int index) {
+        // sequence numbers in the queue are increasing; the first at or after the index is the extreme of that suffix
+        long seq = firstSeq + index;
+        int low = 0;
+        int high = queue.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (queue.get(mid) < seq) low = mid + 1;
+            else high = mid;
+        }
+        return (low < queue.size()) ? valueOfSeq(queue.get(low)) : Double.NaN;
+    }
+
+    /** a copy of the samples retained, with values as {@link Double} (null for NaN) */
+    public synchronized List<TimestampedValue<Double>> getValues() {
+        List<TimestampedValue<Double>> result = MutableList.of();
+        for (int i = 0; i < timestamps.size(); i++) {
+            double val = getValue(i);
+            result.add(new TimestampedValue<Double>(Double.isNaN(val) ? null : val, timestamps.get(i)));
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "timePeriod="+timePeriod+", vals="+getValues();
+    }
+
+    /** a growable ring buffer of longs */
+    private static class LongRing {
+        private long[] elements = new long[8];
+        private int head = 0;
+        private int size = 0;
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long get(int index) {
+            return elements[(head + index) & (elements.length - 1)];
+        }
+
+        void addLast(long val) {
+            if (size == elements.length) grow();
+            elements[(head + size) & (elements.length - 1)] = val;
+            size++;
+        }
+
+        long removeFirst() {
+            long result = elements[head];
+            head = (head + 1) & (elements.length - 1);
+            size--;
+            return result;
+        }
+
+        void removeLast() {
+            size--;
+        }
+
+        long peekFirst() {
+            return elements[head];
+        }
+
+        long peekLast() {
+            return get(size - 1);
+        }
+
+        private void grow() {
+            long[] newElements = new long[elements.length * 2];
+            int firstPart = Math.min(size, elements.length - head);
+            System.arraycopy(elements, head, newElements, 0, firstPart);
+            System.arraycopy(elements, 0, newElements, firstPart, size - firstPart);
+            elements = newElements;
+            head = 0;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.http.executor.apacheclient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.http.HttpTool;
+import org.apache.brooklyn.util.http.executor.AsyncHttpExecutor;
+import org.apache.brooklyn.util.http.executor.HttpConfig;
+import org.apache.brooklyn.util.http.executor.HttpExecutor;
+import org.apache.brooklyn.util.http.executor.HttpRequest;
+import org.apache.brooklyn.util.http.executor.HttpResponse;
+import org.apache.brooklyn.util.time.Duration;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.LaxRedirectStrategy;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.ssl.SSLContexts;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * An {@link AsyncHttpExecutor} using the Apache non-blocking HTTP client.
+ * <p>
+ * Unlike {@link HttpExecutorImpl}, which builds a new client for every request, an instance keeps
+ * a pool of persistent connections, bounded overall and per host (i.e. per route), shared by all
+ * requests made through it. Requests are multiplexed over a small number of I/O threads rather than
+ * each holding a thread while waiting for the server. Use {@link #shared()} to share one pool across
+ * all callers in the JVM; other instances should be {@link #close() closed} when no longer needed.
+ * <p>
+ * A separate client (and pool) is used for each combination of redirect and trust settings in the
+ * requests' {@link HttpConfig}.
+ * <p>
+ * When persisted, only the settings are recorded; the shared instance is restored as the shared instance.
+ */
+@Beta
+public class AsyncHttpExecutorImpl implements AsyncHttpExecutor, Closeable, Serializable {
+
+    private static final long serialVersionUID = -2406151325925546236L;
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncHttpExecutorImpl.class);
+
+    /** property for the maximum number of connections open at once, across all hosts */
+    public static final String MAX_CONNECTIONS = "maxConnections";
+    /** property for the maximum number of connections open at once to any one host */
+    public static final String MAX_CONNECTIONS_PER_ROUTE = "maxConnectionsPerRoute";
+    /** property for the time to wait for a connection to be established */
+    public static final String CONNECT_TIMEOUT = "connectTimeout";
+    /** property for the time to wait for data from the server, once connected */
+    public static final String SOCKET_TIMEOUT = "socketTimeout";
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 1000;
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.THIRTY_SECONDS;
+    public static final Duration DEFAULT_SOCKET_TIMEOUT = Duration.ONE_MINUTE;
+
+    private static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
+
+    private static final HttpConfig DEFAULT_CONFIG = HttpConfig.builder()
+            .laxRedirect(false)
+            .trustAll(false)
+            .trustSelfSigned(false)
+            .build();
+
+    private static final AsyncHttpExecutorImpl SHARED = new AsyncHttpExecutorImpl(true, DEFAULT_MAX_CONNECTIONS,
+            DEFAULT_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_CONNECT_TIMEOUT, DEFAULT_SOCKET_TIMEOUT);
+
+    /** An instance with the default limits, shared JVM-wide; it is never closed. */
+    public static AsyncHttpExecutorImpl shared() {
+        return SHARED;
+    }
+
+    public static AsyncHttpExecutorImpl newInstance() {
+        return new AsyncHttpExecutorImpl();
+    }
+
+    private final boolean isShared;
+    private final int maxConnections;
+    private final int maxConnectionsPerRoute;
+    private final Duration connectTimeout;
+    private final Duration socketTimeout;
+
+    private final transient ConcurrentMap<String, CloseableHttpAsyncClient> clients = new ConcurrentHashMap<>();
+    private transient volatile boolean closed;
+
+    /**
+     * Constructor used by {@link org.apache.brooklyn.util.http.executor.HttpExecutorFactory},
+     * accepting {@link #MAX_CONNECTIONS}, {@link #MAX_CONNECTIONS_PER_ROUTE},
+     * {@link #CONNECT_TIMEOUT} and {@link #SOCKET_TIMEOUT}.
+     */
+    public AsyncHttpExecutorImpl(Map<?, ?> props) {
+        this(false,
+                props.containsKey(MAX_CONNECTIONS) ? Integer.parseInt(props.get(MAX_CONNECTIONS).toString()) : DEFAULT_MAX_CONNECTIONS,
+                props.containsKey(MAX_CONNECTIONS_PER_ROUTE) ? Integer.parseInt(props.get(MAX_CONNECTIONS_PER_ROUTE).toString()) : DEFAULT_MAX_CONNECTIONS_PER_ROUTE,
+                props.containsKey(CONNECT_TIMEOUT) ? Duration.of(props.get(CONNECT_TIMEOUT)) : DEFAULT_CONNECT_TIMEOUT,
+                props.containsKey(SOCKET_TIMEOUT) ? Duration.of(props.get(SOCKET_TIMEOUT)) : DEFAULT_SOCKET_TIMEOUT);
+    }
+
+    public AsyncHttpExecutorImpl() {
+        this(false, DEFAULT_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_CONNECT_TIMEOUT, DEFAULT_SOCKET_TIMEOUT);
+    }
+
+    private AsyncHttpExecutorImpl(boolean isShared, int maxConnections, int maxConnectionsPerRoute, Duration connectTimeout, Duration socketTimeout) {
+        this.isShared = isShared;
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        this.connectTimeout = connectTimeout;
+        this.socketTimeout = socketTimeout;
+    }
+
+    private Object readResolve() {
+        if (isShared) return SHARED;
+        // transient state is not restored on deserialization
+        return new AsyncHttpExecutorImpl(false, maxConnections, maxConnectionsPerRoute, connectTimeout, socketTimeout);
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        try {
+            return executeAsync(request).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw Exceptions.propagate(e.getCause());
+        } catch (InterruptedException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    @Override
+    public ListenableFuture<HttpResponse> executeAsync(HttpRequest request) {
+        HttpConfig config = (request.config() != null) ? request.config() : DEFAULT_CONFIG;
+        HttpUriRequest apacheRequest = toApacheRequest(request);
+        HttpClientContext context = HttpClientContext.create();
+        if (request.credentials() != null) {
+            CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+            credentialsProvider.setCredentials(new AuthScope(request.uri().getHost(), request.uri().getPort()),
+                    new UsernamePasswordCredentials(request.credentials().getUser(), request.credentials().getPassword()));
+            context.setCredentialsProvider(credentialsProvider);
+        }
+
+        final SettableFuture<HttpResponse> result = SettableFuture.create();
+        final Future<org.apache.http.HttpResponse> apacheFuture = getClient(config).execute(apacheRequest, context,
+                new FutureCallback<org.apache.http.HttpResponse>() {
+                    @Override
+                    public void completed(org.apache.http.HttpResponse response) {
+                        try {
+                            result.set(toResponse(response));
+                        } catch (Throwable t) {
+                            result.setException(t);
+                        }
+                    }
+                    @Override
+                    public void failed(Exception e) {
+                        result.setException(e);
+                    }
+                    @Override
+                    public void cancelled() {
+                        result.cancel(false);
+                    }
+                });
+        result.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (result.isCancelled()) apacheFuture.cancel(true);
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
+    }
+
+    /** Closes the clients and their connections; the shared instance cannot be closed. */
+    @Override
+    public void close() throws IOException {
+        if (isShared) throw new UnsupportedOperationException("Cannot close the shared "+getClass().getSimpleName());
+        synchronized (clients) {
+            closed = true;
+            for (CloseableHttpAsyncClient client : clients.values()) {
+                client.close();
+            }
+            clients.clear();
+        }
+    }
+
+    protected CloseableHttpAsyncClient getClient(HttpConfig config) {
+        String key = "laxRedirect="+config.laxRedirect()+", trustAll="+config.trustAll()+", trustSelfSigned="+config.trustSelfSigned();
+        CloseableHttpAsyncClient result = clients.get(key);
+        if (result == null) {
+            synchronized (clients) {
+                if (closed) throw new IllegalStateException(this+" is closed");
+                result = clients.get(key);
+                if (result == null) {
+                    result = newClient(config, key);
+                    result.start();
+                    clients.put(key, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    protected CloseableHttpAsyncClient newClient(HttpConfig config, String description) {
+        if (LOG.isDebugEnabled()) LOG.debug("Creating async http client for "+this+", with "+description);
+        HttpAsyncClientBuilder builder = HttpAsyncClients.custom()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout((int) connectTimeout.toMilliseconds())
+                        .setSocketTimeout((int) socketTimeout.toMilliseconds())
+                        .build())
+                .setThreadFactory(new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread result = new Thread(r, "brooklyn-http-async-"+count.incrementAndGet());
+                        result.setDaemon(true);
+                        return result;
+                    }
+                });
+        if (config.laxRedirect()) {
+            builder.setRedirectStrategy(new LaxRedirectStrategy());
+        }
+        if (config.trustAll() || config.trustSelfSigned()) {
+            try {
+                SSLContext sslContext = SSLContexts.custom()
+                        .loadTrustMaterial(null, config.trustAll() ? new HttpTool.TrustAllStrategy() : new TrustSelfSignedStrategy())
+                        .build();
+                builder.setSSLContext(sslContext).setSSLHostnameVerifier(NoopHostnameVerifier.INSTANCE);
+            } catch (Exception e) {
+                throw Exceptions.propagate(e);
+            }
+        }
+        return builder.build();
+    }
+
+    protected HttpUriRequest toApacheRequest(HttpRequest request) {
+        RequestBuilder builder;
+        switch (request.method().toUpperCase()) {
+        case HttpExecutor.GET:
+            builder = RequestBuilder.get();
+            break;
+        case HttpExecutor.HEAD:
+            builder = RequestBuilder.head();
+            break;
+        case HttpExecutor.POST:
+            builder = RequestBuilder.post().setEntity(new ByteArrayEntity(orEmpty(request.body())));
+            break;
+        case HttpExecutor.PUT:
+            builder = RequestBuilder.put().setEntity(new ByteArrayEntity(orEmpty(request.body())));
+            break;
+        case HttpExecutor.DELETE:
+            builder = RequestBuilder.delete();
+            break;
+        default:
+            throw new IllegalArgumentException("Unsupported method '"+request.method()+"' for URI "+request.uri());
+        }
+        builder.setUri(request.uri());
+        for (Map.Entry<String, String> entry : request.headers().entries()) {
+            builder.addHeader(entry.getKey(), entry.getValue());
+        }
+        return builder.build();
+    }
+
+    /** Converts the response, whose entity has already been read into memory by the async client. */
+    protected HttpResponse toResponse(org.apache.http.HttpResponse response) throws IOException {
+        HttpResponse.Builder builder = new HttpResponse.Builder()
+                .code(response.getStatusLine().getStatusCode())
+                .reasonPhrase(response.getStatusLine().getReasonPhrase());
+        for (Header header : response.getAllHeaders()) {
+            builder.header(header.getName(), header.getValue());
+        }
+        HttpEntity entity = response.getEntity();
+        if (entity != null) {
+            builder.content(EntityUtils.toByteArray(entity));
+        }
+        return builder.build();
+    }
+
+    protected byte[] orEmpty(byte[] val) {
+        return (val != null) ? val : EMPTY_BYTE_ARRAY;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()+"["+(isShared ? "shared, " : "")+"maxConnections="+maxConnections
+                +", maxConnectionsPerRoute="+maxConnectionsPerRoute+"]";
+    }
+}
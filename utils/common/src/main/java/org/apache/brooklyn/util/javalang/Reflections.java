@@ -892,9 +892,18 @@ public class Reflections {
             clazz = clazzOrInstance.getClass();
         }
         
+        return getMethodFromArgsAmong(Arrays.asList(clazz.getMethods()), method, args, coercer);
+    }
+
+    /** as {@link #getMethodFromArgs(Object, String, List, Optional)} but choosing from the given candidate methods,
+     * e.g. where the caller has cached the methods of a class */
+    public static Maybe<Method> getMethodFromArgsAmong(Iterable<Method> candidates, String method, List<?> args, Optional<? extends TypeCoercer> coercer) {
+        Preconditions.checkNotNull(method, "method");
+        Preconditions.checkNotNull(args, "args to "+method);
+        
         Object[] argsArray = args.toArray();
 
-        for (Method m: clazz.getMethods()) {
+        for (Method m: candidates) {
             if (method.equals(m.getName())) {
                 Class<?>[] parameterTypes = m.getParameterTypes();
                 if (m.isVarArgs()) {
@@ -59,6 +59,12 @@ public class CommonAdaptorTryCoercions {
     }
     
     protected static class TryCoercerWithFromMethod implements TryCoercer {
+        @Override
+        public boolean isApplicabilityDeterminedByTypes() {
+            // looks only at the methods of the target type and the class of the input
+            return true;
+        }
+
         @Override
         @SuppressWarnings("unchecked")
         public <T> Maybe<T> tryCoerce(Object input, TypeToken<T> targetType) {
@@ -91,6 +97,11 @@ public class CommonAdaptorTryCoercions {
     }
     
     protected static class TryCoercerToEnum implements TryCoercer {
+        @Override
+        public boolean isApplicabilityDeterminedByTypes() {
+            return true;
+        }
+
         @Override
         @SuppressWarnings("unchecked")
         public <T> Maybe<T> tryCoerce(Object input, TypeToken<T> targetType) {
@@ -111,6 +122,11 @@ public class CommonAdaptorTryCoercions {
         public TryCoercerToArray(TypeCoercerExtensible coercer) {
             this.coercer = coercer;
         }
+
+        @Override
+        public boolean isApplicabilityDeterminedByTypes() {
+            return true;
+        }
         
         @Override
         @SuppressWarnings("unchecked")
@@ -142,6 +158,11 @@ public class CommonAdaptorTryCoercions {
     }
 
     protected static class TryCoercerForPrimitivesAndStrings implements TryCoercer {
+        @Override
+        public boolean isApplicabilityDeterminedByTypes() {
+            return true;
+        }
+
         @Override
         public <T> Maybe<T> tryCoerce(Object input, TypeToken<T> targetType) {
             return PrimitiveStringTypeCoercions.tryCoerce(input, targetType.getRawType());
@@ -42,4 +42,16 @@ public interface TryCoercer {
      * </ul>
      */
     <T> Maybe<T> tryCoerce(Object input, TypeToken<T> type);
+
+    /**
+     * Whether a null result from {@link #tryCoerce(Object, TypeToken)} depends only on the class of the input
+     * and the target type, rather than on the input value. If so, {@link TypeCoercerExtensible} remembers
+     * it and does not try this coercer again for that pair.
+     * <p>
+     * Defaults to false, so the coercer is tried every time.
+     */
+    @Beta
+    default boolean isApplicabilityDeterminedByTypes() {
+        return false;
+    }
 }
@@ -26,6 +26,8 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.guava.AnyExceptionSupplier;
@@ -40,8 +42,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
@@ -69,6 +74,11 @@ import com.google.common.reflect.TypeToken;
  * <li> {@link Date} -- parses using {@link Time#parseDate(String)}
  * <li> {@link Duration} -- parses using {@link Duration#parse(String)}
  * </ul>
+ * <p>
+ * For each pair of value class and target type it remembers which generic coercers apply
+ * (see {@link TryCoercer#isApplicabilityDeterminedByTypes()}) and which registry adapters accept the value,
+ * so repeated coercions do not search for them again or lock the registry;
+ * this is discarded whenever an adapter is registered.
  */
 public class TypeCoercerExtensible implements TypeCoercer {
 
@@ -97,7 +107,37 @@ public class TypeCoercerExtensible implements TypeCoercer {
     /** Store the generic coercers, ordered by the name. */
     private final Map<String,TryCoercer> genericCoercersByName = Maps.newTreeMap();
     /** Put the list in a cache, reset each time the map is updated. */
-    private List<TryCoercer> genericCoercers = new ArrayList<>();
+    private volatile List<TryCoercer> genericCoercers = new ArrayList<>();
+
+    /** Incremented when any adapter is registered, so that cached {@link CoercionPlan}s built before are not used. */
+    private final AtomicInteger adaptersVersion = new AtomicInteger();
+    /**
+     * The {@link CoercionPlan} for each value class and (non-parameterized) target type seen.
+     * Both levels are weak-keyed, and plans do not refer to the target type, so classes
+     * (e.g. from bundles which are later uninstalled) are not kept from being unloaded.
+     */
+    private final Cache<Class<?>, Cache<Class<?>, CoercionPlan>> plans = CacheBuilder.newBuilder()
+            .weakKeys()
+            .maximumSize(1000)
+            .build();
+    /** for comparison in tests */
+    @VisibleForTesting
+    boolean usePlans = true;
+
+    /** What to try when coercing instances of a given class to a given type. */
+    private static class CoercionPlan {
+        final int version;
+        /** the generic coercers, omitting those known not to apply */
+        final List<TryCoercer> genericCoercers;
+        /** the registry adapters for the target type whose source type the value class is assignable to, in registry order */
+        final List<Map.Entry<Class<?>, Function<?,?>>> adapters;
+
+        CoercionPlan(int version, List<TryCoercer> genericCoercers, List<Map.Entry<Class<?>, Function<?,?>>> adapters) {
+            this.version = version;
+            this.genericCoercers = genericCoercers;
+            this.adapters = adapters;
+        }
+    }
 
     @Override
     public <T> T coerce(Object value, Class<T> targetType) {
@@ -151,8 +191,22 @@ public class TypeCoercerExtensible implements TypeCoercer {
         if (targetType.isInstance(value)) return Maybe.of( (T) value );
 
         targetTypeToken = TypeTokens.getTypeToken(targetTypeToken, targetType);
-        for (TryCoercer coercer : genericCoercers) {
+        // generic coercers may depend on the type arguments, so plans are only remembered for plain classes
+        boolean rememberPlan = usePlans && targetTypeToken.getType() instanceof Class;
+        int version = adaptersVersion.get();
+        CoercionPlan plan = rememberPlan ? getPlan(value.getClass(), targetType) : null;
+        if (plan!=null && plan.version!=version) plan = null;
+        List<TryCoercer> coercers = plan!=null ? plan.genericCoercers : genericCoercers;
+        // when there is no plan, note which coercers apply so we can make one
+        List<TryCoercer> applicableCoercers = plan!=null ? null : new ArrayList<TryCoercer>();
+        Maybe<T> found = null;
+        int i = 0;
+        while (found==null && i<coercers.size()) {
+            TryCoercer coercer = coercers.get(i++);
             result = coercer.tryCoerce(value, targetTypeToken);
+            if (applicableCoercers!=null && (result!=null || !coercer.isApplicabilityDeterminedByTypes())) {
+                applicableCoercers.add(coercer);
+            }
             
             if (result!=null && result.isPresent()) {
                 // Check if need to unwrap again (e.g. if want List<Integer> and are given a String "1,2,3"
@@ -161,18 +215,28 @@ public class TypeCoercerExtensible implements TypeCoercer {
                 if (!Objects.equal(value, result.get()) && !Objects.equal(value.getClass(), result.get().getClass()) && targetTypeToken.getType() instanceof ParameterizedType) {
                     Maybe<T> resultM = tryCoerce(result.get(), targetTypeToken);
                     if (resultM!=null) {
-                        if (resultM.isPresent()) return resultM;
+                        if (resultM.isPresent()) {
+                            found = resultM;
+                            continue;
+                        }
                         // if couldn't coerce parameterized types then back out of this coercer
                         result = resultM;
                     }
                 } else {
-                    return result;
+                    found = result;
+                    continue;
                 }
             }
             
             // remember any error if we were first
             if (result!=null && firstError==null) firstError = result;
         }
+        if (applicableCoercers!=null) {
+            // any not tried might apply
+            applicableCoercers.addAll(coercers.subList(i, coercers.size()));
+            plan = newPlan(value.getClass(), targetType, version, applicableCoercers, rememberPlan);
+        }
+        if (found!=null) return found;
         
         //ENHANCEMENT could look in type hierarchy of both types for a conversion method...
         
@@ -189,48 +253,43 @@ public class TypeCoercerExtensible implements TypeCoercer {
             }
         }
         
-        //now look in registry
-        synchronized (registry) {
-            Map<Class<?>, Function<?,?>> adapters = registry.row(targetType);
-            for (Map.Entry<Class<?>, Function<?,?>> entry : adapters.entrySet()) {
-                if (entry.getKey().isInstance(value)) {
-                    try {
-                        T resultT = ((Function<Object,T>)entry.getValue()).apply(value);
-                        
-                        // Check if need to unwrap again (e.g. if want List<Integer> and are given a String "1,2,3"
-                        // then we'll have so far converted to List.of("1", "2", "3"). Call recursively.
-                        // First check that value has changed, to avoid stack overflow!
-                        if (!Objects.equal(value, resultT) && targetTypeToken.getType() instanceof ParameterizedType) {
-                            // Could duplicate check for `result instanceof Collection` etc; but recursive call
-                            // will be fine as if that doesn't match we'll safely reach `targetType.isInstance(value)`
-                            // and just return the result.
-                            Maybe<T> resultM = tryCoerce(resultT, targetTypeToken);
-                            if (resultM!=null) {
-                                if (resultM.isPresent()) return resultM;
-                                // if couldn't coerce parameterized types then back out of this coercer
-                                // but remember the error if we were first
-                                if (firstError==null) firstError = resultM;
-                            }
-                        } else {
-                            return Maybe.of(resultT);
-                        }
-                    } catch (Exception e) {
-                        Exceptions.propagateIfFatal(e);
-                        if (log.isDebugEnabled()) {
-                            log.debug("When coercing, registry adapter "+entry+" gave error on "+value+" -> "+targetType+" "
-                                + (firstError==null ? "(rethrowing)" : "(suppressing as there is already an error)")
-                                + ": "+e, e);
-                        }
-                        if (firstError==null) {
-                            if (e instanceof ClassCoercionException) {
-                                firstError = Maybe.absent(e);
-                            } else {
-                                firstError = Maybe.absent(new ClassCoercionException("Cannot coerce type "+value.getClass().getCanonicalName()+" to "+targetTypeToken+" ("+value+"): registered coercer failed", e));
-                            }
-                        }
-                        continue;
+        //now look in registry, at the adapters which accept the value
+        for (Map.Entry<Class<?>, Function<?,?>> entry : plan.adapters) {
+            try {
+                T resultT = ((Function<Object,T>)entry.getValue()).apply(value);
+                
+                // Check if need to unwrap again (e.g. if want List<Integer> and are given a String "1,2,3"
+                // then we'll have so far converted to List.of("1", "2", "3"). Call recursively.
+                // First check that value has changed, to avoid stack overflow!
+                if (!Objects.equal(value, resultT) && targetTypeToken.getType() instanceof ParameterizedType) {
+                    // Could duplicate check for `result instanceof Collection` etc; but recursive call
+                    // will be fine as if that doesn't match we'll safely reach `targetType.isInstance(value)`
+                    // and just return the result.
+                    Maybe<T> resultM = tryCoerce(resultT, targetTypeToken);
+                    if (resultM!=null) {
+                        if (resultM.isPresent()) return resultM;
+                        // if couldn't coerce parameterized types then back out of this coercer
+                        // but remember the error if we were first
+                        if (firstError==null) firstError = resultM;
+                    }
+                } else {
+                    return Maybe.of(resultT);
+                }
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                if (log.isDebugEnabled()) {
+                    log.debug("When coercing, registry adapter "+entry+" gave error on "+value+" -> "+targetType+" "
+                        + (firstError==null ? "(rethrowing)" : "(suppressing as there is already an error)")
+                        + ": "+e, e);
+                }
+                if (firstError==null) {
+                    if (e instanceof ClassCoercionException) {
+                        firstError = Maybe.absent(e);
+                    } else {
+                        firstError = Maybe.absent(new ClassCoercionException("Cannot coerce type "+value.getClass().getCanonicalName()+" to "+targetTypeToken+" ("+value+"): registered coercer failed", e));
                     }
                 }
+                continue;
             }
         }
 
@@ -248,6 +307,32 @@ public class TypeCoercerExtensible implements TypeCoercer {
         return Maybe.absent(new ClassCoercionException("Cannot coerce type "+value.getClass().getCanonicalName()+" to "+targetTypeToken+" ("+value+"): no adapter known"));
     }
 
+    private CoercionPlan getPlan(Class<?> valueClass, Class<?> targetType) {
+        Cache<Class<?>, CoercionPlan> plansForValueClass = plans.getIfPresent(valueClass);
+        return plansForValueClass==null ? null : plansForValueClass.getIfPresent(targetType);
+    }
+
+    private CoercionPlan newPlan(Class<?> valueClass, Class<?> targetType, int version, List<TryCoercer> applicableCoercers, boolean remember) {
+        List<Map.Entry<Class<?>, Function<?,?>>> adapters = new ArrayList<>();
+        synchronized (registry) {
+            for (Map.Entry<Class<?>, Function<?,?>> entry : registry.row(targetType).entrySet()) {
+                if (entry.getKey().isAssignableFrom(valueClass)) {
+                    adapters.add(Maps.immutableEntry(entry.getKey(), entry.getValue()));
+                }
+            }
+        }
+        CoercionPlan result = new CoercionPlan(version, ImmutableList.copyOf(applicableCoercers), ImmutableList.copyOf(adapters));
+        if (remember) {
+            try {
+                plans.get(valueClass, () -> CacheBuilder.newBuilder().weakKeys().<Class<?>, CoercionPlan>build())
+                    .put(targetType, result);
+            } catch (ExecutionException e) {
+                throw Exceptions.propagate(e);
+            }
+        }
+        return result;
+    }
+
     @SuppressWarnings("unchecked")
     protected <T> Maybe<T> tryCoerceMap(Object value, TypeToken<T> targetTypeToken) {
         if (!(value instanceof Map) || !(Map.class.isAssignableFrom(targetTypeToken.getRawType()))) return null;
@@ -326,7 +411,12 @@ public class TypeCoercerExtensible implements TypeCoercer {
     /** Registers an adapter for use with type coercion. Returns any old adapter registered for this pair. */
     @SuppressWarnings("unchecked")
     public synchronized <A,B> Function<? super A,B> registerAdapter(Class<A> sourceType, Class<B> targetType, Function<? super A,B> fn) {
-        return (Function<? super A,B>) registry.put(targetType, sourceType, fn);
+        Function<? super A,B> result;
+        synchronized (registry) {
+            result = (Function<? super A,B>) registry.put(targetType, sourceType, fn);
+        }
+        adaptersChanged();
+        return result;
     }
     
     /** Registers a generic adapter for use with type coercion. */
@@ -336,6 +426,7 @@ public class TypeCoercerExtensible implements TypeCoercer {
             genericCoercersByName.put(nameAndOrder, fn);
             genericCoercers = ImmutableList.copyOf(genericCoercersByName.values());
         }
+        adaptersChanged();
     }
     
     /** @deprecated since introduction, use {@link #registerAdapter(String, TryCoercer)} */
@@ -345,6 +436,12 @@ public class TypeCoercerExtensible implements TypeCoercer {
             genericCoercersByName.put(Time.makeDateStampString()+"-"+Strings.makePaddedString(""+(genericCoercersByName.size()), 3, "0", ""), fn);
             genericCoercers = ImmutableList.copyOf(genericCoercersByName.values());
         }
+        adaptersChanged();
+    }
+
+    private void adaptersChanged() {
+        adaptersVersion.incrementAndGet();
+        plans.invalidateAll();
     }
 
 }
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.collections;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class TimeWindowedNumbersTest {
+
+    @Test
+    public void testKeepsOnlyRecentVals() {
+        TimeWindowedNumbers window = new TimeWindowedNumbers(Duration.millis(1000));
+
+        window.add(1, 0L);
+        window.add(2, 100L);
+        assertEquals(window.getValues(), timestampedValues(1d, 0L, 2d, 100L));
+
+        window.pruneValues(1100L);
+        assertEquals(window.getValues(), timestampedValues(2d, 100L));
+
+        window.pruneValues(1101L);
+        assertTrue(window.isEmpty());
+        assertEquals(window.getSum(), 0d);
+        assertTrue(Double.isNaN(window.getMax()));
+        assertTrue(Double.isNaN(window.getLatestValue()));
+    }
+
+    @Test
+    public void testKeepsMinVals() {
+        TimeWindowedNumbers window = new TimeWindowedNumbers(Duration.millis(1), 2, 0);
+
+        window.add(1, 0L);
+        window.add(2, 100L);
+        window.add(3, 200L);
+        assertEquals(window.getValues(), timestampedValues(2d, 100L, 3d, 200L));
+    }
+
+    @Test
+    public void testKeepsMinExpiredVals() {
+        TimeWindowedNumbers window = new TimeWindowedNumbers(Duration.millis(1000), 0, 1);
+
+        window.add(1, 0L);
+        window.add(2, 100L);
+        window.pruneValues(1001L);
+        assertEquals(window.getValues(), timestampedValues(1d, 0L, 2d, 100L));
+        window.pruneValues(1101L);
+        assertEquals(window.getValues(), timestampedValues(2d, 100L));
+    }
+
+    @Test
+    public void testAggregatesIgnoreMissingValues() {
+        TimeWindowedNumbers window = new TimeWindowedNumbers(Duration.ONE_MINUTE);
+
+        window.add(3, 1L);
+        window.add(null, 2L);
+        window.add(-1, 3L);
+        assertEquals(window.size(), 3);
+        assertEquals(window.getCount(), 2);
+        assertEquals(window.getSum(), 2d);
+        assertEquals(window.getMax(), 3d);
+        assertEquals(window.getMin(), -1d);
+        assertEquals(window.getValues(), timestampedValues(3d, 1L, null, 2L, -1d, 3L));
+    }
+
+    @Test
+    public void testIndexAtOrAfter() {
+        TimeWindowedNumbers window = new TimeWindowedNumbers(Duration.ONE_MINUTE);
+
+        assertEquals(window.indexAtOrAfter(0L), 0);
+        window.add(1, 10L);
+        window.add(2, 20L);
+        assertEquals(window.indexAtOrAfter(5L), 0);
+        assertEquals(window.indexAtOrAfter(10L), 0);
+        assertEquals(window.indexAtOrAfter(11L), 1);
+        assertEquals(window.indexAtOrAfter(21L), 2);
+    }
+
+    @Test
+    public void testAggregatesMatchRecomputingAsWindowSlides() {
+        TimeWindowedNumbers window = new TimeWindowedNumbers(Duration.millis(50), 0, 1);
+        Random random = new Random(0);
+
+        // enough samples for the ring buffers to grow and wrap around repeatedly
+        for (long time = 0; time < 2000; time += 1 + random.nextInt(3)) {
+            window.add(random.nextInt(100), time);
+
+            List<TimestampedValue<Double>> vals = window.getValues();
+            double sum = 0;
+            for (TimestampedValue<Double> val : vals) {
+                sum += val.getValue();
+            }
+            assertEquals(window.getSum(), sum, 0.000001);
+            for (int i = 0; i < vals.size(); i++) {
+                double max = Double.NEGATIVE_INFINITY;
+                double min = Double.POSITIVE_INFINITY;
+                for (TimestampedValue<Double> val : vals.subList(i, vals.size())) {
+                    max = Math.max(max, val.getValue());
+                    min = Math.min(min, val.getValue());
+                }
+                assertEquals(window.getMaxFrom(i), max, "index "+i+" in "+window);
+                assertEquals(window.getMinFrom(i), min, "index "+i+" in "+window);
+            }
+            assertEquals(window.getMax(), window.getMaxFrom(0));
+            assertEquals(window.getMin(), window.getMinFrom(0));
+        }
+    }
+
+    private static List<TimestampedValue<Double>> timestampedValues(Object... valsAndTimestamps) {
+        ImmutableList.Builder<TimestampedValue<Double>> result = ImmutableList.builder();
+        for (int i = 0; i < valsAndTimestamps.length; i += 2) {
+            result.add(new TimestampedValue<Double>((Double) valsAndTimestamps[i], (Long) valsAndTimestamps[i+1]));
+        }
+        return result.build();
+    }
+}
@@ -166,6 +166,17 @@ public class ReflectionsTest {
         Assert.assertEquals(Reflections.getMethodFromArgs(CI1.class, "m1", Arrays.<Object>asList("hello", 3, 4, 5)).get(), m1Long);
     }
     
+    @Test
+    public void testGetMethodAmongCandidates() throws Exception {
+        Method m1Short = CI1.class.getMethod("m1", String.class, int.class);
+        Method m1Long = CI1.class.getMethod("m1", String.class, int.class, int.class, int[].class);
+        List<Method> candidates = ImmutableList.of(m1Long);
+        
+        Assert.assertEquals(Reflections.getMethodFromArgsAmong(candidates, "m1", Arrays.<Object>asList("hello", 3, 4, 5), Optional.<TypeCoercer>absent()).get(), m1Long);
+        Assert.assertFalse(Reflections.getMethodFromArgsAmong(candidates, "m1", Arrays.<Object>asList("hello", 3), Optional.<TypeCoercer>absent()).isPresent());
+        Assert.assertEquals(Reflections.getMethodFromArgsAmong(ImmutableList.of(m1Long, m1Short), "m1", Arrays.<Object>asList("hello", 3), Optional.<TypeCoercer>absent()).get(), m1Short);
+    }
+    
     @Test
     public void testConstruction() throws Exception {
         Assert.assertEquals(Reflections.invokeConstructorFromArgs(CI1.class, new Object[] {"hello", 3}).get().constructorArgs, ImmutableList.of("hello", 3));
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.javalang.coerce;
+
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.reflect.TypeToken;
+
+/**
+ * Measures the rate of common coercions with and without the coercion plans
+ * remembered by {@link TypeCoercerExtensible}. Each case is warmed up before it is measured.
+ */
+public class TypeCoercerExtensiblePerformanceTest {
+
+    private static final Logger log = LoggerFactory.getLogger(TypeCoercerExtensiblePerformanceTest.class);
+
+    private static final int WARMUP_ITERATIONS = 100*1000;
+    private static final int ITERATIONS = 1000*1000;
+
+    public enum MyEnum { FOO, BAR }
+
+    @DataProvider(name = "coercions")
+    public Object[][] coercions() {
+        return new Object[][] {
+            {"1", TypeToken.of(Integer.class)},
+            {1, TypeToken.of(Long.class)},
+            {1, TypeToken.of(int.class)},
+            {true, TypeToken.of(String.class)},
+            {"1m", TypeToken.of(Duration.class)},
+            {"BAR", TypeToken.of(MyEnum.class)},
+            {"127.0.0.1", TypeToken.of(java.net.InetAddress.class)},
+        };
+    }
+
+    @Test(groups = "Integration", dataProvider = "coercions")
+    public void testCoercionRate(Object value, TypeToken<?> type) {
+        double withPlans = measure(value, type, true);
+        double withoutPlans = measure(value, type, false);
+        log.info("Coercing "+value.getClass().getSimpleName()+" to "+type+": "+Math.round(withPlans)+"/s remembering plans, "
+            + Math.round(withoutPlans)+"/s without ("+String.format("%.1f", withPlans/withoutPlans)+"x)");
+        // generous, as timings vary; the point is that remembering plans does not slow things down
+        assertTrue(withPlans > withoutPlans/2, "withPlans="+withPlans+"; withoutPlans="+withoutPlans);
+    }
+
+    protected double measure(Object value, TypeToken<?> type, boolean usePlans) {
+        TypeCoercerExtensible coercer = TypeCoercerExtensible.newDefault();
+        coercer.usePlans = usePlans;
+        for (int i=0; i<WARMUP_ITERATIONS; i++) {
+            coercer.coerce(value, type);
+        }
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        for (int i=0; i<ITERATIONS; i++) {
+            coercer.coerce(value, type);
+        }
+        return ITERATIONS * 1000.0 / Math.max(1, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+    }
+}
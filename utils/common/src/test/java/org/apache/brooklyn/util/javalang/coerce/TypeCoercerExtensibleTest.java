@@ -19,19 +19,35 @@
 package org.apache.brooklyn.util.javalang.coerce;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 
+import java.lang.ref.WeakReference;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.stream.Streams;
 import org.apache.brooklyn.util.text.Strings;
+import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Function;
 import com.google.common.base.MoreObjects;
 import com.google.common.reflect.TypeToken;
 
 public class TypeCoercerExtensibleTest {
 
-    TypeCoercerExtensible coercer = TypeCoercerExtensible.newDefault();
+    TypeCoercerExtensible coercer;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() {
+        // new each time, as tests register adapters
+        coercer = TypeCoercerExtensible.newDefault();
+    }
     
     protected <T> T coerce(Object x, Class<T> type) {
         return coercer.coerce(x, type);
@@ -57,6 +73,97 @@ public class TypeCoercerExtensibleTest {
         assertEquals(coerce("abc", MyClazz.class), new MyClazz("myprefixabc"));
     }
     
+    @Test
+    public void testAdapterRegisteredAfterCoercionIsUsed() {
+        assertTrue(coercer.tryCoerce("abc", MyClazz.class).isAbsent());
+        coercer.registerAdapter(String.class, MyClazz.class, new Function<String,MyClazz>() {
+            @Override
+            public MyClazz apply(String input) {
+                return new MyClazz("adapted"+input);
+            }
+        });
+        assertEquals(coerce("abc", MyClazz.class), new MyClazz("adaptedabc"));
+    }
+
+    @Test
+    public void testGenericCoercerDependingOnValueIsTriedEachTime() {
+        coercer.registerAdapter("test-"+Strings.makeRandomId(4), new TryCoercer() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> Maybe<T> tryCoerce(Object input, TypeToken<T> type) {
+                if (type.getRawType() == MyClazz.class && ((String)input).startsWith("my")) {
+                    return (Maybe<T>) Maybe.of(new MyClazz((String)input));
+                } else {
+                    return null;
+                }
+            }
+        });
+        assertTrue(coercer.tryCoerce("abc", MyClazz.class).isAbsent());
+        assertEquals(coerce("myabc", MyClazz.class), new MyClazz("myabc"));
+    }
+
+    @Test
+    public void testGenericCoercerDependingOnTypesIsSkippedWhenNotApplicable() {
+        final AtomicInteger calls = new AtomicInteger();
+        coercer.registerAdapter("test-"+Strings.makeRandomId(4), new TryCoercer() {
+            @Override
+            public boolean isApplicabilityDeterminedByTypes() {
+                return true;
+            }
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> Maybe<T> tryCoerce(Object input, TypeToken<T> type) {
+                calls.incrementAndGet();
+                if (type.getRawType() == MyClazz.class && input instanceof Integer) {
+                    return (Maybe<T>) Maybe.of(new MyClazz("number"+input));
+                } else {
+                    return null;
+                }
+            }
+        });
+        for (int i=0; i<3; i++) {
+            assertTrue(coercer.tryCoerce("abc", MyClazz.class).isAbsent());
+        }
+        assertEquals(calls.get(), 1);
+        for (int i=0; i<3; i++) {
+            assertEquals(coerce(i, MyClazz.class), new MyClazz("number"+i));
+        }
+        assertEquals(calls.get(), 4);
+    }
+
+    @Test
+    public void testRememberedPlansDoNotPreventClassUnloading() throws Exception {
+        final WeakReference<ClassLoader> loader = coerceWithIsolatedClass();
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                System.gc();
+                assertNull(loader.get());
+            }});
+    }
+
+    /** coerces to and from a copy of a (top-level) class in a new loader, returning a reference to that loader */
+    private WeakReference<ClassLoader> coerceWithIsolatedClass() throws Exception {
+        ClassLoader loader = new ClassLoader(getClass().getClassLoader()) {
+            @Override
+            protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                if (!name.equals(MutableList.class.getName())) return super.loadClass(name, resolve);
+                synchronized (getClassLoadingLock(name)) {
+                    Class<?> result = findLoadedClass(name);
+                    if (result==null) {
+                        byte[] bytes = Streams.readFullyAndClose(getParent().getResourceAsStream(name.replace('.', '/')+".class"));
+                        result = defineClass(name, bytes, 0, bytes.length);
+                    }
+                    return result;
+                }
+            }
+        };
+        Class<?> isolated = loader.loadClass(MutableList.class.getName());
+        assertNotEquals(isolated, MutableList.class);
+        coercer.tryCoerce("x", isolated);
+        coercer.tryCoerce(isolated.newInstance(), Integer.class);
+        return new WeakReference<ClassLoader>(loader);
+    }
+
     public static class MyClazz {
         private final String val;
 